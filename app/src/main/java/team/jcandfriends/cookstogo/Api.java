@@ -1,7 +1,9 @@
 package team.jcandfriends.cookstogo;
 
-import org.json.JSONException;
-import org.json.JSONObject;
+import android.util.Log;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 
 import team.jcandfriends.cookstogo.inflector.English;
 
@@ -10,6 +12,8 @@ import team.jcandfriends.cookstogo.inflector.English;
  */
 public final class Api {
 
+    private static final String TAG = "Api";
+
     public static final String RECIPES = "http://cookstogo.herokuapp.com/api/recipes/";
     public static final String RECOMMEND_RECIPES = "http://cookstogo.herokuapp.com/api/recipes/recommend";
     public static final String RECIPE_TYPES = "http://cookstogo.herokuapp.com/api/recipe-types/";
@@ -112,46 +116,31 @@ public final class Api {
     }
 
     /**
-     * Returns a human readable representation of the recipeComponent
+     * Returns the URL of the first page of the recipes that match a query
      *
-     * @param recipeComponent the recipeComponent
-     * @return the human readable representation of the recipeComponent
+     * @param query The query
+     * @return the URL of the first page of the search results
      */
-    public static String getIngredientReadableName(JSONObject recipeComponent) {
+    public static String getRecipeSearchUrl(String query) {
+        return Api.RECIPES + "?search=" + Api.encode(query);
+    }
+
+    /**
+     * Returns the URL of the first page of the ingredients that match a query
+     *
+     * @param query The query
+     * @return the URL of the first page of the search results
+     */
+    public static String getIngredientSearchUrl(String query) {
+        return Api.INGREDIENTS + "?search=" + Api.encode(query);
+    }
+
+    private static String encode(String query) {
         try {
-            StringBuilder sb = new StringBuilder();
-
-            String quantity = recipeComponent.getString(RECIPE_COMPONENT_QUANTITY);
-            String unitOfMeasure = recipeComponent.getJSONObject(RECIPE_COMPONENT_UNIT_OF_MEASURE).getString(UNIT_OF_MEASURE_NAME);
-            String adjective = recipeComponent.getString(RECIPE_COMPONENT_ADJECTIVE);
-            String ingredientName = recipeComponent.getJSONObject(RECIPE_COMPONENT_INGREDIENT).getString(INGREDIENT_NAME);
-
-            int plural = 2;
-            float qFloat = Float.parseFloat(quantity);
-
-            Utils.log("Quantity: " + qFloat);
-            if (qFloat == 1 || qFloat == 0.25 || qFloat == 0.5 || qFloat == 0.3333 || qFloat == 0.2 || qFloat == 0.1666 || qFloat == 0.125) {
-                plural = 1;
-            }
-
-            if (quantity.matches("^\\d+(\\.0)?$")) { // if it's an integer
-                sb.append(Integer.valueOf(quantity)).append(" ");
-            } else { // if it's a float
-                sb.append(Utils.fractionize(quantity)).append(" ");
-            }
-
-            if (!unitOfMeasure.equals("generic")) {
-                sb.append(English.plural(unitOfMeasure, plural)).append(" of ");
-            }
-
-            if (!adjective.isEmpty()) {
-                sb.append(adjective).append(" ");
-            }
-
-            return sb.append(ingredientName).toString().toLowerCase();
-        } catch (JSONException e) {
-            e.printStackTrace();
-            return null;
+            return URLEncoder.encode(query, "UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            Log.e(Api.TAG, "UnsupportedEncodingException : UTF-8 is always supported", e);
+            throw new RuntimeException("Cannot proceed anymore");
         }
     }
 
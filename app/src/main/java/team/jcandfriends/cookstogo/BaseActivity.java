@@ -70,6 +70,12 @@ public abstract class BaseActivity extends AppCompatActivity implements OnNaviga
         mNavigationView.getMenu().findItem(menuItemId).setChecked(true);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RequestScheduler.cancelAll(this);
+    }
+
     @Override
     public void onConfigurationChanged(Configuration newConfig) {
         super.onConfigurationChanged(newConfig);
@@ -0,0 +1,112 @@
+package team.jcandfriends.cookstogo;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.graphics.Color;
+import android.util.SparseArray;
+
+import java.util.ArrayDeque;
+
+/**
+ * Hands out bitmaps of a given size, reusing the ones that were given back instead of allocating
+ * new ones. Bitmaps must only be given back once nothing draws them anymore. The pool is bounded by
+ * the bytes of the bitmaps it holds, and keeps count of the bytes it had to allocate so callers can
+ * tell how well it works.
+ * <p/>
+ * The pool must only be used on the main thread.
+ */
+final class BitmapPool {
+
+    private final SparseArray<ArrayDeque<Bitmap>> mBitmaps = new SparseArray<>();
+    private final int mMaxBytes;
+    private int mBytes;
+
+    private long mAllocatedBytes;
+    private long mReusedBytes;
+
+    /**
+     * @param maxBytes the most bytes the bitmaps waiting to be reused may take
+     */
+    BitmapPool(int maxBytes) {
+        mMaxBytes = maxBytes;
+    }
+
+    /**
+     * Returns a transparent ARGB_8888 bitmap of the given size
+     *
+     * @param width  the width of the bitmap
+     * @param height the height of the bitmap
+     * @return a reused bitmap if one of that size was given back, a new bitmap otherwise
+     */
+    Bitmap get(int width, int height) {
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(keyOf(width, height));
+        Bitmap bitmap = bitmaps == null ? null : bitmaps.poll();
+
+        if (bitmap != null) {
+            int size = sizeOf(bitmap);
+            mBytes -= size;
+            mReusedBytes += size;
+            bitmap.eraseColor(Color.TRANSPARENT);
+            return bitmap;
+        }
+
+        bitmap = Bitmap.createBitmap(width, height, Config.ARGB_8888);
+        mAllocatedBytes += sizeOf(bitmap);
+        return bitmap;
+    }
+
+    /**
+     * Gives back a bitmap that nothing draws anymore. It is dropped if the pool is full.
+     *
+     * @param bitmap the bitmap
+     */
+    void put(Bitmap bitmap) {
+        if (bitmap.isRecycled() || !bitmap.isMutable() || bitmap.getConfig() != Config.ARGB_8888) {
+            return;
+        }
+
+        int size = sizeOf(bitmap);
+        if (mBytes + size > mMaxBytes) {
+            return;
+        }
+
+        int key = keyOf(bitmap.getWidth(), bitmap.getHeight());
+        ArrayDeque<Bitmap> bitmaps = mBitmaps.get(key);
+        if (bitmaps == null) {
+            bitmaps = new ArrayDeque<>();
+            mBitmaps.put(key, bitmaps);
+        }
+        bitmaps.offer(bitmap);
+        mBytes += size;
+    }
+
+    void clear() {
+        mBitmaps.clear();
+        mBytes = 0;
+    }
+
+    /**
+     * @return the bytes of the bitmaps the pool had to allocate so far
+     */
+    long getAllocatedBytes() {
+        return mAllocatedBytes;
+    }
+
+    /**
+     * @return the bytes of the bitmaps the pool reused so far
+     */
+    long getReusedBytes() {
+        return mReusedBytes;
+    }
+
+    /**
+     * Bitmap.getByteCount() needs API level 12
+     */
+    static int sizeOf(Bitmap bitmap) {
+        return bitmap.getRowBytes() * bitmap.getHeight();
+    }
+
+    private static int keyOf(int width, int height) {
+        return (width << 16) | (height & 0xffff);
+    }
+}
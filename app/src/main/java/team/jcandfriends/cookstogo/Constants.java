@@ -20,6 +20,77 @@ public final class Constants {
     public static final int CONNECT_TIMEOUT = 0;
     public static final int READ_TIMEOUT = 0;
     public static final boolean DO_INPUT = true;
+    public static final int MAX_IDLE_CONNECTIONS = 5;
+    public static final int MAX_CONNECTIONS_PER_HOST = 4;
+
+    /**
+     * RequestScheduler threads per lane
+     */
+    public static final int INTERACTIVE_THREADS = 3;
+    public static final int PREFETCH_THREADS = 2;
+    public static final int BACKGROUND_THREADS = 1;
+
+    /**
+     * Memory caches of parsed recipes and ingredients, as a fraction of the heap
+     */
+    public static final int RECIPE_MEMORY_CACHE_HEAP_FRACTION = 16;
+    public static final int INGREDIENT_MEMORY_CACHE_HEAP_FRACTION = 32;
+
+    /**
+     * Memory cache of transformed images, and the pool of bitmaps they are drawn into, as a fraction
+     * of the heap
+     */
+    public static final int IMAGE_MEMORY_CACHE_HEAP_FRACTION = 16;
+    public static final int IMAGE_POOL_HEAP_FRACTION = 64;
+
+    /**
+     * The most bytes of thumbnails kept on disk
+     */
+    public static final long THUMBNAIL_DISK_CACHE_BYTES = 4 * 1024 * 1024;
+
+    /**
+     * The most recipes a search of the cached recipes returns
+     */
+    public static final int CACHED_SEARCH_LIMIT = 50;
+
+    /**
+     * Searching as the user types: how long the query must stay unchanged before it is searched, and
+     * how many characters it needs
+     */
+    public static final int SEARCH_DEBOUNCE_MILLIS = 300;
+    public static final int SEARCH_MIN_QUERY_LENGTH = 2;
+
+    /**
+     * Paging search results: how many rows before the end of the results the next page is requested,
+     * and how many of the most recent pages keep their items whole
+     */
+    public static final int SEARCH_PAGE_PREFETCH_THRESHOLD = 5;
+    public static final int SEARCH_MAX_PAGES_IN_MEMORY = 3;
+
+    /**
+     * Recommending cached recipes: the most ingredients a nearly there recipe may miss, and the most
+     * recipes for each missing count
+     */
+    public static final int NEARLY_THERE_MAX_MISSING = 3;
+    public static final int CACHED_RECOMMENDATION_LIMIT = 20;
+
+    /**
+     * How many operations the journal of the virtual baskets may hold before it is compacted
+     */
+    public static final int VIRTUAL_BASKETS_COMPACTION_THRESHOLD = 128;
+
+    /**
+     * The most people the ingredients of a recipe can be scaled to serve
+     */
+    public static final int MAX_SERVING_SIZE = 99;
+
+    /**
+     * Prefetching the recipes of a list: how many rows past the last visible one are prefetched, how
+     * many prefetches may run at once, and how many characters of recipes a list may prefetch in all
+     */
+    public static final int PREFETCH_AHEAD = 3;
+    public static final int PREFETCH_MAX_IN_FLIGHT = 2;
+    public static final int PREFETCH_BUDGET_CHARS = 512 * 1024;
 
     /**
      * RecipeActivity
@@ -0,0 +1,35 @@
+package team.jcandfriends.cookstogo;
+
+import java.nio.charset.Charset;
+
+/**
+ * 64-bit FNV-1a hash of content. Used to detect if a cached resource changed without keeping or
+ * comparing whole copies of it.
+ */
+public final class ContentHash {
+
+    private static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long PRIME = 0x100000001b3L;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * Returns the hash of the UTF-8 bytes of the string
+     *
+     * @param content the content
+     * @return the hash
+     */
+    public static long of(String content) {
+        byte[] bytes = content.getBytes(UTF_8);
+        return update(OFFSET_BASIS, bytes, 0, bytes.length);
+    }
+
+    private static long update(long hash, byte[] bytes, int offset, int count) {
+        int end = offset + count;
+        for (int i = offset; i < end; i++) {
+            hash ^= bytes[i] & 0xff;
+            hash *= PRIME;
+        }
+        return hash;
+    }
+}
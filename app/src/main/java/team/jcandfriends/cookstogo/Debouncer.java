@@ -0,0 +1,46 @@
+package team.jcandfriends.cookstogo;
+
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Runs only the last of a burst of actions, once no other action was posted for a while. Each post
+ * replaces the action that is still waiting.
+ * <p/>
+ * The debouncer must only be used on the main thread, and its actions run on the main thread.
+ */
+public final class Debouncer {
+
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final long mDelayMillis;
+
+    private Runnable mPending;
+
+    /**
+     * @param delayMillis how long no other action must be posted before an action runs
+     */
+    public Debouncer(long delayMillis) {
+        mDelayMillis = delayMillis;
+    }
+
+    /**
+     * Runs the action once no other action is posted for the delay of this debouncer
+     *
+     * @param action the action, which replaces the action that is still waiting, if any
+     */
+    public void post(Runnable action) {
+        cancel();
+        mPending = action;
+        mHandler.postDelayed(action, mDelayMillis);
+    }
+
+    /**
+     * Drops the action that is still waiting, if any
+     */
+    public void cancel() {
+        if (mPending != null) {
+            mHandler.removeCallbacks(mPending);
+            mPending = null;
+        }
+    }
+}
@@ -0,0 +1,287 @@
+package team.jcandfriends.cookstogo;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+
+/**
+ * The shared HTTP layer of the app. HttpURLConnection keeps a pool of idle keep-alive sockets, but
+ * a socket only goes back to that pool if its response body was read to the end and the connection
+ * was not disconnected. Every request of the app goes through this class so that always happens,
+ * and so no more than MAX_CONNECTIONS_PER_HOST requests to the same host are open at once.
+ */
+public final class HttpClient {
+
+    private static final String TAG = "HttpClient";
+
+    private static final String REQUEST_METHOD_POST = "POST";
+
+    private static final ConcurrentHashMap<String, Semaphore> HOST_PERMITS = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the body of an HTTP_OK response as a String, returns null for any other response
+     */
+    public static final HttpClient.ResponseHandler<String> STRING = new HttpClient.ResponseHandler<String>() {
+        @Override
+        public String handle(int statusCode, InputStream body) throws IOException {
+            if (statusCode != HttpURLConnection.HTTP_OK) {
+                Log.d(TAG, "HTTP_CONNECTION: " + statusCode);
+                return null;
+            }
+            return readString(body);
+        }
+    };
+
+    static {
+        System.setProperty("http.keepAlive", "true");
+        System.setProperty("http.maxConnections", String.valueOf(Constants.MAX_IDLE_CONNECTIONS));
+    }
+
+    /**
+     * Sends a GET request and hands the response to the handler
+     *
+     * @param url     the url
+     * @param handler reads the response
+     * @return whatever the handler returned
+     */
+    public static <T> T get(URL url, HttpClient.ResponseHandler<T> handler) throws IOException, JSONException {
+        return execute(url, Constants.REQUEST_METHOD_GET, null, null, null, handler);
+    }
+
+    public static <T> T get(String url, HttpClient.ResponseHandler<T> handler) throws IOException, JSONException {
+        return get(new URL(url), handler);
+    }
+
+    /**
+     * Sends a POST request and hands the response to the handler
+     *
+     * @param url         the url
+     * @param contentType the content type of the request body
+     * @param body        the request body
+     * @param handler     reads the response
+     * @return whatever the handler returned
+     */
+    public static <T> T post(String url, String contentType, byte[] body, HttpClient.ResponseHandler<T> handler) throws IOException, JSONException {
+        return execute(new URL(url), REQUEST_METHOD_POST, null, contentType, body, handler);
+    }
+
+    /**
+     * Sends a conditional GET request. If the validators of the cached copy are given, the server
+     * answers with HTTP_NOT_MODIFIED and an empty body when the resource didn't change.
+     *
+     * @param url        the url
+     * @param validators the validators of the cached copy, or null if there is no cached copy
+     * @param handler    reads the response and receives the validators of the response
+     * @return whatever the handler returned
+     */
+    public static <T> T get(String url, HttpClient.Validators validators, final HttpClient.ConditionalHandler<T> handler) throws IOException, JSONException {
+        return execute(new URL(url), Constants.REQUEST_METHOD_GET, validators, null, null, new HttpClient.Exchange<T>() {
+            @Override
+            public T handle(HttpURLConnection connection, int statusCode, InputStream body) throws IOException, JSONException {
+                return handler.handle(statusCode, HttpClient.Validators.of(connection), body);
+            }
+        });
+    }
+
+    private static <T> T execute(URL url, String method, HttpClient.Validators validators, String contentType, byte[] body, final HttpClient.ResponseHandler<T> handler) throws IOException, JSONException {
+        return execute(url, method, validators, contentType, body, new HttpClient.Exchange<T>() {
+            @Override
+            public T handle(HttpURLConnection connection, int statusCode, InputStream body) throws IOException, JSONException {
+                return handler.handle(statusCode, body);
+            }
+        });
+    }
+
+    private static <T> T execute(URL url, String method, HttpClient.Validators validators, String contentType, byte[] body, HttpClient.Exchange<T> exchange) throws IOException, JSONException {
+        Semaphore permits = permitsOf(url.getHost());
+        try {
+            permits.acquire();
+        } catch (InterruptedException e) {
+            throw new InterruptedIOException("Interrupted while waiting for a connection to " + url.getHost());
+        }
+
+        InputStream is = null;
+        try {
+            Log.d(Constants.APP_DEBUG, "Attempting to connect to " + url);
+            HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            connection.setUseCaches(false);
+            connection.setAllowUserInteraction(false);
+            connection.setConnectTimeout(Constants.CONNECT_TIMEOUT);
+            connection.setReadTimeout(Constants.READ_TIMEOUT);
+            connection.setDoInput(Constants.DO_INPUT);
+
+            if (validators != null) {
+                validators.addTo(connection);
+            }
+
+            if (body != null) {
+                connection.setDoOutput(true);
+                connection.setFixedLengthStreamingMode(body.length);
+                connection.setRequestProperty("Content-Type", contentType);
+
+                OutputStream os = connection.getOutputStream();
+                os.write(body);
+                os.close();
+            }
+
+            int statusCode = connection.getResponseCode();
+            Log.d(Constants.APP_DEBUG, "Connection to " + url + " was established with a status code of " + statusCode);
+
+            is = statusCode < HttpURLConnection.HTTP_BAD_REQUEST ? connection.getInputStream() : connection.getErrorStream();
+            return exchange.handle(connection, statusCode, is);
+        } finally {
+            release(is);
+            permits.release();
+        }
+    }
+
+    /**
+     * Reads whatever the handler didn't read so the socket can be reused by the next request
+     */
+    private static void release(InputStream is) {
+        if (is == null) {
+            return;
+        }
+
+        try {
+            byte[] buffer = new byte[4096];
+            while (is.read(buffer) != -1) {
+                // discard
+            }
+        } catch (IOException e) {
+            Log.d(TAG, "Could not drain the response, its connection will not be reused", e);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+                Log.d(TAG, "Could not close the response", e);
+            }
+        }
+    }
+
+    private static Semaphore permitsOf(String host) {
+        Semaphore permits = HOST_PERMITS.get(host);
+        if (permits == null) {
+            Semaphore newPermits = new Semaphore(Constants.MAX_CONNECTIONS_PER_HOST, true);
+            permits = HOST_PERMITS.putIfAbsent(host, newPermits);
+            if (permits == null) {
+                permits = newPermits;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * Reads the whole stream as UTF-8
+     *
+     * @param is the stream
+     * @return the contents of the stream
+     */
+    public static String readString(InputStream is) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int count;
+
+        while ((count = is.read(buffer)) != -1) {
+            bytes.write(buffer, 0, count);
+        }
+
+        return bytes.toString("UTF-8");
+    }
+
+    /**
+     * Reads a response. The body is closed by the HttpClient after this returns.
+     */
+    public interface ResponseHandler<T> {
+        T handle(int statusCode, InputStream body) throws IOException, JSONException;
+    }
+
+    /**
+     * Reads the response of a conditional request. The body is closed by the HttpClient after this
+     * returns.
+     */
+    public interface ConditionalHandler<T> {
+        T handle(int statusCode, HttpClient.Validators validators, InputStream body) throws IOException, JSONException;
+    }
+
+    private interface Exchange<T> {
+        T handle(HttpURLConnection connection, int statusCode, InputStream body) throws IOException, JSONException;
+    }
+
+    /**
+     * The ETag and Last-Modified headers of a response, which are sent back as If-None-Match and
+     * If-Modified-Since to ask the server if a cached copy is still fresh
+     */
+    public static final class Validators {
+
+        private static final String ETAG = "etag";
+        private static final String LAST_MODIFIED = "last_modified";
+
+        private final String mEtag;
+        private final String mLastModified;
+
+        private Validators(String etag, String lastModified) {
+            mEtag = etag;
+            mLastModified = lastModified;
+        }
+
+        private static HttpClient.Validators of(HttpURLConnection connection) {
+            return new HttpClient.Validators(connection.getHeaderField("ETag"), connection.getHeaderField("Last-Modified"));
+        }
+
+        /**
+         * Restores the validators that were saved with toJson()
+         *
+         * @param validators the saved validators, may be null
+         * @return the validators or null if there are none
+         */
+        public static HttpClient.Validators fromJson(JSONObject validators) {
+            if (validators == null) {
+                return null;
+            }
+            return new HttpClient.Validators(validators.optString(ETAG, null), validators.optString(LAST_MODIFIED, null));
+        }
+
+        /**
+         * Determines if the server sent any validator at all
+         *
+         * @return true if there is nothing to revalidate with, false otherwise
+         */
+        public boolean isEmpty() {
+            return mEtag == null && mLastModified == null;
+        }
+
+        private void addTo(HttpURLConnection connection) {
+            if (mEtag != null) {
+                connection.setRequestProperty("If-None-Match", mEtag);
+            }
+            if (mLastModified != null) {
+                connection.setRequestProperty("If-Modified-Since", mLastModified);
+            }
+        }
+
+        public JSONObject toJson() {
+            JSONObject validators = new JSONObject();
+            try {
+                validators.putOpt(ETAG, mEtag);
+                validators.putOpt(LAST_MODIFIED, mLastModified);
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not save the validators", e);
+            }
+            return validators;
+        }
+    }
+
+}
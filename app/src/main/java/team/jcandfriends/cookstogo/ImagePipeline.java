@@ -0,0 +1,773 @@
+package team.jcandfriends.cookstogo;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.graphics.Bitmap;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.PorterDuff.Mode;
+import android.graphics.PorterDuffXfermode;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+import android.support.v7.widget.RecyclerView;
+import android.util.DisplayMetrics;
+import android.util.Log;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.ImageView;
+
+import com.nostra13.universalimageloader.core.DisplayImageOptions;
+import com.nostra13.universalimageloader.core.ImageLoader;
+import com.nostra13.universalimageloader.core.assist.FailReason;
+import com.nostra13.universalimageloader.core.assist.ImageScaleType;
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.assist.ViewScaleType;
+import com.nostra13.universalimageloader.core.download.ImageDownloader.Scheme;
+import com.nostra13.universalimageloader.core.imageaware.ImageAware;
+import com.nostra13.universalimageloader.core.imageaware.NonViewAware;
+import com.nostra13.universalimageloader.core.listener.ImageLoadingListener;
+import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Displays transformed images, such as the round avatars of the lists, in ImageViews. The finished
+ * images are kept in a memory cache keyed by their url, transform and size, so binding a row whose
+ * avatar was already rendered is only a lookup. The ImageLoader downloads and decodes the source,
+ * which is transformed once into a bitmap from a pool. Bitmaps evicted from the cache go back to
+ * the pool once no ImageView displays them anymore.
+ * <p/>
+ * Loads are bound to their ImageView: binding the ImageView to another image, or cancel(), makes
+ * the ImageLoader drop the previous load at its next checkpoint, including in the middle of a
+ * download. The ImageLoader runs the most recent loads first, so the rows that just became visible
+ * are served before the ones that scrolled away.
+ * <p/>
+ * Sources are decoded at about the size of their target. The finished images are also written to a
+ * disk cache of thumbnails, so a later load of the same image decodes the small thumbnail instead of
+ * downloading and decoding the source again. The disk cache is bounded, the least recently used
+ * thumbnails are deleted first, and an image without a thumbnail goes straight to its source.
+ * <p/>
+ * The pipeline must only be used on the main thread.
+ */
+public final class ImagePipeline implements ComponentCallbacks2 {
+
+    private static final String TAG = "ImagePipeline";
+
+    /**
+     * Masks an image with a circle frame
+     */
+    public static final ImagePipeline.Transform CIRCLE = new ImagePipeline.CircleTransform();
+
+    /**
+     * The size of a target whose ImageView doesn't have a fixed size yet
+     */
+    private static final int DEFAULT_TARGET_SIZE_DP = 40;
+
+    private static final String THUMBNAILS_DIRECTORY = "thumbnails";
+    private static final String THUMBNAIL_EXTENSION = ".png";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static ImagePipeline sImagePipeline;
+
+    private final LruCache<String, ImagePipeline.Image> mImages;
+    private final BitmapPool mPool;
+
+    /**
+     * What each ImageView displays and is waiting for
+     */
+    private final WeakHashMap<ImageView, ImagePipeline.Target> mTargets = new WeakHashMap<>();
+
+    private final DisplayImageOptions mSourceOptions;
+    private final DisplayImageOptions mThumbnailOptions;
+    private final DisplayImageOptions mBannerOptions;
+    private final int mDefaultTargetSize;
+    private final int mScreenWidth;
+
+    /**
+     * The directory of the thumbnail disk cache, and the thread that writes to it
+     */
+    private final File mThumbnails;
+    private final ExecutorService mThumbnailWriter = Executors.newSingleThreadExecutor();
+
+    /**
+     * The sizes of the thumbnails on disk by file name, least recently used first, and their total.
+     * Only the writer thread uses them.
+     */
+    private final LinkedHashMap<String, Long> mThumbnailSizes = new LinkedHashMap<>(16, 0.75f, true);
+    private long mThumbnailBytes;
+
+    /**
+     * The file names of the thumbnails on disk, so loads don't try thumbnails that don't exist.
+     * Filled by the writer thread, and null until it has listed the directory.
+     */
+    private volatile Set<String> mThumbnailNames;
+
+    private int mRequests;
+    private int mHits;
+    private int mLoads;
+
+    private ImagePipeline(Context context) {
+        Utils.initializeImageLoader(context);
+
+        int maxMemory = (int) Math.min(Runtime.getRuntime().maxMemory(), Integer.MAX_VALUE);
+        mPool = new BitmapPool(maxMemory / Constants.IMAGE_POOL_HEAP_FRACTION);
+        mImages = new LruCache<String, ImagePipeline.Image>(maxMemory / Constants.IMAGE_MEMORY_CACHE_HEAP_FRACTION) {
+            @Override
+            protected int sizeOf(String key, ImagePipeline.Image image) {
+                return BitmapPool.sizeOf(image.mBitmap);
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, String key, ImagePipeline.Image oldImage, ImagePipeline.Image newImage) {
+                oldImage.mIsCached = false;
+                recycle(oldImage);
+            }
+        };
+
+        // the finished images are cached here, only the downloaded files are worth caching below
+        mSourceOptions = new DisplayImageOptions.Builder()
+                .cacheInMemory(false)
+                .cacheOnDisk(true)
+                .imageScaleType(ImageScaleType.IN_SAMPLE_INT)
+                .build();
+        mThumbnailOptions = new DisplayImageOptions.Builder()
+                .cacheInMemory(false)
+                .cacheOnDisk(false)
+                .build();
+        mBannerOptions = new DisplayImageOptions.Builder()
+                .cacheInMemory(true)
+                .cacheOnDisk(true)
+                .imageScaleType(ImageScaleType.IN_SAMPLE_INT)
+                .build();
+
+        DisplayMetrics metrics = context.getResources().getDisplayMetrics();
+        mDefaultTargetSize = Math.round(DEFAULT_TARGET_SIZE_DP * metrics.density);
+        mScreenWidth = metrics.widthPixels;
+        mThumbnails = new File(context.getCacheDir(), THUMBNAILS_DIRECTORY);
+        mThumbnailWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                indexThumbnails();
+            }
+        });
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+        }
+    }
+
+    public static ImagePipeline get(Context context) {
+        if (sImagePipeline == null) {
+            sImagePipeline = new ImagePipeline(context.getApplicationContext());
+        }
+        return sImagePipeline;
+    }
+
+    /**
+     * Displays the transformed image in an ImageView, at the size of the ImageView. The ImageView
+     * shows the placeholder until the image is ready.
+     *
+     * @param url         the url of the image
+     * @param view        the ImageView
+     * @param transform   the transform to apply to the image
+     * @param placeholder the drawable resource to show until the image is ready
+     */
+    public void display(String url, ImageView view, ImagePipeline.Transform transform, int placeholder) {
+        ImagePipeline.Target target = mTargets.get(view);
+        if (target == null) {
+            target = new ImagePipeline.Target(view.hashCode());
+            mTargets.put(view, target);
+        }
+
+        int width = targetWidth(view);
+        int height = targetHeight(view);
+        String key = url + '|' + transform.getName() + '|' + width + 'x' + height;
+        mRequests++;
+
+        if (key.equals(target.mPendingKey)) {
+            return;
+        }
+
+        if (target.mImage != null && key.equals(target.mImage.mKey)) {
+            mHits++;
+            cancel(target);
+            return;
+        }
+
+        ImagePipeline.Image image = mImages.get(key);
+        if (image != null) {
+            mHits++;
+            cancel(target);
+            show(view, target, image);
+            return;
+        }
+
+        view.setImageResource(placeholder);
+        release(target);
+        target.mPendingKey = key;
+        target.mAware.setSize(width, height);
+        load(url, key, view, target, transform, width, height);
+    }
+
+    /**
+     * Loads an image for an ImageView as wide as the screen, such as a banner. The image is decoded
+     * at the width of the ImageView instead of at the size of the screen.
+     *
+     * @param url      the url of the image
+     * @param view     the ImageView
+     * @param listener receives the image
+     */
+    public void loadFullWidth(String url, ImageView view, ImageLoadingListener listener) {
+        int width = view.getWidth() > 0 ? view.getWidth() : mScreenWidth;
+        ImageSize size = new ImageSize(width, Integer.MAX_VALUE);
+        ImageLoader.getInstance().displayImage(url, new NonViewAware(url, size, ViewScaleType.FIT_INSIDE), mBannerOptions, listener);
+    }
+
+    /**
+     * Cancels the load of the image the ImageView waits for, if any. Adapters call this when a row is
+     * recycled so rows that scrolled away don't use bandwidth.
+     *
+     * @param view the ImageView
+     */
+    public void cancel(ImageView view) {
+        ImagePipeline.Target target = mTargets.get(view);
+        if (target != null) {
+            cancel(target);
+        }
+    }
+
+    private void cancel(ImagePipeline.Target target) {
+        if (target.mPendingKey != null) {
+            target.mPendingKey = null;
+            ImageLoader.getInstance().cancelDisplayTask(target.mAware);
+        }
+    }
+
+    /**
+     * Loads the thumbnail from the disk cache, or the source if there is no thumbnail yet. Loads go
+     * through the ImageAware of the target, so the ImageLoader drops them as soon as the target asks
+     * for another image.
+     */
+    private void load(final String url, final String key, final ImageView view, final ImagePipeline.Target target, final ImagePipeline.Transform transform, final int width, final int height) {
+        mLoads++;
+        if (url.isEmpty()) {
+            return;
+        }
+
+        final File file = thumbnailOf(key);
+        Set<String> names = mThumbnailNames;
+        if (names != null && !names.contains(file.getName())) {
+            loadSource(url, key, view, target, transform, width, height);
+            return;
+        }
+
+        String thumbnail = Scheme.FILE.wrap(file.getAbsolutePath());
+        ImageLoader.getInstance().displayImage(thumbnail, target.mAware, mThumbnailOptions, new SimpleImageLoadingListener() {
+            @Override
+            public void onLoadingComplete(String imageUri, View v, Bitmap loadedImage) {
+                if (loadedImage != null) {
+                    touchThumbnail(file.getName());
+                    complete(key, view, loadedImage);
+                }
+            }
+
+            @Override
+            public void onLoadingFailed(String imageUri, View v, FailReason failReason) {
+                deleteThumbnail(file.getName());
+                if (key.equals(target.mPendingKey)) {
+                    loadSource(url, key, view, target, transform, width, height);
+                }
+            }
+        });
+    }
+
+    private void loadSource(String url, final String key, final ImageView view, ImagePipeline.Target target, final ImagePipeline.Transform transform, final int width, final int height) {
+        ImageLoader.getInstance().displayImage(url, target.mAware, mSourceOptions, new SimpleImageLoadingListener() {
+            @Override
+            public void onLoadingComplete(String imageUri, View v, Bitmap loadedImage) {
+                if (loadedImage == null) {
+                    return;
+                }
+
+                // another row may have rendered the same image in the meantime
+                if (mImages.get(key) == null) {
+                    Bitmap bitmap = mPool.get(width, height);
+                    transform.draw(loadedImage, bitmap);
+                    saveThumbnail(key, bitmap);
+                    complete(key, view, bitmap);
+                } else {
+                    complete(key, view, null);
+                }
+            }
+        });
+    }
+
+    /**
+     * Caches the finished image, unless it is null, and displays the cached image if the ImageView
+     * still waits for it
+     */
+    private void complete(String key, ImageView view, Bitmap bitmap) {
+        ImagePipeline.Image image = mImages.get(key);
+        if (image == null) {
+            if (bitmap == null) {
+                return;
+            }
+            image = new ImagePipeline.Image(key, bitmap);
+            mImages.put(key, image);
+        }
+
+        ImagePipeline.Target target = mTargets.get(view);
+        if (target != null && key.equals(target.mPendingKey)) {
+            target.mPendingKey = null;
+            show(view, target, image);
+        }
+    }
+
+    private File thumbnailOf(String key) {
+        return new File(mThumbnails, Long.toHexString(ContentHash.of(key)) + THUMBNAIL_EXTENSION);
+    }
+
+    /**
+     * Writes a copy of the finished image to the thumbnail disk cache, since the image itself may be
+     * reused by the pool before the write is done
+     */
+    private void saveThumbnail(String key, Bitmap bitmap) {
+        final Bitmap copy = bitmap.copy(Bitmap.Config.ARGB_8888, false);
+        final File target = thumbnailOf(key);
+        if (copy == null) {
+            return;
+        }
+
+        mThumbnailWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (!mThumbnails.isDirectory() && !mThumbnails.mkdirs()) {
+                    Log.e(TAG, "Could not create the thumbnail directory " + mThumbnails);
+                    return;
+                }
+
+                File temp = new File(mThumbnails, target.getName() + TEMP_EXTENSION);
+                OutputStream os = null;
+                try {
+                    os = new FileOutputStream(temp);
+                    copy.compress(Bitmap.CompressFormat.PNG, 100, os);
+                    os.close();
+                    os = null;
+
+                    if (temp.renameTo(target)) {
+                        addThumbnail(target.getName(), target.length());
+                    } else {
+                        Log.e(TAG, "Could not rename " + temp + " to " + target);
+                    }
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not write thumbnail " + target, e);
+                } finally {
+                    if (os != null) {
+                        try {
+                            os.close();
+                        } catch (IOException e) {
+                            Log.e(TAG, "Could not close stream", e);
+                        }
+                    }
+                    copy.recycle();
+                }
+            }
+        });
+    }
+
+    /**
+     * Lists the thumbnails on disk, least recently modified first, and deletes the temporary files
+     * of writes that didn't finish. Runs on the writer thread before anything else.
+     */
+    private void indexThumbnails() {
+        Set<String> names = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+        File[] files = mThumbnails.listFiles();
+        if (files != null) {
+            Arrays.sort(files, new Comparator<File>() {
+                @Override
+                public int compare(File lhs, File rhs) {
+                    long lhsModified = lhs.lastModified();
+                    long rhsModified = rhs.lastModified();
+                    return lhsModified < rhsModified ? -1 : (lhsModified == rhsModified ? 0 : 1);
+                }
+            });
+
+            for (File file : files) {
+                if (file.getName().endsWith(TEMP_EXTENSION)) {
+                    if (!file.delete()) {
+                        Log.e(TAG, "Could not delete " + file);
+                    }
+                } else {
+                    mThumbnailSizes.put(file.getName(), file.length());
+                    mThumbnailBytes += file.length();
+                    names.add(file.getName());
+                }
+            }
+        }
+        mThumbnailNames = names;
+        trimThumbnails();
+    }
+
+    /**
+     * Must be called on the writer thread once a thumbnail is written
+     */
+    private void addThumbnail(String name, long size) {
+        Long previous = mThumbnailSizes.put(name, size);
+        if (previous != null) {
+            mThumbnailBytes -= previous;
+        }
+        mThumbnailBytes += size;
+        mThumbnailNames.add(name);
+        trimThumbnails();
+    }
+
+    /**
+     * Deletes the least recently used thumbnails until the disk cache is within its bound. They
+     * leave the names first, so new loads go to the source instead of to a file about to disappear.
+     */
+    private void trimThumbnails() {
+        Iterator<Map.Entry<String, Long>> eldest = mThumbnailSizes.entrySet().iterator();
+        while (mThumbnailBytes > Constants.THUMBNAIL_DISK_CACHE_BYTES && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            mThumbnailNames.remove(entry.getKey());
+            File file = new File(mThumbnails, entry.getKey());
+            if (!file.delete() && file.exists()) {
+                Log.e(TAG, "Could not delete " + file);
+            }
+            mThumbnailBytes -= entry.getValue();
+            eldest.remove();
+        }
+    }
+
+    /**
+     * Marks a thumbnail as the most recently used
+     */
+    private void touchThumbnail(final String name) {
+        mThumbnailWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                mThumbnailSizes.get(name);
+            }
+        });
+    }
+
+    /**
+     * Forgets a thumbnail that could not be loaded and deletes what is left of it, so the next load
+     * of the image goes straight to the source
+     */
+    private void deleteThumbnail(final String name) {
+        mThumbnailWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                Long size = mThumbnailSizes.remove(name);
+                if (size != null) {
+                    mThumbnailBytes -= size;
+                }
+                if (mThumbnailNames != null) {
+                    mThumbnailNames.remove(name);
+                }
+                File file = new File(mThumbnails, name);
+                if (!file.delete() && file.exists()) {
+                    Log.e(TAG, "Could not delete " + file);
+                }
+            }
+        });
+    }
+
+    private void show(ImageView view, ImagePipeline.Target target, ImagePipeline.Image image) {
+        view.setImageBitmap(image.mBitmap);
+        image.mViews++;
+        release(target);
+        target.mImage = image;
+    }
+
+    /**
+     * Must be called once the ImageView doesn't display the image of the target anymore
+     */
+    private void release(ImagePipeline.Target target) {
+        ImagePipeline.Image image = target.mImage;
+        if (image != null) {
+            target.mImage = null;
+            image.mViews--;
+            recycle(image);
+        }
+    }
+
+    private void recycle(ImagePipeline.Image image) {
+        if (!image.mIsCached && image.mViews == 0) {
+            mPool.put(image.mBitmap);
+        }
+    }
+
+    private int targetWidth(ImageView view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params != null && params.width > 0) {
+            return params.width;
+        }
+        return view.getWidth() > 0 ? view.getWidth() : mDefaultTargetSize;
+    }
+
+    private int targetHeight(ImageView view) {
+        ViewGroup.LayoutParams params = view.getLayoutParams();
+        if (params != null && params.height > 0) {
+            return params.height;
+        }
+        return view.getHeight() > 0 ? view.getHeight() : mDefaultTargetSize;
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            mImages.evictAll();
+            mPool.clear();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mImages.trimToSize(mImages.maxSize() / 2);
+            mPool.clear();
+        }
+        Log.d(TAG, "Trimmed on level " + level + " : " + this);
+    }
+
+    @Override
+    public void onLowMemory() {
+        mImages.evictAll();
+        mPool.clear();
+        Log.d(TAG, "Cleared on low memory : " + this);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * @return the hit rate of the memory cache, the loads and the bytes of bitmaps allocated and reused
+     */
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "%s[hits=%d/%d (%.0f%%), loads=%d, allocated=%dKB, reused=%dKB, bytes=%d/%d]", TAG, mHits, mRequests, hitRate(mHits, mRequests), mLoads, mPool.getAllocatedBytes() / 1024, mPool.getReusedBytes() / 1024, mImages.size(), mImages.maxSize());
+    }
+
+    private static double hitRate(int hits, int requests) {
+        return requests == 0 ? 0.0 : 100.0 * hits / requests;
+    }
+
+    /**
+     * Turns a decoded image into the image that is displayed
+     */
+    public interface Transform {
+
+        /**
+         * @return the name of the transform, part of the key of the images it renders
+         */
+        String getName();
+
+        /**
+         * Draws the transformed source into the output, which is transparent. It runs on the main
+         * thread.
+         *
+         * @param source the decoded image, which must not be modified
+         * @param output the bitmap to draw into
+         */
+        void draw(Bitmap source, Bitmap output);
+    }
+
+    /**
+     * Logs how many images were served from memory, how many bitmap bytes were allocated, and how much
+     * memory decoding at the size of the targets saved, during each scroll of the RecyclerView it is
+     * added to
+     */
+    public static final class ScrollReporter extends RecyclerView.OnScrollListener {
+
+        private final String mName;
+
+        private int mRequests;
+        private int mHits;
+        private long mAllocatedBytes;
+        private long mReusedBytes;
+        private long mDecodedBytes;
+        private long mFullSizeBytes;
+
+        public ScrollReporter(String name) {
+            mName = name;
+        }
+
+        @Override
+        public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+            if (sImagePipeline == null) {
+                return;
+            }
+
+            ImagePipeline pipeline = sImagePipeline;
+            BitmapPool pool = pipeline.mPool;
+
+            if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                int requests = pipeline.mRequests - mRequests;
+                int hits = pipeline.mHits - mHits;
+                long decoded = MeasuringImageDecoder.getDecodedBytes() - mDecodedBytes;
+                long fullSize = MeasuringImageDecoder.getFullSizeBytes() - mFullSizeBytes;
+                Log.d(TAG, String.format(Locale.US, "%s scrolled : hits=%d/%d (%.0f%%), allocated=%dKB, reused=%dKB, decoded=%dKB, saved by decoding at size=%dKB", mName, hits, requests, hitRate(hits, requests), (pool.getAllocatedBytes() - mAllocatedBytes) / 1024, (pool.getReusedBytes() - mReusedBytes) / 1024, decoded / 1024, (fullSize - decoded) / 1024));
+            }
+
+            mRequests = pipeline.mRequests;
+            mHits = pipeline.mHits;
+            mAllocatedBytes = pool.getAllocatedBytes();
+            mReusedBytes = pool.getReusedBytes();
+            mDecodedBytes = MeasuringImageDecoder.getDecodedBytes();
+            mFullSizeBytes = MeasuringImageDecoder.getFullSizeBytes();
+        }
+    }
+
+    private static final class Image {
+
+        final String mKey;
+        final Bitmap mBitmap;
+
+        /**
+         * How many ImageViews display this image
+         */
+        int mViews;
+
+        boolean mIsCached = true;
+
+        Image(String key, Bitmap bitmap) {
+            mKey = key;
+            mBitmap = bitmap;
+        }
+    }
+
+    private static final class Target {
+
+        /**
+         * Stands for the ImageView in the ImageLoader
+         */
+        final ImagePipeline.TargetAware mAware;
+
+        /**
+         * The image the ImageView displays, or null if it displays a placeholder
+         */
+        ImagePipeline.Image mImage;
+
+        /**
+         * The key of the image the ImageView waits for, or null if it doesn't wait for one
+         */
+        String mPendingKey;
+
+        Target(int id) {
+            mAware = new ImagePipeline.TargetAware(id);
+        }
+    }
+
+    /**
+     * Binds loads to an ImageView without letting the ImageLoader display anything in it, since the
+     * pipeline displays the transformed image itself. The ImageLoader cancels a load when another
+     * load starts for an ImageAware with the same id.
+     */
+    private static final class TargetAware implements ImageAware {
+
+        private final int mId;
+        private int mWidth;
+        private int mHeight;
+
+        TargetAware(int id) {
+            mId = id;
+        }
+
+        void setSize(int width, int height) {
+            mWidth = width;
+            mHeight = height;
+        }
+
+        @Override
+        public int getWidth() {
+            return mWidth;
+        }
+
+        @Override
+        public int getHeight() {
+            return mHeight;
+        }
+
+        @Override
+        public ViewScaleType getScaleType() {
+            return ViewScaleType.CROP;
+        }
+
+        @Override
+        public View getWrappedView() {
+            return null;
+        }
+
+        @Override
+        public boolean isCollected() {
+            return false;
+        }
+
+        @Override
+        public int getId() {
+            return mId;
+        }
+
+        @Override
+        public boolean setImageDrawable(Drawable drawable) {
+            return true;
+        }
+
+        @Override
+        public boolean setImageBitmap(Bitmap bitmap) {
+            return true;
+        }
+    }
+
+    /**
+     * Scales the center square of the image into a circle that fills the output. The canvas and the
+     * paints are reused, which is safe because transforms run on the main thread.
+     */
+    private static final class CircleTransform implements ImagePipeline.Transform {
+
+        private final Canvas mCanvas = new Canvas();
+        private final Paint mMaskPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        private final Paint mImagePaint = new Paint(Paint.ANTI_ALIAS_FLAG | Paint.FILTER_BITMAP_FLAG);
+        private final Rect mSource = new Rect();
+        private final Rect mDestination = new Rect();
+
+        CircleTransform() {
+            mImagePaint.setXfermode(new PorterDuffXfermode(Mode.SRC_IN));
+        }
+
+        @Override
+        public String getName() {
+            return "circle";
+        }
+
+        @Override
+        public void draw(Bitmap source, Bitmap output) {
+            int side = Math.min(source.getWidth(), source.getHeight());
+            int left = (source.getWidth() - side) / 2;
+            int top = (source.getHeight() - side) / 2;
+            mSource.set(left, top, left + side, top + side);
+            mDestination.set(0, 0, output.getWidth(), output.getHeight());
+
+            mCanvas.setBitmap(output);
+            mCanvas.drawCircle(output.getWidth() / 2f, output.getHeight() / 2f, Math.min(output.getWidth(), output.getHeight()) / 2f, mMaskPaint);
+            mCanvas.drawBitmap(source, mSource, mDestination, mImagePaint);
+            mCanvas.setBitmap(null);
+        }
+    }
+}
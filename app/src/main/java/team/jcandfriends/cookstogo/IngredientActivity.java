@@ -3,14 +3,12 @@ package team.jcandfriends.cookstogo;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.graphics.Bitmap;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.Snackbar;
 import android.support.v7.app.ActionBar;
 import android.support.v7.app.AlertDialog;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
@@ -19,20 +17,10 @@ import android.widget.ImageView;
 import android.widget.Spinner;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
 import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
 
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
 import team.jcandfriends.cookstogo.interfaces.ToolbarGettable;
@@ -83,6 +71,7 @@ public class IngredientActivity extends AppCompatActivity implements ToolbarGett
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        RequestScheduler.cancelAll(this);
         Utils.setStatusBarColor(this, Colors.PRIMARY_COLOR_DARK);
     }
 
@@ -151,50 +140,20 @@ public class IngredientActivity extends AppCompatActivity implements ToolbarGett
 
         if (!mIsSyncing && Utils.hasInternet(this)) {
             mIsSyncing = true;
-            new AsyncTask<Void, Void, String>() {
+            final int ingredientId = mIngredient.optInt(Api.INGREDIENT_PK);
+            RequestScheduler.submit(this, RequestScheduler.Lane.BACKGROUND, new RequestScheduler.Job<JSONObject>() {
                 @Override
-                protected String doInBackground(Void... params) {
-                    try {
-                        URL url = new URL(Api.INGREDIENTS + mIngredient.optInt(Api.INGREDIENT_PK));
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-                        if (connection.getResponseCode() == 200) {
-                            InputStream is = connection.getInputStream();
-                            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-
-                            String line;
-                            StringBuilder response = new StringBuilder();
-
-                            while ((line = reader.readLine()) != null) {
-                                response.append(line);
-                            }
-
-                            return response.toString();
-                        }
-                    } catch (MalformedURLException e) {
-                        Log.e(TAG, "Malformed URL", e);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Cannot open connection", e);
-                    }
-
-                    return null;
+                public JSONObject run() {
+                    return mManager.revalidateIngredient(ingredientId);
                 }
-
+            }, new RequestScheduler.Listener<JSONObject>() {
                 @Override
-                protected void onPostExecute(String result) {
-                    super.onPostExecute(result);
-
-                    if (mIsStillHere && null != result && !result.equalsIgnoreCase(mIngredient.toString())) {
-                        try {
-                            JSONObject freshIngredient = new JSONObject(result);
-                            mManager.cacheIngredient(freshIngredient);
-                            synchronize(freshIngredient);
-                        } catch (JSONException e) {
-                            Log.e(TAG, "Error parsing response as valid JSON", e);
-                        }
+                public void onResult(JSONObject freshIngredient) {
+                    if (mIsStillHere && null != freshIngredient) {
+                        synchronize(freshIngredient);
                     }
                 }
-            }.execute();
+            });
         }
     }
 
@@ -202,12 +161,23 @@ public class IngredientActivity extends AppCompatActivity implements ToolbarGett
         final TextView txtIngredientDescription = (TextView) findViewById(id.ingredient_description);
         txtIngredientDescription.setText(ingredient.optString(Api.INGREDIENT_DESCRIPTION));
 
+        final String banner = ingredient.optString(Api.INGREDIENT_BANNER);
+        SwatchCache.Swatches swatches = SwatchCache.get(this).getSwatches(banner);
+        if (null != swatches) {
+            Utils.decorateToolbar(this, swatches);
+        }
+
         final ImageView imgIngredientBanner = (ImageView) findViewById(id.ingredient_banner);
-        ImageLoader.getInstance().loadImage(ingredient.optString(Api.INGREDIENT_BANNER), new SimpleImageLoadingListener() {
+        ImagePipeline.get(this).loadFullWidth(banner, imgIngredientBanner, new SimpleImageLoadingListener() {
             @Override
             public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
                 imgIngredientBanner.setImageBitmap(loadedImage);
-                Utils.decorateToolbar(IngredientActivity.this, loadedImage);
+                SwatchCache.get(IngredientActivity.this).extract(IngredientActivity.this, banner, loadedImage, new RequestScheduler.Listener<SwatchCache.Swatches>() {
+                    @Override
+                    public void onResult(SwatchCache.Swatches swatches) {
+                        Utils.decorateToolbar(IngredientActivity.this, swatches);
+                    }
+                });
             }
         });
     }
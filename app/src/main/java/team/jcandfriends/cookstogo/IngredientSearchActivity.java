@@ -36,6 +36,11 @@ import team.jcandfriends.cookstogo.managers.IngredientSearchManager;
  */
 public class IngredientSearchActivity extends AppCompatActivity implements TextWatcher, OnEditorActionListener {
 
+    /**
+     * What a result keeps once its page is trimmed, which is what its row shows
+     */
+    private static final String[] INGREDIENT_SUMMARY_KEYS = {Api.INGREDIENT_PK, Api.INGREDIENT_NAME, Api.INGREDIENT_ICON};
+
     private IngredientSearchManager mSearchManager;
 
     private SearchResultsAdapter mAdapter;
@@ -47,6 +52,23 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
     private View mProgressBar;
     private View mNoResultsView;
 
+    private JSONArray mResults;
+
+    /**
+     * Follows the pages of the results of the server
+     */
+    private Pager mPager;
+
+    /**
+     * Searches the query once the user stops typing
+     */
+    private final Debouncer mDebouncer = new Debouncer(Constants.SEARCH_DEBOUNCE_MILLIS);
+
+    /**
+     * The query of the results that are shown, or null if the search history is shown
+     */
+    private String mQuery;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -68,8 +90,8 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
         mNoResultsView = findViewById(R.id.no_results_found);
 
         mSearchManager = IngredientSearchManager.get(this);
-        mSearchHistoryList = mSearchManager.getAll();
-        mAdapter = new SearchResultsAdapter(mSearchHistoryList);
+        mAdapter = new SearchResultsAdapter(mSearchManager.getAll());
+        mSearchHistoryList = mAdapter.filter("", mSearchManager);
 
         // mAdapter boilerplate initialization
         mSearchHistoryView.setLayoutManager(new LinearLayoutManager(this));
@@ -89,6 +111,13 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
             }
         });
 
+        Utils.setOnItemClickListener(mSearchResultsView, new SimpleClickListener() {
+            @Override
+            public void onClick(View view, int position) {
+                IngredientSearchActivity.this.openIngredient(IngredientSearchActivity.this.mResults.optJSONObject(position));
+            }
+        });
+
         mSearchField.setOnEditorActionListener(this);
         mSearchField.addTextChangedListener(this);
     }
@@ -117,6 +146,16 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RequestScheduler.cancelAll(this);
+        mDebouncer.cancel();
+        if (null != mPager) {
+            mPager.cancel();
+        }
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
@@ -133,12 +172,34 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
 
     }
 
+    /**
+     * Shows the matching search history right away, and the results of the query once the user stops
+     * typing. The results of the previous query stay until then.
+     */
     @Override
     public void afterTextChanged(Editable s) {
         mSearchHistoryList = mAdapter.filter(s.toString(), mSearchManager);
-        mSearchHistoryView.setVisibility(View.VISIBLE);
-        mNoResultsView.setVisibility(View.GONE);
-        mSearchResultsView.setVisibility(View.GONE);
+
+        final String query = s.toString().trim();
+        if (query.length() < Constants.SEARCH_MIN_QUERY_LENGTH) {
+            mDebouncer.cancel();
+            cancelSearch();
+            mQuery = null;
+            mSearchHistoryView.setVisibility(View.VISIBLE);
+            mNoResultsView.setVisibility(View.GONE);
+            mSearchResultsView.setVisibility(View.GONE);
+            mProgressBar.setVisibility(View.GONE);
+            return;
+        }
+
+        mDebouncer.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!query.equals(IngredientSearchActivity.this.mQuery) && Utils.hasInternet(IngredientSearchActivity.this)) {
+                    IngredientSearchActivity.this.search(query);
+                }
+            }
+        });
     }
 
     @Override
@@ -147,6 +208,9 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
             Utils.closeKeyboard(IngredientSearchActivity.this, mSearchField);
 
             String query = mSearchField.getText().toString();
+            if (query.trim().isEmpty()) {
+                return true;
+            }
             mSearchManager.add(query);
 
             showResults(query);
@@ -157,52 +221,98 @@ public class IngredientSearchActivity extends AppCompatActivity implements TextW
     }
 
     private void showResults(String query) {
+        mDebouncer.cancel();
+
         if (Utils.hasInternet(this)) {
-            mSearchHistoryView.setVisibility(View.GONE);
-            mProgressBar.setVisibility(View.VISIBLE);
             mSearchField.clearFocus();
-
-            handleIngredientSearch(query);
+            search(query.trim());
         } else {
             Toast.makeText(this, R.string.snackbar_no_internet, Toast.LENGTH_SHORT).show();
             finish();
         }
     }
 
+    private void search(String query) {
+        mQuery = query;
+        mSearchHistoryView.setVisibility(View.GONE);
+        mNoResultsView.setVisibility(View.GONE);
+        mProgressBar.setVisibility(View.VISIBLE);
+
+        handleIngredientSearch(query);
+    }
+
+    /**
+     * Cancels the search in flight, if any, so its results are never shown
+     */
+    private void cancelSearch() {
+        if (null != mPager) {
+            mPager.cancel();
+            mSearchResultsView.removeOnScrollListener(mPager);
+            mPager = null;
+        }
+    }
+
+    /**
+     * Shows the ingredients the server found, one page at a time as the user scrolls. The search
+     * that was in flight is cancelled, so its results can't replace these.
+     */
     private void handleIngredientSearch(String query) {
-        final IngredientManager ingredientManager = IngredientManager.get(this);
-        ingredientManager.search(query, new Callbacks() {
+        cancelSearch();
+
+        mResults = new JSONArray();
+        IngredientAdapter adapter = new IngredientAdapter(mResults);
+        mPager = new Pager(adapter, mResults, Api.INGREDIENT_PK, INGREDIENT_SUMMARY_KEYS, new Pager.Callbacks() {
             @Override
-            public void onSuccess(JSONObject result) {
-                final JSONArray results = result.optJSONArray(Api.RESULTS);
-
-                if (results.length() == 0) {
-                    IngredientSearchActivity.this.findViewById(R.id.no_results_found).setVisibility(View.VISIBLE);
-                } else {
-                    IngredientAdapter adapter = new IngredientAdapter(results);
-                    IngredientSearchActivity.this.mSearchResultsView.setAdapter(adapter);
-                    Utils.setOnItemClickListener(IngredientSearchActivity.this.mSearchResultsView, new SimpleClickListener() {
-                        @Override
-                        public void onClick(View view, int position) {
-                            JSONObject ingredient = results.optJSONObject(position);
-                            int ingredientId = ingredient.optInt(Api.INGREDIENT_PK);
-                            String ingredientName = ingredient.optString(Api.INGREDIENT_NAME);
-
-                            ingredientManager.cacheIngredient(ingredient);
-                            Utils.startIngredientActivity(IngredientSearchActivity.this, ingredientId, ingredientName);
-                        }
-                    });
+            public void onPage(int page, int appended) {
+                if (appended > 0) {
                     IngredientSearchActivity.this.mSearchResultsView.setVisibility(View.VISIBLE);
+                } else if (page == 1) {
+                    IngredientSearchActivity.this.mNoResultsView.setVisibility(View.VISIBLE);
                 }
-
                 IngredientSearchActivity.this.mProgressBar.setVisibility(View.GONE);
             }
 
             @Override
-            public void onFailure() {
+            public void onFailure(int page) {
                 Toast.makeText(IngredientSearchActivity.this, "Something went wrong. Sorry!", Toast.LENGTH_SHORT).show();
-                IngredientSearchActivity.this.finish();
+                IngredientSearchActivity.this.mProgressBar.setVisibility(View.GONE);
             }
         });
+
+        mSearchResultsView.setAdapter(adapter);
+        mSearchResultsView.addOnScrollListener(mPager);
+        mPager.start(Api.getIngredientSearchUrl(query));
+    }
+
+    /**
+     * Opens an ingredient from the results. The results are whole ingredients unless their page was
+     * trimmed, in which case they are opened from the cache or fetched first.
+     */
+    private void openIngredient(JSONObject ingredient) {
+        final IngredientManager ingredientManager = IngredientManager.get(this);
+        final int ingredientId = ingredient.optInt(Api.INGREDIENT_PK);
+        final String ingredientName = ingredient.optString(Api.INGREDIENT_NAME);
+
+        if (ingredient.has(Api.INGREDIENT_DESCRIPTION)) {
+            ingredientManager.cacheIngredient(ingredient);
+            Utils.startIngredientActivity(this, ingredientId, ingredientName);
+        } else if (ingredientManager.hasCachedIngredient(ingredientId)) {
+            Utils.startIngredientActivity(this, ingredientId, ingredientName);
+        } else {
+            mProgressBar.setVisibility(View.VISIBLE);
+            ingredientManager.fetch(ingredientId, this, new Callbacks() {
+                @Override
+                public void onSuccess(JSONObject result) {
+                    IngredientSearchActivity.this.mProgressBar.setVisibility(View.GONE);
+                    Utils.startIngredientActivity(IngredientSearchActivity.this, ingredientId, ingredientName);
+                }
+
+                @Override
+                public void onFailure() {
+                    IngredientSearchActivity.this.mProgressBar.setVisibility(View.GONE);
+                    Toast.makeText(IngredientSearchActivity.this, "Something went wrong. Sorry!", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
     }
 }
@@ -1,7 +1,6 @@
 package team.jcandfriends.cookstogo;
 
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.TabLayout;
 import android.support.v4.view.ViewPager;
@@ -10,16 +9,6 @@ import android.view.Menu;
 import android.view.MenuItem;
 
 import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
-
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 
 import team.jcandfriends.cookstogo.R.anim;
 import team.jcandfriends.cookstogo.R.id;
@@ -96,53 +85,22 @@ public class IngredientsActivity extends BaseActivity {
 
         if (!mIsSyncing && Utils.hasInternet(this)) {
             mIsSyncing = true;
-            new AsyncTask<Void, Void, String>() {
+            RequestScheduler.submit(this, RequestScheduler.Lane.BACKGROUND, new RequestScheduler.Job<JSONArray>() {
                 @Override
-                protected String doInBackground(Void... params) {
-                    try {
-                        URL url = new URL(Api.INGREDIENT_TYPES);
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-                        if (connection.getResponseCode() == 200) {
-                            InputStream is = connection.getInputStream();
-                            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-
-                            String line;
-                            StringBuilder response = new StringBuilder();
-
-                            while ((line = reader.readLine()) != null) {
-                                response.append(line);
-                            }
-
-                            return response.toString();
-                        }
-                    } catch (MalformedURLException e) {
-                        Log.e(TAG, "Malformed URL", e);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Cannot open connection", e);
-                    }
-
-                    return null;
+                public JSONArray run() {
+                    return mIngredientManager.revalidateIngredientTypes();
                 }
-
+            }, new RequestScheduler.Listener<JSONArray>() {
                 @Override
-                protected void onPostExecute(String result) {
-                    super.onPostExecute(result);
-
-                    if (mIsStillHere && null != result && !result.equalsIgnoreCase(mCachedIngredientTypes.toString())) {
-                        try {
-                            Log.i(TAG, "Got updated data. Replacing ingredients with fresh data.");
-                            JSONArray freshIngredientTypes = new JSONObject(result).optJSONArray(Api.RESULTS);
-                            mIngredientManager.cacheIngredientTypes(freshIngredientTypes);
-                            synchronize(freshIngredientTypes);
-                        } catch (JSONException e) {
-                            Log.e(TAG, "Error parsing response as valid JSON", e);
-                        }
+                public void onResult(JSONArray freshIngredientTypes) {
+                    if (mIsStillHere && null != freshIngredientTypes) {
+                        Log.i(TAG, "Got updated data. Replacing ingredients with fresh data.");
+                        synchronize(freshIngredientTypes);
                     } else {
                         Log.i(TAG, "Fresh ingredient types object is either null or it's just the same with the cached one.");
                     }
                 }
-            }.execute();
+            });
         }
     }
 
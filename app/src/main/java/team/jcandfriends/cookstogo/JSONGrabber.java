@@ -1,11 +1,13 @@
 package team.jcandfriends.cookstogo;
 
+import android.util.JsonReader;
+import android.util.JsonToken;
 import android.util.Log;
 
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
@@ -13,65 +15,286 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 
 /**
- * Utility class that receives a string url and returns a JSONObject.
+ * Utility class that receives a string url and returns a JSONObject. The response is decoded
+ * straight from the connection's InputStream, the body is never held in memory as a String.
  */
 public final class JSONGrabber {
 
+    /**
+     * Reads the whole response as a JSONObject
+     */
+    public static final JSONGrabber.Parser<JSONObject> OBJECT = new JSONGrabber.Parser<JSONObject>() {
+        @Override
+        public JSONObject parse(JsonReader reader) throws IOException, JSONException {
+            return readObject(reader);
+        }
+    };
+
+    /**
+     * Reads only the results of a paginated response and skips the count, next and previous fields
+     */
+    public static final JSONGrabber.Parser<JSONArray> RESULTS = new JSONGrabber.Parser<JSONArray>() {
+        @Override
+        public JSONArray parse(JsonReader reader) throws IOException, JSONException {
+            JSONArray results = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (Api.RESULTS.equals(reader.nextName())) {
+                    results = readArray(reader);
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (results == null) {
+                throw new JSONException("No value for " + Api.RESULTS);
+            }
+            return results;
+        }
+    };
+
+    /**
+     * The fields of the recipes of a recipe type that the lists of recipes and the offline search
+     * use. A recipe is always fetched whole once it is opened.
+     */
+    private static final String[] RECIPE_SUMMARY_KEYS = {Api.RECIPE_PK, Api.RECIPE_NAME, Api.RECIPE_DESCRIPTION, Api.RECIPE_ICON, Api.RECIPE_BANNER};
+
+    /**
+     * Reads only the results of a paginated list of recipe types, and only the summary of each of
+     * their recipes. Whatever else the server nests in a recipe is skipped without being decoded.
+     */
+    public static final JSONGrabber.Parser<JSONArray> RECIPE_TYPES = new JSONGrabber.Parser<JSONArray>() {
+        @Override
+        public JSONArray parse(JsonReader reader) throws IOException, JSONException {
+            JSONArray results = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (Api.RESULTS.equals(reader.nextName())) {
+                    results = new JSONArray();
+                    reader.beginArray();
+                    while (reader.hasNext()) {
+                        results.put(readRecipeType(reader));
+                    }
+                    reader.endArray();
+                } else {
+                    reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (results == null) {
+                throw new JSONException("No value for " + Api.RESULTS);
+            }
+            return results;
+        }
+    };
+
     private URL mUrl;
-    private HttpURLConnection mConnection;
 
     public JSONGrabber(String url) throws IOException {
         mUrl = new URL(url);
-        setupConnection();
     }
 
+    /**
+     * Points this grabber to another url. The socket of the previous request is kept alive by the
+     * HttpClient so a request to the same host doesn't have to connect again.
+     *
+     * @param url the url that the next grab() will request
+     */
     public void reuseConnection(String url) throws IOException {
         mUrl = new URL(url);
-        setupConnection();
     }
 
-    private void setupConnection() throws IOException {
-        mConnection = (HttpURLConnection) mUrl.openConnection();
-        mConnection.setRequestMethod(Constants.REQUEST_METHOD_GET);
-        mConnection.setRequestProperty("Content-length", "0");
-        mConnection.setUseCaches(false);
-        mConnection.setAllowUserInteraction(false);
-        mConnection.setConnectTimeout(Constants.CONNECT_TIMEOUT);
-        mConnection.setReadTimeout(Constants.READ_TIMEOUT);
-        mConnection.setDoInput(Constants.DO_INPUT);
+    public JSONObject grab() throws IOException, JSONException {
+        return grab(JSONGrabber.OBJECT);
     }
 
-    public JSONObject grab() throws IOException, JSONException {
-        InputStream is = null;
-        JSONObject object = null;
+    /**
+     * Decodes the response with the given parser while it is being downloaded. Use this instead of
+     * grab() when only some fields of the response are needed, the parser can skip the rest with
+     * JsonReader.skipValue().
+     *
+     * @param parser the parser that turns the response into the object that will be returned
+     * @return the parsed response or null if the server didn't respond with HTTP_OK
+     */
+    public <T> T grab(final JSONGrabber.Parser<T> parser) throws IOException, JSONException {
+        return HttpClient.get(mUrl, new HttpClient.ResponseHandler<T>() {
+            @Override
+            public T handle(int statusCode, InputStream body) throws IOException, JSONException {
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    Log.d(Constants.APP_DEBUG, "HTTP_CONNECTION: " + statusCode);
+                    return null;
+                }
+
+                T object = JSONGrabber.parse(body, parser);
+                Log.d(Constants.APP_DEBUG, "Response from " + mUrl + " was parsed.");
+                return object;
+            }
+        });
+    }
+
+    /**
+     * Decodes a stream of JSON with the given parser
+     *
+     * @param is     the stream
+     * @param parser the parser that turns the stream into the object that will be returned
+     * @return the parsed stream
+     */
+    public static <T> T parse(InputStream is, JSONGrabber.Parser<T> parser) throws IOException, JSONException {
+        try {
+            return parser.parse(new JsonReader(new InputStreamReader(is, "UTF-8")));
+        } catch (IllegalStateException e) {
+            // JsonReader reports malformed JSON this way
+            throw new JSONException("Malformed JSON : " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the next object in the stream into a JSONObject
+     *
+     * @param reader the reader which next token is BEGIN_OBJECT
+     * @return the object
+     */
+    public static JSONObject readObject(JsonReader reader) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
+
+        reader.beginObject();
+        while (reader.hasNext()) {
+            object.put(reader.nextName(), readValue(reader));
+        }
+        reader.endObject();
+
+        return object;
+    }
+
+    /**
+     * Reads the next object in the stream into a JSONObject, keeping only the given fields
+     *
+     * @param reader the reader which next token is BEGIN_OBJECT
+     * @param keys   the fields to keep, the others are skipped
+     * @return the object
+     */
+    public static JSONObject readObject(JsonReader reader, String[] keys) throws IOException, JSONException {
+        JSONObject object = new JSONObject();
 
-        Log.d(Constants.APP_DEBUG, "Attempting to connect to " + mUrl);
-        mConnection.connect();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (contains(keys, name)) {
+                object.put(name, readValue(reader));
+            } else {
+                reader.skipValue();
+            }
+        }
+        reader.endObject();
 
-        Log.d(Constants.APP_DEBUG, "Connection to " + mUrl + " established.");
+        return object;
+    }
 
-        if (mConnection.getResponseCode() == HttpURLConnection.HTTP_OK) {
-            StringBuilder response = new StringBuilder();
-            String line;
-            is = mConnection.getInputStream();
-            BufferedReader br = new BufferedReader(new InputStreamReader(is));
+    private static JSONObject readRecipeType(JsonReader reader) throws IOException, JSONException {
+        if (reader.peek() != JsonToken.BEGIN_OBJECT) {
+            return null;
+        }
 
-            while ((line = br.readLine()) != null)
-                response.append(line);
+        JSONObject recipeType = new JSONObject();
 
-            Log.d(Constants.APP_DEBUG, "Response: " + response);
-            object = new JSONObject(response.toString());
-        } else {
-            Log.d(Constants.APP_DEBUG, "HTTP_CONNECTION: " + mConnection.getResponseCode());
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            if (Api.RECIPE_TYPE_RECIPES.equals(name) && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                JSONArray recipes = new JSONArray();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    recipes.put(reader.peek() == JsonToken.BEGIN_OBJECT ? readObject(reader, RECIPE_SUMMARY_KEYS) : readValue(reader));
+                }
+                reader.endArray();
+                recipeType.put(name, recipes);
+            } else {
+                recipeType.put(name, readValue(reader));
+            }
         }
-        if (is != null) {
-            is.close();
+        reader.endObject();
+
+        return recipeType;
+    }
+
+    private static boolean contains(String[] keys, String key) {
+        for (String candidate : keys) {
+            if (candidate.equals(key)) {
+                return true;
+            }
         }
-        if (mConnection != null) {
-            mConnection.disconnect();
+        return false;
+    }
+
+    /**
+     * Reads the next array in the stream into a JSONArray
+     *
+     * @param reader the reader which next token is BEGIN_ARRAY
+     * @return the array
+     */
+    public static JSONArray readArray(JsonReader reader) throws IOException, JSONException {
+        JSONArray array = new JSONArray();
+
+        reader.beginArray();
+        while (reader.hasNext()) {
+            array.put(readValue(reader));
         }
+        reader.endArray();
 
-        return object;
+        return array;
+    }
+
+    /**
+     * Reads the next value in the stream into the same types that the JSONObject(String) constructor
+     * produces so the result is interchangeable with the previously parsed responses
+     */
+    private static Object readValue(JsonReader reader) throws IOException, JSONException {
+        JsonToken token = reader.peek();
+
+        switch (token) {
+            case BEGIN_OBJECT:
+                return readObject(reader);
+            case BEGIN_ARRAY:
+                return readArray(reader);
+            case STRING:
+                return reader.nextString();
+            case NUMBER:
+                return readNumber(reader.nextString());
+            case BOOLEAN:
+                return reader.nextBoolean();
+            case NULL:
+                reader.nextNull();
+                return JSONObject.NULL;
+            default:
+                throw new JSONException("Unexpected token " + token);
+        }
+    }
+
+    private static Object readNumber(String literal) {
+        if (literal.indexOf('.') == -1 && literal.indexOf('e') == -1 && literal.indexOf('E') == -1) {
+            try {
+                long longValue = Long.parseLong(literal);
+                if (longValue <= Integer.MAX_VALUE && longValue >= Integer.MIN_VALUE) {
+                    return (int) longValue;
+                }
+                return longValue;
+            } catch (NumberFormatException e) {
+                // too large for a long, read it as a double below
+            }
+        }
+
+        return Double.valueOf(literal);
+    }
+
+    /**
+     * Turns a streamed response into a typed object
+     */
+    public interface Parser<T> {
+        T parse(JsonReader reader) throws IOException, JSONException;
     }
 
 }
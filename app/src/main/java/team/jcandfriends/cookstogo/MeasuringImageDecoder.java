@@ -0,0 +1,73 @@
+package team.jcandfriends.cookstogo;
+
+import android.graphics.Bitmap;
+import android.graphics.Bitmap.Config;
+import android.util.Log;
+
+import com.nostra13.universalimageloader.core.assist.ImageSize;
+import com.nostra13.universalimageloader.core.decode.BaseImageDecoder;
+import com.nostra13.universalimageloader.core.decode.ImageDecodingInfo;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The decoder of the ImageLoader, which also keeps count of the bytes of the decoded images and of
+ * the bytes they would have taken at full size. The difference is the memory saved by decoding
+ * images at the size of their target.
+ */
+final class MeasuringImageDecoder extends BaseImageDecoder {
+
+    private static final String TAG = "MeasuringImageDecoder";
+
+    private static final AtomicLong sDecodedBytes = new AtomicLong();
+    private static final AtomicLong sFullSizeBytes = new AtomicLong();
+
+    /**
+     * The full size of the image that is being decoded on the current thread
+     */
+    private final ThreadLocal<ImageSize> mFullSize = new ThreadLocal<>();
+
+    MeasuringImageDecoder() {
+        super(false);
+    }
+
+    @Override
+    public Bitmap decode(ImageDecodingInfo decodingInfo) throws IOException {
+        mFullSize.remove();
+        Bitmap bitmap = super.decode(decodingInfo);
+        ImageSize fullSize = mFullSize.get();
+
+        if (bitmap != null && fullSize != null) {
+            long decoded = BitmapPool.sizeOf(bitmap);
+            long full = (long) fullSize.getWidth() * fullSize.getHeight() * (bitmap.getConfig() == Config.RGB_565 ? 2 : 4);
+            sDecodedBytes.addAndGet(decoded);
+            sFullSizeBytes.addAndGet(full);
+            Log.d(TAG, String.format("Decoded %s at %dx%d instead of %dx%d, saved %dKB", decodingInfo.getImageUri(), bitmap.getWidth(), bitmap.getHeight(), fullSize.getWidth(), fullSize.getHeight(), Math.max(0, full - decoded) / 1024));
+        }
+
+        return bitmap;
+    }
+
+    @Override
+    protected ImageFileInfo defineImageSizeAndRotation(InputStream imageStream, ImageDecodingInfo decodingInfo) throws IOException {
+        ImageFileInfo info = super.defineImageSizeAndRotation(imageStream, decodingInfo);
+        mFullSize.set(info.imageSize);
+        return info;
+    }
+
+    /**
+     * @return the bytes of all images decoded so far
+     */
+    static long getDecodedBytes() {
+        return sDecodedBytes.get();
+    }
+
+    /**
+     * @return the bytes all images decoded so far would have taken at full size
+     */
+    static long getFullSizeBytes() {
+        return sFullSizeBytes.get();
+    }
+}
@@ -0,0 +1,241 @@
+package team.jcandfriends.cookstogo;
+
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Follows the next cursors of a paginated response of the rest api as the user scrolls through its
+ * results. Each page is appended to the items of the adapter, skipping the items that are already
+ * shown, and the next page is requested a few rows before the end of the results is reached.
+ * <p/>
+ * Only the most recent pages keep their items whole. The items of older pages are trimmed down to
+ * the fields their rows show, in place, so the positions of the rows never change and a row that is
+ * opened after it was trimmed is loaded again like any other summarized item.
+ * <p/>
+ * The pager must only be used on the main thread.
+ */
+public final class Pager extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "Pager";
+
+    private final Pager.InsertionListener mInsertionListener;
+    private final JSONArray mItems;
+    private final String mPkKey;
+    private final String[] mSummaryKeys;
+    private final Pager.Callbacks mCallbacks;
+
+    /**
+     * The primary keys of the items that are already shown
+     */
+    private final HashSet<Integer> mPks = new HashSet<>();
+
+    /**
+     * The positions of the items of each page that was not trimmed yet, oldest first
+     */
+    private final ArrayList<int[]> mWholePages = new ArrayList<>();
+
+    /**
+     * The url of the next page, or null if there is none
+     */
+    private String mNext;
+    private RequestScheduler.Request<JSONObject> mRequest;
+    private int mPageCount;
+
+    /**
+     * @param adapter     the adapter that shows the items
+     * @param items       the items of the adapter, which pages are appended to
+     * @param pkKey       the key of the primary key of an item
+     * @param summaryKeys the keys an item keeps once its page is trimmed
+     * @param callbacks   the callbacks that will be invoked for each page
+     */
+    public Pager(final RecyclerView.Adapter<?> adapter, JSONArray items, String pkKey, String[] summaryKeys, Pager.Callbacks callbacks) {
+        this(new Pager.InsertionListener() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                adapter.notifyItemRangeInserted(positionStart, itemCount);
+            }
+        }, items, pkKey, summaryKeys, callbacks);
+    }
+
+    /**
+     * Reports the inserted items to a listener rather than to an adapter. Only the JVM tests use
+     * this.
+     */
+    Pager(Pager.InsertionListener insertionListener, JSONArray items, String pkKey, String[] summaryKeys, Pager.Callbacks callbacks) {
+        mInsertionListener = insertionListener;
+        mItems = items;
+        mPkKey = pkKey;
+        mSummaryKeys = summaryKeys;
+        mCallbacks = callbacks;
+    }
+
+    /**
+     * Requests the first page
+     *
+     * @param url the url of the first page
+     */
+    public void start(String url) {
+        mNext = url;
+        loadNext();
+    }
+
+    /**
+     * @return true if there is a next page that isn't requested yet
+     */
+    public boolean hasNext() {
+        return mNext != null && mRequest == null;
+    }
+
+    /**
+     * Appends items that didn't come from a page, e.g. results found in the cache. They are assumed
+     * to be summaries already and are never trimmed.
+     *
+     * @param items the items
+     * @return how many of them weren't shown yet
+     */
+    public int append(JSONArray items) {
+        return append(items, false);
+    }
+
+    /**
+     * Cancels the request of the next page, if any. Call this once the results go away.
+     */
+    public void cancel() {
+        RequestScheduler.cancelAll(this);
+        mRequest = null;
+        mNext = null;
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        if (hasNext()) {
+            onScrolledTo(((LinearLayoutManager) recyclerView.getLayoutManager()).findLastVisibleItemPosition());
+        }
+    }
+
+    /**
+     * Requests the next page if the last visible row is close enough to the end of the results
+     *
+     * @param lastVisible the position of the last visible row, or RecyclerView.NO_POSITION
+     */
+    void onScrolledTo(int lastVisible) {
+        if (!hasNext()) {
+            return;
+        }
+
+        if (lastVisible != RecyclerView.NO_POSITION && lastVisible >= mItems.length() - 1 - Constants.SEARCH_PAGE_PREFETCH_THRESHOLD) {
+            loadNext();
+        }
+    }
+
+    private void loadNext() {
+        final String url = mNext;
+        final int page = mPageCount + 1;
+
+        mRequest = RequestScheduler.submit(this, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONObject>() {
+            @Override
+            public JSONObject run() throws IOException, JSONException {
+                return new JSONGrabber(url).grab();
+            }
+        }, new RequestScheduler.Listener<JSONObject>() {
+            @Override
+            public void onResult(JSONObject result) {
+                mRequest = null;
+
+                JSONArray results = result == null ? null : result.optJSONArray(Api.RESULTS);
+                if (results == null) {
+                    // the same page is requested again once the user scrolls
+                    mCallbacks.onFailure(page);
+                    return;
+                }
+
+                mPageCount = page;
+                mNext = result.isNull(Api.NEXT) ? null : result.optString(Api.NEXT);
+                int appended = append(results, true);
+                Log.d(TAG, "Appended " + appended + " of " + results.length() + " items of page " + page + " of " + result.optInt(Api.COUNT) + " items");
+                mCallbacks.onPage(page, appended);
+
+                if (appended == 0 && hasNext()) {
+                    // nothing was inserted, so nothing is laid out and onScrolled won't fire again
+                    loadNext();
+                }
+            }
+        });
+    }
+
+    private int append(JSONArray items, boolean isWholePage) {
+        int start = mItems.length();
+
+        for (int i = 0; i < items.length(); i++) {
+            JSONObject item = items.optJSONObject(i);
+            if (item != null && mPks.add(item.optInt(mPkKey))) {
+                mItems.put(item);
+            }
+        }
+
+        int end = mItems.length();
+        if (end > start) {
+            mInsertionListener.onItemRangeInserted(start, end - start);
+            if (isWholePage) {
+                mWholePages.add(new int[]{start, end});
+                trim();
+            }
+        }
+        return end - start;
+    }
+
+    /**
+     * Trims the oldest pages down to their summaries until only the most recent pages are whole. The
+     * rows show the same fields either way, so the adapter isn't notified.
+     */
+    private void trim() {
+        while (mWholePages.size() > Constants.SEARCH_MAX_PAGES_IN_MEMORY) {
+            int[] page = mWholePages.remove(0);
+            for (int position = page[0]; position < page[1]; position++) {
+                try {
+                    mItems.put(position, summarize(mItems.getJSONObject(position)));
+                } catch (JSONException e) {
+                    Log.e(TAG, "JSONException : Could not trim item " + position, e);
+                }
+            }
+        }
+    }
+
+    private JSONObject summarize(JSONObject item) throws JSONException {
+        JSONObject summary = new JSONObject();
+        for (String key : mSummaryKeys) {
+            summary.putOpt(key, item.opt(key));
+        }
+        return summary;
+    }
+
+    /**
+     * Told about the items that are appended, which the adapter must show
+     */
+    interface InsertionListener {
+        void onItemRangeInserted(int positionStart, int itemCount);
+    }
+
+    public interface Callbacks {
+
+        /**
+         * @param page     the number of the page, starting at 1
+         * @param appended how many items of the page weren't shown yet
+         */
+        void onPage(int page, int appended);
+
+        /**
+         * @param page the number of the page that couldn't be loaded, starting at 1
+         */
+        void onFailure(int page);
+    }
+}
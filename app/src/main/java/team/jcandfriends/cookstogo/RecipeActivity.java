@@ -3,7 +3,6 @@ package team.jcandfriends.cookstogo;
 import android.content.DialogInterface;
 import android.content.DialogInterface.OnClickListener;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
 import android.support.design.widget.Snackbar;
 import android.support.design.widget.TabLayout;
@@ -12,24 +11,14 @@ import android.support.v7.app.ActionBar;
 import android.support.v7.app.AlertDialog.Builder;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
-import android.util.Log;
 import android.view.Menu;
 import android.view.MenuItem;
 import android.view.View;
 import android.widget.RatingBar;
 import android.widget.TextView;
 
-import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
-
 import team.jcandfriends.cookstogo.adapters.RecipeComponentsAdapter;
 import team.jcandfriends.cookstogo.inflector.English;
 import team.jcandfriends.cookstogo.interfaces.TabsToolbarGettable;
@@ -101,6 +90,7 @@ public final class RecipeActivity extends AppCompatActivity implements TabsToolb
     @Override
     protected void onDestroy() {
         super.onDestroy();
+        RequestScheduler.cancelAll(this);
         Utils.setStatusBarColor(this, Colors.PRIMARY_COLOR_DARK);
     }
 
@@ -177,50 +167,20 @@ public final class RecipeActivity extends AppCompatActivity implements TabsToolb
 
         if (!mIsSyncing && Utils.hasInternet(this)) {
             mIsSyncing = false;
-            new AsyncTask<Void, Void, String>() {
+            final int recipeId = mRecipe.optInt(Api.RECIPE_PK);
+            RequestScheduler.submit(this, RequestScheduler.Lane.BACKGROUND, new RequestScheduler.Job<JSONObject>() {
                 @Override
-                protected String doInBackground(Void... params) {
-                    try {
-                        URL url = new URL(Api.RECIPES + mRecipe.optInt(Api.RECIPE_PK));
-                        HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-                        if (connection.getResponseCode() == 200) {
-                            InputStream is = connection.getInputStream();
-                            BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-
-                            String line;
-                            StringBuilder response = new StringBuilder();
-
-                            while ((line = reader.readLine()) != null) {
-                                response.append(line);
-                            }
-
-                            return response.toString();
-                        }
-                    } catch (MalformedURLException e) {
-                        Log.e(TAG, "Malformed URL", e);
-                    } catch (IOException e) {
-                        Log.e(TAG, "Cannot open connection", e);
-                    }
-
-                    return null;
+                public JSONObject run() {
+                    return mManager.revalidateRecipe(recipeId);
                 }
-
+            }, new RequestScheduler.Listener<JSONObject>() {
                 @Override
-                protected void onPostExecute(String result) {
-                    super.onPostExecute(result);
-
-                    if (mIsStillHere && null != result && !result.equalsIgnoreCase(mRecipe.toString())) {
-                        try {
-                            JSONObject freshRecipe = new JSONObject(result);
-                            mManager.cacheRecipe(freshRecipe);
-                            synchronize(freshRecipe);
-                        } catch (JSONException e) {
-                            Log.e(TAG, "Error parsing response as valid JSON", e);
-                        }
+                public void onResult(JSONObject freshRecipe) {
+                    if (mIsStillHere && null != freshRecipe) {
+                        synchronize(freshRecipe);
                     }
                 }
-            }.execute();
+            });
         }
     }
 
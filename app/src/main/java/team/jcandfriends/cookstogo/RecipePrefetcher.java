@@ -0,0 +1,185 @@
+package team.jcandfriends.cookstogo;
+
+import android.content.Context;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.util.Log;
+import android.util.SparseArray;
+import android.util.SparseBooleanArray;
+
+import org.json.JSONArray;
+
+import team.jcandfriends.cookstogo.managers.RecipeManager;
+
+/**
+ * Prefetches the recipes of a list the user is looking at, so opening one of them doesn't have to
+ * wait for the network. Once the list stops scrolling, the visible rows and the few rows after them
+ * are fetched on the prefetch lane, a few at a time, until the characters fetched reach the budget
+ * of the list. Prefetches of rows that scrolled away are cancelled if they didn't start yet.
+ * <p/>
+ * The prefetcher keeps count of how many opened recipes it had already fetched, so the budget and
+ * the number of rows ahead can be tuned against the hit rate.
+ * <p/>
+ * The prefetcher must only be used on the main thread.
+ */
+public final class RecipePrefetcher extends RecyclerView.OnScrollListener {
+
+    private static final String TAG = "RecipePrefetcher";
+
+    /**
+     * Opened recipes that were prefetched, and opened recipes that were not cached at all, by every
+     * prefetcher so far
+     */
+    private static int sHits;
+    private static int sMisses;
+
+    private final Context mContext;
+    private final JSONArray mRecipes;
+
+    /**
+     * The prefetches that were submitted and not yet delivered, keyed by the position of their row
+     */
+    private final SparseArray<RequestScheduler.Request<Integer>> mInFlight = new SparseArray<>();
+
+    /**
+     * The recipes this prefetcher already tried, whether they were fetched or not, keyed by their pk
+     */
+    private final SparseBooleanArray mAttempted = new SparseBooleanArray();
+
+    /**
+     * The recipes this prefetcher fetched, keyed by their pk
+     */
+    private final SparseBooleanArray mPrefetched = new SparseBooleanArray();
+
+    /**
+     * The rows that should be prefetched, none until the list is laid out
+     */
+    private int mFirst = RecyclerView.NO_POSITION;
+    private int mLast = RecyclerView.NO_POSITION;
+
+    private int mSpentChars;
+    private int mCancelledCount;
+
+    /**
+     * @param context the context
+     * @param recipes the recipes of the list, in the order of its rows
+     */
+    public RecipePrefetcher(Context context, JSONArray recipes) {
+        mContext = context.getApplicationContext();
+        mRecipes = recipes;
+    }
+
+    @Override
+    public void onScrollStateChanged(RecyclerView recyclerView, int newState) {
+        if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            prefetchVisible(recyclerView);
+        }
+    }
+
+    @Override
+    public void onScrolled(RecyclerView recyclerView, int dx, int dy) {
+        // also called with no delta once the list is laid out
+        if (recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_IDLE) {
+            prefetchVisible(recyclerView);
+        }
+    }
+
+    /**
+     * Records that the user opened a recipe of the list, to measure the hit rate
+     *
+     * @param recipeId the id of the recipe
+     * @param isCached whether the recipe was cached when it was opened
+     */
+    public void recordOpen(int recipeId, boolean isCached) {
+        if (mPrefetched.get(recipeId)) {
+            sHits++;
+        } else if (!isCached) {
+            sMisses++;
+        }
+        Log.d(TAG, "Opened recipe " + recipeId + " : " + this);
+    }
+
+    /**
+     * Cancels every prefetch of the list. Call this once the list goes away.
+     */
+    public void cancel() {
+        mCancelledCount += mInFlight.size();
+        mInFlight.clear();
+        mFirst = RecyclerView.NO_POSITION;
+        mLast = RecyclerView.NO_POSITION;
+        RequestScheduler.cancelAll(this);
+        Log.d(TAG, "Cancelled : " + this);
+    }
+
+    private void prefetchVisible(RecyclerView recyclerView) {
+        LinearLayoutManager layoutManager = (LinearLayoutManager) recyclerView.getLayoutManager();
+        int first = layoutManager.findFirstVisibleItemPosition();
+        if (first == RecyclerView.NO_POSITION) {
+            return;
+        }
+
+        mFirst = first;
+        mLast = Math.min(mRecipes.length() - 1, layoutManager.findLastVisibleItemPosition() + Constants.PREFETCH_AHEAD);
+
+        for (int i = mInFlight.size() - 1; i >= 0; i--) {
+            int position = mInFlight.keyAt(i);
+            if (position < mFirst || position > mLast) {
+                mInFlight.valueAt(i).cancel();
+                mInFlight.removeAt(i);
+                mAttempted.delete(recipeIdAt(position));
+                mCancelledCount++;
+            }
+        }
+
+        prefetch();
+    }
+
+    /**
+     * Submits prefetches for the rows that should be prefetched, as long as the budget allows
+     */
+    private void prefetch() {
+        if (mFirst == RecyclerView.NO_POSITION || !Utils.hasInternet(mContext)) {
+            return;
+        }
+
+        RecipeManager manager = RecipeManager.get(mContext);
+        for (int position = mFirst; position <= mLast; position++) {
+            if (mInFlight.size() >= Constants.PREFETCH_MAX_IN_FLIGHT || mSpentChars >= Constants.PREFETCH_BUDGET_CHARS) {
+                return;
+            }
+
+            final int recipeId = recipeIdAt(position);
+            if (mInFlight.get(position) != null || mAttempted.get(recipeId) || manager.hasCachedRecipe(recipeId)) {
+                continue;
+            }
+
+            final int finalPosition = position;
+            mAttempted.put(recipeId, true);
+            mInFlight.put(position, manager.prefetch(recipeId, this, new RequestScheduler.Listener<Integer>() {
+                @Override
+                public void onResult(Integer chars) {
+                    mInFlight.remove(finalPosition);
+                    if (chars != null) {
+                        mSpentChars += chars;
+                        mPrefetched.put(recipeId, true);
+                    }
+                    prefetch();
+                }
+            }));
+        }
+    }
+
+    private int recipeIdAt(int position) {
+        return mRecipes.optJSONObject(position).optInt(Api.RECIPE_PK);
+    }
+
+    /**
+     * @return the prefetches and the budget spent by this prefetcher, and the hit rate of every
+     * prefetcher so far
+     */
+    @Override
+    public String toString() {
+        int opened = sHits + sMisses;
+        return String.format("RecipePrefetcher[prefetched=%d, inFlight=%d, cancelled=%d, chars=%d/%d, hits=%d/%d (%d%%)]", mPrefetched.size(), mInFlight.size(), mCancelledCount, mSpentChars, Constants.PREFETCH_BUDGET_CHARS, sHits, opened, opened == 0 ? 0 : sHits * 100 / opened);
+    }
+}
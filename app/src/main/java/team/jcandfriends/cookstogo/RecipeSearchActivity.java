@@ -36,6 +36,11 @@ import team.jcandfriends.cookstogo.managers.RecipeSearchManager;
  */
 public class RecipeSearchActivity extends AppCompatActivity implements TextWatcher, OnEditorActionListener {
 
+    /**
+     * What a result keeps once its page is trimmed, which is what its row shows
+     */
+    private static final String[] RECIPE_SUMMARY_KEYS = {Api.RECIPE_PK, Api.RECIPE_NAME, Api.RECIPE_DESCRIPTION, Api.RECIPE_ICON};
+
     private RecipeSearchManager mSearchManager;
 
     private SearchResultsAdapter mAdapter;
@@ -47,6 +52,39 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
     private View mProgressBar;
     private View mNoResultsView;
 
+    private JSONArray mResults;
+    private RecipeAdapter mResultsAdapter;
+
+    /**
+     * Follows the pages of the results of the server
+     */
+    private Pager mPager;
+
+    /**
+     * Searches the query once the user stops typing
+     */
+    private final Debouncer mDebouncer = new Debouncer(Constants.SEARCH_DEBOUNCE_MILLIS);
+
+    /**
+     * The query of the results that are shown, or null if the search history is shown
+     */
+    private String mQuery;
+
+    /**
+     * The search of the cached recipes, cancelled once a newer search supersedes it
+     */
+    private RequestScheduler.Request<JSONObject> mCachedSearch;
+
+    /**
+     * How many searches were started, so the results of a previous search are ignored
+     */
+    private int mSearchCount = 0;
+
+    /**
+     * How many of the cached and server searches have yet to finish
+     */
+    private int mPendingSearches = 0;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -75,8 +113,8 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
 
         mSearchManager = RecipeSearchManager.get(this);
 
-        mSearchHistoryList = mSearchManager.getAll();
-        mAdapter = new SearchResultsAdapter(mSearchHistoryList);
+        mAdapter = new SearchResultsAdapter(mSearchManager.getAll());
+        mSearchHistoryList = mAdapter.filter("", mSearchManager);
         mSearchHistoryView.setAdapter(mAdapter);
         Utils.setOnItemClickListener(mSearchHistoryView, new SimpleClickListener() {
             @Override
@@ -88,6 +126,13 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
             }
         });
 
+        Utils.setOnItemClickListener(mSearchResultsView, new SimpleClickListener() {
+            @Override
+            public void onClick(View view, int position) {
+                RecipeSearchActivity.this.openRecipe(RecipeSearchActivity.this.mResults.optJSONObject(position));
+            }
+        });
+
         mSearchField.setOnEditorActionListener(this);
         mSearchField.addTextChangedListener(this);
     }
@@ -116,6 +161,16 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
         return super.onOptionsItemSelected(item);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RequestScheduler.cancelAll(this);
+        mDebouncer.cancel();
+        if (null != mPager) {
+            mPager.cancel();
+        }
+    }
+
     @Override
     protected void onPause() {
         super.onPause();
@@ -132,12 +187,34 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
 
     }
 
+    /**
+     * Shows the matching search history right away, and the results of the query once the user stops
+     * typing. The results of the previous query stay until then.
+     */
     @Override
     public void afterTextChanged(Editable s) {
         mSearchHistoryList = mAdapter.filter(s.toString(), mSearchManager);
-        mSearchHistoryView.setVisibility(View.VISIBLE);
-        mNoResultsView.setVisibility(View.GONE);
-        mSearchResultsView.setVisibility(View.GONE);
+
+        final String query = s.toString().trim();
+        if (query.length() < Constants.SEARCH_MIN_QUERY_LENGTH) {
+            mDebouncer.cancel();
+            cancelSearch();
+            mQuery = null;
+            mSearchHistoryView.setVisibility(View.VISIBLE);
+            mNoResultsView.setVisibility(View.GONE);
+            mSearchResultsView.setVisibility(View.GONE);
+            mProgressBar.setVisibility(View.GONE);
+            return;
+        }
+
+        mDebouncer.post(new Runnable() {
+            @Override
+            public void run() {
+                if (!query.equals(RecipeSearchActivity.this.mQuery)) {
+                    RecipeSearchActivity.this.search(query, false);
+                }
+            }
+        });
     }
 
     @Override
@@ -146,6 +223,9 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
             Utils.closeKeyboard(this, mSearchField);
 
             String query = mSearchField.getText().toString();
+            if (query.trim().isEmpty()) {
+                return true;
+            }
             mSearchManager.add(query);
 
             // show results
@@ -157,53 +237,148 @@ public class RecipeSearchActivity extends AppCompatActivity implements TextWatch
     }
 
     private void showResults(String query) {
-        if (Utils.hasInternet(this)) {
-            mSearchHistoryView.setVisibility(View.GONE);
-            mProgressBar.setVisibility(View.VISIBLE);
-            mSearchField.clearFocus();
+        mDebouncer.cancel();
+        mSearchField.clearFocus();
+        search(query.trim(), true);
+    }
 
-            handleRecipeSearch(query);
-        } else {
-            Toast.makeText(this, R.string.snackbar_no_internet, Toast.LENGTH_SHORT).show();
-            finish();
+    /**
+     * @param isExplicit whether the user asked for the search, instead of it being searched as they type
+     */
+    private void search(String query, boolean isExplicit) {
+        mQuery = query;
+        mSearchHistoryView.setVisibility(View.GONE);
+        mNoResultsView.setVisibility(View.GONE);
+        mProgressBar.setVisibility(View.VISIBLE);
+
+        handleRecipeSearch(query, isExplicit);
+    }
+
+    /**
+     * Cancels the search in flight, if any, so its results are never shown
+     */
+    private void cancelSearch() {
+        mSearchCount++;
+
+        if (null != mCachedSearch) {
+            mCachedSearch.cancel();
+            mCachedSearch = null;
+        }
+        if (null != mPager) {
+            mPager.cancel();
+            mSearchResultsView.removeOnScrollListener(mPager);
+            mPager = null;
         }
     }
 
-    private void handleRecipeSearch(String query) {
+    /**
+     * Shows the matching cached recipes first, then appends the recipes the server found that aren't
+     * shown yet, one page at a time as the user scrolls. Without internet, only the cached recipes
+     * are searched.
+     */
+    private void handleRecipeSearch(String query, boolean isExplicit) {
         final RecipeManager recipeManager = RecipeManager.get(this);
-        recipeManager.search(query, new Callbacks() {
+        final boolean hasInternet = Utils.hasInternet(this);
+
+        cancelSearch();
+        final int search = mSearchCount;
+
+        mResults = new JSONArray();
+        mResultsAdapter = new RecipeAdapter(mResults);
+        mPager = new Pager(mResultsAdapter, mResults, Api.RECIPE_PK, RECIPE_SUMMARY_KEYS, new Pager.Callbacks() {
             @Override
-            public void onSuccess(JSONObject result) {
-                final JSONArray results = result.optJSONArray(Api.RESULTS);
-
-                if (results.length() == 0) {
-                    RecipeSearchActivity.this.findViewById(R.id.no_results_found).setVisibility(View.VISIBLE);
-                } else {
-                    RecipeAdapter adapter = new RecipeAdapter(results);
-                    RecipeSearchActivity.this.mSearchResultsView.setAdapter(adapter);
-                    Utils.setOnItemClickListener(RecipeSearchActivity.this.mSearchResultsView, new SimpleClickListener() {
-                        @Override
-                        public void onClick(View view, int position) {
-                            JSONObject recipe = results.optJSONObject(position);
-                            int recipeId = recipe.optInt(Api.RECIPE_PK);
-                            String recipeName = recipe.optString(Api.RECIPE_NAME);
-
-                            recipeManager.cacheRecipe(recipe);
-                            Utils.startRecipeActivity(RecipeSearchActivity.this, recipeId, recipeName);
-                        }
-                    });
-                    RecipeSearchActivity.this.mSearchResultsView.setVisibility(View.VISIBLE);
+            public void onPage(int page, int appended) {
+                if (appended > 0) {
+                    RecipeSearchActivity.this.showResultsView();
+                }
+                if (page == 1) {
+                    RecipeSearchActivity.this.onSearchFinished();
+                }
+            }
+
+            @Override
+            public void onFailure(int page) {
+                Toast.makeText(RecipeSearchActivity.this, "Something went wrong. Sorry!", Toast.LENGTH_SHORT).show();
+                if (page == 1) {
+                    RecipeSearchActivity.this.onSearchFinished();
                 }
+            }
+        });
+        mPendingSearches = hasInternet ? 2 : 1;
 
-                RecipeSearchActivity.this.mProgressBar.setVisibility(View.GONE);
+        mSearchResultsView.setAdapter(mResultsAdapter);
+        mSearchResultsView.addOnScrollListener(mPager);
+
+        mCachedSearch = recipeManager.searchCached(query, this, new Callbacks() {
+            @Override
+            public void onSuccess(JSONObject result) {
+                if (search == RecipeSearchActivity.this.mSearchCount) {
+                    if (RecipeSearchActivity.this.mPager.append(result.optJSONArray(Api.RESULTS)) > 0) {
+                        RecipeSearchActivity.this.showResultsView();
+                    }
+                    RecipeSearchActivity.this.onSearchFinished();
+                }
             }
 
             @Override
             public void onFailure() {
-                Toast.makeText(RecipeSearchActivity.this, "Something went wrong. Sorry!", Toast.LENGTH_SHORT).show();
-                RecipeSearchActivity.this.finish();
+                if (search == RecipeSearchActivity.this.mSearchCount) {
+                    RecipeSearchActivity.this.onSearchFinished();
+                }
             }
         });
+
+        if (hasInternet) {
+            mPager.start(Api.getRecipeSearchUrl(query));
+        } else if (isExplicit) {
+            Toast.makeText(this, R.string.snackbar_no_internet, Toast.LENGTH_SHORT).show();
+        }
+    }
+
+    private void showResultsView() {
+        mSearchResultsView.setVisibility(View.VISIBLE);
+        mProgressBar.setVisibility(View.GONE);
+    }
+
+    private void onSearchFinished() {
+        if (--mPendingSearches == 0) {
+            mProgressBar.setVisibility(View.GONE);
+            if (mResults.length() == 0) {
+                mNoResultsView.setVisibility(View.VISIBLE);
+            }
+        }
+    }
+
+    /**
+     * Opens a recipe from the results. The results of the server are full recipes, but the cached
+     * results only summarize them, so those are opened from the cache or fetched first.
+     */
+    private void openRecipe(JSONObject recipe) {
+        final RecipeManager recipeManager = RecipeManager.get(this);
+        final int recipeId = recipe.optInt(Api.RECIPE_PK);
+        final String recipeName = recipe.optString(Api.RECIPE_NAME);
+
+        if (recipe.has(Api.RECIPE_RECIPE_COMPONENTS)) {
+            recipeManager.cacheRecipe(recipe);
+            Utils.startRecipeActivity(this, recipeId, recipeName);
+        } else if (recipeManager.hasCachedRecipe(recipeId)) {
+            Utils.startRecipeActivity(this, recipeId, recipeName);
+        } else {
+            mProgressBar.setVisibility(View.VISIBLE);
+            recipeManager.fetch(recipeId, this, new Callbacks() {
+                @Override
+                public void onSuccess(JSONObject result) {
+                    RecipeSearchActivity.this.mProgressBar.setVisibility(View.GONE);
+                    Utils.startRecipeActivity(RecipeSearchActivity.this, recipeId, recipeName);
+                }
+
+                @Override
+                public void onFailure() {
+                    RecipeSearchActivity.this.mProgressBar.setVisibility(View.GONE);
+                    Toast.makeText(RecipeSearchActivity.this, "Something went wrong. Sorry!", Toast.LENGTH_SHORT).show();
+                }
+            });
+        }
     }
 
 }
@@ -43,7 +43,7 @@ public class RecommendedRecipesActivity extends AppCompatActivity {
             VirtualBasketManager virtualBasketManager = VirtualBasketManager.get(this);
             RecipeManager recipeManager = RecipeManager.get(this);
 
-            recipeManager.recommendRecipes(virtualBasketManager.getItems(virtualBasket), new Callbacks() {
+            recipeManager.recommendRecipes(virtualBasketManager.getItems(virtualBasket), this, new Callbacks() {
                 @Override
                 public void onSuccess(JSONObject result) {
                     ViewPager viewPager = (ViewPager) RecommendedRecipesActivity.this.findViewById(R.id.view_pager);
@@ -68,6 +68,12 @@ public class RecommendedRecipesActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RequestScheduler.cancelAll(this);
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
@@ -0,0 +1,256 @@
+package team.jcandfriends.cookstogo;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs the network requests of the app off the main thread. Requests are split into lanes, each
+ * with its own bounded set of threads and thread priority, so a slow background request never
+ * holds up one the user is waiting for. Every request belongs to an owner, usually the activity
+ * that started it, and cancelAll(owner) drops the requests of an owner that is going away so their
+ * results are never delivered.
+ * <p/>
+ * Requests must be submitted and cancelled on the main thread. Results are delivered on the main
+ * thread.
+ */
+public final class RequestScheduler {
+
+    private static final String TAG = "RequestScheduler";
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final Executor MAIN_THREAD = new Executor() {
+        private final Handler mHandler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable runnable) {
+            mHandler.post(runnable);
+        }
+    };
+
+    /**
+     * Where the results are delivered, the main thread unless a JVM test, which has no main
+     * thread, replaced it
+     */
+    private static volatile Executor sDelivery = MAIN_THREAD;
+
+    /**
+     * The requests that are not yet delivered, grouped by their owner
+     */
+    private static final HashMap<Object, ArrayList<RequestScheduler.Request<?>>> REQUESTS = new HashMap<>();
+
+    private RequestScheduler() {
+    }
+
+    /**
+     * Runs a job in a lane and delivers its result to the listener
+     *
+     * @param owner    the owner of the request, usually the activity that started it
+     * @param lane     the lane to run the job in
+     * @param job      the job
+     * @param listener receives the result of the job, or null if the job failed
+     * @return the request, which can be cancelled
+     */
+    public static <T> RequestScheduler.Request<T> submit(Object owner, RequestScheduler.Lane lane, RequestScheduler.Job<T> job, RequestScheduler.Listener<T> listener) {
+        return submit(owner, lane.mExecutor, job, listener);
+    }
+
+    /**
+     * Runs a job on an executor of the caller rather than in a lane, e.g. the single thread that owns
+     * some state the job reads, so the job doesn't hold a thread of a lane while it waits for that
+     * thread. The request is delivered and cancelled like any other.
+     *
+     * @param owner    the owner of the request, usually the activity that started it
+     * @param executor the executor to run the job on
+     * @param job      the job
+     * @param listener receives the result of the job, or null if the job failed
+     * @return the request, which can be cancelled
+     */
+    public static <T> RequestScheduler.Request<T> submit(Object owner, ThreadPoolExecutor executor, RequestScheduler.Job<T> job, RequestScheduler.Listener<T> listener) {
+        RequestScheduler.Request<T> request = new RequestScheduler.Request<>(owner, executor, job, listener);
+
+        ArrayList<RequestScheduler.Request<?>> requests = REQUESTS.get(owner);
+        if (requests == null) {
+            requests = new ArrayList<>();
+            REQUESTS.put(owner, requests);
+        }
+        requests.add(request);
+
+        executor.execute(request);
+        return request;
+    }
+
+    /**
+     * Cancels every request of the owner. Requests that are still queued never run, and the results
+     * of requests that are already running are dropped.
+     *
+     * @param owner the owner of the requests
+     */
+    public static void cancelAll(Object owner) {
+        ArrayList<RequestScheduler.Request<?>> requests = REQUESTS.remove(owner);
+        if (requests != null) {
+            for (RequestScheduler.Request<?> request : requests) {
+                request.dequeue();
+            }
+        }
+    }
+
+    /**
+     * Delivers the results with the given executor rather than on the main thread. Only the JVM
+     * tests use this.
+     *
+     * @param delivery the executor, or null to deliver on the main thread again
+     */
+    static void setDelivery(Executor delivery) {
+        sDelivery = delivery == null ? MAIN_THREAD : delivery;
+    }
+
+    private static void forget(RequestScheduler.Request<?> request) {
+        ArrayList<RequestScheduler.Request<?>> requests = REQUESTS.get(request.mOwner);
+        if (requests != null && requests.remove(request) && requests.isEmpty()) {
+            REQUESTS.remove(request.mOwner);
+        }
+    }
+
+    private static ThreadPoolExecutor newExecutor(final String name, int threads, final int threadPriority) {
+        ThreadFactory factory = new ThreadFactory() {
+            private final AtomicInteger mCount = new AtomicInteger();
+
+            @Override
+            public Thread newThread(final Runnable runnable) {
+                return new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        Process.setThreadPriority(threadPriority);
+                        runnable.run();
+                    }
+                }, name + " #" + mCount.incrementAndGet());
+            }
+        };
+
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), factory);
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    public enum Lane {
+
+        /**
+         * Requests the user is waiting for, such as opening a recipe or searching
+         */
+        INTERACTIVE(Constants.INTERACTIVE_THREADS, Process.THREAD_PRIORITY_DEFAULT),
+
+        /**
+         * Requests for things the user will probably ask for next
+         */
+        PREFETCH(Constants.PREFETCH_THREADS, Process.THREAD_PRIORITY_BACKGROUND),
+
+        /**
+         * Requests that keep the caches in sync with the server
+         */
+        BACKGROUND(Constants.BACKGROUND_THREADS, Process.THREAD_PRIORITY_BACKGROUND + Process.THREAD_PRIORITY_LESS_FAVORABLE);
+
+        private final ThreadPoolExecutor mExecutor;
+
+        Lane(int threads, int threadPriority) {
+            mExecutor = newExecutor(TAG + " " + name().toLowerCase(Locale.US), threads, threadPriority);
+        }
+    }
+
+    /**
+     * The work of a request. This runs on a thread of the lane, or of the executor it was submitted to.
+     */
+    public interface Job<T> {
+        T run() throws IOException, JSONException;
+    }
+
+    /**
+     * Receives the result of a request on the main thread
+     */
+    public interface Listener<T> {
+
+        /**
+         * @param result the result of the job, or null if the job failed
+         */
+        void onResult(T result);
+    }
+
+    public static final class Request<T> implements Runnable {
+
+        private final Object mOwner;
+        private final ThreadPoolExecutor mExecutor;
+        private final RequestScheduler.Job<T> mJob;
+        private final RequestScheduler.Listener<T> mListener;
+
+        private volatile boolean mIsCancelled = false;
+
+        private Request(Object owner, ThreadPoolExecutor executor, RequestScheduler.Job<T> job, RequestScheduler.Listener<T> listener) {
+            mOwner = owner;
+            mExecutor = executor;
+            mJob = job;
+            mListener = listener;
+        }
+
+        /**
+         * Cancels this request. If it is still queued it never runs, and if it is already running its
+         * result is dropped.
+         */
+        public void cancel() {
+            forget(this);
+            dequeue();
+        }
+
+        public boolean isCancelled() {
+            return mIsCancelled;
+        }
+
+        private void dequeue() {
+            mIsCancelled = true;
+            mExecutor.remove(this);
+        }
+
+        @Override
+        public void run() {
+            if (mIsCancelled) {
+                return;
+            }
+
+            T result = null;
+            try {
+                result = mJob.run();
+            } catch (IOException | JSONException e) {
+                Log.e(TAG, "Request failed", e);
+            } catch (RuntimeException e) {
+                // the listener still gets its null and the request is still forgotten, and the
+                // thread of the lane survives
+                Log.e(TAG, "Request failed unexpectedly", e);
+            }
+
+            final T finalResult = result;
+            sDelivery.execute(new Runnable() {
+                @Override
+                public void run() {
+                    if (!mIsCancelled) {
+                        forget(RequestScheduler.Request.this);
+                        mListener.onResult(finalResult);
+                    }
+                }
+            });
+        }
+    }
+}
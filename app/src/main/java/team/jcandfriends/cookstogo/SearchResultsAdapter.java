@@ -8,11 +8,10 @@ import android.view.ViewGroup;
 import android.widget.TextView;
 
 import java.util.ArrayList;
-import java.util.regex.Pattern;
+import java.util.HashSet;
 
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
-import team.jcandfriends.cookstogo.Utils.FilterPredicate;
 import team.jcandfriends.cookstogo.managers.SearchManager;
 
 /**
@@ -20,10 +19,19 @@ import team.jcandfriends.cookstogo.managers.SearchManager;
  */
 public class SearchResultsAdapter extends Adapter<SearchResultsAdapter.SearchHistoryViewHolder> {
 
-    private ArrayList<String> mSearchHistory;
+    /**
+     * Past this many runs of removed or inserted rows, the whole list is rebound instead, which is
+     * cheaper than animating that many ranges
+     */
+    private static final int MAX_RANGE_NOTIFICATIONS = 32;
 
+    private final ArrayList<String> mSearchHistory;
+
+    /**
+     * @param searchHistory the search history, which is copied
+     */
     public SearchResultsAdapter(ArrayList<String> searchHistory) {
-        mSearchHistory = searchHistory;
+        mSearchHistory = new ArrayList<>(searchHistory);
     }
 
     @Override
@@ -37,23 +45,76 @@ public class SearchResultsAdapter extends Adapter<SearchResultsAdapter.SearchHis
         holder.mText.setText(mSearchHistory.get(position));
     }
 
-    public ArrayList<String> filter(final String query, SearchManager<String> searchManager) {
-        if (null != query && !query.isEmpty()) {
-            mSearchHistory = Utils.filter(mSearchHistory, new FilterPredicate() {
-                final Pattern pattern = Pattern.compile(query, Pattern.CASE_INSENSITIVE);
-
-                @Override
-                public boolean evaluate(String string) {
-                    return this.pattern.matcher(string).find();
-                }
-            });
-        } else {
-            mSearchHistory = searchManager.getAll();
+    /**
+     * Shows the entries of the search history that contain a query. Only the rows that went away or
+     * came back are notified, so the rows the query keeps aren't rebound.
+     *
+     * @param query         the query, matched as plain text regardless of case
+     * @param searchManager the search manager of the history
+     * @return the entries that are shown, in the order of their rows
+     */
+    public ArrayList<String> filter(String query, SearchManager<String> searchManager) {
+        ArrayList<String> matches = searchManager.filter(null == query ? "" : query);
+        HashSet<String> matched = new HashSet<>(matches);
+        HashSet<String> shown = new HashSet<>(mSearchHistory);
+
+        // the rows both lists keep must be in the same order, which they aren't if the history was
+        // reordered by a search since the last filter
+        ArrayList<String> keptBefore = new ArrayList<>();
+        for (String entry : mSearchHistory) {
+            if (matched.contains(entry)) {
+                keptBefore.add(entry);
+            }
+        }
+        ArrayList<String> keptAfter = new ArrayList<>();
+        for (String entry : matches) {
+            if (shown.contains(entry)) {
+                keptAfter.add(entry);
+            }
+        }
+
+        ArrayList<int[]> removed = runsOf(mSearchHistory, matched);
+        ArrayList<int[]> inserted = runsOf(matches, shown);
+        mSearchHistory.clear();
+        mSearchHistory.addAll(matches);
+
+        if (!keptBefore.equals(keptAfter) || removed.size() + inserted.size() > MAX_RANGE_NOTIFICATIONS) {
+            notifyDataSetChanged();
+            return mSearchHistory;
+        }
+
+        // removed from the last run, so the positions of the earlier runs still hold
+        for (int i = removed.size() - 1; i >= 0; i--) {
+            notifyItemRangeRemoved(removed.get(i)[0], removed.get(i)[1]);
+        }
+        // inserted from the first run, at their positions in the new list
+        for (int[] run : inserted) {
+            notifyItemRangeInserted(run[0], run[1]);
         }
-        notifyDataSetChanged();
         return mSearchHistory;
     }
 
+    /**
+     * @return the position and length of each run of entries that aren't in the other list
+     */
+    private static ArrayList<int[]> runsOf(ArrayList<String> entries, HashSet<String> other) {
+        ArrayList<int[]> runs = new ArrayList<>();
+        int i = 0;
+        while (i < entries.size()) {
+            if (other.contains(entries.get(i))) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            while (i < entries.size() && !other.contains(entries.get(i))) {
+                i++;
+            }
+            runs.add(new int[]{start, i - start});
+        }
+        return runs;
+    }
+
     @Override
     public int getItemCount() {
         return mSearchHistory.size();
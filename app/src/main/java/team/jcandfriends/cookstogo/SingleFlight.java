@@ -0,0 +1,84 @@
+package team.jcandfriends.cookstogo;
+
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Makes concurrent calls for the same key share one execution. The first caller runs the call, and
+ * every caller that arrives while it is still running waits for it and gets the same result. This
+ * blocks, so it must not be invoked on the main thread.
+ */
+public final class SingleFlight<T> {
+
+    private static final String TAG = "SingleFlight";
+
+    private final ConcurrentHashMap<String, FutureTask<T>> mInFlight = new ConcurrentHashMap<>();
+
+    private final AtomicInteger mExecutedCount = new AtomicInteger();
+    private final AtomicInteger mSharedCount = new AtomicInteger();
+
+    /**
+     * Runs the call, or waits for the call that is already running for the same key
+     *
+     * @param key  identifies the call, usually the url of the resource
+     * @param call the call
+     * @return the result of the call
+     */
+    public T run(String key, Callable<T> call) throws IOException, JSONException {
+        FutureTask<T> task = new FutureTask<>(call);
+        FutureTask<T> running = mInFlight.putIfAbsent(key, task);
+
+        if (running == null) {
+            mExecutedCount.incrementAndGet();
+            try {
+                task.run();
+            } finally {
+                mInFlight.remove(key, task);
+            }
+            running = task;
+        } else {
+            int shared = mSharedCount.incrementAndGet();
+            Log.d(TAG, "Joined the request in flight for " + key + " (" + shared + " deduplicated so far)");
+        }
+
+        try {
+            return running.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for " + key);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof JSONException) {
+                throw (JSONException) cause;
+            } else if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new RuntimeException(cause);
+        }
+    }
+
+    /**
+     * @return how many calls were actually executed
+     */
+    public int getExecutedCount() {
+        return mExecutedCount.get();
+    }
+
+    /**
+     * @return how many calls joined a call that was already running instead of executing their own
+     */
+    public int getSharedCount() {
+        return mSharedCount.get();
+    }
+}
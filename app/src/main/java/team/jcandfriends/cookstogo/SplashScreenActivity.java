@@ -2,44 +2,76 @@ package team.jcandfriends.cookstogo;
 
 import android.app.Activity;
 import android.content.Intent;
-import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
 import android.widget.TextView;
 
 import org.json.JSONArray;
 import org.json.JSONException;
-import org.json.JSONObject;
 
 import java.io.IOException;
+import java.util.Random;
 
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
+import team.jcandfriends.cookstogo.inflector.English;
 import team.jcandfriends.cookstogo.managers.IngredientManager;
 import team.jcandfriends.cookstogo.managers.RecipeManager;
 
 /**
- * The activity that is shown while the app is loading its initial data
+ * The activity that is shown while the app is loading its initial data. The recipe types and the
+ * ingredient types are fetched at the same time, and each one is retried on its own with an
+ * exponential backoff when it fails.
  */
 public class SplashScreenActivity extends Activity {
 
+    private static final int RECIPE_TYPES = 0;
+    private static final int INGREDIENT_TYPES = 1;
+
+    private static final String[] SOURCES = {Api.RECIPE_TYPES, Api.INGREDIENT_TYPES};
+
+    /**
+     * The parser of each source. The ingredients are kept whole because they are added to virtual
+     * baskets as they are.
+     */
+    private static final JSONGrabber.Parser<?>[] PARSERS = {JSONGrabber.RECIPE_TYPES, JSONGrabber.RESULTS};
+
+    /**
+     * The delay before the first retry, doubled on each retry after that
+     */
+    private static final long RETRY_BASE_DELAY = 500;
+    private static final long RETRY_MAX_DELAY = 30000;
+
+    private final boolean[] mIsLoaded = new boolean[SOURCES.length];
+    private final int[] mAttempts = new int[SOURCES.length];
+    private final Handler mHandler = new Handler();
+    private final Random mRandom = new Random();
+
     private RecipeManager mRecipeManager;
     private IngredientManager mIngredientManager;
 
     private TextView mOutput;
 
+    private boolean mIsStillHere = true;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        StartupTimer.start();
         super.onCreate(savedInstanceState);
         setContentView(layout.activity_splash_screen);
 
+        English.warmUp();
         mRecipeManager = RecipeManager.get(this);
         mIngredientManager = IngredientManager.get(this);
 
         mOutput = (TextView) this.findViewById(id.output);
 
-        if (mRecipeManager.hasCachedRecipeTypes() && mIngredientManager.hasCachedIngredientTypes()) {
-            startActivity(new Intent(this, RecipesActivity.class));
-            finish();
+        mIsLoaded[RECIPE_TYPES] = mRecipeManager.hasCachedRecipeTypes();
+        mIsLoaded[INGREDIENT_TYPES] = mIngredientManager.hasCachedIngredientTypes();
+        StartupTimer.mark("Checked the catalog");
+
+        if (mIsLoaded[RECIPE_TYPES] && mIsLoaded[INGREDIENT_TYPES]) {
+            startRecipesActivity();
         } else if (Utils.hasInternet(this)) {
             initialize();
         } else {
@@ -47,52 +79,78 @@ public class SplashScreenActivity extends Activity {
         }
     }
 
-    private void onPostExecute(JSONObject[] jsonObjects) throws JSONException {
-        if (null != jsonObjects) {
-            JSONArray temp = jsonObjects[0].getJSONArray(Api.RESULTS);
-            mRecipeManager.cacheRecipeTypes(temp);
-
-            temp = jsonObjects[1].getJSONArray(Api.RESULTS);
-            mIngredientManager.cacheIngredientTypes(temp);
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        mIsStillHere = false;
+        mHandler.removeCallbacksAndMessages(null);
+        RequestScheduler.cancelAll(this);
+    }
 
-            Intent intent = new Intent(this, RecipesActivity.class);
-            startActivity(intent);
-            finish();
-        } else {
-            mOutput.setText("Oh my god! It failed, trying again...");
-            initialize();
+    private void initialize() {
+        for (int source = 0; source < SOURCES.length; source++) {
+            if (!mIsLoaded[source]) {
+                fetch(source);
+            }
         }
     }
 
-    private void initialize() {
-        new AsyncTask<Void, Void, JSONObject[]>() {
+    private void fetch(final int source) {
+        RequestScheduler.submit(this, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONArray>() {
             @Override
-            protected JSONObject[] doInBackground(Void... params) {
-                try {
-                    JSONObject[] objects = new JSONObject[2];
-                    JSONGrabber grabber = new JSONGrabber(Api.RECIPE_TYPES);
-                    objects[0] = grabber.grab();
-                    grabber.reuseConnection(Api.INGREDIENT_TYPES);
-                    objects[1] = grabber.grab();
-                    return objects;
-                } catch (IOException | JSONException e) {
-                    Utils.log("Exception while grabbing latest recipe and ingredient types.");
-                    e.printStackTrace();
-                }
-                return null;
+            public JSONArray run() throws IOException, JSONException {
+                return (JSONArray) new JSONGrabber(SOURCES[source]).grab(PARSERS[source]);
             }
-
+        }, new RequestScheduler.Listener<JSONArray>() {
             @Override
-            protected void onPostExecute(JSONObject[] jsonObjects) {
-                super.onPostExecute(jsonObjects);
-                try {
-                    SplashScreenActivity.this.onPostExecute(jsonObjects);
-                } catch (JSONException e) {
-                    Utils.log("Cannot parse the response of the server. This should not happen.");
-                    e.printStackTrace();
-                }
+            public void onResult(JSONArray results) {
+                SplashScreenActivity.this.onPostExecute(source, results);
+            }
+        });
+    }
+
+    private void onPostExecute(final int source, JSONArray results) {
+        if (!mIsStillHere) {
+            return;
+        }
+
+        if (null != results) {
+            if (source == RECIPE_TYPES) {
+                mRecipeManager.cacheRecipeTypes(results);
+            } else {
+                mIngredientManager.cacheIngredientTypes(results);
+            }
+
+            mIsLoaded[source] = true;
+            StartupTimer.mark("Loaded " + SOURCES[source]);
+
+            if (mIsLoaded[RECIPE_TYPES] && mIsLoaded[INGREDIENT_TYPES]) {
+                startRecipesActivity();
             }
-        }.execute();
+        } else {
+            mOutput.setText("Oh my god! It failed, trying again...");
+            mHandler.postDelayed(new Runnable() {
+                @Override
+                public void run() {
+                    fetch(source);
+                }
+            }, nextRetryDelay(source));
+        }
+    }
+
+    /**
+     * Returns a random delay between zero and an exponentially growing ceiling so that retries of
+     * both sources don't hit the server at the same time
+     */
+    private long nextRetryDelay(int source) {
+        int attempt = Math.min(mAttempts[source]++, 16);
+        long ceiling = Math.min(RETRY_MAX_DELAY, RETRY_BASE_DELAY << attempt);
+        return (long) (mRandom.nextDouble() * ceiling);
+    }
+
+    private void startRecipesActivity() {
+        startActivity(new Intent(this, RecipesActivity.class));
+        finish();
     }
 
 }
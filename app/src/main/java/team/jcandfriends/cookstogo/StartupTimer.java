@@ -0,0 +1,63 @@
+package team.jcandfriends.cookstogo;
+
+import android.app.Activity;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Measures how long it takes from the launch of the app until the first screen the user can
+ * interact with is drawn. The results are written to the log under the StartupTimer tag. A launch
+ * is cold when it is the first one of the process, and warm when the process was still alive.
+ */
+public final class StartupTimer {
+
+    private static final String TAG = "StartupTimer";
+
+    private static long sStartTime = -1;
+    private static boolean sReported = false;
+
+    private static boolean sIsProcessStarted = false;
+    private static String sStartType;
+
+    /**
+     * Starts the timer. Must be invoked as early as possible when the app is launched.
+     */
+    public static void start() {
+        sStartType = sIsProcessStarted ? "warm" : "cold";
+        sIsProcessStarted = true;
+        sStartTime = SystemClock.elapsedRealtime();
+        sReported = false;
+    }
+
+    /**
+     * Logs the time it took since the start of the timer until the given event
+     *
+     * @param event the name of the event
+     */
+    public static void mark(String event) {
+        if (sStartTime != -1) {
+            Log.i(TAG, "[" + sStartType + " start] " + event + " after " + (SystemClock.elapsedRealtime() - sStartTime) + " ms");
+        }
+    }
+
+    /**
+     * Logs the time to the first interactive screen once the given activity is drawn. Only the first
+     * activity that reports after the timer was started is logged.
+     *
+     * @param activity the activity that is now interactive
+     */
+    public static void reportFirstInteractive(final Activity activity) {
+        if (sStartTime == -1 || sReported) {
+            return;
+        }
+
+        sReported = true;
+        activity.getWindow().getDecorView().post(new Runnable() {
+            @Override
+            public void run() {
+                mark("First interactive screen (" + activity.getClass().getSimpleName() + ")");
+                sStartTime = -1;
+            }
+        });
+    }
+}
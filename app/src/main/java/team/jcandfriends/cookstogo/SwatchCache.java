@@ -0,0 +1,254 @@
+package team.jcandfriends.cookstogo;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+import android.graphics.Color;
+import android.support.v4.util.LruCache;
+import android.support.v7.graphics.Palette;
+import android.support.v7.graphics.Palette.Swatch;
+import android.util.Log;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Extracts the swatches that theme the toolbar from a banner, off the main thread, and remembers
+ * them by the url of the banner, in memory and in a small SharedPreferences file. A screen that was
+ * visited before is themed as soon as it is created instead of once its banner is decoded. Both
+ * are bounded, the file drops the swatches that were extracted the longest ago.
+ * <p/>
+ * Swatches are extracted from a copy of the banner that is scaled down first, which is all Palette
+ * needs and far less work than the full-width banner.
+ */
+public final class SwatchCache {
+
+    private static final String TAG = "SwatchCache";
+
+    /**
+     * The name of the SharedPreferences that contains the swatches
+     */
+    private static final String SWATCH_CACHE = "swatch_cache";
+
+    /**
+     * The banner is scaled down until its longest side is at most this many pixels
+     */
+    private static final int MAX_DIMENSION = 100;
+
+    /**
+     * Banners are dominated by a few colors, so fewer than the default 16 are enough
+     */
+    private static final int MAX_COLOR_COUNT = 12;
+
+    private static final int MAX_ENTRIES = 64;
+
+    /**
+     * The most swatches kept in the SharedPreferences. Once full, the oldest quarter is dropped at
+     * once so they aren't sorted again on every extraction.
+     */
+    private static final int MAX_PERSISTED_ENTRIES = 256;
+
+    /**
+     * Separates the stored swatches from the time they were extracted
+     */
+    private static final char STAMP_SEPARATOR = '@';
+
+    private static SwatchCache sInstance;
+
+    private final SharedPreferences mPreferences;
+    private final LruCache<String, SwatchCache.Swatches> mSwatches = new LruCache<>(MAX_ENTRIES);
+
+    private SwatchCache(Context context) {
+        // starts loading the file in the background, long before the first banner is decoded
+        mPreferences = context.getSharedPreferences(SWATCH_CACHE, Context.MODE_PRIVATE);
+    }
+
+    public static SwatchCache get(Context context) {
+        if (sInstance == null) {
+            sInstance = new SwatchCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Returns the swatches of a banner, if they were extracted before
+     *
+     * @param url the url of the banner
+     * @return the swatches, or null if they were never extracted
+     */
+    public SwatchCache.Swatches getSwatches(String url) {
+        SwatchCache.Swatches swatches = mSwatches.get(url);
+        if (swatches == null) {
+            swatches = SwatchCache.Swatches.parse(mPreferences.getString(url, null));
+            if (swatches != null) {
+                mSwatches.put(url, swatches);
+            }
+        }
+        return swatches;
+    }
+
+    /**
+     * Extracts the swatches of a banner on a background thread, unless they were extracted before.
+     * The listener is not called if the swatches are already known or the owner goes away first.
+     *
+     * @param owner    the owner of the request, usually the activity that shows the banner
+     * @param url      the url of the banner
+     * @param bitmap   the banner, which is only read
+     * @param listener receives the swatches on the main thread
+     */
+    public void extract(Object owner, final String url, final Bitmap bitmap, final RequestScheduler.Listener<SwatchCache.Swatches> listener) {
+        if (getSwatches(url) != null) {
+            return;
+        }
+
+        RequestScheduler.submit(owner, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<SwatchCache.Swatches>() {
+            @Override
+            public SwatchCache.Swatches run() {
+                return SwatchCache.Swatches.extract(bitmap);
+            }
+        }, new RequestScheduler.Listener<SwatchCache.Swatches>() {
+            @Override
+            public void onResult(SwatchCache.Swatches swatches) {
+                if (swatches != null) {
+                    mSwatches.put(url, swatches);
+                    SharedPreferences.Editor editor = mPreferences.edit();
+                    trimPersisted(editor);
+                    editor.putString(url, swatches.toString() + STAMP_SEPARATOR + System.currentTimeMillis()).apply();
+                    listener.onResult(swatches);
+                }
+            }
+        });
+    }
+
+    /**
+     * Removes the oldest swatches from the SharedPreferences if they are full
+     */
+    private void trimPersisted(SharedPreferences.Editor editor) {
+        Map<String, ?> entries = mPreferences.getAll();
+        if (entries.size() < MAX_PERSISTED_ENTRIES) {
+            return;
+        }
+
+        long[] stamps = new long[entries.size()];
+        int i = 0;
+        for (Object value : entries.values()) {
+            stamps[i++] = stampOf(value);
+        }
+        Arrays.sort(stamps);
+        long oldestKept = stamps[entries.size() - MAX_PERSISTED_ENTRIES * 3 / 4];
+
+        for (Map.Entry<String, ?> entry : entries.entrySet()) {
+            if (stampOf(entry.getValue()) < oldestKept) {
+                editor.remove(entry.getKey());
+            }
+        }
+    }
+
+    /**
+     * @return when the stored swatches were extracted, or 0 if they were stored without the time
+     */
+    private static long stampOf(Object value) {
+        if (!(value instanceof String)) {
+            return 0;
+        }
+
+        String text = (String) value;
+        int separator = text.indexOf(STAMP_SEPARATOR);
+        if (separator < 0) {
+            return 0;
+        }
+
+        try {
+            return Long.parseLong(text.substring(separator + 1));
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * The swatches of a banner. A swatch that Palette couldn't find is Color.TRANSPARENT, which no
+     * swatch can be because swatches are opaque.
+     */
+    public static final class Swatches {
+
+        private final int mVibrant;
+        private final int mLightVibrant;
+        private final int mDarkVibrant;
+
+        private Swatches(int vibrant, int lightVibrant, int darkVibrant) {
+            mVibrant = vibrant;
+            mLightVibrant = lightVibrant;
+            mDarkVibrant = darkVibrant;
+        }
+
+        private static SwatchCache.Swatches extract(Bitmap bitmap) {
+            long start = System.nanoTime();
+
+            float scale = Math.min(1f, (float) MAX_DIMENSION / Math.max(bitmap.getWidth(), bitmap.getHeight()));
+            Bitmap scaled = scale == 1f ? bitmap : Bitmap.createScaledBitmap(bitmap, Math.max(1, Math.round(bitmap.getWidth() * scale)), Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+
+            Palette p = Palette.from(scaled).maximumColorCount(MAX_COLOR_COUNT).generate();
+            if (scaled != bitmap) {
+                scaled.recycle();
+            }
+
+            SwatchCache.Swatches swatches = new SwatchCache.Swatches(rgbOf(p.getVibrantSwatch()), rgbOf(p.getLightVibrantSwatch()), rgbOf(p.getDarkVibrantSwatch()));
+            Log.d(TAG, String.format("Extracted %s from %dx%d in %dms", swatches, bitmap.getWidth(), bitmap.getHeight(), (System.nanoTime() - start) / 1000000));
+            return swatches;
+        }
+
+        private static SwatchCache.Swatches parse(String text) {
+            if (text == null) {
+                return null;
+            }
+
+            int separator = text.indexOf(STAMP_SEPARATOR);
+            String[] colors = (separator < 0 ? text : text.substring(0, separator)).split(",");
+            if (colors.length != 3) {
+                return null;
+            }
+
+            try {
+                return new SwatchCache.Swatches((int) Long.parseLong(colors[0], 16), (int) Long.parseLong(colors[1], 16), (int) Long.parseLong(colors[2], 16));
+            } catch (NumberFormatException e) {
+                Log.e(TAG, "Malformed swatches : " + text, e);
+                return null;
+            }
+        }
+
+        private static int rgbOf(Swatch swatch) {
+            return swatch == null ? Color.TRANSPARENT : swatch.getRgb();
+        }
+
+        public boolean hasVibrant() {
+            return mVibrant != Color.TRANSPARENT;
+        }
+
+        /**
+         * @return true if all three vibrant swatches were found
+         */
+        public boolean hasAllVibrant() {
+            return hasVibrant() && mLightVibrant != Color.TRANSPARENT && mDarkVibrant != Color.TRANSPARENT;
+        }
+
+        public int getVibrant() {
+            return mVibrant;
+        }
+
+        public int getLightVibrant() {
+            return mLightVibrant;
+        }
+
+        public int getDarkVibrant() {
+            return mDarkVibrant;
+        }
+
+        /**
+         * @return the swatches as they are stored, e.g. "ff3f51b5,ffc5cae9,ff303f9f"
+         */
+        @Override
+        public String toString() {
+            return Integer.toHexString(mVibrant) + "," + Integer.toHexString(mLightVibrant) + "," + Integer.toHexString(mDarkVibrant);
+        }
+    }
+}
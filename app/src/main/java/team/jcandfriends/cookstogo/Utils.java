@@ -3,13 +3,6 @@ package team.jcandfriends.cookstogo;
 import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
-import android.graphics.Bitmap;
-import android.graphics.Bitmap.Config;
-import android.graphics.Canvas;
-import android.graphics.Paint;
-import android.graphics.PorterDuff.Mode;
-import android.graphics.PorterDuffXfermode;
-import android.graphics.Rect;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.wifi.WifiManager;
@@ -17,8 +10,6 @@ import android.os.Build.VERSION;
 import android.os.Build.VERSION_CODES;
 import android.support.design.widget.Snackbar;
 import android.support.design.widget.TabLayout;
-import android.support.v7.graphics.Palette;
-import android.support.v7.graphics.Palette.Swatch;
 import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.OnItemTouchListener;
 import android.support.v7.widget.Toolbar;
@@ -35,6 +26,7 @@ import com.nostra13.universalimageloader.core.DisplayImageOptions;
 import com.nostra13.universalimageloader.core.ImageLoader;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration;
 import com.nostra13.universalimageloader.core.ImageLoaderConfiguration.Builder;
+import com.nostra13.universalimageloader.core.assist.QueueProcessingType;
 
 import org.json.JSONArray;
 import org.json.JSONObject;
@@ -92,30 +84,22 @@ public final class Utils {
 
     /**
      * Decorates the android.support.v7.widget.Toolbar and the android.support.design.widget.TabLayout
-     * to a swatch generated based on the bitmap parameter. Note that the id of the toolbar must be
-     * 'toolbar' and the id of the TabLayout must be 'tab_layout' in order for this method to work.
-     * This method uses reflection because Google hasn't provided a public method for changing the
-     * tabLayout's indicator color programmatically even though a private method can be seen if one
-     * can see the decompiled version of the TabLayout class. This method doesn't cache the Method object,
-     * use only when you want to sacrifice performance for appearance.
+     * to the swatches of a banner. Note that the id of the toolbar must be 'toolbar' and the id of
+     * the TabLayout must be 'tab_layout' in order for this method to work. Nothing changes unless
+     * all three vibrant swatches were found.
      *
      * @param activity The activity where the Toolbar and the TabLayout lives
-     * @param bitmap   The bitmap where the swatch will be based on
+     * @param swatches The swatches of the banner, see SwatchCache
      */
-    public static void decorateToolbarAndTabs(Activity activity, Bitmap bitmap) {
-        Palette p = Palette.from(bitmap).generate();
-        Swatch vibrant = p.getVibrantSwatch();
-        Swatch lightVibrant = p.getLightVibrantSwatch();
-        Swatch darkVibrant = p.getDarkVibrantSwatch();
-
-        if (vibrant != null && lightVibrant != null && darkVibrant != null) {
-            int primaryColor = vibrant.getRgb();
+    public static void decorateToolbarAndTabs(Activity activity, SwatchCache.Swatches swatches) {
+        if (swatches.hasAllVibrant()) {
+            int primaryColor = swatches.getVibrant();
             Toolbar toolbar = ((TabsToolbarGettable) activity).getToolbar();
             toolbar.setBackgroundColor(primaryColor);
             TabLayout tabs = ((TabsToolbarGettable) activity).getTabLayout();
             tabs.setBackgroundColor(primaryColor);
-            Utils.setTabIndicatorColor(tabs, lightVibrant.getRgb());
-            Utils.setStatusBarColor(activity, darkVibrant.getRgb());
+            Utils.setTabIndicatorColor(tabs, swatches.getLightVibrant());
+            Utils.setStatusBarColor(activity, swatches.getDarkVibrant());
         }
     }
 
@@ -138,75 +122,40 @@ public final class Utils {
     /**
      * Helper method to change the indicator color of Material Tabs. This is implemented
      * using Java's reflection API because this method is private in the implementation of
-     * TabLayout.
+     * TabLayout. The field and the method are looked up once, the first time this is called.
      *
      * @param tabs  The TabLayout which indicator's color will be changed
      * @param color The color to use
      */
     public static void setTabIndicatorColor(TabLayout tabs, int color) {
+        if (TabIndicator.SET_SELECTED_INDICATOR_COLOR == null) {
+            return;
+        }
+
         try {
-            Field tabStripField = TabLayout.class.getDeclaredField("mTabStrip");
-            tabStripField.setAccessible(true);
-            Class<?> c = Class.forName("android.support.design.widget.TabLayout$SlidingTabStrip");
-            Method changeIndicatorColor = c.getDeclaredMethod("setSelectedIndicatorColor", int.class);
-            changeIndicatorColor.setAccessible(true);
-            Object object = tabStripField.get(tabs);
-            changeIndicatorColor.invoke(object, color);
-        } catch (NoSuchFieldException e) {
-            Log.e(TAG, "NoSuchFieldException", e);
-        } catch (NoSuchMethodException e) {
-            Log.e(TAG, "NoSuchMethodException", e);
+            TabIndicator.SET_SELECTED_INDICATOR_COLOR.invoke(TabIndicator.TAB_STRIP.get(tabs), color);
         } catch (InvocationTargetException e) {
             Log.e(TAG, "InvocationTargetException", e);
         } catch (IllegalAccessException e) {
             Log.e(TAG, "IllegalAccessException", e);
-        } catch (ClassNotFoundException e) {
-            Log.e(TAG, "ClassNotFoundException", e);
         }
     }
 
     /**
-     * Changes the background color of the toolbar to the vibrant swatch which is
-     * generated by the Palette class from the given bitmap.
+     * Changes the background color of the toolbar to the vibrant swatch of a banner
      *
      * @param activity The activity
-     * @param bitmap   The bitmap which to load colors from
+     * @param swatches The swatches of the banner, see SwatchCache
      */
-    public static void decorateToolbar(Activity activity, Bitmap bitmap) {
-        Palette p = Palette.from(bitmap).generate();
-        Swatch vibrantSwatch = p.getVibrantSwatch();
-        log("Vibrant swatch is null : " + (vibrantSwatch == null));
+    public static void decorateToolbar(Activity activity, SwatchCache.Swatches swatches) {
+        log("Vibrant swatch is missing : " + !swatches.hasVibrant());
 
-        if (vibrantSwatch != null) {
-            int primaryColor = vibrantSwatch.getRgb();
+        if (swatches.hasVibrant()) {
             Toolbar toolbar = ((ToolbarGettable) activity).getToolbar();
-            toolbar.setBackgroundColor(primaryColor);
+            toolbar.setBackgroundColor(swatches.getVibrant());
         }
     }
 
-    /**
-     * Returns a rounded version of the given bitmap
-     *
-     * @param bitmap The bitmap that will be masked with a circle frame
-     * @return The rounded bitmap
-     */
-    public static Bitmap getRoundedBitmap(Bitmap bitmap) {
-        Bitmap output = Bitmap.createBitmap(bitmap.getWidth(),
-                bitmap.getHeight(), Config.ARGB_8888);
-        Canvas canvas = new Canvas(output);
-
-        Paint paint = new Paint();
-        Rect rect = new Rect(0, 0, bitmap.getWidth(), bitmap.getHeight());
-
-        paint.setAntiAlias(true);
-        canvas.drawARGB(0, 0, 0, 0);
-        canvas.drawCircle(bitmap.getWidth() / 2, bitmap.getHeight() / 2,
-                bitmap.getWidth() / 2, paint);
-        paint.setXfermode(new PorterDuffXfermode(Mode.SRC_IN));
-        canvas.drawBitmap(bitmap, rect, rect, paint);
-        return output;
-    }
-
     /**
      * Capitalizes the first character of the string
      *
@@ -308,25 +257,16 @@ public final class Utils {
                     .cacheOnDisk(true)
                     .build();
 
+            // the most recent requests are for the rows that just became visible
             ImageLoaderConfiguration config = new Builder(context)
                     .defaultDisplayImageOptions(defaultOptions)
+                    .tasksProcessingOrder(QueueProcessingType.LIFO)
+                    .imageDecoder(new MeasuringImageDecoder())
                     .build();
             ImageLoader.getInstance().init(config);
         }
     }
 
-    public static ArrayList<String> filter(ArrayList<String> collection, Utils.FilterPredicate predicate) {
-        ArrayList<String> filteredList = new ArrayList<>();
-
-        for (String next : collection) {
-            if (predicate.evaluate(next)) {
-                filteredList.add(next);
-            }
-        }
-
-        return filteredList;
-    }
-
     public static ArrayList<String> toStringList (JSONArray array) {
         ArrayList<String> list = new ArrayList<>();
 
@@ -367,53 +307,6 @@ public final class Utils {
         return list;
     }
 
-    /**
-     * Reference: http://english.stackexchange.com/questions/69162/are-these-plural-or-singular
-     *
-     * @param x the floating-point number in string format
-     * @return the fraction version
-     */
-    public static String fractionize(String x) {
-        String tokens[] = x.split("\\.");
-        String whole = tokens[0].equals("0") ? "" : tokens[0];
-        String decimal = tokens[1];
-
-        switch (decimal) {
-            case "25":  // 1/4
-                return whole + "¼";
-            case "5":  // 1/2
-                return whole + "½";
-            case "75":  // 3/4
-                return whole + "¾";
-            case "3333":  // 1/3
-                return whole + "⅓";
-            case "6666":  // 2/3
-                return whole + "⅔";
-            case "2":  // 1/5
-                return whole + "⅕";
-            case "4":  // 2/5
-                return whole + "⅖";
-            case "6":  // 3/5
-                return whole + "⅗";
-            case "8":  // 4/5
-                return whole + "⅘";
-            case "1666":  // 1/6
-                return whole + "⅙";
-            case "8333":  // 5/6
-                return whole + "⅚";
-            case "125":  // 1/8
-                return whole + "⅛";
-            case "375":  // 3/8
-                return whole + "⅜";
-            case "625":  // 5/8
-                return whole + "⅝";
-            case "875":  // 7/8
-                return whole + "⅞";
-            default:
-                return x;
-        }
-    }
-
     public static String getMacAddress(Context context) {
         WifiManager wifiManager = (WifiManager) context.getSystemService(Context.WIFI_SERVICE);
         return wifiManager.getConnectionInfo().getMacAddress();
@@ -444,10 +337,6 @@ public final class Utils {
         void onLongClick(View view, int position);
     }
 
-    public interface FilterPredicate {
-        boolean evaluate (String object);
-    }
-
     /**
      * Convenience class that implements the CustomClickListener with blank implementations.
      */
@@ -464,4 +353,36 @@ public final class Utils {
         }
     }
 
+    /**
+     * The private field and method of TabLayout that setTabIndicatorColor needs. They are resolved
+     * when this class is first used, which is the first time setTabIndicatorColor is called, and are
+     * null if this version of TabLayout doesn't have them.
+     */
+    private static final class TabIndicator {
+
+        private static final Field TAB_STRIP;
+        private static final Method SET_SELECTED_INDICATOR_COLOR;
+
+        static {
+            Field tabStrip = null;
+            Method setSelectedIndicatorColor = null;
+
+            try {
+                tabStrip = TabLayout.class.getDeclaredField("mTabStrip");
+                tabStrip.setAccessible(true);
+                Class<?> c = Class.forName("android.support.design.widget.TabLayout$SlidingTabStrip");
+                setSelectedIndicatorColor = c.getDeclaredMethod("setSelectedIndicatorColor", int.class);
+                setSelectedIndicatorColor.setAccessible(true);
+            } catch (NoSuchFieldException e) {
+                Log.e(TAG, "NoSuchFieldException", e);
+            } catch (NoSuchMethodException e) {
+                Log.e(TAG, "NoSuchMethodException", e);
+            } catch (ClassNotFoundException e) {
+                Log.e(TAG, "ClassNotFoundException", e);
+            }
+
+            TAB_STRIP = tabStrip;
+            SET_SELECTED_INDICATOR_COLOR = setSelectedIndicatorColor;
+        }
+    }
 }
@@ -93,11 +93,10 @@ public class VirtualBasketActivity extends AppCompatActivity {
                                 .create();
 
                         dialog.show();
-                        manager.fetch(ingredientId, new IngredientManager.Callbacks() {
+                        manager.fetch(ingredientId, VirtualBasketActivity.this, new IngredientManager.Callbacks() {
                             @Override
                             public void onSuccess(JSONObject result) {
                                 dialog.dismiss();
-                                manager.cacheIngredient(result);
                                 Utils.startIngredientActivity(VirtualBasketActivity.this, ingredientId, ingredient.optString(Api.INGREDIENT_NAME));
                             }
 
@@ -145,6 +144,12 @@ public class VirtualBasketActivity extends AppCompatActivity {
         }
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        RequestScheduler.cancelAll(this);
+    }
+
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.menu_virtual_basket, menu);
@@ -190,13 +195,10 @@ public class VirtualBasketActivity extends AppCompatActivity {
     }
 
     public void recommendRecipes(View view) {
-        if (Utils.hasInternet(this)) {
-            Intent intent = new Intent(this, RecommendedRecipesActivity.class);
-            intent.putExtra(Extras.VIRTUAL_BASKET_EXTRA, mVirtualBasket.toString());
-            startActivity(intent);
-        } else {
-            Snackbar.make(mCoordinatorLayout, "I'm sorry but you need internet for this.", Snackbar.LENGTH_LONG).show();
-        }
+        // without internet, the recipes are recommended from the cached recipes
+        Intent intent = new Intent(this, RecommendedRecipesActivity.class);
+        intent.putExtra(Extras.VIRTUAL_BASKET_EXTRA, mVirtualBasket.toString());
+        startActivity(intent);
     }
 
     @Override
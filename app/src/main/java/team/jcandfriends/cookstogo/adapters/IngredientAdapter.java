@@ -1,6 +1,6 @@
 package team.jcandfriends.cookstogo.adapters;
 
-import android.graphics.Bitmap;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.Adapter;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.LayoutInflater;
@@ -9,15 +9,12 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
-import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
-
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.ImagePipeline;
 import team.jcandfriends.cookstogo.R;
-import team.jcandfriends.cookstogo.Utils;
 
 /**
  * IngredientAdapter is used to display all the mIngredients in the RecyclerView.
@@ -27,6 +24,7 @@ import team.jcandfriends.cookstogo.Utils;
 public class IngredientAdapter extends Adapter<IngredientAdapter.IngredientViewHolder> {
 
     private final JSONArray mIngredients;
+    private final ImagePipeline.ScrollReporter mScrollReporter = new ImagePipeline.ScrollReporter("IngredientAdapter");
 
     public IngredientAdapter(JSONArray mIngredients) {
         this.mIngredients = mIngredients;
@@ -43,12 +41,22 @@ public class IngredientAdapter extends Adapter<IngredientAdapter.IngredientViewH
         JSONObject ingredient = mIngredients.optJSONObject(position);
 
         holder.mName.setText(ingredient.optString(Api.INGREDIENT_NAME));
-        ImageLoader.getInstance().loadImage(ingredient.optString(Api.INGREDIENT_ICON), new SimpleImageLoadingListener() {
-            @Override
-            public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                holder.mAvatar.setImageBitmap(Utils.getRoundedBitmap(loadedImage));
-            }
-        });
+        ImagePipeline.get(holder.mAvatar.getContext()).display(ingredient.optString(Api.INGREDIENT_ICON), holder.mAvatar, ImagePipeline.CIRCLE, R.drawable.circle);
+    }
+
+    @Override
+    public void onViewRecycled(IngredientAdapter.IngredientViewHolder holder) {
+        ImagePipeline.get(holder.mAvatar.getContext()).cancel(holder.mAvatar);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(mScrollReporter);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(mScrollReporter);
     }
 
     @Override
@@ -1,6 +1,6 @@
 package team.jcandfriends.cookstogo.adapters;
 
-import android.graphics.Bitmap;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.Adapter;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.LayoutInflater;
@@ -9,15 +9,12 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
-import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
-
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.ImagePipeline;
 import team.jcandfriends.cookstogo.R;
-import team.jcandfriends.cookstogo.Utils;
 
 /**
  * RecipeAdapter is used to display all the recipes in the RecyclerView.
@@ -27,6 +24,7 @@ import team.jcandfriends.cookstogo.Utils;
 public class RecipeAdapter extends Adapter<RecipeAdapter.RecipeViewHolder> {
 
     private final JSONArray mRecipes;
+    private final ImagePipeline.ScrollReporter mScrollReporter = new ImagePipeline.ScrollReporter("RecipeAdapter");
 
     public RecipeAdapter(JSONArray recipes) {
         mRecipes = recipes;
@@ -42,17 +40,27 @@ public class RecipeAdapter extends Adapter<RecipeAdapter.RecipeViewHolder> {
     public void onBindViewHolder(final RecipeAdapter.RecipeViewHolder holder, int position) {
         JSONObject obj = mRecipes.optJSONObject(position);
 
-        ImageLoader.getInstance().loadImage(obj.optString(Api.RECIPE_ICON), new SimpleImageLoadingListener() {
-            @Override
-            public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                holder.icon.setImageBitmap(Utils.getRoundedBitmap(loadedImage));
-            }
-        });
+        ImagePipeline.get(holder.icon.getContext()).display(obj.optString(Api.RECIPE_ICON), holder.icon, ImagePipeline.CIRCLE, R.drawable.circle);
 
         holder.name.setText(obj.optString(Api.RECIPE_NAME));
         holder.description.setText(obj.optString(Api.RECIPE_DESCRIPTION));
     }
 
+    @Override
+    public void onViewRecycled(RecipeAdapter.RecipeViewHolder holder) {
+        ImagePipeline.get(holder.icon.getContext()).cancel(holder.icon);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(mScrollReporter);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(mScrollReporter);
+    }
+
     @Override
     public int getItemCount() {
         return mRecipes.length();
@@ -1,6 +1,6 @@
 package team.jcandfriends.cookstogo.adapters;
 
-import android.graphics.Bitmap;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.Adapter;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.LayoutInflater;
@@ -9,21 +9,20 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
-import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
-
 import org.json.JSONArray;
 import org.json.JSONObject;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.ImagePipeline;
+import team.jcandfriends.cookstogo.R.drawable;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
-import team.jcandfriends.cookstogo.Utils;
 import team.jcandfriends.cookstogo.inflector.English;
 
 public class RecipeAdapterWithMissing extends Adapter<RecipeAdapterWithMissing.RecipeAdapterWithMissingViewHolder> {
 
     private final JSONArray nearlyThereRecipes;
+    private final ImagePipeline.ScrollReporter scrollReporter = new ImagePipeline.ScrollReporter("RecipeAdapterWithMissing");
 
     public RecipeAdapterWithMissing(JSONArray nearlyThereRecipes) {
         this.nearlyThereRecipes = nearlyThereRecipes;
@@ -45,12 +44,25 @@ public class RecipeAdapterWithMissing extends Adapter<RecipeAdapterWithMissing.R
         viewHolder.description.setText(recipe.optString(Api.RECIPE_DESCRIPTION));
         viewHolder.missing.setText(missing + " " + English.plural("ingredient", missing) + " missing");
 
-        ImageLoader.getInstance().loadImage(recipe.optString(Api.RECIPE_BANNER), new SimpleImageLoadingListener() {
-            @Override
-            public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                viewHolder.avatar.setImageBitmap(Utils.getRoundedBitmap(loadedImage));
-            }
-        });
+        // the icon is the small variant of the banner, which is only a fallback for an avatar
+        String icon = recipe.optString(Api.RECIPE_ICON);
+        String avatar = icon.isEmpty() ? recipe.optString(Api.RECIPE_BANNER) : icon;
+        ImagePipeline.get(viewHolder.avatar.getContext()).display(avatar, viewHolder.avatar, ImagePipeline.CIRCLE, drawable.circle);
+    }
+
+    @Override
+    public void onViewRecycled(RecipeAdapterWithMissing.RecipeAdapterWithMissingViewHolder viewHolder) {
+        ImagePipeline.get(viewHolder.avatar.getContext()).cancel(viewHolder.avatar);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(scrollReporter);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(scrollReporter);
     }
 
     @Override
@@ -1,6 +1,6 @@
 package team.jcandfriends.cookstogo.adapters;
 
-import android.graphics.Bitmap;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.Adapter;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.LayoutInflater;
@@ -9,28 +9,48 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
-import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
+import java.util.List;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
-
-import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.ImagePipeline;
+import team.jcandfriends.cookstogo.R.drawable;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
-import team.jcandfriends.cookstogo.Utils;
+import team.jcandfriends.cookstogo.models.RecipeComponent;
 
 /**
- * RecipeIngredientsAdapter is responsible for displaying all the ingredients used in a recipe.
+ * RecipeIngredientsAdapter is responsible for displaying all the ingredients used in a recipe, with
+ * their quantities scaled to a serving size. Changing the serving size only rebinds the rows that
+ * are visible, and each row rebuilds its name in a builder it keeps.
  * <p/>
  * Subordinates: RecipeIngredientViewHolder, item_recipe_ingredient.xml
  */
 public class RecipeIngredientsAdapter extends Adapter<RecipeIngredientsAdapter.RecipeIngredientViewHolder> {
 
-    private final JSONArray recipeComponents;
+    private final List<RecipeComponent> recipeComponents;
+    private final int defaultServingSize;
+    private final ImagePipeline.ScrollReporter scrollReporter = new ImagePipeline.ScrollReporter("RecipeIngredientsAdapter");
+    private int servingSize;
 
-    public RecipeIngredientsAdapter(JSONArray recipeComponents) {
+    public RecipeIngredientsAdapter(List<RecipeComponent> recipeComponents, int defaultServingSize) {
         this.recipeComponents = recipeComponents;
+        this.defaultServingSize = defaultServingSize;
+        this.servingSize = defaultServingSize;
+    }
+
+    public int getServingSize() {
+        return this.servingSize;
+    }
+
+    /**
+     * Scales the quantities of every ingredient to a serving size
+     *
+     * @param servingSize the number of people to serve
+     */
+    public void setServingSize(int servingSize) {
+        if (this.servingSize != servingSize) {
+            this.servingSize = servingSize;
+            this.notifyDataSetChanged();
+        }
     }
 
     @Override
@@ -41,29 +61,44 @@ public class RecipeIngredientsAdapter extends Adapter<RecipeIngredientsAdapter.R
 
     @Override
     public void onBindViewHolder(final RecipeIngredientsAdapter.RecipeIngredientViewHolder holder, int position) {
-        JSONObject recipeComponent = this.recipeComponents.optJSONObject(position);
-
-        holder.name.setText(Api.getIngredientReadableName(recipeComponent));
-
-        ImageLoader.getInstance().loadImage(recipeComponent.optJSONObject(Api.RECIPE_COMPONENT_INGREDIENT).optString(Api.INGREDIENT_ICON), new SimpleImageLoadingListener() {
-            @Override
-            public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                if (null != loadedImage) {
-                    holder.avatar.setImageBitmap(Utils.getRoundedBitmap(loadedImage));
-                }
-            }
-        });
+        RecipeComponent recipeComponent = this.recipeComponents.get(position);
+
+        if (this.servingSize == this.defaultServingSize) {
+            holder.name.setText(recipeComponent.getReadableName());
+        } else {
+            holder.text.setLength(0);
+            recipeComponent.appendReadableName(holder.text, this.servingSize, this.defaultServingSize);
+            holder.name.setText(holder.text);
+        }
+
+        ImagePipeline.get(holder.avatar.getContext()).display(recipeComponent.getIngredientIcon(), holder.avatar, ImagePipeline.CIRCLE, drawable.circle);
+    }
+
+    @Override
+    public void onViewRecycled(RecipeIngredientsAdapter.RecipeIngredientViewHolder holder) {
+        ImagePipeline.get(holder.avatar.getContext()).cancel(holder.avatar);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(scrollReporter);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(scrollReporter);
     }
 
     @Override
     public int getItemCount() {
-        return this.recipeComponents.length();
+        return this.recipeComponents.size();
     }
 
     public static class RecipeIngredientViewHolder extends ViewHolder {
 
         ImageView avatar;
         TextView name;
+        final StringBuilder text = new StringBuilder();
 
         public RecipeIngredientViewHolder(View itemView) {
             super(itemView);
@@ -7,12 +7,11 @@ import android.view.View;
 import android.view.ViewGroup;
 import android.widget.TextView;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.List;
 
-import team.jcandfriends.cookstogo.Api;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
+import team.jcandfriends.cookstogo.models.Step;
 
 /**
  * RecipeStepsAdapter is responsible for displaying all the steps in a recipe.
@@ -21,9 +20,9 @@ import team.jcandfriends.cookstogo.R.layout;
  */
 public class RecipeStepsAdapter extends Adapter<RecipeStepsAdapter.RecipeStepViewHolder> {
 
-    JSONArray steps;
+    private final List<Step> steps;
 
-    public RecipeStepsAdapter(JSONArray steps) {
+    public RecipeStepsAdapter(List<Step> steps) {
         this.steps = steps;
     }
 
@@ -35,14 +34,14 @@ public class RecipeStepsAdapter extends Adapter<RecipeStepsAdapter.RecipeStepVie
 
     @Override
     public void onBindViewHolder(RecipeStepsAdapter.RecipeStepViewHolder holder, int position) {
-        JSONObject step = this.steps.optJSONObject(position);
-        holder.header.setText("Step " + step.optInt(Api.STEP_SEQUENCE));
-        holder.text.setText(step.optString(Api.STEP_INSTRUCTION));
+        Step step = this.steps.get(position);
+        holder.header.setText("Step " + step.getSequence());
+        holder.text.setText(step.getInstruction());
     }
 
     @Override
     public int getItemCount() {
-        return this.steps.length();
+        return this.steps.size();
     }
 
 
@@ -1,6 +1,6 @@
 package team.jcandfriends.cookstogo.adapters;
 
-import android.graphics.Bitmap;
+import android.support.v7.widget.RecyclerView;
 import android.support.v7.widget.RecyclerView.Adapter;
 import android.support.v7.widget.RecyclerView.ViewHolder;
 import android.view.LayoutInflater;
@@ -9,17 +9,15 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
-import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
-
 import org.json.JSONObject;
 
 import java.util.ArrayList;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.ImagePipeline;
+import team.jcandfriends.cookstogo.R.drawable;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
-import team.jcandfriends.cookstogo.Utils;
 
 /**
  * VirtualBasketItemsAdapter is responsible for displaying all the mItems in the virtual basket.
@@ -29,6 +27,7 @@ import team.jcandfriends.cookstogo.Utils;
 public class VirtualBasketItemsAdapter extends Adapter<VirtualBasketItemsAdapter.VirtualBasketItemViewHolder> {
 
     private final ArrayList<JSONObject> mItems;
+    private final ImagePipeline.ScrollReporter mScrollReporter = new ImagePipeline.ScrollReporter("VirtualBasketItemsAdapter");
 
     public VirtualBasketItemsAdapter(ArrayList<JSONObject> items) {
         mItems = items;
@@ -47,12 +46,22 @@ public class VirtualBasketItemsAdapter extends Adapter<VirtualBasketItemsAdapter
         String ingredientName = obj.optString(Api.INGREDIENT_NAME);
         holder.ingredientName.setText(ingredientName);
 
-        ImageLoader.getInstance().loadImage(obj.optString(Api.INGREDIENT_ICON), new SimpleImageLoadingListener() {
-            @Override
-            public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                holder.avatar.setImageBitmap(Utils.getRoundedBitmap(loadedImage));
-            }
-        });
+        ImagePipeline.get(holder.avatar.getContext()).display(obj.optString(Api.INGREDIENT_ICON), holder.avatar, ImagePipeline.CIRCLE, drawable.circle);
+    }
+
+    @Override
+    public void onViewRecycled(VirtualBasketItemsAdapter.VirtualBasketItemViewHolder holder) {
+        ImagePipeline.get(holder.avatar.getContext()).cancel(holder.avatar);
+    }
+
+    @Override
+    public void onAttachedToRecyclerView(RecyclerView recyclerView) {
+        recyclerView.addOnScrollListener(mScrollReporter);
+    }
+
+    @Override
+    public void onDetachedFromRecyclerView(RecyclerView recyclerView) {
+        recyclerView.removeOnScrollListener(mScrollReporter);
     }
 
     @Override
@@ -141,11 +141,10 @@ public class IngredientTypeFragment extends Fragment {
                     .create();
 
             dialog.show();
-            ingredientManager.fetch(ingredientId, new Callbacks() {
+            ingredientManager.fetch(ingredientId, activity, new Callbacks() {
                 @Override
                 public void onSuccess(JSONObject result) {
                     dialog.dismiss();
-                    ingredientManager.cacheIngredient(result);
                     Utils.startIngredientActivity(activity, ingredientId, ingredientName);
                 }
 
@@ -7,28 +7,38 @@ import android.support.v7.widget.LinearLayoutManager;
 import android.support.v7.widget.RecyclerView;
 import android.view.LayoutInflater;
 import android.view.View;
+import android.view.View.OnClickListener;
 import android.view.ViewGroup;
+import android.widget.TextView;
 
-import org.json.JSONArray;
-import org.json.JSONObject;
+import java.util.List;
 
-import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.Constants;
 import team.jcandfriends.cookstogo.Extras;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
 import team.jcandfriends.cookstogo.Utils;
 import team.jcandfriends.cookstogo.Utils.SimpleClickListener;
 import team.jcandfriends.cookstogo.adapters.RecipeIngredientsAdapter;
+import team.jcandfriends.cookstogo.inflector.English;
 import team.jcandfriends.cookstogo.managers.IngredientManager;
 import team.jcandfriends.cookstogo.managers.RecipeManager;
+import team.jcandfriends.cookstogo.models.Recipe;
+import team.jcandfriends.cookstogo.models.RecipeComponent;
 
 /**
- * RecipeIngredientsFragment displays all ingredients used in a recipe
+ * RecipeIngredientsFragment displays all ingredients used in a recipe, scaled to a serving size that
+ * the user can change
  * <p/>
  * Subordinates: fragment_recipe_ingredients.xml, RecipeIngredientsAdapter
  */
 public class RecipeIngredientsFragment extends Fragment {
 
+    private static final String SERVING_SIZE_STATE = "serving_size";
+
+    private RecipeIngredientsAdapter mAdapter;
+    private TextView mServingSizeView;
+
     /**
      * Returns the appropriate fragment for this given position in the tabs in the Recipe Activity
      *
@@ -48,28 +58,62 @@ public class RecipeIngredientsFragment extends Fragment {
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         final Activity activity = this.getActivity();
         Bundle args = this.getArguments();
-        JSONObject recipe;
+        Recipe recipe;
         View view;
 
-        recipe = RecipeManager.get(activity).getCachedRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
-        final JSONArray recipeComponents = recipe.optJSONArray(Api.RECIPE_RECIPE_COMPONENTS);
+        recipe = RecipeManager.get(activity).getRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
+        final List<RecipeComponent> recipeComponents = recipe.getRecipeComponents();
 
         view = inflater.inflate(layout.fragment_recipe_ingredients, container, false);
         RecyclerView recyclerView = (RecyclerView) view.findViewById(id.recycler_view);
-        RecipeIngredientsAdapter ingredientsAdapter = new RecipeIngredientsAdapter(recipeComponents);
-        recyclerView.setAdapter(ingredientsAdapter);
+        mAdapter = new RecipeIngredientsAdapter(recipeComponents, recipe.getDefaultServingSize());
+        recyclerView.setAdapter(mAdapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this.getActivity()));
         recyclerView.setHasFixedSize(true);
         Utils.setOnItemClickListener(recyclerView, new SimpleClickListener() {
             @Override
             public void onClick(View view, int position) {
-                JSONObject ingredient = recipeComponents.optJSONObject(position).optJSONObject(Api.RECIPE_COMPONENT_INGREDIENT);
-                IngredientManager.get(activity).cacheIngredient(ingredient);
-                Utils.startIngredientActivity(RecipeIngredientsFragment.this.getActivity(), ingredient.optInt(Api.INGREDIENT_PK), ingredient.optString(Api.INGREDIENT_NAME));
+                RecipeComponent recipeComponent = recipeComponents.get(position);
+                IngredientManager.get(activity).cacheIngredient(recipeComponent.getIngredient());
+                Utils.startIngredientActivity(RecipeIngredientsFragment.this.getActivity(), recipeComponent.getIngredientPk(), recipeComponent.getIngredientName());
             }
         });
 
+        mServingSizeView = (TextView) view.findViewById(id.recipe_serving_size);
+        view.findViewById(id.decrease_serving_size).setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                setServingSize(mAdapter.getServingSize() - 1);
+            }
+        });
+        view.findViewById(id.increase_serving_size).setOnClickListener(new OnClickListener() {
+            @Override
+            public void onClick(View v) {
+                setServingSize(mAdapter.getServingSize() + 1);
+            }
+        });
+
+        int servingSize = recipe.getDefaultServingSize();
+        if (savedInstanceState != null) {
+            servingSize = savedInstanceState.getInt(SERVING_SIZE_STATE, servingSize);
+        }
+        setServingSize(servingSize);
+
         return view;
     }
 
+    @Override
+    public void onSaveInstanceState(Bundle outState) {
+        super.onSaveInstanceState(outState);
+        if (mAdapter != null) {
+            outState.putInt(SERVING_SIZE_STATE, mAdapter.getServingSize());
+        }
+    }
+
+    private void setServingSize(int servingSize) {
+        servingSize = Math.max(1, Math.min(Constants.MAX_SERVING_SIZE, servingSize));
+        mAdapter.setServingSize(servingSize);
+        mServingSizeView.setText("Serves " + servingSize + " " + English.plural("person", servingSize));
+    }
+
 }
@@ -8,14 +8,12 @@ import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
 
-import org.json.JSONObject;
-
-import team.jcandfriends.cookstogo.Api;
 import team.jcandfriends.cookstogo.Extras;
 import team.jcandfriends.cookstogo.R.id;
 import team.jcandfriends.cookstogo.R.layout;
 import team.jcandfriends.cookstogo.adapters.RecipeStepsAdapter;
 import team.jcandfriends.cookstogo.managers.RecipeManager;
+import team.jcandfriends.cookstogo.models.Recipe;
 
 /**
  * Displays all steps in a recipe
@@ -37,10 +35,10 @@ public class RecipeStepsFragment extends Fragment {
     @Override
     public View onCreateView(LayoutInflater inflater, ViewGroup container, Bundle savedInstanceState) {
         Bundle args = this.getArguments();
-        JSONObject recipe = RecipeManager.get(this.getActivity()).getCachedRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
+        Recipe recipe = RecipeManager.get(this.getActivity()).getRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
         View view = inflater.inflate(layout.fragment_recipe_methods, container, false);
         RecyclerView recyclerView = (RecyclerView) view.findViewById(id.recycler_view);
-        RecipeStepsAdapter stepsAdapter = new RecipeStepsAdapter(recipe.optJSONArray(Api.RECIPE_STEPS));
+        RecipeStepsAdapter stepsAdapter = new RecipeStepsAdapter(recipe.getSteps());
 
         recyclerView.setAdapter(stepsAdapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this.getActivity()));
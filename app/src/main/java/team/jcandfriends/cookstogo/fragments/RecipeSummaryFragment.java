@@ -10,23 +10,24 @@ import android.view.ViewGroup;
 import android.widget.ImageView;
 import android.widget.TextView;
 
-import com.nostra13.universalimageloader.core.ImageLoader;
 import com.nostra13.universalimageloader.core.listener.SimpleImageLoadingListener;
 
-import org.json.JSONObject;
-
 import team.jcandfriends.cookstogo.Api;
 import team.jcandfriends.cookstogo.Extras;
+import team.jcandfriends.cookstogo.ImagePipeline;
 import team.jcandfriends.cookstogo.R;
 import team.jcandfriends.cookstogo.R.id;
+import team.jcandfriends.cookstogo.RequestScheduler;
+import team.jcandfriends.cookstogo.SwatchCache;
 import team.jcandfriends.cookstogo.Utils;
 import team.jcandfriends.cookstogo.inflector.English;
 import team.jcandfriends.cookstogo.managers.RecipeManager;
+import team.jcandfriends.cookstogo.models.Recipe;
 
 /**
  * RecipeSummaryFragment displays the picture of the recipe and its overview
  * <p/>
- * Subordinates: fragment_recipe_summary.xml, RecipeManager, ImageLoader
+ * Subordinates: fragment_recipe_summary.xml, RecipeManager, ImagePipeline, SwatchCache
  */
 public class RecipeSummaryFragment extends Fragment {
 
@@ -46,33 +47,43 @@ public class RecipeSummaryFragment extends Fragment {
         final Activity activity = this.getActivity();
 
         final View summaryView = inflater.inflate(R.layout.fragment_recipe_summary, container, false);
-        JSONObject recipe = RecipeManager.get(activity).getCachedRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
+        Recipe recipe = RecipeManager.get(activity).getRecipe(args.getInt(Extras.RECIPE_ID_EXTRA));
+
+        final String bannerUrl = recipe.getBanner();
+        SwatchCache.Swatches swatches = SwatchCache.get(activity).getSwatches(bannerUrl);
+        if (null != swatches) {
+            Utils.decorateToolbarAndTabs(activity, swatches);
+        }
 
-        ImageLoader.getInstance().loadImage(recipe.optString(Api.RECIPE_BANNER), new SimpleImageLoadingListener() {
+        final ImageView banner = (ImageView) summaryView.findViewById(R.id.recipe_banner);
+        ImagePipeline.get(activity).loadFullWidth(bannerUrl, banner, new SimpleImageLoadingListener() {
             @Override
             public void onLoadingComplete(String imageUri, View view, Bitmap loadedImage) {
-                ImageView banner = (ImageView) summaryView.findViewById(R.id.recipe_banner);
                 banner.setImageBitmap(loadedImage);
-                Utils.decorateToolbarAndTabs(activity, loadedImage);
+                SwatchCache.get(activity).extract(activity, bannerUrl, loadedImage, new RequestScheduler.Listener<SwatchCache.Swatches>() {
+                    @Override
+                    public void onResult(SwatchCache.Swatches swatches) {
+                        Utils.decorateToolbarAndTabs(activity, swatches);
+                    }
+                });
             }
         });
 
-        double rating = recipe.optDouble(Api.RECIPE_RATING, -1.0);
-        if (Double.compare(rating, -1.0) == 0) {
+        if (!recipe.hasRating()) {
             ((TextView) summaryView.findViewById(R.id.recipe_rating)).setText("Rating: No ratings yet");
         } else {
-            int reviewCount = recipe.optInt(Api.RECIPE_REVIEWS);
+            int reviewCount = recipe.getReviews();
 
-            String formattedRating = String.format("Rating: %.2f stars (%d %s)", rating, reviewCount, English.plural("review", reviewCount));
+            String formattedRating = String.format("Rating: %.2f stars (%d %s)", recipe.getRating(), reviewCount, English.plural("review", reviewCount));
             ((TextView) summaryView.findViewById(id.recipe_rating)).setText(formattedRating);
         }
 
-        ((TextView) summaryView.findViewById(R.id.recipe_duration)).setText("Duration: " + Api.normalizeRecipeDuration(recipe.optInt(Api.RECIPE_DURATION)));
+        ((TextView) summaryView.findViewById(R.id.recipe_duration)).setText("Duration: " + Api.normalizeRecipeDuration(recipe.getDuration()));
 
-        int defaultServingSize = recipe.optInt(Api.RECIPE_DEFAULT_SERVING_SIZE, 1);
+        int defaultServingSize = recipe.getDefaultServingSize();
         ((TextView) summaryView.findViewById(R.id.recipe_serving_size)).setText("Serving size: " + defaultServingSize + " " + English.plural("person", defaultServingSize));
 
-        ((TextView) summaryView.findViewById(R.id.recipe_summary)).setText(recipe.optString(Api.RECIPE_DESCRIPTION));
+        ((TextView) summaryView.findViewById(R.id.recipe_summary)).setText(recipe.getDescription());
 
         return summaryView;
     }
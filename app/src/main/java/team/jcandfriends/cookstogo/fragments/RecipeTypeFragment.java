@@ -21,6 +21,7 @@ import team.jcandfriends.cookstogo.Api;
 import team.jcandfriends.cookstogo.Constants;
 import team.jcandfriends.cookstogo.R;
 import team.jcandfriends.cookstogo.R.layout;
+import team.jcandfriends.cookstogo.RecipePrefetcher;
 import team.jcandfriends.cookstogo.Utils;
 import team.jcandfriends.cookstogo.Utils.SimpleClickListener;
 import team.jcandfriends.cookstogo.adapters.RecipeAdapter;
@@ -29,10 +30,12 @@ import team.jcandfriends.cookstogo.managers.RecipeManager;
 /**
  * RecipeTypeFragment displays all recipes of a specific recipe type.
  * <p/>
- * Subordinates: fragment_recipe_type.xml, RecipeAdapter, RecipeManager, Utils, FetchRecipeTask
+ * Subordinates: fragment_recipe_type.xml, RecipeAdapter, RecipeManager, RecipePrefetcher, Utils
  */
 public final class RecipeTypeFragment extends Fragment {
 
+    private RecipePrefetcher mPrefetcher;
+
     public static RecipeTypeFragment newInstance(JSONArray recipes) {
         Bundle args = new Bundle();
         args.putString(Constants.RECIPES_IN_FRAGMENT, recipes.toString());
@@ -56,6 +59,10 @@ public final class RecipeTypeFragment extends Fragment {
             recipes.setLayoutManager(new LinearLayoutManager(activity));
             recipes.setItemAnimator(new DefaultItemAnimator());
             recipes.setHasFixedSize(true);
+
+            mPrefetcher = new RecipePrefetcher(activity, recipesArray);
+            recipes.addOnScrollListener(mPrefetcher);
+
             Utils.setOnItemClickListener(recipes, new SimpleClickListener() {
                 @Override
                 public void onClick(View view, int position) {
@@ -63,7 +70,10 @@ public final class RecipeTypeFragment extends Fragment {
                     final int recipeId = recipe.optInt(Api.RECIPE_PK);
                     final String recipeName = recipe.optString(Api.RECIPE_NAME);
 
-                    if (recipeManager.hasCachedRecipe(recipeId)) {
+                    boolean isCached = recipeManager.hasCachedRecipe(recipeId);
+                    mPrefetcher.recordOpen(recipeId, isCached);
+
+                    if (isCached) {
                         Utils.startRecipeActivity(activity, recipeId, recipeName);
                     } else if (Utils.hasInternet(activity)) {
                         final AlertDialog dialog = new AlertDialog.Builder(activity)
@@ -73,11 +83,10 @@ public final class RecipeTypeFragment extends Fragment {
                                 .create();
 
                         dialog.show();
-                        recipeManager.fetch(recipeId, new RecipeManager.Callbacks() {
+                        recipeManager.fetch(recipeId, activity, new RecipeManager.Callbacks() {
                             @Override
                             public void onSuccess(JSONObject result) {
                                 dialog.dismiss();
-                                recipeManager.cacheRecipe(result);
                                 Utils.startRecipeActivity(activity, recipeId, recipeName);
                             }
 
@@ -109,4 +118,13 @@ public final class RecipeTypeFragment extends Fragment {
         return recipes;
     }
 
+    @Override
+    public void onDestroyView() {
+        super.onDestroyView();
+        if (null != mPrefetcher) {
+            mPrefetcher.cancel();
+            mPrefetcher = null;
+        }
+    }
+
 }
\ No newline at end of file
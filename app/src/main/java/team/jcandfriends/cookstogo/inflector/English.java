@@ -86,7 +86,6 @@ public class English extends TwoFormInflector {
             "human", "Alabaman", "Bahaman", "Burman", "German", "Hiroshiman", "Liman", "Nakayaman", "Oklahoman",
             "Panaman", "Selman", "Sonaman", "Tacoman", "Yakiman", "Yokohaman", "Yuman"
     };
-    private static English inflector = new English();
 
     public English() {
         this(English.MODE.ENGLISH_ANGLICIZED);
@@ -235,6 +234,21 @@ public class English extends TwoFormInflector {
         this.rule("s$", "ses");
         // Otherwise, assume that the plural just adds -s
         this.rule("$", "s");
+
+        this.compile();
+    }
+
+    /**
+     * Builds the inflector on a background thread, so the first call to plural() on the main
+     * thread doesn't pay for it
+     */
+    public static void warmUp() {
+        new Thread(new Runnable() {
+            @Override
+            public void run() {
+                English.Holder.inflector.getPlural("");
+            }
+        }, "English warm-up").start();
     }
 
     /**
@@ -252,7 +266,7 @@ public class English extends TwoFormInflector {
      * @return plural form of given word
      */
     public static String plural(String word) {
-        return English.inflector.getPlural(word);
+        return English.Holder.inflector.getPlural(word);
     }
 
     /**
@@ -272,12 +286,12 @@ public class English extends TwoFormInflector {
      * @return form of the word correct for given count
      */
     public static String plural(String word, int count) {
-        return English.inflector.getPlural(word, count);
+        return English.Holder.inflector.getPlural(word, count);
     }
 
     public static void setMode(English.MODE mode) {
         English newInflector = new English(mode);
-        English.inflector = newInflector;
+        English.Holder.inflector = newInflector;
     }
 
     /**
@@ -305,6 +319,15 @@ public class English extends TwoFormInflector {
         return this.getPlural(word);
     }
 
+    /**
+     * Holds the shared inflector, which is only built once this class is first used. Any static
+     * method of English initializes English itself, so the inflector can't live there without
+     * warmUp() building it on the calling thread.
+     */
+    private static final class Holder {
+        private static volatile English inflector = new English();
+    }
+
     public enum MODE {
         ENGLISH_ANGLICIZED, ENGLISH_CLASSICAL
     }
@@ -0,0 +1,530 @@
+package team.jcandfriends.cookstogo.inflector;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Locale;
+
+/**
+ * The rules of a TwoFormInflector compiled into a trie of reversed suffixes, so a word is resolved
+ * in a single pass over its last characters instead of trying each rule in turn. Every rule keeps
+ * its position as a priority, and the matching rule with the lowest position wins, exactly like
+ * trying the rules in order.
+ * <p/>
+ * Only words made of printable ASCII characters are resolved here. The rules compare them the same
+ * way the regular expressions and toLowerCase() do, while other characters (line terminators, non
+ * ASCII case folding) behave in ways this trie doesn't reproduce, so those words are left to the
+ * rules themselves.
+ */
+final class SuffixTrie {
+
+    private final SuffixTrie.Node mRoot = new SuffixTrie.Node();
+
+    /**
+     * The rules that match anywhere in the word rather than at its end
+     */
+    private final ArrayList<SuffixTrie.InfixEntry> mInfixes = new ArrayList<>();
+
+    /**
+     * Adds a rule that matches words ending with one of the suffixes, like CategoryRule
+     *
+     * @return false if the rule can't be compiled
+     */
+    boolean addSuffixes(String[] suffixes, String singular, String plural, int priority) {
+        for (String suffix : suffixes) {
+            if (!isPrintableAscii(suffix)) {
+                return false;
+            }
+        }
+
+        for (String suffix : suffixes) {
+            // the rule compares the word in lower case, so a suffix with upper case never matches
+            if (suffix.equals(toLowerCase(suffix))) {
+                SuffixTrie.Entry entry = new SuffixTrie.Entry(priority, singular.length(), plural);
+                entry.mIsBroken = !suffix.endsWith(singular);
+                insert(suffix, entry);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Adds a rule that replaces the first match of a regular expression, like RegExpRule. Only the
+     * expressions the inflectors actually use are understood: literals, character classes, dots,
+     * one leading group that may contain alternatives, (?i) and a trailing $.
+     *
+     * @return false if the rule can't be compiled
+     */
+    boolean addPattern(String regex, boolean isCaseInsensitive, String replacement, int priority) {
+        ArrayList<SuffixTrie.Sequence> sequences = parse(regex, isCaseInsensitive);
+        if (sequences == null || replacement.indexOf('\\') != -1) {
+            return false;
+        }
+
+        boolean usesGroup = replacement.startsWith("$1");
+        String append = usesGroup ? replacement.substring(2) : replacement;
+        if (append.indexOf('$') != -1) {
+            return false;
+        }
+
+        ArrayList<Runnable> inserts = new ArrayList<>();
+        for (final SuffixTrie.Sequence sequence : sequences) {
+            if (!compile(sequence, usesGroup, append, priority, inserts)) {
+                return false;
+            }
+        }
+
+        // nothing is inserted unless the whole rule compiles
+        for (Runnable insert : inserts) {
+            insert.run();
+        }
+        return true;
+    }
+
+    /**
+     * Determines if the word is resolved the same way by this trie and by the rules
+     */
+    boolean canResolve(String word) {
+        if (!isPrintableAscii(word)) {
+            return false;
+        }
+
+        // toLowerCase() depends on the locale, and some turn I into a dotless i
+        return word.indexOf('I') == -1 || "I".toLowerCase().equals("i");
+    }
+
+    /**
+     * Returns the plural of a word that canResolve, or null if no rule matches it
+     */
+    String resolve(String word) {
+        int length = word.length();
+        SuffixTrie.Entry best = null;
+        int bestPriority = Integer.MAX_VALUE;
+
+        SuffixTrie.Node node = mRoot;
+        int depth = 0;
+        while (true) {
+            for (SuffixTrie.Entry entry : node.mEntries) {
+                if (entry.mPriority >= bestPriority) {
+                    break;
+                }
+                if (entry.matches(word, depth)) {
+                    best = entry;
+                    bestPriority = entry.mPriority;
+                    break;
+                }
+            }
+
+            if (depth == length) {
+                break;
+            }
+            node = node.child(toLowerCase(word.charAt(length - 1 - depth)));
+            if (node == null) {
+                break;
+            }
+            depth++;
+        }
+
+        for (SuffixTrie.InfixEntry infix : mInfixes) {
+            if (infix.mPriority >= bestPriority) {
+                break;
+            }
+            int index = indexOfIgnoreCase(word, infix.mLiteral);
+            if (index != -1) {
+                return word.substring(0, index) + infix.mReplacement + word.substring(index + infix.mLiteral.length());
+            }
+        }
+
+        if (best == null) {
+            return null;
+        }
+        if (best.mIsBroken) {
+            throw new RuntimeException("Internal error");
+        }
+        return word.substring(0, length - best.mStrip) + best.mAppend;
+    }
+
+    private boolean compile(SuffixTrie.Sequence sequence, boolean usesGroup, String append, int priority, ArrayList<Runnable> inserts) {
+        ArrayList<SuffixTrie.Atom> atoms = sequence.mAtoms;
+
+        if (!sequence.mIsAnchored) {
+            // only plain words are supported anywhere in the word
+            StringBuilder literal = new StringBuilder();
+            for (SuffixTrie.Atom atom : atoms) {
+                if (atom.mIsWildcard || atom.mChars.length() != 1 || !atom.mIsCaseInsensitive) {
+                    return false;
+                }
+                literal.append(atom.mChars);
+            }
+            if (usesGroup || literal.length() == 0) {
+                return false;
+            }
+
+            final SuffixTrie.InfixEntry infix = new SuffixTrie.InfixEntry(priority, literal.toString(), append);
+            inserts.add(new Runnable() {
+                @Override
+                public void run() {
+                    mInfixes.add(infix);
+                }
+            });
+            return true;
+        }
+
+        // the group must start the match, so whatever it captured is simply kept
+        int strip;
+        if (usesGroup) {
+            if (sequence.mGroupStart != 0) {
+                return false;
+            }
+            strip = atoms.size() - sequence.mGroupEnd;
+        } else {
+            strip = atoms.size();
+        }
+
+        int wildcards = 0;
+        while (wildcards < atoms.size() && atoms.get(wildcards).mIsWildcard) {
+            wildcards++;
+        }
+
+        String[] excluded = new String[wildcards];
+        for (int i = 0; i < wildcards; i++) {
+            excluded[i] = atoms.get(i).mChars;
+        }
+
+        char exactFirst = 0;
+        ArrayList<String> keys = new ArrayList<>();
+        keys.add("");
+        for (int i = wildcards; i < atoms.size(); i++) {
+            SuffixTrie.Atom atom = atoms.get(i);
+            if (atom.mIsWildcard) {
+                return false;
+            }
+            if (!atom.mIsCaseInsensitive) {
+                if (i != wildcards || wildcards != 0 || atom.mChars.length() != 1) {
+                    return false;
+                }
+                exactFirst = atom.mChars.charAt(0);
+            }
+
+            ArrayList<String> expanded = new ArrayList<>();
+            for (String key : keys) {
+                for (int j = 0; j < atom.mChars.length(); j++) {
+                    expanded.add(key + toLowerCase(atom.mChars.charAt(j)));
+                }
+            }
+            keys = expanded;
+        }
+
+        for (final String key : keys) {
+            final SuffixTrie.Entry entry = new SuffixTrie.Entry(priority, strip, append);
+            entry.mExcluded = excluded;
+            entry.mExactFirst = exactFirst;
+            inserts.add(new Runnable() {
+                @Override
+                public void run() {
+                    insert(key, entry);
+                }
+            });
+        }
+        return true;
+    }
+
+    private void insert(String suffix, SuffixTrie.Entry entry) {
+        SuffixTrie.Node node = mRoot;
+        for (int i = suffix.length() - 1; i >= 0; i--) {
+            node = node.childOrCreate(suffix.charAt(i));
+        }
+        node.add(entry);
+    }
+
+    /**
+     * Parses a regular expression into the sequences of atoms it matches, one per alternative
+     *
+     * @return the sequences, or null if the expression uses anything this trie doesn't support
+     */
+    private static ArrayList<SuffixTrie.Sequence> parse(String regex, boolean isCaseInsensitive) {
+        ArrayList<SuffixTrie.Sequence> sequences = new ArrayList<>();
+        sequences.add(new SuffixTrie.Sequence());
+
+        ArrayList<SuffixTrie.Sequence> group = null;
+        boolean hasGroup = false;
+        boolean ci = isCaseInsensitive;
+        int i = 0;
+        int length = regex.length();
+
+        while (i < length) {
+            char c = regex.charAt(i);
+            SuffixTrie.Atom atom;
+
+            if (regex.startsWith("(?i)", i)) {
+                ci = true;
+                i += 4;
+                continue;
+            } else if (c == '(') {
+                if (hasGroup) {
+                    return null;
+                }
+                hasGroup = true;
+                group = new ArrayList<>();
+                group.add(new SuffixTrie.Sequence());
+                i++;
+                continue;
+            } else if (c == '|') {
+                if (group == null) {
+                    return null;
+                }
+                group.add(new SuffixTrie.Sequence());
+                i++;
+                continue;
+            } else if (c == ')') {
+                if (group == null) {
+                    return null;
+                }
+                ArrayList<SuffixTrie.Sequence> joined = new ArrayList<>();
+                for (SuffixTrie.Sequence prefix : sequences) {
+                    for (SuffixTrie.Sequence alternative : group) {
+                        SuffixTrie.Sequence sequence = new SuffixTrie.Sequence();
+                        sequence.mAtoms.addAll(prefix.mAtoms);
+                        sequence.mGroupStart = prefix.mAtoms.size();
+                        sequence.mAtoms.addAll(alternative.mAtoms);
+                        sequence.mGroupEnd = sequence.mAtoms.size();
+                        joined.add(sequence);
+                    }
+                }
+                sequences = joined;
+                group = null;
+                i++;
+                continue;
+            } else if (c == '$') {
+                if (i != length - 1 || group != null) {
+                    return null;
+                }
+                for (SuffixTrie.Sequence sequence : sequences) {
+                    sequence.mIsAnchored = true;
+                }
+                i++;
+                continue;
+            } else if (c == '[') {
+                int end = regex.indexOf(']', i);
+                if (end == -1) {
+                    return null;
+                }
+                boolean isNegated = i + 1 < end && regex.charAt(i + 1) == '^';
+                String chars = regex.substring(isNegated ? i + 2 : i + 1, end);
+                if (chars.isEmpty() || !isPlainLiteral(chars)) {
+                    return null;
+                }
+                if (isNegated && !ci) {
+                    return null;
+                }
+                atom = isNegated ? SuffixTrie.Atom.wildcard(toLowerCase(chars)) : new SuffixTrie.Atom(chars, ci);
+                i = end + 1;
+            } else if (c == '.') {
+                atom = SuffixTrie.Atom.wildcard("");
+                i++;
+            } else if (isPlainLiteral(String.valueOf(c))) {
+                atom = new SuffixTrie.Atom(String.valueOf(c), ci);
+                i++;
+            } else {
+                return null;
+            }
+
+            if (group != null) {
+                group.get(group.size() - 1).mAtoms.add(atom);
+            } else {
+                for (SuffixTrie.Sequence sequence : sequences) {
+                    sequence.mAtoms.add(atom);
+                }
+            }
+        }
+
+        return group == null ? sequences : null;
+    }
+
+    private static boolean isPlainLiteral(String chars) {
+        if (!isPrintableAscii(chars)) {
+            return false;
+        }
+        for (int i = 0; i < chars.length(); i++) {
+            if ("\\^$.|?*+()[]{}-".indexOf(chars.charAt(i)) != -1) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPrintableAscii(String word) {
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            if (c < 0x20 || c > 0x7e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static char toLowerCase(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    private static String toLowerCase(String word) {
+        return word.toLowerCase(Locale.US);
+    }
+
+    private static int indexOfIgnoreCase(String word, String literal) {
+        for (int i = 0; i + literal.length() <= word.length(); i++) {
+            if (word.regionMatches(true, i, literal, 0, literal.length())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static final class Node {
+
+        private static final SuffixTrie.Entry[] NO_ENTRIES = new SuffixTrie.Entry[0];
+        private static final Comparator<SuffixTrie.Entry> BY_PRIORITY = new Comparator<SuffixTrie.Entry>() {
+            @Override
+            public int compare(SuffixTrie.Entry lhs, SuffixTrie.Entry rhs) {
+                return lhs.mPriority < rhs.mPriority ? -1 : (lhs.mPriority == rhs.mPriority ? 0 : 1);
+            }
+        };
+
+        /**
+         * The rules that match a word ending with this node's suffix, by priority
+         */
+        SuffixTrie.Entry[] mEntries = NO_ENTRIES;
+
+        private char[] mKeys = new char[0];
+        private SuffixTrie.Node[] mChildren = new SuffixTrie.Node[0];
+
+        SuffixTrie.Node child(char c) {
+            for (int i = 0; i < mKeys.length; i++) {
+                if (mKeys[i] == c) {
+                    return mChildren[i];
+                }
+            }
+            return null;
+        }
+
+        SuffixTrie.Node childOrCreate(char c) {
+            SuffixTrie.Node child = child(c);
+            if (child == null) {
+                child = new SuffixTrie.Node();
+                mKeys = Arrays.copyOf(mKeys, mKeys.length + 1);
+                mChildren = Arrays.copyOf(mChildren, mChildren.length + 1);
+                mKeys[mKeys.length - 1] = c;
+                mChildren[mChildren.length - 1] = child;
+            }
+            return child;
+        }
+
+        void add(SuffixTrie.Entry entry) {
+            mEntries = Arrays.copyOf(mEntries, mEntries.length + 1);
+            mEntries[mEntries.length - 1] = entry;
+            Arrays.sort(mEntries, BY_PRIORITY);
+        }
+    }
+
+    /**
+     * A rule at the node of the suffix it matches
+     */
+    private static final class Entry {
+
+        final int mPriority;
+
+        /**
+         * How many characters are removed from the end of the word, and what replaces them
+         */
+        final int mStrip;
+        final String mAppend;
+
+        /**
+         * The characters before the suffix that the rule also matches, each one anything but the
+         * excluded characters
+         */
+        String[] mExcluded = new String[0];
+
+        /**
+         * The first character of the suffix when it must match in its exact case, 0 otherwise
+         */
+        char mExactFirst = 0;
+
+        /**
+         * Whether the rule fails with an internal error when it matches, like a CategoryRule whose
+         * suffix doesn't end with its singular ending
+         */
+        boolean mIsBroken = false;
+
+        Entry(int priority, int strip, String append) {
+            mPriority = priority;
+            mStrip = strip;
+            mAppend = append;
+        }
+
+        boolean matches(String word, int suffixLength) {
+            int start = word.length() - suffixLength;
+            if (start < mExcluded.length) {
+                return false;
+            }
+            if (mExactFirst != 0 && word.charAt(start) != mExactFirst) {
+                return false;
+            }
+            for (int i = 0; i < mExcluded.length; i++) {
+                char c = toLowerCase(word.charAt(start - mExcluded.length + i));
+                if (mExcluded[i].indexOf(c) != -1) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    private static final class InfixEntry {
+
+        final int mPriority;
+        final String mLiteral;
+        final String mReplacement;
+
+        InfixEntry(int priority, String literal, String replacement) {
+            mPriority = priority;
+            mLiteral = literal;
+            mReplacement = replacement;
+        }
+    }
+
+    /**
+     * What an alternative of a regular expression matches, one atom per character
+     */
+    private static final class Sequence {
+
+        final ArrayList<SuffixTrie.Atom> mAtoms = new ArrayList<>();
+        int mGroupStart = -1;
+        int mGroupEnd = -1;
+        boolean mIsAnchored = false;
+    }
+
+    private static final class Atom {
+
+        /**
+         * The characters this atom matches, or for a wildcard, the characters it doesn't
+         */
+        final String mChars;
+        final boolean mIsCaseInsensitive;
+        final boolean mIsWildcard;
+
+        Atom(String chars, boolean isCaseInsensitive) {
+            this(chars, isCaseInsensitive, false);
+        }
+
+        private Atom(String chars, boolean isCaseInsensitive, boolean isWildcard) {
+            mChars = chars;
+            mIsCaseInsensitive = isCaseInsensitive;
+            mIsWildcard = isWildcard;
+        }
+
+        static SuffixTrie.Atom wildcard(String excluded) {
+            return new SuffixTrie.Atom(excluded, true, true);
+        }
+    }
+}
@@ -8,7 +8,23 @@ import java.util.regex.Pattern;
 public abstract class TwoFormInflector {
     private final List<TwoFormInflector.Rule> rules = new ArrayList<>();
 
+    /**
+     * The rules compiled into a trie, or null until compile() succeeds
+     */
+    private SuffixTrie trie;
+
     protected String getPlural(String word) {
+        SuffixTrie trie = this.trie;
+        if (trie != null && trie.canResolve(word)) {
+            return trie.resolve(word);
+        }
+        return this.getPluralByRules(word);
+    }
+
+    /**
+     * Resolves a word by trying the rules in order, the reference the trie must agree with
+     */
+    String getPluralByRules(String word) {
         for (TwoFormInflector.Rule rule : this.rules) {
             String result = rule.getPlural(word);
             if (result != null) {
@@ -18,20 +34,39 @@ public abstract class TwoFormInflector {
         return null;
     }
 
+    /**
+     * Compiles the rules into a trie of suffixes that resolves a word in a single pass. Subclasses
+     * invoke this once all their rules are added. If any rule can't be compiled, every word is
+     * resolved by trying the rules in order.
+     */
+    protected void compile() {
+        SuffixTrie trie = new SuffixTrie();
+        for (int i = 0; i < this.rules.size(); i++) {
+            if (!this.rules.get(i).compileInto(trie, i)) {
+                return;
+            }
+        }
+        this.trie = trie;
+    }
+
+    boolean isCompiled() {
+        return this.trie != null;
+    }
+
     protected void uncountable(String[] list) {
         this.rules.add(new TwoFormInflector.CategoryRule(list, "", ""));
     }
 
     protected void irregular(String singular, String plural) {
         if (singular.charAt(0) == plural.charAt(0)) {
-            this.rules.add(new TwoFormInflector.RegExpRule(Pattern.compile("(?i)(" + singular.charAt(0) + ")" + singular.substring(1)
-                    + "$"), "$1" + plural.substring(1)));
+            this.rules.add(new TwoFormInflector.RegExpRule("(?i)(" + singular.charAt(0) + ")" + singular.substring(1)
+                    + "$", 0, "$1" + plural.substring(1)));
         } else {
-            this.rules.add(new TwoFormInflector.RegExpRule(Pattern.compile(Character.toUpperCase(singular.charAt(0)) + "(?i)"
-                    + singular.substring(1) + "$"), Character.toUpperCase(plural.charAt(0))
+            this.rules.add(new TwoFormInflector.RegExpRule(Character.toUpperCase(singular.charAt(0)) + "(?i)"
+                    + singular.substring(1) + "$", 0, Character.toUpperCase(plural.charAt(0))
                     + plural.substring(1)));
-            this.rules.add(new TwoFormInflector.RegExpRule(Pattern.compile(Character.toLowerCase(singular.charAt(0)) + "(?i)"
-                    + singular.substring(1) + "$"), Character.toLowerCase(plural.charAt(0))
+            this.rules.add(new TwoFormInflector.RegExpRule(Character.toLowerCase(singular.charAt(0)) + "(?i)"
+                    + singular.substring(1) + "$", 0, Character.toLowerCase(plural.charAt(0))
                     + plural.substring(1)));
         }
     }
@@ -43,12 +78,12 @@ public abstract class TwoFormInflector {
     }
 
     protected void rule(String singular, String plural) {
-        this.rules.add(new TwoFormInflector.RegExpRule(Pattern.compile(singular, Pattern.CASE_INSENSITIVE), plural));
+        this.rules.add(new TwoFormInflector.RegExpRule(singular, Pattern.CASE_INSENSITIVE, plural));
     }
 
     protected void rule(String[][] list) {
         for (String[] pair : list) {
-            this.rules.add(new TwoFormInflector.RegExpRule(Pattern.compile(pair[0], Pattern.CASE_INSENSITIVE), pair[1]));
+            this.rules.add(new TwoFormInflector.RegExpRule(pair[0], Pattern.CASE_INSENSITIVE, pair[1]));
         }
     }
 
@@ -58,19 +93,37 @@ public abstract class TwoFormInflector {
 
     private interface Rule {
         String getPlural(String singular);
+
+        /**
+         * Adds this rule to the trie with the given priority
+         *
+         * @return false if this rule can't be compiled
+         */
+        boolean compileInto(SuffixTrie trie, int priority);
     }
 
     private static class RegExpRule implements TwoFormInflector.Rule {
-        private final Pattern singular;
+        private final String regex;
+        private final int flags;
         private final String plural;
 
-        private RegExpRule(Pattern singular, String plural) {
-            this.singular = singular;
+        /**
+         * Compiled the first time a word isn't resolved by the trie
+         */
+        private volatile Pattern singular;
+
+        private RegExpRule(String regex, int flags, String plural) {
+            this.regex = regex;
+            this.flags = flags;
             this.plural = plural;
         }
 
         @Override
         public String getPlural(String word) {
+            if (this.singular == null) {
+                this.singular = Pattern.compile(this.regex, this.flags);
+            }
+
             StringBuffer buffer = new StringBuffer();
             Matcher matcher = this.singular.matcher(word);
             if (matcher.find()) {
@@ -80,6 +133,11 @@ public abstract class TwoFormInflector {
             }
             return null;
         }
+
+        @Override
+        public boolean compileInto(SuffixTrie trie, int priority) {
+            return trie.addPattern(this.regex, (this.flags & Pattern.CASE_INSENSITIVE) != 0, this.plural, priority);
+        }
     }
 
     private static class CategoryRule implements TwoFormInflector.Rule {
@@ -106,5 +164,10 @@ public abstract class TwoFormInflector {
             }
             return null;
         }
+
+        @Override
+        public boolean compileInto(SuffixTrie trie, int priority) {
+            return trie.addSuffixes(this.list, this.singular, this.plural, priority);
+        }
     }
 }
@@ -0,0 +1,83 @@
+package team.jcandfriends.cookstogo.managers;
+
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import team.jcandfriends.cookstogo.ContentHash;
+import team.jcandfriends.cookstogo.HttpClient;
+
+/**
+ * What is kept next to each cached entry to tell if the server has a different version of it: the
+ * HTTP validators of the response it came from, and a hash of its content computed when it was
+ * written.
+ */
+final class CacheMetadata {
+
+    private static final String TAG = "CacheMetadata";
+
+    private static final String VALIDATORS = "validators";
+    private static final String DIGEST = "digest";
+
+    private final HttpClient.Validators mValidators;
+    private final long mDigest;
+
+    CacheMetadata(HttpClient.Validators validators, long digest) {
+        mValidators = validators == null || validators.isEmpty() ? null : validators;
+        mDigest = digest;
+    }
+
+    /**
+     * Returns the metadata of an entry that wasn't written from a response of the server
+     *
+     * @param content the entry as it is written to the cache, its toString(), which is also what
+     *                Revalidation hashes
+     * @return the metadata
+     */
+    static CacheMetadata of(String content) {
+        return new CacheMetadata(null, ContentHash.of(content));
+    }
+
+    /**
+     * Restores the metadata that was saved with toString()
+     *
+     * @param metadataAsString the saved metadata, may be null
+     * @return the metadata or null if there is none
+     */
+    static CacheMetadata fromString(String metadataAsString) {
+        if (metadataAsString == null) {
+            return null;
+        }
+
+        try {
+            JSONObject metadata = new JSONObject(metadataAsString);
+            return new CacheMetadata(HttpClient.Validators.fromJson(metadata.optJSONObject(VALIDATORS)), metadata.getLong(DIGEST));
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not parse the saved metadata : " + metadataAsString, e);
+            return null;
+        }
+    }
+
+    HttpClient.Validators getValidators() {
+        return mValidators;
+    }
+
+    long getDigest() {
+        return mDigest;
+    }
+
+    @Override
+    public String toString() {
+        JSONObject metadata = new JSONObject();
+        try {
+            if (mValidators != null) {
+                metadata.put(VALIDATORS, mValidators.toJson());
+            }
+            metadata.put(DIGEST, mDigest);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not save the metadata", e);
+        }
+        return metadata.toString();
+    }
+}
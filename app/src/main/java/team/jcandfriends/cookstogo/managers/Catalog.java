@@ -0,0 +1,92 @@
+package team.jcandfriends.cookstogo.managers;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * The small store that holds the catalog, the recipe types and the ingredient types, apart from the
+ * bulk caches of recipes and ingredients. Startup only needs to know if the catalog is cached, and
+ * that check must not load every cached recipe with it.
+ * <p/>
+ * The catalog used to share a SharedPreferences file with a bulk cache. Its keys are moved out of
+ * that file the first time they are missing from the catalog.
+ */
+final class Catalog {
+
+    /**
+     * The name of the SharedPreferences that contains the catalog
+     */
+    private static final String CATALOG = "catalog";
+
+    private final Context mContext;
+    private final SharedPreferences mPreferences;
+
+    private final String mLegacyName;
+    private final String[] mKeys;
+
+    private boolean mIsImported = false;
+
+    /**
+     * @param context    the context
+     * @param legacyName the name of the SharedPreferences that contained these keys before
+     * @param keys       the keys of the catalog that are used by the caller
+     */
+    Catalog(Context context, String legacyName, String... keys) {
+        mContext = context.getApplicationContext();
+        mPreferences = context.getSharedPreferences(CATALOG, Context.MODE_PRIVATE);
+        mLegacyName = legacyName;
+        mKeys = keys;
+    }
+
+    /**
+     * Determines if the key is in the catalog, without loading anything else
+     *
+     * @param key the key
+     * @return true if it is, false otherwise
+     */
+    boolean contains(String key) {
+        return mPreferences.contains(key) || importLegacy() && mPreferences.contains(key);
+    }
+
+    String getString(String key, String defaultValue) {
+        contains(key);
+        return mPreferences.getString(key, defaultValue);
+    }
+
+    SharedPreferences.Editor edit() {
+        return mPreferences.edit();
+    }
+
+    /**
+     * Moves the keys of this catalog from the legacy SharedPreferences, once per process
+     *
+     * @return true if any key was moved
+     */
+    private synchronized boolean importLegacy() {
+        if (mIsImported) {
+            return false;
+        }
+        mIsImported = true;
+
+        SharedPreferences legacy = mContext.getSharedPreferences(mLegacyName, Context.MODE_PRIVATE);
+        SharedPreferences.Editor editor = mPreferences.edit();
+        SharedPreferences.Editor legacyEditor = legacy.edit();
+        boolean isMoved = false;
+
+        for (String key : mKeys) {
+            String value = legacy.getString(key, null);
+            if (value != null) {
+                editor.putString(key, value);
+                legacyEditor.remove(key);
+                isMoved = true;
+            }
+        }
+
+        if (isMoved) {
+            // the catalog must have the keys before they are gone from the legacy file
+            editor.commit();
+            legacyEditor.apply();
+        }
+        return isMoved;
+    }
+}
@@ -0,0 +1,311 @@
+package team.jcandfriends.cookstogo.managers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The search history, indexed so the entries that contain a query can be found without looking at
+ * every entry. Every suffix of every entry is kept in a sorted array, so the entries that contain a
+ * query are the ones with a suffix in the range that starts with it, found by binary search. Matching
+ * ignores case and treats the query as plain text.
+ * <p/>
+ * A query that extends the previous one only narrows its matches down, so those are filtered
+ * instead of looking the query up again. Matches are always ordered most recent first.
+ */
+final class HistoryIndex {
+
+    private static final int INSERTION_SORT_THRESHOLD = 8;
+
+    /**
+     * Each entry, oldest first, and in lower case. An entry that was searched again is null at its
+     * old id and added again at a new one; its lower case stays until the next compaction, since its
+     * old suffixes are still in the sorted array.
+     */
+    private final ArrayList<String> mEntries = new ArrayList<>();
+    private final ArrayList<String> mLowerEntries = new ArrayList<>();
+    private int mLiveCount;
+
+    /**
+     * The id of the entry and the offset of each suffix, sorted by the suffixes
+     */
+    private int[] mSuffixIds = new int[0];
+    private int[] mSuffixOffsets = new int[0];
+    private int mSuffixCount;
+
+    /**
+     * The last query and its matches, to narrow them down when the query is extended
+     */
+    private String mLastQuery;
+    private ArrayList<Integer> mLastMatches;
+
+    /**
+     * @param entries the entries, most recent first
+     */
+    HistoryIndex(List<String> entries) {
+        for (int i = entries.size() - 1; i >= 0; i--) {
+            mEntries.add(entries.get(i));
+            mLowerEntries.add(lowerCase(entries.get(i)));
+        }
+        mLiveCount = mEntries.size();
+        rebuild();
+    }
+
+    /**
+     * Makes an entry the most recent one, adding it if it isn't in the history yet
+     *
+     * @param entry the entry
+     */
+    void add(String entry) {
+        int id = mEntries.indexOf(entry);
+        if (id >= 0) {
+            mEntries.set(id, null);
+            mLiveCount--;
+        }
+
+        id = mEntries.size();
+        String lower = lowerCase(entry);
+        mEntries.add(entry);
+        mLowerEntries.add(lower);
+        mLiveCount++;
+        mLastQuery = null;
+
+        if (mEntries.size() > 2 * mLiveCount) {
+            compact();
+            return;
+        }
+
+        for (int offset = 0; offset < lower.length(); offset++) {
+            insertSuffix(id, offset);
+        }
+    }
+
+    void clear() {
+        mEntries.clear();
+        mLowerEntries.clear();
+        mLiveCount = 0;
+        mLastQuery = null;
+        rebuild();
+    }
+
+    /**
+     * Returns the entries that contain the query
+     *
+     * @param query the query, matched as plain text regardless of case
+     * @return the entries that contain the query, most recent first, or all entries if the query is
+     * empty
+     */
+    ArrayList<String> search(String query) {
+        String lower = lowerCase(query);
+        ArrayList<Integer> matches;
+
+        if (lower.isEmpty()) {
+            matches = new ArrayList<>(mLiveCount);
+            for (int id = mEntries.size() - 1; id >= 0; id--) {
+                if (mEntries.get(id) != null) {
+                    matches.add(id);
+                }
+            }
+        } else if (mLastQuery != null && lower.startsWith(mLastQuery)) {
+            matches = new ArrayList<>(mLastMatches.size());
+            for (int id : mLastMatches) {
+                if (mLowerEntries.get(id).contains(lower)) {
+                    matches.add(id);
+                }
+            }
+        } else {
+            matches = lookUp(lower);
+        }
+
+        mLastQuery = lower;
+        mLastMatches = matches;
+
+        ArrayList<String> entries = new ArrayList<>(matches.size());
+        for (int id : matches) {
+            entries.add(mEntries.get(id));
+        }
+        return entries;
+    }
+
+    /**
+     * @return the ids of the entries that contain the query, most recent first
+     */
+    private ArrayList<Integer> lookUp(String lower) {
+        boolean[] isMatch = new boolean[mEntries.size()];
+
+        for (int i = lowerBound(lower); i < mSuffixCount; i++) {
+            int id = mSuffixIds[i];
+            if (!mLowerEntries.get(id).startsWith(lower, mSuffixOffsets[i])) {
+                break;
+            }
+            isMatch[id] = true;
+        }
+
+        ArrayList<Integer> matches = new ArrayList<>();
+        for (int id = isMatch.length - 1; id >= 0; id--) {
+            if (isMatch[id] && mEntries.get(id) != null) {
+                matches.add(id);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * @return the position of the first suffix that isn't less than the text
+     */
+    private int lowerBound(String text) {
+        int low = 0;
+        int high = mSuffixCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(mLowerEntries.get(mSuffixIds[middle]), mSuffixOffsets[middle], text, 0) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void insertSuffix(int id, int offset) {
+        String lower = mLowerEntries.get(id);
+        int position = lowerBound(lower.substring(offset));
+
+        if (mSuffixCount == mSuffixIds.length) {
+            mSuffixIds = Arrays.copyOf(mSuffixIds, Math.max(16, mSuffixCount * 2));
+            mSuffixOffsets = Arrays.copyOf(mSuffixOffsets, mSuffixIds.length);
+        }
+
+        System.arraycopy(mSuffixIds, position, mSuffixIds, position + 1, mSuffixCount - position);
+        System.arraycopy(mSuffixOffsets, position, mSuffixOffsets, position + 1, mSuffixCount - position);
+        mSuffixIds[position] = id;
+        mSuffixOffsets[position] = offset;
+        mSuffixCount++;
+    }
+
+    /**
+     * Drops the entries that were searched again since they were added, and the suffixes of their
+     * old ids
+     */
+    private void compact() {
+        ArrayList<String> entries = new ArrayList<>(mLiveCount);
+        for (String entry : mEntries) {
+            if (entry != null) {
+                entries.add(entry);
+            }
+        }
+
+        mEntries.clear();
+        mLowerEntries.clear();
+        for (String entry : entries) {
+            mEntries.add(entry);
+            mLowerEntries.add(lowerCase(entry));
+        }
+        rebuild();
+    }
+
+    /**
+     * Sorts the suffixes of every live entry at once, which is much cheaper than inserting them one
+     * by one
+     */
+    private void rebuild() {
+        int count = 0;
+        for (int id = 0; id < mEntries.size(); id++) {
+            if (mEntries.get(id) != null) {
+                count += mLowerEntries.get(id).length();
+            }
+        }
+
+        mSuffixIds = new int[Math.max(16, count)];
+        mSuffixOffsets = new int[mSuffixIds.length];
+        mSuffixCount = 0;
+        for (int id = 0; id < mEntries.size(); id++) {
+            if (mEntries.get(id) != null) {
+                for (int offset = 0; offset < mLowerEntries.get(id).length(); offset++) {
+                    mSuffixIds[mSuffixCount] = id;
+                    mSuffixOffsets[mSuffixCount] = offset;
+                    mSuffixCount++;
+                }
+            }
+        }
+
+        sort(0, mSuffixCount, 0);
+    }
+
+    /**
+     * Sorts the suffixes from low to high, which share their first depth characters, by three-way
+     * radix quicksort. Suffixes of the same entries share long prefixes, which this compares once per
+     * partition instead of once per comparison.
+     */
+    private void sort(int low, int high, int depth) {
+        while (high - low > INSERTION_SORT_THRESHOLD) {
+            int pivot = charAt(low + (high - low) / 2, depth);
+            int less = low;
+            int greater = high - 1;
+            int i = low;
+            while (i <= greater) {
+                int c = charAt(i, depth);
+                if (c < pivot) {
+                    swap(less++, i++);
+                } else if (c > pivot) {
+                    swap(i, greater--);
+                } else {
+                    i++;
+                }
+            }
+
+            sort(low, less, depth);
+            sort(greater + 1, high, depth);
+            if (pivot < 0) {
+                // the suffixes in the middle ended, so they are equal
+                return;
+            }
+            low = less;
+            high = greater + 1;
+            depth++;
+        }
+
+        for (int i = low + 1; i < high; i++) {
+            for (int j = i; j > low && compare(mLowerEntries.get(mSuffixIds[j - 1]), mSuffixOffsets[j - 1] + depth, mLowerEntries.get(mSuffixIds[j]), mSuffixOffsets[j] + depth) > 0; j--) {
+                swap(j - 1, j);
+            }
+        }
+    }
+
+    /**
+     * @return the character of a suffix at the depth, or -1 if the suffix is shorter
+     */
+    private int charAt(int position, int depth) {
+        String lower = mLowerEntries.get(mSuffixIds[position]);
+        int index = mSuffixOffsets[position] + depth;
+        return index < lower.length() ? lower.charAt(index) : -1;
+    }
+
+    private void swap(int a, int b) {
+        int id = mSuffixIds[a];
+        mSuffixIds[a] = mSuffixIds[b];
+        mSuffixIds[b] = id;
+        int offset = mSuffixOffsets[a];
+        mSuffixOffsets[a] = mSuffixOffsets[b];
+        mSuffixOffsets[b] = offset;
+    }
+
+    /**
+     * Compares two suffixes without copying them
+     */
+    private static int compare(String a, int offsetA, String b, int offsetB) {
+        int length = Math.min(a.length() - offsetA, b.length() - offsetB);
+        for (int i = 0; i < length; i++) {
+            int difference = a.charAt(offsetA + i) - b.charAt(offsetB + i);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return (a.length() - offsetA) - (b.length() - offsetB);
+    }
+
+    private static String lowerCase(String text) {
+        return text.toLowerCase(Locale.US);
+    }
+}
@@ -2,7 +2,6 @@ package team.jcandfriends.cookstogo.managers;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.util.Log;
 
 import org.json.JSONArray;
@@ -10,11 +9,13 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.io.IOException;
-import java.net.URLEncoder;
-import java.util.Set;
+import java.util.concurrent.Callable;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.Constants;
 import team.jcandfriends.cookstogo.JSONGrabber;
+import team.jcandfriends.cookstogo.RequestScheduler;
+import team.jcandfriends.cookstogo.SingleFlight;
 
 public class IngredientManager {
 
@@ -24,7 +25,8 @@ public class IngredientManager {
     private static final String TAG = "IngredientManager";
 
     /**
-     * The name of the SharedPreferences that contains the caches of this class
+     * The name of the SharedPreferences that contains the saved ingredient. It also contained the
+     * caches of this class before the catalog and the ingredient store existed.
      */
     private static final String INGREDIENT_CACHE = "ingredient_cache";
 
@@ -34,10 +36,32 @@ public class IngredientManager {
     private static final String PERSISTENT_INGREDIENT_TYPES = "persistent_ingredient_types";
 
     /**
-     * The prefix of each ingredient that was cached
+     * The prefix of each ingredient that was cached in the SharedPreferences before the ingredient
+     * store existed
      */
     private static final String INGREDIENT_CACHE_PREFIX = "ingredient";
 
+    /**
+     * The key of the metadata of the cached ingredient types
+     */
+    private static final String INGREDIENT_TYPES_METADATA = "metadata_persistent_ingredient_types";
+
+    /**
+     * The prefix of the metadata of each ingredient that was cached in the SharedPreferences before
+     * the ingredient store existed
+     */
+    private static final String INGREDIENT_METADATA_PREFIX = "metadata_ingredient";
+
+    /**
+     * The name of the directory that contains the ingredient store
+     */
+    private static final String INGREDIENT_STORE = "ingredient_store";
+
+    /**
+     * The name of the directory that contains the metadata of each cached ingredient
+     */
+    private static final String INGREDIENT_METADATA_STORE = "ingredient_metadata";
+
     /**
      * The key of the saved ingredient. Used in saving the last selected ingredient in which the user hasn't created any virtual baskets yet
      */
@@ -49,12 +73,41 @@ public class IngredientManager {
     private static IngredientManager SOLE_INSTANCE;
 
     /**
-     * The SharedPreferences that contains the caches of this class
+     * The SharedPreferences that contains the saved ingredient
      */
     private final SharedPreferences mPreferences;
 
+    /**
+     * The catalog, which contains the cached ingredient types
+     */
+    private final Catalog mCatalog;
+
+    /**
+     * The store that contains every cached ingredient, one record per ingredient
+     */
+    private final RecordStore mIngredients;
+
+    /**
+     * The metadata of each cached ingredient, keyed by the pk of the ingredient
+     */
+    private final RecordStore mIngredientMetadata;
+
+    /**
+     * The ingredients that were used most recently, already parsed, keyed by their pk
+     */
+    private final MemoryCache<Void> mRecentIngredients;
+
+    /**
+     * Shares one request between every fetch and revalidation of the same ingredient that run at once
+     */
+    private final SingleFlight<JSONObject> mIngredientRequests = new SingleFlight<>();
+
     private IngredientManager(Context context) {
         mPreferences = context.getSharedPreferences(IngredientManager.INGREDIENT_CACHE, Context.MODE_PRIVATE);
+        mCatalog = new Catalog(context, IngredientManager.INGREDIENT_CACHE, IngredientManager.PERSISTENT_INGREDIENT_TYPES, IngredientManager.INGREDIENT_TYPES_METADATA);
+        mIngredients = new RecordStore(context.getDir(IngredientManager.INGREDIENT_STORE, Context.MODE_PRIVATE), new LegacyIngredientImporter(mPreferences));
+        mIngredientMetadata = new RecordStore(context.getDir(IngredientManager.INGREDIENT_METADATA_STORE, Context.MODE_PRIVATE));
+        mRecentIngredients = new MemoryCache<>(context, TAG, (int) (Runtime.getRuntime().maxMemory() / Constants.INGREDIENT_MEMORY_CACHE_HEAP_FRACTION));
     }
 
     /**
@@ -76,7 +129,7 @@ public class IngredientManager {
      * @return true if recipe types cache is not empty, false otherwise
      */
     public boolean hasCachedIngredientTypes() {
-        return mPreferences.getAll().containsKey(IngredientManager.PERSISTENT_INGREDIENT_TYPES);
+        return mCatalog.contains(IngredientManager.PERSISTENT_INGREDIENT_TYPES);
     }
 
     /**
@@ -85,7 +138,15 @@ public class IngredientManager {
      * @param recipeTypes the JSONArray to cache
      */
     public void cacheIngredientTypes(JSONArray recipeTypes) {
-        mPreferences.edit().putString(IngredientManager.PERSISTENT_INGREDIENT_TYPES, recipeTypes.toString()).apply();
+        String ingredientTypesAsString = recipeTypes.toString();
+        cacheIngredientTypes(ingredientTypesAsString, CacheMetadata.of(ingredientTypesAsString));
+    }
+
+    private void cacheIngredientTypes(String ingredientTypesAsString, CacheMetadata metadata) {
+        mCatalog.edit()
+                .putString(IngredientManager.PERSISTENT_INGREDIENT_TYPES, ingredientTypesAsString)
+                .putString(IngredientManager.INGREDIENT_TYPES_METADATA, metadata.toString())
+                .apply();
     }
 
     /**
@@ -94,7 +155,7 @@ public class IngredientManager {
      * @return the cached recipe types as JSONArray
      */
     public JSONArray getCachedIngredientTypes() {
-        String ingredientTypesAsString = mPreferences.getString(IngredientManager.PERSISTENT_INGREDIENT_TYPES, "");
+        String ingredientTypesAsString = mCatalog.getString(IngredientManager.PERSISTENT_INGREDIENT_TYPES, "");
         try {
             return new JSONArray(ingredientTypesAsString);
         } catch (JSONException e) {
@@ -107,7 +168,40 @@ public class IngredientManager {
      * Removes the cached recipe types
      */
     public void clearCachedIngredientTypes() {
-        mPreferences.edit().remove(IngredientManager.PERSISTENT_INGREDIENT_TYPES).apply();
+        mCatalog.edit().remove(IngredientManager.PERSISTENT_INGREDIENT_TYPES).remove(IngredientManager.INGREDIENT_TYPES_METADATA).apply();
+    }
+
+    /**
+     * Asks the server if the ingredient types changed since they were cached, and caches them if they
+     * did. This blocks, so it must not be invoked on the main thread.
+     *
+     * @return the fresh ingredient types if they changed, null if they didn't or the server can't be reached
+     */
+    public JSONArray revalidateIngredientTypes() {
+        try {
+            return Revalidation.revalidate(Api.INGREDIENT_TYPES, JSONGrabber.RESULTS, new Revalidation.Cache<JSONArray>() {
+                @Override
+                public CacheMetadata getMetadata() {
+                    if (!hasCachedIngredientTypes()) {
+                        return null;
+                    }
+                    return CacheMetadata.fromString(mCatalog.getString(IngredientManager.INGREDIENT_TYPES_METADATA, null));
+                }
+
+                @Override
+                public void put(JSONArray ingredientTypes, String ingredientTypesAsString, CacheMetadata metadata) {
+                    cacheIngredientTypes(ingredientTypesAsString, metadata);
+                }
+
+                @Override
+                public void putMetadata(CacheMetadata metadata) {
+                    mCatalog.edit().putString(IngredientManager.INGREDIENT_TYPES_METADATA, metadata.toString()).apply();
+                }
+            });
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not revalidate the ingredient types", e);
+            return null;
+        }
     }
 
     /**
@@ -117,7 +211,7 @@ public class IngredientManager {
      * @return true if the recipe is found, false otherwise
      */
     public boolean hasCachedIngredient(int recipeId) {
-        return mPreferences.getAll().containsKey(IngredientManager.INGREDIENT_CACHE_PREFIX + recipeId);
+        return mIngredients.contains(recipeId);
     }
 
     /**
@@ -127,13 +221,79 @@ public class IngredientManager {
      */
     public void cacheIngredient(JSONObject ingredient) {
         try {
-            mPreferences.edit().putString(IngredientManager.INGREDIENT_CACHE_PREFIX + ingredient.getInt(Api.INGREDIENT_PK), ingredient.toString()).apply();
+            String ingredientAsString = ingredient.toString();
+            cacheIngredient(ingredient.getInt(Api.INGREDIENT_PK), ingredientAsString, CacheMetadata.of(ingredientAsString));
         } catch (JSONException e) {
             Log.e(IngredientManager.TAG, "JSONException : The passed JSONObject ingredient doesn't contain a '" + Api.INGREDIENT_PK + "'", e);
             throw new RuntimeException("Cannot proceed anymore");
         }
     }
 
+    private void cacheIngredient(int ingredientId, String ingredientAsString, CacheMetadata metadata) {
+        mIngredients.put(ingredientId, ingredientAsString);
+        mIngredientMetadata.put(ingredientId, metadata.toString());
+        mRecentIngredients.remove(ingredientId);
+    }
+
+    /**
+     * Asks the server if the ingredient changed since it was cached, and caches it if it did. This
+     * blocks, so it must not be invoked on the main thread.
+     *
+     * @param ingredientId the id of the ingredient to revalidate
+     * @return the fresh ingredient if it changed, null if it didn't or the server can't be reached
+     */
+    public JSONObject revalidateIngredient(int ingredientId) {
+        try {
+            return loadIngredient(ingredientId);
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not revalidate ingredient " + ingredientId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Revalidates the ingredient, or joins the fetch or revalidation of the same ingredient that is
+     * already in flight
+     */
+    private JSONObject loadIngredient(final int ingredientId) throws IOException, JSONException {
+        final String url = Api.getIngredientUrl(ingredientId);
+
+        return mIngredientRequests.run(url, new Callable<JSONObject>() {
+            @Override
+            public JSONObject call() throws IOException, JSONException {
+                return Revalidation.revalidate(url, JSONGrabber.OBJECT, new Revalidation.Cache<JSONObject>() {
+                    @Override
+                    public CacheMetadata getMetadata() {
+                        if (!hasCachedIngredient(ingredientId)) {
+                            return null;
+                        }
+                        return CacheMetadata.fromString(mIngredientMetadata.get(ingredientId));
+                    }
+
+                    @Override
+                    public void put(JSONObject ingredient, String ingredientAsString, CacheMetadata metadata) {
+                        cacheIngredient(ingredientId, ingredientAsString, metadata);
+                    }
+
+                    @Override
+                    public void putMetadata(CacheMetadata metadata) {
+                        mIngredientMetadata.put(ingredientId, metadata.toString());
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Returns how many ingredient requests were saved because they joined an identical request that
+     * was already in flight
+     *
+     * @return the number of deduplicated requests
+     */
+    public int getDeduplicatedRequestCount() {
+        return mIngredientRequests.getSharedCount();
+    }
+
     /**
      * Returns a JSONObject that contains the cached recipe
      *
@@ -141,9 +301,18 @@ public class IngredientManager {
      * @return the recipe
      */
     public JSONObject getCachedIngredient(int ingredientId) {
-        String ingredientAsString = mPreferences.getString(IngredientManager.INGREDIENT_CACHE_PREFIX + ingredientId, "");
+        MemoryCache.Entry<Void> entry = mRecentIngredients.get(ingredientId);
+        if (entry != null) {
+            return entry.mJson;
+        }
+
+        String ingredientAsString = mIngredients.get(ingredientId);
+        if (ingredientAsString == null) {
+            ingredientAsString = "";
+        }
+
         try {
-            return new JSONObject(ingredientAsString);
+            return mRecentIngredients.put(ingredientId, new JSONObject(ingredientAsString), ingredientAsString).mJson;
         } catch (JSONException e) {
             Log.e(IngredientManager.TAG, "JSONException : The ingredientAsString can't be parsed as a valid JSONObject", e);
             throw new RuntimeException("Cannot proceed anymore");
@@ -156,91 +325,52 @@ public class IngredientManager {
      * @param ingredientId the id of the recipe to remove
      */
     public void clearCachedIngredient(int ingredientId) {
-        mPreferences.edit().remove(IngredientManager.INGREDIENT_CACHE_PREFIX + ingredientId).apply();
-    }
-
-    public void fetch(final int ingredientId, final IngredientManager.Callbacks callbacks) {
-        new AsyncTask<String, Void, JSONObject>() {
-            @Override
-            protected JSONObject doInBackground(String... params) {
-                try {
-                    JSONGrabber grabber = new JSONGrabber(Api.INGREDIENTS + ingredientId);
-                    return grabber.grab();
-                } catch (IOException | JSONException e) {
-                    Log.e(TAG, "IOException | JSONException", e);
-                    return null;
-                }
-            }
-
-            @Override
-            protected void onPostExecute(JSONObject result) {
-                super.onPostExecute(result);
-
-                if (null == result) {
-                    callbacks.onFailure();
-                } else {
-                    callbacks.onSuccess(result);
-                }
-            }
-        }.execute();
+        mIngredients.remove(ingredientId);
+        mIngredientMetadata.remove(ingredientId);
+        mRecentIngredients.remove(ingredientId);
     }
 
     /**
-     * Starts an asynchronous request to the backend server that will return a resulting JSONObject
-     * containing the count, next, previous, and the actual results which are the recipes that
-     * matches the query.
+     * Grabs the ingredient on the cloud server and caches it
      *
-     * @param query     the query
-     * @param callbacks the callbacks that will be invoked in success or failure event
+     * @param ingredientId the id of the ingredient to get
+     * @param owner        the owner of the request, see RequestScheduler
+     * @param callbacks    the callbacks that will be invoked on success and on failure
      */
-    public void search(final String query, final IngredientManager.Callbacks callbacks) {
-        if (query == null || query.isEmpty()) {
-            throw new IllegalArgumentException("query must not be null and empty");
-        }
-
-        new AsyncTask<String, Void, JSONObject>() {
+    public void fetch(final int ingredientId, Object owner, IngredientManager.Callbacks callbacks) {
+        RequestScheduler.submit(owner, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected JSONObject doInBackground(String... params) {
-                try {
-                    JSONGrabber grabber = new JSONGrabber(Api.INGREDIENTS + "?search=" + URLEncoder.encode(query, "UTF-8"));
-                    return grabber.grab();
-                } catch (IOException | JSONException e) {
-                    Log.e(TAG, "IOException | JSONException", e);
-                    return null;
+            public JSONObject run() throws IOException, JSONException {
+                JSONObject ingredient = loadIngredient(ingredientId);
+                if (ingredient == null && hasCachedIngredient(ingredientId)) {
+                    // the ingredient didn't change since it was cached
+                    ingredient = getCachedIngredient(ingredientId);
                 }
+                return ingredient;
             }
+        }, deliverTo(callbacks));
+    }
 
+    private static RequestScheduler.Listener<JSONObject> deliverTo(final IngredientManager.Callbacks callbacks) {
+        return new RequestScheduler.Listener<JSONObject>() {
             @Override
-            protected void onPostExecute(JSONObject jsonObject) {
-                super.onPostExecute(jsonObject);
-
-                if (jsonObject == null) {
+            public void onResult(JSONObject result) {
+                if (null == result) {
                     callbacks.onFailure();
                 } else {
-                    callbacks.onSuccess(jsonObject);
+                    callbacks.onSuccess(result);
                 }
             }
-        }.execute();
+        };
     }
 
     /**
      * Removes all ingredients from the cache
      */
     public void clearCachedIngredients() {
-        final char firstChar = INGREDIENT_CACHE_PREFIX.charAt(0);
-        final Set<String> keys = mPreferences.getAll().keySet();
-
-        if (keys.size() > 1) {
-            SharedPreferences.Editor editor = mPreferences.edit();
-
-            for (String key : keys) {
-                if (firstChar == key.charAt(0)) {
-                    editor.remove(key);
-                }
-            }
-
-            editor.apply();
-        }
+        mIngredients.clear();
+        mIngredientMetadata.clear();
+        mRecentIngredients.clear();
     }
 
     /**
@@ -269,6 +399,50 @@ public class IngredientManager {
         mPreferences.edit().remove(SAVED_INGREDIENT).apply();
     }
 
+    /**
+     * Moves the ingredients that were cached in the SharedPreferences into the ingredient store and
+     * drops their metadata. This only does work once, the first time the ingredient store is opened
+     * after an upgrade, and it runs on the thread that opens the store.
+     */
+    private static final class LegacyIngredientImporter implements RecordStore.Importer {
+
+        private final SharedPreferences mPreferences;
+
+        LegacyIngredientImporter(SharedPreferences preferences) {
+            mPreferences = preferences;
+        }
+
+        @Override
+        public void importInto(RecordStore store) {
+            SharedPreferences.Editor editor = null;
+
+            for (String key : mPreferences.getAll().keySet()) {
+                boolean isLegacy = key.startsWith(INGREDIENT_METADATA_PREFIX);
+
+                if (key.startsWith(INGREDIENT_CACHE_PREFIX)) {
+                    isLegacy = true;
+                    try {
+                        int ingredientId = Integer.parseInt(key.substring(INGREDIENT_CACHE_PREFIX.length()));
+                        store.importRecord(ingredientId, mPreferences.getString(key, ""));
+                    } catch (NumberFormatException e) {
+                        Log.e(TAG, "Skipping a key that is not a cached ingredient : " + key, e);
+                    }
+                }
+
+                if (isLegacy) {
+                    if (editor == null) {
+                        editor = mPreferences.edit();
+                    }
+                    editor.remove(key);
+                }
+            }
+
+            if (editor != null) {
+                editor.apply();
+            }
+        }
+    }
+
     public interface Callbacks {
         void onSuccess(JSONObject result);
 
@@ -19,6 +19,7 @@ public final class IngredientSearchManager implements SearchManager<String> {
 
     private final SharedPreferences mPreferences;
     private ArrayList<String> mCache;
+    private final HistoryIndex mIndex;
 
     private IngredientSearchManager(Context context) {
         mPreferences = context.getSharedPreferences(IngredientSearchManager.INGREDIENTS_SEARCH_HISTORY, Context.MODE_PRIVATE);
@@ -28,10 +29,13 @@ public final class IngredientSearchManager implements SearchManager<String> {
                 mCache = Utils.toStringList(new JSONArray(mPreferences.getString(IngredientSearchManager.INGREDIENTS_SEARCH_HISTORY, "")));
             } catch (JSONException e) {
                 Log.e(TAG, "JSONException", e);
+                mCache = new ArrayList<>();
             }
         } else {
             mCache = new ArrayList<>();
         }
+
+        mIndex = new HistoryIndex(mCache);
     }
 
     public static IngredientSearchManager get(Context context) {
@@ -48,11 +52,13 @@ public final class IngredientSearchManager implements SearchManager<String> {
         }
 
         mCache.add(0, query);
+        mIndex.add(query);
         persist();
     }
 
     public void deleteAll() {
         mCache.clear();
+        mIndex.clear();
         persist();
     }
 
@@ -60,6 +66,10 @@ public final class IngredientSearchManager implements SearchManager<String> {
         return mCache;
     }
 
+    public ArrayList<String> filter(String query) {
+        return mIndex.search(query);
+    }
+
     private void persist() {
         mPreferences.edit().putString(IngredientSearchManager.INGREDIENTS_SEARCH_HISTORY, Utils.stringListToJsonArray(mCache).toString()).apply();
     }
@@ -0,0 +1,119 @@
+package team.jcandfriends.cookstogo.managers;
+
+import java.util.Arrays;
+
+/**
+ * A set of ints that stores them unboxed in one open addressed table, so membership checks neither
+ * allocate nor chase pointers. Integer.MIN_VALUE marks empty slots and can't be added.
+ */
+final class IntSet {
+
+    private static final int EMPTY = Integer.MIN_VALUE;
+
+    private int[] mKeys;
+    private int mSize = 0;
+
+    IntSet() {
+        mKeys = new int[8];
+        Arrays.fill(mKeys, EMPTY);
+    }
+
+    boolean contains(int key) {
+        // find() would land on an empty slot, which holds the very same value
+        return key != EMPTY && mKeys[find(key)] == key;
+    }
+
+    /**
+     * @return true if the key wasn't in the set yet
+     */
+    boolean add(int key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Integer.MIN_VALUE can't be added to an IntSet");
+        }
+
+        int slot = find(key);
+        if (mKeys[slot] == key) {
+            return false;
+        }
+
+        mKeys[slot] = key;
+        mSize++;
+        // at most half full keeps the probe sequences short
+        if (mSize * 2 > mKeys.length) {
+            grow();
+        }
+        return true;
+    }
+
+    /**
+     * @return true if the key was in the set
+     */
+    boolean remove(int key) {
+        if (key == EMPTY) {
+            return false;
+        }
+
+        int slot = find(key);
+        if (mKeys[slot] != key) {
+            return false;
+        }
+
+        // shifts the following keys of the probe sequence back, so no tombstone is needed
+        int mask = mKeys.length - 1;
+        int next = slot;
+        while (true) {
+            next = (next + 1) & mask;
+            int candidate = mKeys[next];
+            if (candidate == EMPTY) {
+                break;
+            }
+
+            int home = slotOf(candidate);
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                mKeys[slot] = candidate;
+                slot = next;
+            }
+        }
+
+        mKeys[slot] = EMPTY;
+        mSize--;
+        return true;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    void clear() {
+        Arrays.fill(mKeys, EMPTY);
+        mSize = 0;
+    }
+
+    /**
+     * Returns the slot that holds the key, or the empty slot where it would go
+     */
+    private int find(int key) {
+        int mask = mKeys.length - 1;
+        int slot = slotOf(key);
+        while (mKeys[slot] != EMPTY && mKeys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private int slotOf(int key) {
+        return (key * 0x9E3779B9) >>> (Integer.numberOfLeadingZeros(mKeys.length) + 1) & (mKeys.length - 1);
+    }
+
+    private void grow() {
+        int[] keys = mKeys;
+        mKeys = new int[keys.length * 2];
+        Arrays.fill(mKeys, EMPTY);
+
+        for (int key : keys) {
+            if (key != EMPTY) {
+                mKeys[find(key)] = key;
+            }
+        }
+    }
+}
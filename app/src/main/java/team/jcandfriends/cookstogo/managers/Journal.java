@@ -0,0 +1,291 @@
+package team.jcandfriends.cookstogo.managers;
+
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Persists a state as a snapshot plus a journal of the operations applied since. Each operation is
+ * appended to the journal as one line, so a change costs one small write however large the state
+ * is. Once enough operations piled up, the state is compacted into a new snapshot and the journal
+ * starts over.
+ * <p/>
+ * Every operation carries a sequence number and the snapshot remembers the last one it includes,
+ * so a crash between writing a snapshot and truncating the journal never replays an operation
+ * twice. A line that was cut short by a crash is the last line of the journal, and replay stops
+ * there.
+ * <p/>
+ * Appends and compactions are invoked on one thread, the main thread, and hit the disk in order
+ * on a background thread.
+ */
+final class Journal {
+
+    private static final String TAG = "Journal";
+
+    private static final String SNAPSHOT_EXTENSION = ".snapshot";
+    private static final String JOURNAL_EXTENSION = ".journal";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final String SEQUENCE = "sequence";
+    private static final String STATE = "state";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mSnapshotFile;
+    private final File mJournalFile;
+    private final File mTempFile;
+
+    /**
+     * How many operations the journal may hold before the state is compacted
+     */
+    private final int mCompactionThreshold;
+
+    /**
+     * Serializes every write so they hit the disk in the order they were requested
+     */
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    /**
+     * The journal, open for appending, only touched by the writer thread
+     */
+    private OutputStream mJournal;
+
+    private long mSequence = 0;
+    private int mOperationCount = 0;
+
+    /**
+     * @param directory           the directory of the snapshot and the journal
+     * @param name                the name of the snapshot and the journal files
+     * @param compactionThreshold how many operations the journal may hold before compaction
+     */
+    Journal(File directory, String name, int compactionThreshold) {
+        mSnapshotFile = new File(directory, name + SNAPSHOT_EXTENSION);
+        mJournalFile = new File(directory, name + JOURNAL_EXTENSION);
+        mTempFile = new File(directory, name + TEMP_EXTENSION);
+        mCompactionThreshold = compactionThreshold;
+    }
+
+    /**
+     * Determines if there is anything to replay, which is false the first time a state is persisted
+     */
+    boolean exists() {
+        return mSnapshotFile.exists() || mJournalFile.exists();
+    }
+
+    /**
+     * Restores the snapshot, then replays every operation that was appended after it. This reads
+     * the disk on the calling thread.
+     *
+     * @param replayer restores the snapshot and applies each operation
+     * @return true if the journal is due for compaction, which is also the case when its last
+     * operation was torn, so nothing gets appended after it
+     */
+    boolean open(Journal.Replayer replayer) {
+        boolean isTorn = false;
+        long snapshotSequence = 0;
+        String snapshotAsString = readSnapshot();
+        if (snapshotAsString != null) {
+            try {
+                JSONObject snapshot = new JSONObject(snapshotAsString);
+                snapshotSequence = snapshot.getLong(SEQUENCE);
+                replayer.restore(snapshot.getJSONArray(STATE));
+            } catch (JSONException e) {
+                Log.e(TAG, "Could not restore " + mSnapshotFile, e);
+            }
+        }
+        mSequence = snapshotSequence;
+
+        BufferedReader reader = null;
+        try {
+            if (mJournalFile.exists()) {
+                reader = new BufferedReader(new InputStreamReader(new FileInputStream(mJournalFile), UTF_8));
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JSONObject operation;
+                    try {
+                        operation = new JSONObject(line);
+                    } catch (JSONException e) {
+                        Log.e(TAG, "Stopping the replay of " + mJournalFile + " at a torn operation", e);
+                        isTorn = true;
+                        break;
+                    }
+
+                    long sequence = operation.optLong(SEQUENCE);
+                    if (sequence > snapshotSequence) {
+                        try {
+                            replayer.replay(operation);
+                        } catch (JSONException e) {
+                            Log.e(TAG, "Skipping an operation that could not be replayed : " + line, e);
+                        }
+                        mSequence = sequence;
+                        mOperationCount++;
+                    }
+                }
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not replay " + mJournalFile, e);
+        } finally {
+            RecordStore.closeQuietly(reader);
+        }
+
+        return isTorn || mOperationCount >= mCompactionThreshold;
+    }
+
+    /**
+     * Appends an operation to the journal
+     *
+     * @param operation the operation, which gets a sequence number
+     * @return true if the journal is due for compaction
+     */
+    boolean append(JSONObject operation) {
+        try {
+            operation.put(SEQUENCE, ++mSequence);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+
+        final byte[] line = (operation.toString() + '\n').getBytes(UTF_8);
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (mJournal == null) {
+                        mJournal = new FileOutputStream(mJournalFile, true);
+                    }
+                    mJournal.write(line);
+                    mJournal.flush();
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not append to " + mJournalFile, e);
+                }
+            }
+        });
+
+        return ++mOperationCount >= mCompactionThreshold;
+    }
+
+    /**
+     * Replaces the snapshot with the given state and starts the journal over. The state is
+     * serialized right away, so it may be changed as soon as this returns.
+     *
+     * @param state the state that includes every operation appended so far
+     */
+    void compact(JSONArray state) {
+        final byte[] snapshot;
+        try {
+            snapshot = new JSONObject().put(SEQUENCE, mSequence).put(STATE, state).toString().getBytes(UTF_8);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        mOperationCount = 0;
+
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (writeSnapshot(snapshot)) {
+                    RecordStore.closeQuietly(mJournal);
+                    mJournal = null;
+                    if (mJournalFile.exists() && !mJournalFile.delete()) {
+                        Log.e(TAG, "Could not delete " + mJournalFile);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until every append and compaction that was requested so far hit the disk
+     */
+    void flush() {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                flushed.countDown();
+            }
+        });
+        RecordStore.await(flushed);
+    }
+
+    private String readSnapshot() {
+        if (!mSnapshotFile.exists()) {
+            return null;
+        }
+
+        InputStream is = null;
+        try {
+            is = new FileInputStream(mSnapshotFile);
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+
+            while ((count = is.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+
+            return new String(bytes.toByteArray(), UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read " + mSnapshotFile, e);
+            return null;
+        } finally {
+            RecordStore.closeQuietly(is);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and renames it over the snapshot so a crash never leaves a
+     * half written snapshot behind
+     */
+    private boolean writeSnapshot(byte[] snapshot) {
+        FileOutputStream os = null;
+        try {
+            os = new FileOutputStream(mTempFile);
+            os.write(snapshot);
+            os.getFD().sync();
+            os.close();
+            os = null;
+
+            if (!mTempFile.renameTo(mSnapshotFile)) {
+                Log.e(TAG, "Could not rename " + mTempFile + " to " + mSnapshotFile);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write " + mSnapshotFile, e);
+            return false;
+        } finally {
+            RecordStore.closeQuietly(os);
+        }
+    }
+
+    /**
+     * Rebuilds a state from its snapshot and journal
+     */
+    interface Replayer {
+
+        /**
+         * Restores the state from the snapshot
+         */
+        void restore(JSONArray state) throws JSONException;
+
+        /**
+         * Applies an operation to the state
+         */
+        void replay(JSONObject operation) throws JSONException;
+    }
+}
@@ -0,0 +1,181 @@
+package team.jcandfriends.cookstogo.managers;
+
+import android.content.ComponentCallbacks2;
+import android.content.Context;
+import android.content.res.Configuration;
+import android.os.Build;
+import android.support.v4.util.LruCache;
+import android.util.Log;
+
+import org.json.JSONObject;
+
+import java.util.Locale;
+
+/**
+ * The in-memory tier in front of a persistent cache. It keeps the parsed form of the most recently
+ * used entries, and the model that was built from them, so moving between screens doesn't read and
+ * parse the same entry again. Its size is bounded by an estimate of the bytes the entries take, not
+ * by their count, and it gives memory back when the system asks for it through onTrimMemory. Its
+ * hit, miss and eviction counts are logged every LOG_INTERVAL lookups.
+ */
+final class MemoryCache<M> implements ComponentCallbacks2 {
+
+    private static final String TAG = "MemoryCache";
+
+    /**
+     * A parsed JSONObject, together with the model built from it, takes roughly this many bytes per
+     * character of its source
+     */
+    private static final int BYTES_PER_CHAR = 4;
+
+    /**
+     * How many lookups go by between two logs of the stats
+     */
+    private static final int LOG_INTERVAL = 100;
+
+    private final String mName;
+    private final LruCache<Integer, MemoryCache.Entry<M>> mEntries;
+
+    /**
+     * @param context  the context
+     * @param name     the name of the cache, used in logs
+     * @param maxBytes the most bytes the entries may take
+     */
+    MemoryCache(Context context, String name, int maxBytes) {
+        mName = name;
+        mEntries = new LruCache<Integer, MemoryCache.Entry<M>>(maxBytes) {
+            @Override
+            protected int sizeOf(Integer pk, MemoryCache.Entry<M> entry) {
+                return entry.mSize;
+            }
+        };
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.ICE_CREAM_SANDWICH) {
+            context.getApplicationContext().registerComponentCallbacks(this);
+        }
+    }
+
+    /**
+     * Returns the entry with the given primary key
+     *
+     * @param pk the primary key of the entry
+     * @return the entry, or null if it isn't in memory
+     */
+    MemoryCache.Entry<M> get(int pk) {
+        MemoryCache.Entry<M> entry = mEntries.get(pk);
+        if (getRequestCount() % LOG_INTERVAL == 0) {
+            Log.d(TAG, toString());
+        }
+        return entry;
+    }
+
+    /**
+     * Keeps a parsed entry in memory
+     *
+     * @param pk     the primary key of the entry
+     * @param json   the parsed entry
+     * @param source the entry as it was before it was parsed, used to estimate its size
+     * @return the entry
+     */
+    MemoryCache.Entry<M> put(int pk, JSONObject json, String source) {
+        MemoryCache.Entry<M> entry = new MemoryCache.Entry<>(json, source.length() * BYTES_PER_CHAR);
+        mEntries.put(pk, entry);
+        return entry;
+    }
+
+    void remove(int pk) {
+        mEntries.remove(pk);
+    }
+
+    void clear() {
+        mEntries.evictAll();
+    }
+
+    int getHitCount() {
+        return mEntries.hitCount();
+    }
+
+    int getMissCount() {
+        return mEntries.missCount();
+    }
+
+    /**
+     * @return how many lookups were made, hits and misses
+     */
+    int getRequestCount() {
+        return mEntries.hitCount() + mEntries.missCount();
+    }
+
+    int getEvictionCount() {
+        return mEntries.evictionCount();
+    }
+
+    /**
+     * @return the estimated bytes the entries take
+     */
+    int getSize() {
+        return mEntries.size();
+    }
+
+    int getMaxSize() {
+        return mEntries.maxSize();
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        if (level >= ComponentCallbacks2.TRIM_MEMORY_MODERATE) {
+            mEntries.evictAll();
+        } else if (level >= ComponentCallbacks2.TRIM_MEMORY_BACKGROUND || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW || level == ComponentCallbacks2.TRIM_MEMORY_RUNNING_CRITICAL) {
+            mEntries.trimToSize(mEntries.maxSize() / 2);
+        }
+        Log.d(TAG, "Trimmed on level " + level + " : " + this);
+    }
+
+    @Override
+    public void onLowMemory() {
+        mEntries.evictAll();
+        Log.d(TAG, "Cleared on low memory : " + this);
+    }
+
+    @Override
+    public void onConfigurationChanged(Configuration newConfig) {
+    }
+
+    /**
+     * @return the hits out of all lookups, the evictions and the size of this cache
+     */
+    @Override
+    public String toString() {
+        int hits = mEntries.hitCount();
+        int requests = hits + mEntries.missCount();
+        return String.format(Locale.US, "%s[hits=%d/%d (%.0f%%), evictions=%d, bytes=%d/%d]", mName, hits, requests, requests == 0 ? 0.0 : 100.0 * hits / requests, mEntries.evictionCount(), mEntries.size(), mEntries.maxSize());
+    }
+
+    static final class Entry<M> {
+
+        /**
+         * The parsed entry. It is shared by every caller, so it must not be modified.
+         */
+        final JSONObject mJson;
+
+        private final int mSize;
+
+        /**
+         * The model built from the parsed entry, guarded by the entry
+         */
+        private M mModel;
+
+        private Entry(JSONObject json, int size) {
+            mJson = json;
+            mSize = size;
+        }
+
+        M getModel() {
+            return mModel;
+        }
+
+        void setModel(M model) {
+            mModel = model;
+        }
+    }
+}
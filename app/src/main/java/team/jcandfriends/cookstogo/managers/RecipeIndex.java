@@ -0,0 +1,536 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+import team.jcandfriends.cookstogo.Api;
+
+/**
+ * An inverted index of the cached recipes, so recipes can be searched without the network. Each
+ * recipe is indexed by its name, its description and, once the recipe itself was cached, the names
+ * of the ingredients of its components. Results are ranked with BM25, where a word in the name
+ * counts more than a word in the ingredients, which counts more than a word in the description.
+ * <p/>
+ * The last word of a query may still be being typed, so it also matches every word it is a prefix
+ * of, e.g. "chick" matches "chicken" and "chickpea".
+ * <p/>
+ * This class is not thread safe. RecipeManager only touches it from its indexer thread.
+ */
+final class RecipeIndex {
+
+    /**
+     * BM25 parameters
+     */
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    /**
+     * How many times a word counts depending on where it appears
+     */
+    private static final int NAME_WEIGHT = 3;
+    private static final int INGREDIENT_WEIGHT = 2;
+    private static final int DESCRIPTION_WEIGHT = 1;
+
+    /**
+     * The fields of a recipe that are shown in the search results, besides its pk
+     */
+    private static final String[] SUMMARY_KEYS = {Api.RECIPE_NAME, Api.RECIPE_DESCRIPTION, Api.RECIPE_ICON, Api.RECIPE_BANNER};
+
+    /**
+     * A shorter last word is only matched whole, it would be the prefix of too many words
+     */
+    private static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final HashSet<String> STOP_WORDS = new HashSet<>(Arrays.asList(
+            "a", "an", "and", "as", "at", "by", "for", "from", "in", "into", "is", "it", "of", "on", "or", "the", "to", "with"
+    ));
+
+    /**
+     * The postings of each word
+     */
+    private final HashMap<String, RecipeIndex.Postings> mPostings = new HashMap<>();
+
+    /**
+     * The words of mPostings in order, to find the words that start with a prefix, or null until a
+     * query needs them again after words were added or removed
+     */
+    private String[] mSortedTerms;
+
+    /**
+     * The id of the document of each recipe, keyed by the pk of the recipe
+     */
+    private final HashMap<Integer, Integer> mDocumentIds = new HashMap<>();
+
+    /**
+     * The documents, indexed by their id. Removed documents leave a null behind.
+     */
+    private final ArrayList<RecipeIndex.Document> mDocuments = new ArrayList<>();
+
+    /**
+     * The length of each document, indexed by its id, so scoring doesn't have to look up documents
+     */
+    private int[] mLengths = new int[16];
+
+    private int mDocumentCount = 0;
+    private long mTotalLength = 0;
+
+    /**
+     * Indexes every recipe of the recipe types. Recipes whose summary didn't change since the last
+     * sync are left as they are. Recipes that are no longer in any recipe type are removed, unless
+     * the recipe itself is cached.
+     *
+     * @param recipeTypes the recipe types
+     */
+    void addRecipeTypes(JSONArray recipeTypes) {
+        HashSet<Integer> seen = new HashSet<>();
+
+        for (int i = 0; i < recipeTypes.length(); i++) {
+            JSONObject recipeType = recipeTypes.optJSONObject(i);
+            JSONArray recipes = recipeType == null ? null : recipeType.optJSONArray(Api.RECIPE_TYPE_RECIPES);
+            if (recipes == null) {
+                continue;
+            }
+
+            for (int j = 0; j < recipes.length(); j++) {
+                JSONObject recipe = recipes.optJSONObject(j);
+                if (recipe != null && recipe.has(Api.RECIPE_PK)) {
+                    int pk = recipe.optInt(Api.RECIPE_PK);
+                    if (seen.add(pk)) {
+                        RecipeIndex.Document previous = documentOf(pk);
+                        if (previous == null || !previous.mIsListed || !isSameSummary(previous.mSummary, recipe)) {
+                            index(pk, recipe, true, previous == null ? null : previous.mIngredientNames);
+                        }
+                    }
+                }
+            }
+        }
+
+        for (RecipeIndex.Document document : new ArrayList<>(mDocuments)) {
+            if (document != null && document.mIsListed && !seen.contains(document.mPk)) {
+                unlist(document);
+            }
+        }
+    }
+
+    /**
+     * Removes the recipes that are only known from the recipe types, and keeps the ones that are
+     * cached
+     */
+    void removeRecipeTypes() {
+        for (RecipeIndex.Document document : new ArrayList<>(mDocuments)) {
+            if (document != null && document.mIsListed) {
+                unlist(document);
+            }
+        }
+    }
+
+    /**
+     * Indexes a recipe that was cached, along with the names of its ingredients
+     *
+     * @param recipe the recipe
+     */
+    void addRecipe(JSONObject recipe) {
+        int pk = recipe.optInt(Api.RECIPE_PK);
+        RecipeIndex.Document previous = documentOf(pk);
+
+        JSONArray components = recipe.optJSONArray(Api.RECIPE_RECIPE_COMPONENTS);
+        String[] ingredientNames = new String[components == null ? 0 : components.length()];
+        for (int i = 0; i < ingredientNames.length; i++) {
+            JSONObject component = components.optJSONObject(i);
+            JSONObject ingredient = component == null ? null : component.optJSONObject(Api.RECIPE_COMPONENT_INGREDIENT);
+            ingredientNames[i] = ingredient == null ? "" : ingredient.optString(Api.INGREDIENT_NAME);
+        }
+
+        if (previous == null) {
+            index(pk, summaryOf(recipe), false, ingredientNames);
+        } else {
+            index(pk, previous.mSummary, previous.mIsListed, ingredientNames);
+        }
+    }
+
+    /**
+     * Forgets the ingredients of a recipe that is no longer cached. The recipe is still found by its
+     * name and description if it is in a recipe type, and removed otherwise.
+     *
+     * @param pk the pk of the recipe
+     */
+    void removeRecipe(int pk) {
+        RecipeIndex.Document document = documentOf(pk);
+        if (document == null || document.mIngredientNames == null) {
+            return;
+        }
+
+        if (document.mIsListed) {
+            index(pk, document.mSummary, true, null);
+        } else {
+            remove(pk);
+        }
+    }
+
+    /**
+     * Forgets the ingredients of every recipe, see removeRecipe(int)
+     */
+    void removeRecipes() {
+        for (RecipeIndex.Document document : new ArrayList<>(mDocuments)) {
+            if (document != null) {
+                removeRecipe(document.mPk);
+            }
+        }
+    }
+
+    /**
+     * Removes a recipe from the index
+     *
+     * @param pk the pk of the recipe
+     */
+    void remove(int pk) {
+        Integer id = mDocumentIds.remove(pk);
+        if (id == null) {
+            return;
+        }
+
+        RecipeIndex.Document document = mDocuments.get(id);
+        for (int i = 0; i < document.mTerms.length; i++) {
+            RecipeIndex.Postings postings = document.mPostings[i];
+            int slot = document.mSlots[i];
+            postings.removeAt(slot);
+
+            if (slot < postings.mSize) {
+                // the last posting filled the hole, so its document has to know where it went
+                mDocuments.get(postings.mDocuments[slot]).mSlots[postings.mTermIndexes[slot]] = slot;
+            } else if (postings.mSize == 0) {
+                mPostings.remove(document.mTerms[i]);
+                mSortedTerms = null;
+            }
+        }
+
+        mDocuments.set(id, null);
+        mDocumentCount--;
+        mTotalLength -= document.mLength;
+    }
+
+    /**
+     * Returns the recipes that best match the query, best first
+     *
+     * @param query the query, whose last word may be incomplete
+     * @param limit the most recipes to return
+     * @return the summary of each matching recipe, as found in the recipe types
+     */
+    JSONArray search(String query, int limit) {
+        JSONArray results = new JSONArray();
+        if (mDocumentCount == 0) {
+            return results;
+        }
+
+        final float[] scores = new float[mDocuments.size()];
+        int[] matches = new int[mDocuments.size()];
+        int matchCount = 0;
+        float averageLength = (float) mTotalLength / mDocumentCount;
+
+        HashSet<String> terms = new HashSet<>(tokenize(query).keySet());
+        String prefix = lastWord(query);
+        if (prefix != null) {
+            addTermsWithPrefix(terms, prefix);
+        }
+
+        for (String term : terms) {
+            RecipeIndex.Postings postings = mPostings.get(term);
+            if (postings == null) {
+                continue;
+            }
+
+            float idf = (float) Math.log(1 + (mDocumentCount - postings.mSize + 0.5) / (postings.mSize + 0.5));
+            for (int i = 0; i < postings.mSize; i++) {
+                int id = postings.mDocuments[i];
+                int frequency = postings.mFrequencies[i];
+                float normalization = K1 * (1 - B + B * mLengths[id] / averageLength);
+
+                if (scores[id] == 0) {
+                    matches[matchCount++] = id;
+                }
+                scores[id] += idf * frequency * (K1 + 1) / (frequency + normalization);
+            }
+        }
+
+        // keeps the best `limit` matches with the worst of them on top
+        PriorityQueue<Integer> best = new PriorityQueue<>(Math.max(1, Math.min(limit, matchCount)), new Comparator<Integer>() {
+            @Override
+            public int compare(Integer lhs, Integer rhs) {
+                return Float.compare(scores[lhs], scores[rhs]);
+            }
+        });
+        for (int i = 0; i < matchCount; i++) {
+            int id = matches[i];
+            if (best.size() < limit) {
+                best.offer(id);
+            } else if (scores[id] > scores[best.peek()]) {
+                best.poll();
+                best.offer(id);
+            }
+        }
+
+        JSONObject[] ranked = new JSONObject[best.size()];
+        for (int i = ranked.length - 1; i >= 0; i--) {
+            ranked[i] = mDocuments.get(best.poll()).mSummary;
+        }
+        for (JSONObject summary : ranked) {
+            results.put(summary);
+        }
+        return results;
+    }
+
+    int size() {
+        return mDocumentCount;
+    }
+
+    /**
+     * Adds every indexed word that starts with the prefix
+     */
+    private void addTermsWithPrefix(HashSet<String> terms, String prefix) {
+        if (mSortedTerms == null) {
+            mSortedTerms = mPostings.keySet().toArray(new String[mPostings.size()]);
+            Arrays.sort(mSortedTerms);
+        }
+
+        int i = Arrays.binarySearch(mSortedTerms, prefix);
+        for (i = i < 0 ? -i - 1 : i; i < mSortedTerms.length && mSortedTerms[i].startsWith(prefix); i++) {
+            terms.add(mSortedTerms[i]);
+        }
+    }
+
+    /**
+     * @return the last word of the query in lower case, or null if the query ends after a complete
+     * word or the word is too short to be a prefix
+     */
+    private static String lastWord(String query) {
+        int end = query.length();
+        int start = end;
+        while (start > 0 && Character.isLetterOrDigit(query.charAt(start - 1))) {
+            start--;
+        }
+        return end - start < MIN_PREFIX_LENGTH ? null : query.substring(start, end).toLowerCase(Locale.US);
+    }
+
+    private RecipeIndex.Document documentOf(int pk) {
+        Integer id = mDocumentIds.get(pk);
+        return id == null ? null : mDocuments.get(id);
+    }
+
+    /**
+     * A recipe that is no longer in any recipe type only stays in the index if it is cached
+     */
+    private void unlist(RecipeIndex.Document document) {
+        if (document.mIngredientNames == null) {
+            remove(document.mPk);
+        } else {
+            document.mIsListed = false;
+        }
+    }
+
+    private void index(int pk, JSONObject summary, boolean isListed, String[] ingredientNames) {
+        HashMap<String, Integer> frequencies = new HashMap<>();
+        addTerms(frequencies, summary.optString(Api.RECIPE_NAME), NAME_WEIGHT);
+        addTerms(frequencies, summary.optString(Api.RECIPE_DESCRIPTION), DESCRIPTION_WEIGHT);
+        if (ingredientNames != null) {
+            for (String ingredientName : ingredientNames) {
+                addTerms(frequencies, ingredientName, INGREDIENT_WEIGHT);
+            }
+        }
+
+        Integer id = mDocumentIds.get(pk);
+        if (id != null) {
+            remove(pk);
+        } else {
+            id = mDocuments.size();
+            mDocuments.add(null);
+        }
+
+        RecipeIndex.Document document = new RecipeIndex.Document(pk, summary, isListed, ingredientNames, frequencies.size());
+        int termIndex = 0;
+        for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+            RecipeIndex.Postings postings = mPostings.get(entry.getKey());
+            if (postings == null) {
+                postings = new RecipeIndex.Postings();
+                mPostings.put(entry.getKey(), postings);
+                mSortedTerms = null;
+            }
+            document.mTerms[termIndex] = entry.getKey();
+            document.mPostings[termIndex] = postings;
+            document.mSlots[termIndex] = postings.add(id, termIndex, entry.getValue());
+            document.mLength += entry.getValue();
+            termIndex++;
+        }
+
+        if (id >= mLengths.length) {
+            mLengths = Arrays.copyOf(mLengths, Math.max(id + 1, mLengths.length * 2));
+        }
+        mLengths[id] = document.mLength;
+        mDocumentIds.put(pk, id);
+        mDocuments.set(id, document);
+        mDocumentCount++;
+        mTotalLength += document.mLength;
+    }
+
+    private static void addTerms(HashMap<String, Integer> frequencies, String text, int weight) {
+        for (Map.Entry<String, Integer> entry : tokenize(text).entrySet()) {
+            Integer frequency = frequencies.get(entry.getKey());
+            frequencies.put(entry.getKey(), (frequency == null ? 0 : frequency) + entry.getValue() * weight);
+        }
+    }
+
+    /**
+     * Splits text into lower case words without stop words and with simple plurals made singular
+     *
+     * @param text the text
+     * @return how many times each word appears in the text
+     */
+    static HashMap<String, Integer> tokenize(String text) {
+        HashMap<String, Integer> terms = new HashMap<>();
+        String lowerCase = text.toLowerCase(Locale.US);
+        int length = lowerCase.length();
+        int start = -1;
+
+        for (int i = 0; i <= length; i++) {
+            boolean isWordChar = i < length && Character.isLetterOrDigit(lowerCase.charAt(i));
+            if (isWordChar && start == -1) {
+                start = i;
+            } else if (!isWordChar && start != -1) {
+                String term = normalize(lowerCase.substring(start, i));
+                if (term != null) {
+                    Integer count = terms.get(term);
+                    terms.put(term, count == null ? 1 : count + 1);
+                }
+                start = -1;
+            }
+        }
+
+        return terms;
+    }
+
+    private static String normalize(String word) {
+        if (STOP_WORDS.contains(word)) {
+            return null;
+        }
+
+        int length = word.length();
+        if (length > 4 && word.endsWith("ies")) {
+            return word.substring(0, length - 3) + 'y';
+        } else if (length > 4 && word.endsWith("oes")) {
+            return word.substring(0, length - 2);
+        } else if (length > 3 && word.endsWith("s") && !word.endsWith("ss")) {
+            return word.substring(0, length - 1);
+        }
+        return word;
+    }
+
+    private static boolean isSameSummary(JSONObject summary, JSONObject recipe) {
+        for (String key : SUMMARY_KEYS) {
+            Object value = summary.opt(key);
+            Object other = recipe.opt(key);
+            if (value == null ? other != null : !value.equals(other)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static JSONObject summaryOf(JSONObject recipe) {
+        JSONObject summary = new JSONObject();
+        try {
+            summary.put(Api.RECIPE_PK, recipe.optInt(Api.RECIPE_PK));
+            for (String key : SUMMARY_KEYS) {
+                summary.putOpt(key, recipe.opt(key));
+            }
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+        return summary;
+    }
+
+    private static final class Document {
+
+        final int mPk;
+        final JSONObject mSummary;
+
+        /**
+         * The names of the ingredients of the recipe, or null if the recipe itself wasn't cached
+         */
+        final String[] mIngredientNames;
+
+        /**
+         * The distinct words of the document, the postings of each word, and where the document is
+         * in those postings
+         */
+        final String[] mTerms;
+        final RecipeIndex.Postings[] mPostings;
+        final int[] mSlots;
+
+        /**
+         * Whether the recipe is in a recipe type
+         */
+        boolean mIsListed;
+
+        /**
+         * The weighted count of the words of the document
+         */
+        int mLength;
+
+        Document(int pk, JSONObject summary, boolean isListed, String[] ingredientNames, int termCount) {
+            mPk = pk;
+            mSummary = summary;
+            mIsListed = isListed;
+            mIngredientNames = ingredientNames;
+            mTerms = new String[termCount];
+            mPostings = new RecipeIndex.Postings[termCount];
+            mSlots = new int[termCount];
+        }
+    }
+
+    /**
+     * The documents that contain a word, and how many times they contain it. Each posting also
+     * keeps the index of the word among the words of its document, so the document can be told
+     * where its posting moved to.
+     */
+    private static final class Postings {
+
+        int[] mDocuments = new int[4];
+        int[] mTermIndexes = new int[4];
+        int[] mFrequencies = new int[4];
+        int mSize = 0;
+
+        /**
+         * @return the slot of the posting
+         */
+        int add(int document, int termIndex, int frequency) {
+            if (mSize == mDocuments.length) {
+                mDocuments = Arrays.copyOf(mDocuments, mSize * 2);
+                mTermIndexes = Arrays.copyOf(mTermIndexes, mSize * 2);
+                mFrequencies = Arrays.copyOf(mFrequencies, mSize * 2);
+            }
+            mDocuments[mSize] = document;
+            mTermIndexes[mSize] = termIndex;
+            mFrequencies[mSize] = frequency;
+            return mSize++;
+        }
+
+        /**
+         * Removes the posting in a slot. Order doesn't matter, so the last posting fills the hole.
+         */
+        void removeAt(int slot) {
+            mSize--;
+            mDocuments[slot] = mDocuments[mSize];
+            mTermIndexes[slot] = mTermIndexes[mSize];
+            mFrequencies[slot] = mFrequencies[mSize];
+        }
+    }
+}
@@ -2,29 +2,28 @@ package team.jcandfriends.cookstogo.managers;
 
 import android.content.Context;
 import android.content.SharedPreferences;
-import android.os.AsyncTask;
 import android.util.Log;
 
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 
-import java.io.BufferedReader;
-import java.io.DataOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.net.HttpURLConnection;
-import java.net.MalformedURLException;
-import java.net.URL;
 import java.net.URLEncoder;
-import java.util.ArrayList;
-import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import team.jcandfriends.cookstogo.Api;
 import team.jcandfriends.cookstogo.Constants;
+import team.jcandfriends.cookstogo.HttpClient;
 import team.jcandfriends.cookstogo.JSONGrabber;
+import team.jcandfriends.cookstogo.RequestScheduler;
+import team.jcandfriends.cookstogo.SingleFlight;
 import team.jcandfriends.cookstogo.Utils;
+import team.jcandfriends.cookstogo.models.Recipe;
 
 public class RecipeManager {
 
@@ -34,7 +33,8 @@ public class RecipeManager {
     private static final String TAG = "RecipeManager";
 
     /**
-     * The name of the SharedPreferences that contains the caches of this class
+     * The name of the SharedPreferences that contained the caches of this class before the catalog
+     * and the recipe store existed
      */
     private static final String RECIPE_CACHE = "recipe_cache";
 
@@ -44,22 +44,94 @@ public class RecipeManager {
     private static final String PERSISTENT_RECIPE_TYPES = "persistent_recipe_types";
 
     /**
-     * The prefix of each recipe that was cached
+     * The key of the metadata of the cached recipe types
+     */
+    private static final String RECIPE_TYPES_METADATA = "metadata_persistent_recipe_types";
+
+    /**
+     * The prefix of each recipe that was cached in the SharedPreferences before the recipe store existed
      */
     private static final String RECIPE_CACHE_PREFIX = "recipe";
 
+    /**
+     * The name of the directory that contains the recipe store
+     */
+    private static final String RECIPE_STORE = "recipe_store";
+
+    /**
+     * The name of the directory that contains the metadata of each cached recipe
+     */
+    private static final String RECIPE_METADATA_STORE = "recipe_metadata";
+
+    /**
+     * What the request to the recommend service yields when the server can't be reached, so the
+     * cached recipes are recommended instead
+     */
+    private static final JSONObject RECOMMEND_SERVICE_UNREACHABLE = new JSONObject();
+
     /**
      * Singleton instance
      */
     private static RecipeManager SOLE_INSTANCE;
 
     /**
-     * The SharedPreferences that contains the caches of this class
+     * The catalog, which contains the cached recipe types
+     */
+    private final Catalog mCatalog;
+
+    /**
+     * The store that contains every cached recipe, one record per recipe
      */
-    private final SharedPreferences mPreferences;
+    private final RecordStore mRecipes;
+
+    /**
+     * The metadata of each cached recipe, keyed by the pk of the recipe
+     */
+    private final RecordStore mRecipeMetadata;
+
+    /**
+     * The recipes that were used most recently, already parsed, keyed by their pk. Every screen that
+     * displays a recipe shares the same instance.
+     */
+    private final MemoryCache<Recipe> mRecentRecipes;
+
+    /**
+     * Shares one request between every fetch and revalidation of the same recipe that run at once
+     */
+    private final SingleFlight<RecipeManager.RecipeRevalidation> mRecipeRequests = new SingleFlight<>();
+
+    /**
+     * The full-text index of the cached recipes. It is built the first time it is searched, and only
+     * the indexer thread touches it.
+     */
+    private final RecipeIndex mIndex = new RecipeIndex();
+
+    /**
+     * The ingredients of the cached recipes, to recommend recipes without the network. It is built
+     * along with the index, and only the indexer thread touches it.
+     */
+    private final RecipeRecommender mRecommender = new RecipeRecommender();
+
+    /**
+     * The thread that builds, updates and searches the index and the recommender. Searches and
+     * recommendations are submitted to it through the RequestScheduler, so they never hold a thread
+     * of a lane while the index is built or busy.
+     */
+    private final ThreadPoolExecutor mIndexer = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+
+    /**
+     * Whether the index was built, only touched by the indexer thread
+     */
+    private boolean mIsIndexBuilt = false;
+
+    private final Context mContext;
 
     private RecipeManager(Context context) {
-        mPreferences = context.getSharedPreferences(RecipeManager.RECIPE_CACHE, Context.MODE_PRIVATE);
+        mContext = context.getApplicationContext();
+        mCatalog = new Catalog(context, RecipeManager.RECIPE_CACHE, RecipeManager.PERSISTENT_RECIPE_TYPES, RecipeManager.RECIPE_TYPES_METADATA);
+        mRecipes = new RecordStore(context.getDir(RecipeManager.RECIPE_STORE, Context.MODE_PRIVATE), new LegacyRecipeImporter(context));
+        mRecipeMetadata = new RecordStore(context.getDir(RecipeManager.RECIPE_METADATA_STORE, Context.MODE_PRIVATE));
+        mRecentRecipes = new MemoryCache<>(context, TAG, (int) (Runtime.getRuntime().maxMemory() / Constants.RECIPE_MEMORY_CACHE_HEAP_FRACTION));
     }
 
     /**
@@ -81,7 +153,7 @@ public class RecipeManager {
      * @return true if recipe types cache is not empty, false otherwise
      */
     public boolean hasCachedRecipeTypes() {
-        return mPreferences.getAll().containsKey(RecipeManager.PERSISTENT_RECIPE_TYPES);
+        return mCatalog.contains(RecipeManager.PERSISTENT_RECIPE_TYPES);
     }
 
     /**
@@ -90,7 +162,24 @@ public class RecipeManager {
      * @param recipeTypes the JSONArray to cache
      */
     public void cacheRecipeTypes(JSONArray recipeTypes) {
-        mPreferences.edit().putString(RecipeManager.PERSISTENT_RECIPE_TYPES, recipeTypes.toString()).apply();
+        String recipeTypesAsString = recipeTypes.toString();
+        cacheRecipeTypes(recipeTypes, recipeTypesAsString, CacheMetadata.of(recipeTypesAsString));
+    }
+
+    private void cacheRecipeTypes(final JSONArray recipeTypes, String recipeTypesAsString, CacheMetadata metadata) {
+        mCatalog.edit()
+                .putString(RecipeManager.PERSISTENT_RECIPE_TYPES, recipeTypesAsString)
+                .putString(RecipeManager.RECIPE_TYPES_METADATA, metadata.toString())
+                .apply();
+
+        mIndexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsIndexBuilt) {
+                    mIndex.addRecipeTypes(recipeTypes);
+                }
+            }
+        });
     }
 
     /**
@@ -99,7 +188,7 @@ public class RecipeManager {
      * @return the cached recipe types as JSONArray
      */
     public JSONArray getCachedRecipeTypes() {
-        String recipeTypesAsString = mPreferences.getString(RecipeManager.PERSISTENT_RECIPE_TYPES, "");
+        String recipeTypesAsString = mCatalog.getString(RecipeManager.PERSISTENT_RECIPE_TYPES, "");
         try {
             return new JSONArray(recipeTypesAsString);
         } catch (JSONException e) {
@@ -112,7 +201,49 @@ public class RecipeManager {
      * Removes the cached recipe types
      */
     public void clearCachedRecipeTypes() {
-        mPreferences.edit().remove(RecipeManager.PERSISTENT_RECIPE_TYPES).apply();
+        mCatalog.edit().remove(RecipeManager.PERSISTENT_RECIPE_TYPES).remove(RecipeManager.RECIPE_TYPES_METADATA).apply();
+
+        mIndexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsIndexBuilt) {
+                    mIndex.removeRecipeTypes();
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the server if the recipe types changed since they were cached, and caches them if they
+     * did. This blocks, so it must not be invoked on the main thread.
+     *
+     * @return the fresh recipe types if they changed, null if they didn't or the server can't be reached
+     */
+    public JSONArray revalidateRecipeTypes() {
+        try {
+            return Revalidation.revalidate(Api.RECIPE_TYPES, JSONGrabber.RECIPE_TYPES, new Revalidation.Cache<JSONArray>() {
+                @Override
+                public CacheMetadata getMetadata() {
+                    if (!hasCachedRecipeTypes()) {
+                        return null;
+                    }
+                    return CacheMetadata.fromString(mCatalog.getString(RecipeManager.RECIPE_TYPES_METADATA, null));
+                }
+
+                @Override
+                public void put(JSONArray recipeTypes, String recipeTypesAsString, CacheMetadata metadata) {
+                    cacheRecipeTypes(recipeTypes, recipeTypesAsString, metadata);
+                }
+
+                @Override
+                public void putMetadata(CacheMetadata metadata) {
+                    mCatalog.edit().putString(RecipeManager.RECIPE_TYPES_METADATA, metadata.toString()).apply();
+                }
+            });
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not revalidate the recipe types", e);
+            return null;
+        }
     }
 
     /**
@@ -122,7 +253,7 @@ public class RecipeManager {
      * @return true if the recipe is found, false otherwise
      */
     public boolean hasCachedRecipe(int recipeId) {
-        return mPreferences.getAll().containsKey(RecipeManager.RECIPE_CACHE_PREFIX + recipeId);
+        return mRecipes.contains(recipeId);
     }
 
     /**
@@ -132,13 +263,74 @@ public class RecipeManager {
      */
     public void cacheRecipe(JSONObject recipe) {
         try {
-            mPreferences.edit().putString(RecipeManager.RECIPE_CACHE_PREFIX + recipe.getInt(Api.RECIPE_PK), recipe.toString()).apply();
+            String recipeAsString = recipe.toString();
+            cacheRecipe(recipe.getInt(Api.RECIPE_PK), recipeAsString, CacheMetadata.of(recipeAsString));
         } catch (JSONException e) {
             Log.e(RecipeManager.TAG, "JSONException : The passed JSONObject recipe doesn't contain a '" + Api.RECIPE_PK + "'", e);
             throw new RuntimeException("Cannot proceed anymore");
         }
     }
 
+    private void cacheRecipe(int recipeId, final String recipeAsString, CacheMetadata metadata) {
+        mRecipes.put(recipeId, recipeAsString);
+        mRecipeMetadata.put(recipeId, metadata.toString());
+        mRecentRecipes.remove(recipeId);
+
+        mIndexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsIndexBuilt) {
+                    indexRecipe(recipeAsString);
+                }
+            }
+        });
+    }
+
+    /**
+     * Asks the server if the recipe changed since it was cached, and caches it if it did. This
+     * blocks, so it must not be invoked on the main thread.
+     *
+     * @param recipeId the id of the recipe to revalidate
+     * @return the fresh recipe if it changed, null if it didn't or the server can't be reached
+     */
+    public JSONObject revalidateRecipe(int recipeId) {
+        try {
+            RecipeManager.RecipeRevalidation revalidation = loadRecipe(recipeId);
+            return revalidation == null ? null : revalidation.mRecipe;
+        } catch (IOException | JSONException e) {
+            Log.e(TAG, "Could not revalidate recipe " + recipeId, e);
+            return null;
+        }
+    }
+
+    /**
+     * Revalidates the recipe, or joins the fetch or revalidation of the same recipe that is already
+     * in flight
+     *
+     * @return the revalidation, which holds the fresh recipe, or null if the recipe didn't change
+     */
+    private RecipeManager.RecipeRevalidation loadRecipe(final int recipeId) throws IOException, JSONException {
+        final String url = Api.getRecipeUrl(recipeId);
+
+        return mRecipeRequests.run(url, new Callable<RecipeManager.RecipeRevalidation>() {
+            @Override
+            public RecipeManager.RecipeRevalidation call() throws IOException, JSONException {
+                RecipeManager.RecipeRevalidation revalidation = new RecipeManager.RecipeRevalidation(recipeId);
+                return Revalidation.revalidate(url, JSONGrabber.OBJECT, revalidation) == null ? null : revalidation;
+            }
+        });
+    }
+
+    /**
+     * Returns how many recipe requests were saved because they joined an identical request that was
+     * already in flight
+     *
+     * @return the number of deduplicated requests
+     */
+    public int getDeduplicatedRequestCount() {
+        return mRecipeRequests.getSharedCount();
+    }
+
     /**
      * Returns a JSONObject that contains the cached recipe
      *
@@ -146,175 +338,212 @@ public class RecipeManager {
      * @return the recipe
      */
     public JSONObject getCachedRecipe(int recipeId) {
-        String recipeAsString = this.mPreferences.getString(RecipeManager.RECIPE_CACHE_PREFIX + recipeId, "");
+        return getRecentRecipe(recipeId).mJson;
+    }
+
+    private MemoryCache.Entry<Recipe> getRecentRecipe(int recipeId) {
+        MemoryCache.Entry<Recipe> entry = mRecentRecipes.get(recipeId);
+        if (entry != null) {
+            return entry;
+        }
+
+        String recipeAsString = mRecipes.get(recipeId);
+        if (recipeAsString == null) {
+            recipeAsString = "";
+        }
+
         try {
-            return new JSONObject(recipeAsString);
+            return mRecentRecipes.put(recipeId, new JSONObject(recipeAsString), recipeAsString);
         } catch (JSONException e) {
             Log.e(RecipeManager.TAG, "JSONException : The recipeAsString can't be parsed as a valid JSONObject", e);
             throw new RuntimeException("Cannot proceed anymore");
         }
     }
 
+    /**
+     * Returns the cached recipe as a Recipe. The recipe is parsed only the first time it is asked for,
+     * later calls return the same instance while the recipe stays in memory and isn't cached again.
+     *
+     * @param recipeId the id of the recipe to get
+     * @return the recipe
+     */
+    public Recipe getRecipe(int recipeId) {
+        MemoryCache.Entry<Recipe> entry = getRecentRecipe(recipeId);
+        synchronized (entry) {
+            Recipe recipe = entry.getModel();
+            if (recipe == null) {
+                recipe = Recipe.fromJson(entry.mJson);
+                entry.setModel(recipe);
+            }
+            return recipe;
+        }
+    }
+
     /**
      * Removes a recipe from the cache
      *
      * @param recipeId the id of the recipe to remove
      */
-    public void clearCachedRecipe(int recipeId) {
-        mPreferences.edit().remove(RecipeManager.RECIPE_CACHE_PREFIX + recipeId).apply();
+    public void clearCachedRecipe(final int recipeId) {
+        mRecipes.remove(recipeId);
+        mRecipeMetadata.remove(recipeId);
+        mRecentRecipes.remove(recipeId);
+
+        mIndexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsIndexBuilt) {
+                    mIndex.removeRecipe(recipeId);
+                    mRecommender.remove(recipeId);
+                }
+            }
+        });
     }
 
     /**
-     * Grabs the recipe on the cloud server
+     * Grabs the recipe on the cloud server and caches it
      *
      * @param recipeId  the id of the recipe to get
+     * @param owner     the owner of the request, see RequestScheduler
      * @param callbacks the callbacks that will be invoked on success and on failure
      */
-    public void fetch(final int recipeId, final RecipeManager.Callbacks callbacks) {
-        new AsyncTask<String, Void, JSONObject>() {
+    public void fetch(final int recipeId, Object owner, RecipeManager.Callbacks callbacks) {
+        RequestScheduler.submit(owner, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected JSONObject doInBackground(String... params) {
-                try {
-                    JSONGrabber grabber = new JSONGrabber(Api.RECIPES + recipeId);
-                    return grabber.grab();
-                } catch (IOException | JSONException e) {
-                    Log.e(TAG, "JSONException", e);
+            public JSONObject run() throws IOException, JSONException {
+                RecipeManager.RecipeRevalidation revalidation = loadRecipe(recipeId);
+                JSONObject recipe = revalidation == null ? null : revalidation.mRecipe;
+                if (recipe == null && hasCachedRecipe(recipeId)) {
+                    // the recipe didn't change since it was cached
+                    recipe = getCachedRecipe(recipeId);
                 }
-                return null;
+                return recipe;
             }
+        }, deliverTo(callbacks));
+    }
 
+    /**
+     * Grabs a recipe the user will probably open next and caches it, on the prefetch lane. A fetch
+     * of the same recipe that starts while this one runs joins it instead of grabbing it again.
+     *
+     * @param recipeId the id of the recipe to get
+     * @param owner    the owner of the request, see RequestScheduler
+     * @param listener receives how many characters of recipe were grabbed, or null if the recipe was
+     *                 already cached or couldn't be grabbed
+     * @return the request, which can be cancelled while it is still queued
+     */
+    public RequestScheduler.Request<Integer> prefetch(final int recipeId, Object owner, RequestScheduler.Listener<Integer> listener) {
+        return RequestScheduler.submit(owner, RequestScheduler.Lane.PREFETCH, new RequestScheduler.Job<Integer>() {
             @Override
-            protected void onPostExecute(JSONObject result) {
-                super.onPostExecute(result);
-
-                if (null == result) {
-                    callbacks.onFailure();
-                } else {
-                    callbacks.onSuccess(result);
+            public Integer run() throws IOException, JSONException {
+                if (hasCachedRecipe(recipeId)) {
+                    return null;
                 }
+
+                RecipeManager.RecipeRevalidation revalidation = loadRecipe(recipeId);
+                return revalidation == null ? null : revalidation.mRecipeAsString.length();
             }
-        }.execute();
+        }, listener);
     }
 
     /**
      * Sends a rating to the server
      *
+     * @param context   the context, which also owns the request, see RequestScheduler
      * @param recipeId  the id of the recipe to be rated
      * @param rating    the rating on a scale of 1 - 5
      * @param callbacks the callbacks that will be invoked in cases of success and error
      */
-    public void rate(final Context context, int recipeId, final int rating, final RecipeManager.Callbacks callbacks) {
+    public void rate(final Context context, int recipeId, final int rating, RecipeManager.Callbacks callbacks) {
         if (rating < 0 || rating > 5) {
             throw new RuntimeException("Recipe ID must not be in the range of (0-5)");
         }
 
         final String urlAsString = Api.RECIPES + recipeId + "/rate/";
 
-        new AsyncTask<String, Void, JSONObject>() {
+        RequestScheduler.submit(context, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected JSONObject doInBackground(String... params) {
-                try {
-                    JSONObject response = null;
-                    URL url = new URL(urlAsString);
-                    Log.i(TAG, "Attempting to connect to " + url);
-                    HttpURLConnection connection = (HttpURLConnection) url.openConnection();
-
-                    String requestBody = String.format("rating=%d&mac=%s", rating, URLEncoder.encode(Utils.getMacAddress(context), "UTF-8"));
-                    byte[] requestBodyAsBytes = requestBody.getBytes();
-
-                    connection.setRequestMethod("POST");
-                    connection.setConnectTimeout(Constants.CONNECT_TIMEOUT);
-                    connection.setReadTimeout(Constants.READ_TIMEOUT);
-                    connection.setDoInput(true);
-                    connection.setUseCaches(false);
-                    connection.setRequestProperty("Content-Type", "application/x-www-form-urlencoded");
-                    connection.setRequestProperty("charset", "UTF-8");
-                    connection.setRequestProperty("Content-Length", Integer.toString(requestBodyAsBytes.length));
-                    connection.setDoOutput(true);
-
-                    DataOutputStream os = new DataOutputStream(connection.getOutputStream());
-                    os.write(requestBodyAsBytes);
-
-                    Log.i(TAG, "Request body : " + requestBody);
-
-                    connection.connect();
-
-                    int statusCode = connection.getResponseCode();
-
-                    InputStream is = connection.getInputStream();
-                    BufferedReader reader = new BufferedReader(new InputStreamReader(is));
-                    String line;
-                    StringBuilder builder = new StringBuilder();
-                    while ((line = reader.readLine()) != null) {
-                        builder.append(line);
+            public JSONObject run() throws IOException, JSONException {
+                String requestBody = String.format("rating=%d&mac=%s", rating, URLEncoder.encode(Utils.getMacAddress(context), "UTF-8"));
+                Log.i(TAG, "Request body : " + requestBody);
+
+                return HttpClient.post(urlAsString, "application/x-www-form-urlencoded; charset=UTF-8", requestBody.getBytes("UTF-8"), new HttpClient.ResponseHandler<JSONObject>() {
+                    @Override
+                    public JSONObject handle(int statusCode, InputStream body) throws IOException, JSONException {
+                        String response = HttpClient.readString(body);
+                        Log.i(TAG, "Response body: " + response);
+                        return new JSONObject(response);
                     }
-
-                    Log.i(TAG, "Connection to " + url + " was established with a status code of " + statusCode);
-                    Log.i(TAG, "Response body: " + builder);
-
-                    try {
-                        response = new JSONObject(builder.toString());
-                    } catch (JSONException e) {
-                        Log.e(TAG, "JSONException", e);
-                    }
-                    return response;
-                } catch (MalformedURLException e) {
-                    Log.e(RecipeManager.TAG, "Could not parse the url for rating a recipe : " + urlAsString, e);
-                } catch (IOException e) {
-                    Log.e(RecipeManager.TAG, "Could not open connection from URL", e);
-                }
-                return null;
-            }
-
-            @Override
-            protected void onPostExecute(JSONObject response) {
-                super.onPostExecute(response);
-
-                if (null != response) {
-                    callbacks.onSuccess(response);
-                } else {
-                    callbacks.onFailure();
-                }
+                });
             }
-        }.execute();
+        }, deliverTo(callbacks));
     }
 
     /**
-     * Starts an asynchronous request to the backend server that will return a resulting JSONObject
-     * containing the count, next, previous, and the actual results which are the recipes that
-     * matches the query.
+     * Searches the cached recipes, without the network. The resulting JSONObject has the same shape
+     * as the one of search, except that the results only contain the pk, name, description, icon and
+     * banner of each recipe, best match first.
      *
      * @param query     the query
+     * @param owner     the owner of the request, see RequestScheduler
      * @param callbacks the callbacks that will be invoked in success or failure event
+     * @return the request, which can be cancelled once a newer search supersedes it
      */
-    public void search(final String query, final RecipeManager.Callbacks callbacks) {
+    public RequestScheduler.Request<JSONObject> searchCached(final String query, Object owner, RecipeManager.Callbacks callbacks) {
         if (query == null || query.isEmpty()) {
             throw new IllegalArgumentException("query must not be null and empty");
         }
 
-        new AsyncTask<String, Void, JSONObject>() {
+        return RequestScheduler.submit(owner, mIndexer, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected JSONObject doInBackground(String... params) {
-                try {
-                    JSONGrabber grabber = new JSONGrabber(Api.RECIPES + "?search=" + URLEncoder.encode(query, "UTF-8"));
-                    return grabber.grab();
-                } catch (IOException | JSONException e) {
-                    Log.e(TAG, "JSONException", e);
-                }
-                return null;
+            public JSONObject run() throws JSONException {
+                buildIndex();
+
+                long start = System.nanoTime();
+                JSONArray results = mIndex.search(query, Constants.CACHED_SEARCH_LIMIT);
+                Log.d(TAG, "Searched " + mIndex.size() + " cached recipes for '" + query + "' in "
+                        + (System.nanoTime() - start) / 1000 + " us");
+
+                return new JSONObject()
+                        .put(Api.COUNT, results.length())
+                        .put(Api.NEXT, JSONObject.NULL)
+                        .put(Api.RESULTS, results);
             }
+        }, deliverTo(callbacks));
+    }
 
-            @Override
-            protected void onPostExecute(JSONObject result) {
-                super.onPostExecute(result);
+    /**
+     * Builds the index and the recommender from the cached recipe types and recipes, unless they
+     * were already built. This must only be invoked on the indexer thread.
+     */
+    private void buildIndex() {
+        if (mIsIndexBuilt) {
+            return;
+        }
 
-                if (null == result) {
-                    callbacks.onFailure();
-                } else {
-                    callbacks.onSuccess(result);
-                }
+        long start = System.nanoTime();
+        if (hasCachedRecipeTypes()) {
+            mIndex.addRecipeTypes(getCachedRecipeTypes());
+        }
+        for (int recipeId : mRecipes.keys()) {
+            String recipeAsString = mRecipes.get(recipeId);
+            if (recipeAsString != null) {
+                indexRecipe(recipeAsString);
             }
-        }.execute();
+        }
+
+        mIsIndexBuilt = true;
+        Log.i(TAG, "Indexed " + mIndex.size() + " cached recipes in " + (System.nanoTime() - start) / 1000000 + " ms");
+    }
+
+    private void indexRecipe(String recipeAsString) {
+        try {
+            JSONObject recipe = new JSONObject(recipeAsString);
+            mIndex.addRecipe(recipe);
+            mRecommender.addRecipe(recipe);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not index a cached recipe", e);
+        }
     }
 
     /**
@@ -323,66 +552,224 @@ public class RecipeManager {
      * ingredients from the given ingredients parameter.
      *
      * @param ingredients the list of ingredients
+     * @param owner       the owner of the request, see RequestScheduler
      * @param callbacks   the callbacks that will be invoked in success or failure event
      */
-    public void recommendRecipes(ArrayList<JSONObject> ingredients, final RecipeManager.Callbacks callbacks) {
-        if (ingredients.size() < 1)
-            throw new IllegalArgumentException("ingredients length < 1 : " + ingredients.size());
+    public void recommendRecipes(JSONArray ingredients, final Object owner, RecipeManager.Callbacks callbacks) {
+        if (ingredients.length() < 1)
+            throw new IllegalArgumentException("ingredients length < 1 : " + ingredients.length());
 
         StringBuilder sb = new StringBuilder();
-        boolean first = true;
+        final int[] basket = new int[ingredients.length()];
 
         sb.append(Api.RECOMMEND_RECIPES).append("?q=");
-        for (JSONObject ingredient : ingredients) {
-            if (first) {
-                sb.append(ingredient.optInt(Api.INGREDIENT_PK));
-                first = false;
-            } else {
-                sb.append(",").append(ingredient.optInt(Api.INGREDIENT_PK));
+        for (int i = 0; i < basket.length; i++) {
+            basket[i] = ingredients.optJSONObject(i).optInt(Api.INGREDIENT_PK);
+            if (i > 0) {
+                sb.append(",");
             }
+            sb.append(basket[i]);
         }
 
         final String url = sb.toString();
+        final RequestScheduler.Listener<JSONObject> listener = deliverTo(callbacks);
 
-        new AsyncTask<String, Void, JSONObject>() {
+        if (!Utils.hasInternet(mContext)) {
+            recommendCachedRecipes(basket, owner, listener);
+            return;
+        }
+
+        RequestScheduler.submit(owner, RequestScheduler.Lane.INTERACTIVE, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected JSONObject doInBackground(String... params) {
+            public JSONObject run() throws IOException, JSONException {
                 try {
                     JSONGrabber grabber = new JSONGrabber(url);
                     return grabber.grab();
-                } catch (IOException | JSONException e) {
-                    Log.e(TAG, "IOException | JSONException", e);
+                } catch (IOException e) {
+                    Log.e(TAG, "Could not reach the recommend service, recommending cached recipes instead", e);
+                    return RecipeManager.RECOMMEND_SERVICE_UNREACHABLE;
                 }
-                return null;
             }
+        }, new RequestScheduler.Listener<JSONObject>() {
+            @Override
+            public void onResult(JSONObject result) {
+                if (result == RecipeManager.RECOMMEND_SERVICE_UNREACHABLE) {
+                    recommendCachedRecipes(basket, owner, listener);
+                } else {
+                    listener.onResult(result);
+                }
+            }
+        });
+    }
 
+    /**
+     * Recommends cached recipes on the indexer thread, and delivers them in the same shape as the
+     * recommend service of the server: the recipes that need no other ingredient, and the recipes
+     * that need a few more. This must be invoked on the main thread, like RequestScheduler.submit.
+     *
+     * @param basket   the pks of the ingredients in the virtual basket
+     * @param owner    the owner of the request, see RequestScheduler
+     * @param listener receives the recommended recipes
+     */
+    private void recommendCachedRecipes(final int[] basket, Object owner, RequestScheduler.Listener<JSONObject> listener) {
+        RequestScheduler.submit(owner, mIndexer, new RequestScheduler.Job<JSONObject>() {
             @Override
-            protected void onPostExecute(JSONObject result) {
-                super.onPostExecute(result);
+            public JSONObject run() throws JSONException {
+                buildIndex();
+
+                long start = System.nanoTime();
+                RecipeRecommender.Matches matches = mRecommender.recommend(basket, Constants.NEARLY_THERE_MAX_MISSING, Constants.CACHED_RECOMMENDATION_LIMIT);
+                Log.d(TAG, "Recommended from " + mRecommender.size() + " cached recipes in " + (System.nanoTime() - start) / 1000 + " us");
+                return toRecommendation(matches);
+            }
+        }, listener);
+    }
+
+    private JSONObject toRecommendation(RecipeRecommender.Matches matches) throws JSONException {
+        JSONArray exact = new JSONArray();
+        for (int recipeId : matches.get(0)) {
+            JSONObject recipe = getCachedRecipeOrNull(recipeId);
+            if (recipe != null) {
+                exact.put(recipe);
+            }
+        }
+
+        JSONArray nearlyThere = new JSONArray();
+        for (int missing = 1; missing <= matches.getMaxMissing(); missing++) {
+            for (int recipeId : matches.get(missing)) {
+                JSONObject recipe = getCachedRecipeOrNull(recipeId);
+                if (recipe != null) {
+                    nearlyThere.put(new JSONObject()
+                            .put(Api.NEARLY_THERE_RECIPE, recipe)
+                            .put(Api.NEARLY_THERE_MISSING_COUNT, missing));
+                }
+            }
+        }
+
+        return new JSONObject()
+                .put(Api.EXACT, exact)
+                .put(Api.NEARLY_THERE, nearlyThere);
+    }
+
+    private JSONObject getCachedRecipeOrNull(int recipeId) {
+        String recipeAsString = mRecipes.get(recipeId);
+        if (recipeAsString == null) {
+            return null;
+        }
+
+        try {
+            return new JSONObject(recipeAsString);
+        } catch (JSONException e) {
+            Log.e(TAG, "Could not parse cached recipe " + recipeId, e);
+            return null;
+        }
+    }
 
+    private static RequestScheduler.Listener<JSONObject> deliverTo(final RecipeManager.Callbacks callbacks) {
+        return new RequestScheduler.Listener<JSONObject>() {
+            @Override
+            public void onResult(JSONObject result) {
                 if (null == result) {
                     callbacks.onFailure();
                 } else {
                     callbacks.onSuccess(result);
                 }
             }
-        }.execute();
+        };
     }
 
+    /**
+     * Removes all recipes from the cache
+     */
     public void clearCachedRecipes() {
-        final char firstChar = RECIPE_CACHE_PREFIX.charAt(0);
-        final Set<String> keys = mPreferences.getAll().keySet();
+        mRecipes.clear();
+        mRecipeMetadata.clear();
+        mRecentRecipes.clear();
+
+        mIndexer.execute(new Runnable() {
+            @Override
+            public void run() {
+                if (mIsIndexBuilt) {
+                    mIndex.removeRecipes();
+                    mRecommender.clear();
+                }
+            }
+        });
+    }
+
+    /**
+     * Caches the recipe a revalidation grabbed, and keeps it and the string that was cached for the
+     * callers waiting on the revalidation
+     */
+    private final class RecipeRevalidation implements Revalidation.Cache<JSONObject> {
+
+        private final int mRecipeId;
+
+        JSONObject mRecipe;
+        String mRecipeAsString;
+
+        RecipeRevalidation(int recipeId) {
+            mRecipeId = recipeId;
+        }
+
+        @Override
+        public CacheMetadata getMetadata() {
+            if (!hasCachedRecipe(mRecipeId)) {
+                return null;
+            }
+            return CacheMetadata.fromString(mRecipeMetadata.get(mRecipeId));
+        }
+
+        @Override
+        public void put(JSONObject recipe, String recipeAsString, CacheMetadata metadata) {
+            mRecipe = recipe;
+            mRecipeAsString = recipeAsString;
+            cacheRecipe(mRecipeId, recipeAsString, metadata);
+        }
 
-        if (keys.size() > 1) {
-            SharedPreferences.Editor editor = mPreferences.edit();
+        @Override
+        public void putMetadata(CacheMetadata metadata) {
+            mRecipeMetadata.put(mRecipeId, metadata.toString());
+        }
+    }
+
+    /**
+     * Moves the recipes that were cached in the SharedPreferences into the recipe store. This only
+     * does work once, the first time the recipe store is opened after an upgrade, and it runs on the
+     * thread that opens the store.
+     */
+    private static final class LegacyRecipeImporter implements RecordStore.Importer {
+
+        private final Context mContext;
+
+        LegacyRecipeImporter(Context context) {
+            mContext = context.getApplicationContext();
+        }
+
+        @Override
+        public void importInto(RecordStore store) {
+            SharedPreferences preferences = mContext.getSharedPreferences(RecipeManager.RECIPE_CACHE, Context.MODE_PRIVATE);
+            SharedPreferences.Editor editor = null;
 
-            for (String key : keys) {
-                if (firstChar == key.charAt(0)) {
+            for (String key : preferences.getAll().keySet()) {
+                if (key.startsWith(RECIPE_CACHE_PREFIX)) {
+                    try {
+                        int recipeId = Integer.parseInt(key.substring(RECIPE_CACHE_PREFIX.length()));
+                        store.importRecord(recipeId, preferences.getString(key, ""));
+                    } catch (NumberFormatException e) {
+                        Log.e(TAG, "Skipping a key that is not a cached recipe : " + key, e);
+                    }
+
+                    if (editor == null) {
+                        editor = preferences.edit();
+                    }
                     editor.remove(key);
                 }
             }
 
-            editor.apply();
+            if (editor != null) {
+                editor.apply();
+            }
         }
     }
 
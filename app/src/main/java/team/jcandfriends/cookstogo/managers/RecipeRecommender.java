@@ -0,0 +1,240 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+import team.jcandfriends.cookstogo.Api;
+
+/**
+ * Finds the cached recipes that can be cooked with the ingredients of a virtual basket, like the
+ * recommend service of the server does. Each recipe is kept as the sorted pks of its ingredients,
+ * and each ingredient as the recipes that need it, so a basket only visits the recipes that share
+ * at least one of its ingredients.
+ * <p/>
+ * This class is not thread safe. RecipeManager only touches it from its indexer thread.
+ */
+final class RecipeRecommender {
+
+    /**
+     * The id of each recipe, keyed by the pk of the recipe
+     */
+    private final HashMap<Integer, Integer> mRecipeIds = new HashMap<>();
+
+    /**
+     * The recipes that need each ingredient, keyed by the pk of the ingredient
+     */
+    private final HashMap<Integer, RecipeRecommender.Postings> mPostings = new HashMap<>();
+
+    /**
+     * The pk of each recipe, indexed by its id
+     */
+    private int[] mRecipePks = new int[16];
+
+    /**
+     * The sorted pks of the distinct ingredients of each recipe, indexed by its id. Removed recipes
+     * leave a null behind.
+     */
+    private int[][] mIngredients = new int[16][];
+
+    private int mRecipeCount = 0;
+
+    /**
+     * Adds a cached recipe, or replaces it if it was already added
+     *
+     * @param recipe the recipe
+     */
+    void addRecipe(JSONObject recipe) {
+        JSONArray components = recipe.optJSONArray(Api.RECIPE_RECIPE_COMPONENTS);
+        int[] ingredients = new int[components == null ? 0 : components.length()];
+        int count = 0;
+        for (int i = 0; i < ingredients.length; i++) {
+            JSONObject component = components.optJSONObject(i);
+            JSONObject ingredient = component == null ? null : component.optJSONObject(Api.RECIPE_COMPONENT_INGREDIENT);
+            if (ingredient != null && ingredient.has(Api.INGREDIENT_PK)) {
+                ingredients[count++] = ingredient.optInt(Api.INGREDIENT_PK);
+            }
+        }
+        addRecipe(recipe.optInt(Api.RECIPE_PK), ingredients, count);
+    }
+
+    void addRecipe(int pk, int[] ingredients, int count) {
+        Arrays.sort(ingredients, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (distinct == 0 || ingredients[distinct - 1] != ingredients[i]) {
+                ingredients[distinct++] = ingredients[i];
+            }
+        }
+        ingredients = Arrays.copyOf(ingredients, distinct);
+
+        Integer id = mRecipeIds.get(pk);
+        if (id != null) {
+            remove(pk);
+        } else {
+            id = mRecipeCount;
+            if (id == mRecipePks.length) {
+                mRecipePks = Arrays.copyOf(mRecipePks, id * 2);
+                mIngredients = Arrays.copyOf(mIngredients, id * 2);
+            }
+            mRecipeCount++;
+        }
+
+        for (int ingredient : ingredients) {
+            RecipeRecommender.Postings postings = mPostings.get(ingredient);
+            if (postings == null) {
+                postings = new RecipeRecommender.Postings();
+                mPostings.put(ingredient, postings);
+            }
+            postings.add(id);
+        }
+
+        mRecipeIds.put(pk, id);
+        mRecipePks[id] = pk;
+        mIngredients[id] = ingredients;
+    }
+
+    /**
+     * Removes a recipe
+     *
+     * @param pk the pk of the recipe
+     */
+    void remove(int pk) {
+        Integer id = mRecipeIds.remove(pk);
+        if (id == null) {
+            return;
+        }
+
+        for (int ingredient : mIngredients[id]) {
+            RecipeRecommender.Postings postings = mPostings.get(ingredient);
+            postings.remove(id);
+            if (postings.mSize == 0) {
+                mPostings.remove(ingredient);
+            }
+        }
+        mIngredients[id] = null;
+    }
+
+    void clear() {
+        mRecipeIds.clear();
+        mPostings.clear();
+        mRecipePks = new int[16];
+        mIngredients = new int[16][];
+        mRecipeCount = 0;
+    }
+
+    int size() {
+        return mRecipeIds.size();
+    }
+
+    /**
+     * Ranks the recipes that share at least one ingredient with the basket by how many of their
+     * ingredients the basket misses
+     *
+     * @param basket     the pks of the ingredients in the basket
+     * @param maxMissing the most ingredients a recipe may miss
+     * @param limit      the most recipes to return for each missing count
+     * @return the recipes, by how many ingredients they miss: the pks of the recipes that miss none
+     * come first, then those that miss one, and so on
+     */
+    RecipeRecommender.Matches recommend(int[] basket, int maxMissing, int limit) {
+        int[] owned = new int[mRecipeCount];
+        int[] touched = new int[mRecipeCount];
+        int touchedCount = 0;
+
+        for (int ingredient : distinct(basket)) {
+            RecipeRecommender.Postings postings = mPostings.get(ingredient);
+            if (postings == null) {
+                continue;
+            }
+            for (int i = 0; i < postings.mSize; i++) {
+                int id = postings.mRecipes[i];
+                if (owned[id]++ == 0) {
+                    touched[touchedCount++] = id;
+                }
+            }
+        }
+
+        // a bucket per missing count keeps the selection linear in the number of matches
+        RecipeRecommender.Matches matches = new RecipeRecommender.Matches(maxMissing, limit);
+        for (int i = 0; i < touchedCount; i++) {
+            int id = touched[i];
+            int missing = mIngredients[id].length - owned[id];
+            if (missing <= maxMissing) {
+                matches.add(missing, mRecipePks[id]);
+            }
+        }
+        return matches;
+    }
+
+    private static int[] distinct(int[] values) {
+        int[] sorted = values.clone();
+        Arrays.sort(sorted);
+        int count = 0;
+        for (int i = 0; i < sorted.length; i++) {
+            if (count == 0 || sorted[count - 1] != sorted[i]) {
+                sorted[count++] = sorted[i];
+            }
+        }
+        return Arrays.copyOf(sorted, count);
+    }
+
+    /**
+     * The pks of the recommended recipes, grouped by how many ingredients they miss
+     */
+    static final class Matches {
+
+        private final int[][] mPks;
+        private final int[] mCounts;
+
+        Matches(int maxMissing, int limit) {
+            mPks = new int[maxMissing + 1][limit];
+            mCounts = new int[maxMissing + 1];
+        }
+
+        private void add(int missing, int pk) {
+            if (mCounts[missing] < mPks[missing].length) {
+                mPks[missing][mCounts[missing]++] = pk;
+            }
+        }
+
+        /**
+         * Returns the pks of the recipes that miss the given number of ingredients
+         */
+        int[] get(int missing) {
+            return Arrays.copyOf(mPks[missing], mCounts[missing]);
+        }
+
+        int getMaxMissing() {
+            return mPks.length - 1;
+        }
+    }
+
+    /**
+     * The ids of the recipes that need an ingredient
+     */
+    private static final class Postings {
+
+        int[] mRecipes = new int[4];
+        int mSize = 0;
+
+        void add(int recipe) {
+            if (mSize == mRecipes.length) {
+                mRecipes = Arrays.copyOf(mRecipes, mSize * 2);
+            }
+            mRecipes[mSize++] = recipe;
+        }
+
+        void remove(int recipe) {
+            for (int i = 0; i < mSize; i++) {
+                if (mRecipes[i] == recipe) {
+                    // order doesn't matter, so the last recipe fills the hole
+                    mRecipes[i] = mRecipes[--mSize];
+                    return;
+                }
+            }
+        }
+    }
+}
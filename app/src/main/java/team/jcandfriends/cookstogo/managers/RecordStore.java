@@ -0,0 +1,329 @@
+package team.jcandfriends.cookstogo.managers;
+
+import android.util.Log;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * An on-disk store that keeps one file per record, keyed by the record's primary key. The set of
+ * stored keys is indexed in memory when the store is opened, so existence checks never touch the
+ * disk. The store is opened on a background thread; reads wait for it to be open, puts don't.
+ * Writes are incremental: only the record that changed is written, on a background thread. Records
+ * that are still waiting to be written are served from memory.
+ */
+final class RecordStore {
+
+    private static final String TAG = "RecordStore";
+
+    private static final String RECORD_EXTENSION = ".json";
+    private static final String TEMP_EXTENSION = ".tmp";
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /**
+     * The directory where each record lives as its own file
+     */
+    private final File mDirectory;
+
+    /**
+     * The primary keys of all records in this store
+     */
+    private final Set<Integer> mIndex = Collections.newSetFromMap(new ConcurrentHashMap<Integer, Boolean>());
+
+    /**
+     * The records that were put but are not yet written to disk
+     */
+    private final ConcurrentHashMap<Integer, String> mPending = new ConcurrentHashMap<>();
+
+    /**
+     * Serializes every write and delete so they hit the disk in the order they were requested
+     */
+    private final ExecutorService mWriter = Executors.newSingleThreadExecutor();
+
+    /**
+     * Released once the index is built and the importer, if any, is done
+     */
+    private final CountDownLatch mOpened = new CountDownLatch(1);
+
+    RecordStore(File directory) {
+        this(directory, null);
+    }
+
+    /**
+     * @param directory the directory where each record lives as its own file
+     * @param importer  fills the store with records from somewhere else once it is open, may be null
+     */
+    RecordStore(File directory, final RecordStore.Importer importer) {
+        mDirectory = directory;
+
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                open(importer);
+            }
+        });
+    }
+
+    private void open(RecordStore.Importer importer) {
+        if (!mDirectory.isDirectory() && !mDirectory.mkdirs()) {
+            Log.e(TAG, "Could not create the record store directory " + mDirectory);
+        }
+
+        String[] names = mDirectory.list();
+        if (names != null) {
+            for (String name : names) {
+                if (name.endsWith(RECORD_EXTENSION)) {
+                    try {
+                        mIndex.add(Integer.valueOf(name.substring(0, name.length() - RECORD_EXTENSION.length())));
+                    } catch (NumberFormatException e) {
+                        Log.e(TAG, "Ignoring a file that is not a record : " + name, e);
+                    }
+                }
+            }
+        }
+
+        if (importer != null) {
+            importer.importInto(this);
+        }
+
+        mOpened.countDown();
+    }
+
+    private void awaitOpen() {
+        await(mOpened);
+    }
+
+    static void await(CountDownLatch latch) {
+        boolean isInterrupted = false;
+        while (true) {
+            try {
+                latch.await();
+                break;
+            } catch (InterruptedException e) {
+                isInterrupted = true;
+            }
+        }
+
+        if (isInterrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Determines if a record with the given primary key exists
+     *
+     * @param pk the primary key of the record
+     * @return true if the record exists, false otherwise
+     */
+    boolean contains(int pk) {
+        awaitOpen();
+        return mIndex.contains(pk);
+    }
+
+    /**
+     * Returns the primary keys of all records in this store
+     *
+     * @return a snapshot of the primary keys
+     */
+    ArrayList<Integer> keys() {
+        awaitOpen();
+        return new ArrayList<>(mIndex);
+    }
+
+    /**
+     * Stores a record, replacing the previous record with the same primary key
+     *
+     * @param pk     the primary key of the record
+     * @param record the record
+     */
+    void put(final int pk, final String record) {
+        mPending.put(pk, record);
+        mIndex.add(pk);
+
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                // a newer put of the same record will write it anyway
+                if (record == mPending.get(pk)) {
+                    write(pk, record);
+                    mPending.remove(pk, record);
+                }
+            }
+        });
+    }
+
+    /**
+     * Returns the record with the given primary key
+     *
+     * @param pk the primary key of the record
+     * @return the record, or null if it doesn't exist
+     */
+    String get(int pk) {
+        awaitOpen();
+        if (!mIndex.contains(pk)) {
+            return null;
+        }
+
+        String pending = mPending.get(pk);
+        if (pending != null) {
+            return pending;
+        }
+
+        return read(pk);
+    }
+
+    /**
+     * Removes the record with the given primary key
+     *
+     * @param pk the primary key of the record
+     */
+    void remove(final int pk) {
+        awaitOpen();
+        mIndex.remove(pk);
+        mPending.remove(pk);
+
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                delete(pk);
+            }
+        });
+    }
+
+    /**
+     * Removes every record in this store
+     */
+    void clear() {
+        final ArrayList<Integer> keys = keys();
+        mIndex.clear();
+        mPending.clear();
+
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                for (int pk : keys) {
+                    delete(pk);
+                }
+            }
+        });
+    }
+
+    /**
+     * Blocks until every write and delete that was requested so far hit the disk
+     */
+    void flush() {
+        final CountDownLatch flushed = new CountDownLatch(1);
+        mWriter.execute(new Runnable() {
+            @Override
+            public void run() {
+                flushed.countDown();
+            }
+        });
+        await(flushed);
+    }
+
+    /**
+     * Stores a record unless a record with the same primary key already exists. This is only for
+     * importers, which run on the thread that opens the store and must not wait for it to be open.
+     *
+     * @param pk     the primary key of the record
+     * @param record the record
+     */
+    void importRecord(int pk, String record) {
+        if (!mIndex.contains(pk)) {
+            put(pk, record);
+        }
+    }
+
+    private File fileOf(int pk) {
+        return new File(mDirectory, pk + RECORD_EXTENSION);
+    }
+
+    private String read(int pk) {
+        InputStream is = null;
+        try {
+            is = new FileInputStream(fileOf(pk));
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+
+            while ((count = is.read(buffer)) != -1) {
+                bytes.write(buffer, 0, count);
+            }
+
+            return new String(bytes.toByteArray(), UTF_8);
+        } catch (IOException e) {
+            Log.e(TAG, "Could not read record " + pk, e);
+            return null;
+        } finally {
+            closeQuietly(is);
+        }
+    }
+
+    /**
+     * Writes to a temporary file first and renames it over the record so a crash never leaves a
+     * half written record behind
+     */
+    private void write(int pk, String record) {
+        File target = fileOf(pk);
+        File temp = new File(mDirectory, pk + TEMP_EXTENSION);
+        OutputStream os = null;
+        try {
+            os = new FileOutputStream(temp);
+            os.write(record.getBytes(UTF_8));
+            os.close();
+            os = null;
+
+            if (!temp.renameTo(target)) {
+                Log.e(TAG, "Could not rename " + temp + " to " + target);
+            }
+        } catch (IOException e) {
+            Log.e(TAG, "Could not write record " + pk, e);
+        } finally {
+            closeQuietly(os);
+        }
+    }
+
+    private void delete(int pk) {
+        File file = fileOf(pk);
+        if (file.exists() && !file.delete()) {
+            Log.e(TAG, "Could not delete record " + pk);
+        }
+    }
+
+    /**
+     * Fills a store with records from somewhere else, such as an older cache, when it is opened
+     */
+    interface Importer {
+
+        /**
+         * Runs on the thread that opens the store. It must only add records with importRecord().
+         */
+        void importInto(RecordStore store);
+    }
+
+    static void closeQuietly(Closeable closeable) {
+        if (closeable != null) {
+            try {
+                closeable.close();
+            } catch (IOException e) {
+                Log.e(TAG, "Could not close stream", e);
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+
+import team.jcandfriends.cookstogo.ContentHash;
+import team.jcandfriends.cookstogo.HttpClient;
+import team.jcandfriends.cookstogo.JSONGrabber;
+
+/**
+ * Asks the server if a cached entry is still fresh. The validators of the cached entry are sent so
+ * the server can answer HTTP_NOT_MODIFIED without a body. If the server sends a body anyway, the
+ * entry only counts as changed if the hash of the parsed entry, serialized the way it is written to
+ * the cache, differs from the hash of the cached entry. The raw body isn't hashed, since parsers may
+ * drop some of its fields and the entries that are cached without a response were never raw.
+ */
+final class Revalidation {
+
+    private Revalidation() {
+    }
+
+    /**
+     * Revalidates an entry. This blocks, so it must not be invoked on the main thread.
+     *
+     * @param url    the url of the resource
+     * @param parser turns the response into the entry
+     * @param cache  where the entry is cached
+     * @return the fresh entry if it changed, null if it didn't or the server didn't respond with HTTP_OK
+     */
+    static <T> T revalidate(String url, final JSONGrabber.Parser<T> parser, final Revalidation.Cache<T> cache) throws IOException, JSONException {
+        final CacheMetadata cached = cache.getMetadata();
+
+        return HttpClient.get(url, cached == null ? null : cached.getValidators(), new HttpClient.ConditionalHandler<T>() {
+            @Override
+            public T handle(int statusCode, HttpClient.Validators validators, InputStream body) throws IOException, JSONException {
+                if (statusCode != HttpURLConnection.HTTP_OK) {
+                    return null;
+                }
+
+                T entry = JSONGrabber.parse(body, parser);
+                String entryAsString = entry.toString();
+                CacheMetadata metadata = new CacheMetadata(validators, ContentHash.of(entryAsString));
+
+                if (cached != null && cached.getDigest() == metadata.getDigest()) {
+                    cache.putMetadata(metadata);
+                    return null;
+                }
+
+                cache.put(entry, entryAsString, metadata);
+                return entry;
+            }
+        });
+    }
+
+    /**
+     * Where the revalidated entry is cached
+     */
+    interface Cache<T> {
+
+        /**
+         * @return the metadata of the cached entry or null if the entry isn't cached
+         */
+        CacheMetadata getMetadata();
+
+        /**
+         * Caches the entry that changed
+         *
+         * @param entryAsString the entry as it must be written to the cache, its toString()
+         */
+        void put(T entry, String entryAsString, CacheMetadata metadata);
+
+        /**
+         * Updates the metadata of the entry that didn't change
+         */
+        void putMetadata(CacheMetadata metadata);
+    }
+}
@@ -8,6 +8,15 @@ public interface SearchManager<E> {
 
     ArrayList<E> getAll();
 
+    /**
+     * Returns the items that contain a query. Call this as the user types; a query that extends the
+     * previous one is answered from its matches.
+     *
+     * @param query the query, matched as plain text regardless of case
+     * @return a new list of the matching items, most recent first, or all items if the query is empty
+     */
+    ArrayList<E> filter(String query);
+
     void deleteAll();
 
 }
@@ -9,8 +9,11 @@ import org.json.JSONException;
 import org.json.JSONObject;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Locale;
 
 import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.Constants;
 import team.jcandfriends.cookstogo.Utils;
 
 public class VirtualBasketManager {
@@ -25,24 +28,86 @@ public class VirtualBasketManager {
     private static final String TAG = "VirtualBasketManager";
     private static final String PERSISTENT_VIRTUAL_BASKETS = "persistent_virtual_baskets";
 
+    /**
+     * The name of the snapshot and the journal of the virtual baskets
+     */
+    private static final String VIRTUAL_BASKETS_JOURNAL = "virtual_baskets";
+
+    /**
+     * The operations of the journal and their arguments
+     */
+    private static final String OPERATION = "operation";
+    private static final String CREATE_BASKET = "create_basket";
+    private static final String ADD_ITEM = "add_item";
+    private static final String REMOVE_ITEM = "remove_item";
+    private static final String DELETE_BASKET = "delete_basket";
+    private static final String BASKET_POSITION = "basket";
+    private static final String ITEM = "item";
+    private static final String ITEM_POSITION = "item_position";
+
     private static VirtualBasketManager SOLE_INSTANCE;
 
-    private SharedPreferences mPreferences;
-    private ArrayList<JSONObject> mVirtualBaskets;
+    private final Journal mJournal;
+    private final ArrayList<JSONObject> mVirtualBaskets = new ArrayList<>();
+
+    /**
+     * The pks of the items of each virtual basket, in the same order as the virtual baskets
+     */
+    private final ArrayList<IntSet> mItemPks = new ArrayList<>();
+
+    /**
+     * The position of each virtual basket, keyed by its name in lower case
+     */
+    private final HashMap<String, Integer> mPositions = new HashMap<>();
 
     private VirtualBasketManager(Context context) {
-        mPreferences = context.getSharedPreferences(PERSISTENT_VIRTUAL_BASKETS, Context.MODE_PRIVATE);
-        String virtualBasketsAsString = mPreferences.getString(PERSISTENT_VIRTUAL_BASKETS, null);
+        mJournal = new Journal(context.getFilesDir(), VIRTUAL_BASKETS_JOURNAL, Constants.VIRTUAL_BASKETS_COMPACTION_THRESHOLD);
+
+        if (mJournal.exists()) {
+            boolean isCompactionDue = mJournal.open(new Journal.Replayer() {
+                @Override
+                public void restore(JSONArray state) {
+                    mVirtualBaskets.addAll(Utils.jsonArrayToList(state));
+                    reindex();
+                }
+
+                @Override
+                public void replay(JSONObject operation) throws JSONException {
+                    try {
+                        apply(operation);
+                    } catch (IndexOutOfBoundsException e) {
+                        Log.e(TAG, "Skipping an operation on a virtual basket or item that doesn't exist", e);
+                    }
+                }
+            });
+
+            if (isCompactionDue) {
+                compact();
+            }
+        } else {
+            importLegacyVirtualBaskets(context);
+        }
+    }
+
+    /**
+     * Moves the virtual baskets that were persisted in the SharedPreferences before the journal
+     * existed into a first snapshot
+     */
+    private void importLegacyVirtualBaskets(Context context) {
+        SharedPreferences preferences = context.getSharedPreferences(PERSISTENT_VIRTUAL_BASKETS, Context.MODE_PRIVATE);
+        String virtualBasketsAsString = preferences.getString(PERSISTENT_VIRTUAL_BASKETS, null);
 
         if (virtualBasketsAsString != null) {
             try {
-                mVirtualBaskets = Utils.jsonArrayToList(new JSONArray(virtualBasketsAsString));
+                mVirtualBaskets.addAll(Utils.jsonArrayToList(new JSONArray(virtualBasketsAsString)));
+                reindex();
             } catch (JSONException e) {
                 Log.e(TAG, "Error parsing json as valid JSONArray of virtual baskets", e);
             }
-        } else {
-            mVirtualBaskets = new ArrayList<>();
         }
+
+        compact();
+        preferences.edit().remove(PERSISTENT_VIRTUAL_BASKETS).apply();
     }
 
     public static VirtualBasketManager get(Context context) {
@@ -84,11 +149,10 @@ public class VirtualBasketManager {
      */
     public void addTo(int position, JSONObject ingredient) {
         try {
-            JSONObject virtualBasket = mVirtualBaskets.get(position);
-            JSONArray items = virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS);
-            items.put(ingredient);
-            virtualBasket.put(VIRTUAL_BASKET_ITEMS, items);
-            persist();
+            perform(new JSONObject()
+                    .put(OPERATION, ADD_ITEM)
+                    .put(BASKET_POSITION, position)
+                    .put(ITEM, ingredient));
         } catch (IndexOutOfBoundsException e) {
             Log.e(TAG, "Attempt to add an ingredient to a virtual basket that doesn't exist", e);
         } catch (JSONException e) {
@@ -96,8 +160,12 @@ public class VirtualBasketManager {
         }
     }
 
-    public ArrayList<JSONObject> getItems(JSONObject virtualBasket) {
-        return Utils.jsonArrayToList(virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS));
+    /**
+     * Returns the items of the virtual basket. The array belongs to the virtual basket, so it must
+     * not be changed.
+     */
+    public JSONArray getItems(JSONObject virtualBasket) {
+        return virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS);
     }
 
     public int getCount() {
@@ -105,89 +173,161 @@ public class VirtualBasketManager {
     }
 
     public void add(String virtualBasketName) {
-        JSONObject virtualBasket = new JSONObject();
         try {
-            virtualBasket.put(VIRTUAL_BASKET_NAME, virtualBasketName);
-            virtualBasket.put(VIRTUAL_BASKET_ITEMS, new JSONArray());
+            perform(new JSONObject()
+                    .put(OPERATION, CREATE_BASKET)
+                    .put(VIRTUAL_BASKET_NAME, virtualBasketName));
         } catch (JSONException e) {
             Log.e(TAG, "Error putting virtual basket name", e);
         }
-
-        mVirtualBaskets.add(virtualBasket);
-        persist();
     }
 
     public void remove(JSONObject virtualBasket) {
-        mVirtualBaskets.remove(virtualBasket);
-        persist();
+        int virtualBasketIndex = indexOf(virtualBasket);
+        if (virtualBasketIndex != -1) {
+            deleteAt(virtualBasketIndex);
+        }
     }
 
-    private void persist() {
-        mPreferences.edit().putString(PERSISTENT_VIRTUAL_BASKETS, Utils.listToJsonArray(mVirtualBaskets).toString()).apply();
+    /**
+     * Applies an operation to the virtual baskets, then appends it to the journal. Each change
+     * costs one small append, however many baskets and items there are.
+     */
+    private void perform(JSONObject operation) throws JSONException {
+        apply(operation);
+        if (mJournal.append(operation)) {
+            compact();
+        }
     }
 
-    public boolean isAlreadyAdded(String virtualBasketName) {
-        for (JSONObject i : mVirtualBaskets) {
-            if (virtualBasketName.equalsIgnoreCase(i.optString(VIRTUAL_BASKET_NAME))) {
-                return true;
+    /**
+     * Applies an operation to the virtual baskets. Changes and the replay of the journal both go
+     * through here, so they can't disagree.
+     */
+    private void apply(JSONObject operation) throws JSONException {
+        String name = operation.getString(OPERATION);
+        if (CREATE_BASKET.equals(name)) {
+            String virtualBasketName = operation.getString(VIRTUAL_BASKET_NAME);
+            JSONObject virtualBasket = new JSONObject();
+            virtualBasket.put(VIRTUAL_BASKET_NAME, virtualBasketName);
+            virtualBasket.put(VIRTUAL_BASKET_ITEMS, new JSONArray());
+            mPositions.put(keyOf(virtualBasketName), mVirtualBaskets.size());
+            mVirtualBaskets.add(virtualBasket);
+            mItemPks.add(new IntSet());
+        } else if (ADD_ITEM.equals(name)) {
+            int position = operation.getInt(BASKET_POSITION);
+            JSONObject ingredient = operation.getJSONObject(ITEM);
+            mVirtualBaskets.get(position).getJSONArray(VIRTUAL_BASKET_ITEMS).put(ingredient);
+            mItemPks.get(position).add(ingredient.optInt(Api.INGREDIENT_PK));
+        } else if (REMOVE_ITEM.equals(name)) {
+            int position = operation.getInt(BASKET_POSITION);
+            JSONObject virtualBasket = mVirtualBaskets.get(position);
+            // JSONArray.remove() needs API 19, so the items are copied without the removed one
+            ArrayList<JSONObject> ingredients = Utils.jsonArrayToList(virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS));
+            int pk = ingredients.remove(operation.getInt(ITEM_POSITION)).optInt(Api.INGREDIENT_PK);
+            virtualBasket.put(VIRTUAL_BASKET_ITEMS, Utils.listToJsonArray(ingredients));
+            if (!containsItem(ingredients, pk)) {
+                mItemPks.get(position).remove(pk);
             }
+        } else if (DELETE_BASKET.equals(name)) {
+            int position = operation.getInt(BASKET_POSITION);
+            mVirtualBaskets.remove(position);
+            mItemPks.remove(position);
+            reindexPositions();
+        } else {
+            throw new JSONException("Unknown virtual basket operation : " + name);
         }
+    }
 
-        return false;
+    /**
+     * Rebuilds the pks of the items and the positions of every virtual basket
+     */
+    private void reindex() {
+        mItemPks.clear();
+        for (JSONObject virtualBasket : mVirtualBaskets) {
+            IntSet pks = new IntSet();
+            JSONArray items = virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS);
+            for (int i = 0; i < items.length(); i++) {
+                pks.add(items.optJSONObject(i).optInt(Api.INGREDIENT_PK));
+            }
+            mItemPks.add(pks);
+        }
+        reindexPositions();
     }
 
-    public boolean isAlreadyAddedTo(int position, JSONObject ingredient) {
-        JSONObject virtualBasket = mVirtualBaskets.get(position);
-        JSONArray items = virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS);
-
-        JSONObject currentItem;
-        final int toCompare = ingredient.optInt(Api.INGREDIENT_PK);
-        for (int i = 0; i < items.length(); i++) {
-            currentItem = items.optJSONObject(i);
-            if (toCompare == currentItem.optInt(Api.INGREDIENT_PK)) {
+    private void reindexPositions() {
+        mPositions.clear();
+        for (int i = 0; i < mVirtualBaskets.size(); i++) {
+            mPositions.put(keyOf(mVirtualBaskets.get(i).optString(VIRTUAL_BASKET_NAME)), i);
+        }
+    }
+
+    private static String keyOf(String virtualBasketName) {
+        return virtualBasketName.toLowerCase(Locale.US);
+    }
+
+    private static boolean containsItem(ArrayList<JSONObject> ingredients, int pk) {
+        for (JSONObject ingredient : ingredients) {
+            if (pk == ingredient.optInt(Api.INGREDIENT_PK)) {
                 return true;
             }
         }
-
         return false;
     }
 
+    private void compact() {
+        mJournal.compact(Utils.listToJsonArray(mVirtualBaskets));
+    }
+
+    private void deleteAt(int virtualBasketIndex) {
+        try {
+            perform(new JSONObject()
+                    .put(OPERATION, DELETE_BASKET)
+                    .put(BASKET_POSITION, virtualBasketIndex));
+        } catch (JSONException e) {
+            Log.e(TAG, "Error while deleting virtualBasket(" + virtualBasketIndex + ")", e);
+        }
+    }
+
+    public boolean isAlreadyAdded(String virtualBasketName) {
+        return mPositions.containsKey(keyOf(virtualBasketName));
+    }
+
+    public boolean isAlreadyAddedTo(int position, JSONObject ingredient) {
+        return mItemPks.get(position).contains(ingredient.optInt(Api.INGREDIENT_PK));
+    }
+
     public void deleteAll() {
         mVirtualBaskets.clear();
-        mPreferences.edit().remove(PERSISTENT_VIRTUAL_BASKETS).apply();
+        mItemPks.clear();
+        mPositions.clear();
+        compact();
     }
 
     public void delete(JSONObject virtualBasket) {
         int virtualBasketIndex = indexOf(virtualBasket);
         if (virtualBasketIndex != -1) {
-            mVirtualBaskets.remove(virtualBasketIndex);
-            persist();
+            deleteAt(virtualBasketIndex);
         }
     }
 
+    /**
+     * Finds a virtual basket by its name, ignoring case like isAlreadyAdded() does, so two baskets
+     * never differ only by case
+     */
     private int indexOf(JSONObject virtualBasket) {
-        String name = virtualBasket.optString(VIRTUAL_BASKET_NAME);
-
-        JSONObject each;
-        String eachName;
-        for (int i = 0; i < mVirtualBaskets.size(); i++) {
-            each = mVirtualBaskets.get(i);
-
-            eachName = each.optString(VIRTUAL_BASKET_NAME);
-            if (name.equals(eachName)) {
-                return i;
-            }
-        }
-
-        return -1;
+        Integer position = mPositions.get(keyOf(virtualBasket.optString(VIRTUAL_BASKET_NAME)));
+        return position == null ? -1 : position;
     }
 
     public void deleteFrom(int virtualBasketPosition, int ingredientPosition) {
         try {
-            JSONObject virtualBasket = mVirtualBaskets.get(virtualBasketPosition);
-            ArrayList<JSONObject> ingredients = Utils.jsonArrayToList(virtualBasket.optJSONArray(VIRTUAL_BASKET_ITEMS));
-            ingredients.remove(ingredientPosition);
-            virtualBasket.put(VIRTUAL_BASKET_ITEMS, Utils.listToJsonArray(ingredients));
+            perform(new JSONObject()
+                    .put(OPERATION, REMOVE_ITEM)
+                    .put(BASKET_POSITION, virtualBasketPosition)
+                    .put(ITEM_POSITION, ingredientPosition));
+        } catch (IndexOutOfBoundsException e) {
+            Log.e(TAG, "Attempt to delete an ingredient that doesn't exist", e);
         } catch (JSONException e) {
             Log.e(TAG, "Error while deleting ingredient(" + ingredientPosition + ") from virtualBasket(" + virtualBasketPosition + ")", e);
         }
@@ -0,0 +1,242 @@
+package team.jcandfriends.cookstogo.models;
+
+/**
+ * An exact quantity of a recipe component, kept as a reduced fraction. The rest api sends
+ * quantities as decimal strings such as "0.25" or "0.3333"; they are parsed once, with truncated
+ * thirds and sixths recognized as such, so scaling a quantity to another serving size is exact and
+ * only needs integer arithmetic.
+ * <p/>
+ * Reference: http://english.stackexchange.com/questions/69162/are-these-plural-or-singular
+ */
+public final class Quantity {
+
+    /**
+     * The unicode vulgar fractions, indexed by denominator and then by numerator
+     */
+    private static final String[][] FRACTIONS = {
+            null,
+            null,
+            {null, "½"},
+            {null, "⅓", "⅔"},
+            {null, "¼", null, "¾"},
+            {null, "⅕", "⅖", "⅗", "⅘"},
+            {null, "⅙", null, null, null, "⅚"},
+            null,
+            {null, "⅛", null, "⅜", null, "⅝", null, "⅞"}
+    };
+
+    /**
+     * The denominators of the fractions that the rest api can only send truncated
+     */
+    private static final int[] REPEATING_DENOMINATORS = {3, 6};
+
+    /**
+     * More digits than these could overflow once the quantity is scaled
+     */
+    private static final int MAX_WHOLE_DIGITS = 9;
+    private static final int MAX_DECIMAL_DIGITS = 6;
+
+    private final long mNumerator;
+    private final long mDenominator;
+    private final boolean mIsExact;
+
+    /**
+     * The quantity as it is displayed at the default serving size
+     */
+    private final String mText;
+
+    private Quantity(long numerator, long denominator, String text) {
+        mNumerator = numerator;
+        mDenominator = denominator;
+        mIsExact = true;
+
+        StringBuilder sb = new StringBuilder();
+        if (!appendFraction(sb, numerator, denominator)) {
+            // like the rest api sent it, except for integers such as "2.0"
+            sb.append(text);
+        }
+        mText = sb.toString();
+    }
+
+    private Quantity(String text) {
+        mNumerator = 0;
+        mDenominator = 1;
+        mIsExact = false;
+        mText = text;
+    }
+
+    /**
+     * Parses a quantity sent by the rest api
+     *
+     * @param text the quantity, e.g. "2", "1.5" or "0.3333"
+     * @return the Quantity, which isn't exact if the text isn't a decimal number
+     */
+    public static Quantity parse(String text) {
+        String trimmed = text.trim();
+        int point = trimmed.indexOf('.');
+        int wholeEnd = point < 0 ? trimmed.length() : point;
+        int decimals = point < 0 ? 0 : trimmed.length() - point - 1;
+
+        if (wholeEnd > MAX_WHOLE_DIGITS || decimals > MAX_DECIMAL_DIGITS || wholeEnd + decimals == 0) {
+            return new Quantity(text);
+        }
+
+        long whole = 0;
+        for (int i = 0; i < wholeEnd; i++) {
+            int digit = Character.digit(trimmed.charAt(i), 10);
+            if (digit < 0) {
+                return new Quantity(text);
+            }
+            whole = whole * 10 + digit;
+        }
+
+        long decimal = 0;
+        long scale = 1;
+        for (int i = wholeEnd + 1; i < trimmed.length(); i++) {
+            int digit = Character.digit(trimmed.charAt(i), 10);
+            if (digit < 0) {
+                return new Quantity(text);
+            }
+            decimal = decimal * 10 + digit;
+            scale *= 10;
+        }
+
+        long numerator = decimal;
+        long denominator = scale;
+
+        // "0.3333" is a third that had to be cut short, not 3333 ten thousandths
+        if (decimals >= 3) {
+            for (int repeating : REPEATING_DENOMINATORS) {
+                long candidate = (decimal * repeating + scale / 2) / scale;
+                if (candidate > 0 && candidate < repeating && Math.abs(decimal * repeating - candidate * scale) < repeating) {
+                    numerator = candidate;
+                    denominator = repeating;
+                    break;
+                }
+            }
+        }
+
+        numerator += whole * denominator;
+        long gcd = gcd(numerator, denominator);
+        return new Quantity(numerator / gcd, denominator / gcd, trimmed);
+    }
+
+    /**
+     * Determines if this quantity could be parsed. Quantities that couldn't be are never scaled.
+     *
+     * @return true if the quantity is exact, false otherwise
+     */
+    public boolean isExact() {
+        return mIsExact;
+    }
+
+    public long getNumerator() {
+        return mNumerator;
+    }
+
+    public long getDenominator() {
+        return mDenominator;
+    }
+
+    /**
+     * Determines if whatever this quantity measures reads as singular when it is scaled, e.g. "1 cup",
+     * "½ cup" or "⅓ cup", but "2 cups", "¾ cups" and "0 cups"
+     *
+     * @param servingSize        the serving size to scale to
+     * @param defaultServingSize the serving size of the recipe
+     * @return true if it reads as singular, false if it reads as plural
+     */
+    public boolean isSingular(int servingSize, int defaultServingSize) {
+        if (!mIsExact) {
+            return false;
+        }
+
+        long numerator = mNumerator * servingSize;
+        long denominator = mDenominator * defaultServingSize;
+        return numerator != 0 && numerator == gcd(numerator, denominator);
+    }
+
+    /**
+     * Appends this quantity scaled to a serving size. The quantity is exact, so scaling back to the
+     * default serving size gives back the same text.
+     *
+     * @param sb                 the builder to append to
+     * @param servingSize        the serving size to scale to
+     * @param defaultServingSize the serving size of the recipe
+     */
+    public void appendTo(StringBuilder sb, int servingSize, int defaultServingSize) {
+        if (!mIsExact || servingSize == defaultServingSize) {
+            sb.append(mText);
+            return;
+        }
+
+        long numerator = mNumerator * servingSize;
+        long denominator = mDenominator * defaultServingSize;
+        long gcd = gcd(numerator, denominator);
+        numerator /= gcd;
+        denominator /= gcd;
+
+        if (!appendFraction(sb, numerator, denominator)) {
+            appendDecimal(sb, numerator, denominator);
+        }
+    }
+
+    /**
+     * Returns the quantity as it is displayed at the default serving size
+     */
+    @Override
+    public String toString() {
+        return mText;
+    }
+
+    /**
+     * Appends a reduced fraction as a whole number followed by a unicode vulgar fraction
+     *
+     * @return false if there is no unicode vulgar fraction for it, in which case nothing is appended
+     */
+    private static boolean appendFraction(StringBuilder sb, long numerator, long denominator) {
+        long whole = numerator / denominator;
+        int remainder = (int) (numerator % denominator);
+
+        if (remainder == 0) {
+            sb.append(whole);
+            return true;
+        }
+
+        String[] fractions = denominator < FRACTIONS.length ? FRACTIONS[(int) denominator] : null;
+        if (fractions == null || fractions[remainder] == null) {
+            return false;
+        }
+
+        if (whole != 0) {
+            sb.append(whole);
+        }
+        sb.append(fractions[remainder]);
+        return true;
+    }
+
+    /**
+     * Appends a fraction rounded to two decimal places, but never rounded down to zero
+     */
+    private static void appendDecimal(StringBuilder sb, long numerator, long denominator) {
+        long hundredths = Math.max(1, (numerator * 100 + denominator / 2) / denominator);
+        sb.append(hundredths / 100);
+
+        int decimal = (int) (hundredths % 100);
+        if (decimal != 0) {
+            sb.append('.').append(decimal / 10);
+            if (decimal % 10 != 0) {
+                sb.append(decimal % 10);
+            }
+        }
+    }
+
+    private static long gcd(long a, long b) {
+        while (b != 0) {
+            long t = a % b;
+            a = b;
+            b = t;
+        }
+        return a;
+    }
+}
@@ -0,0 +1,133 @@
+package team.jcandfriends.cookstogo.models;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import team.jcandfriends.cookstogo.Api;
+
+/**
+ * Immutable representation of the Recipe model of the rest api. A recipe is parsed once and the
+ * same instance is shared by every screen that displays it.
+ */
+public final class Recipe {
+
+    /**
+     * The rating of a recipe that hasn't been rated yet
+     */
+    public static final double NO_RATING = -1.0;
+
+    private final int mPk;
+    private final String mName;
+    private final String mDescription;
+    private final String mIcon;
+    private final String mBanner;
+    private final int mDuration;
+    private final int mDefaultServingSize;
+    private final double mRating;
+    private final int mReviews;
+    private final List<RecipeComponent> mRecipeComponents;
+    private final List<Step> mSteps;
+
+    private Recipe(JSONObject recipe) {
+        mPk = recipe.optInt(Api.RECIPE_PK);
+        mName = recipe.optString(Api.RECIPE_NAME);
+        mDescription = recipe.optString(Api.RECIPE_DESCRIPTION);
+        mIcon = recipe.optString(Api.RECIPE_ICON);
+        mBanner = recipe.optString(Api.RECIPE_BANNER);
+        mDuration = recipe.optInt(Api.RECIPE_DURATION);
+        // quantities are scaled by the serving size, so it must never be zero
+        mDefaultServingSize = Math.max(1, recipe.optInt(Api.RECIPE_DEFAULT_SERVING_SIZE, 1));
+        mRating = recipe.optDouble(Api.RECIPE_RATING, NO_RATING);
+        mReviews = recipe.optInt(Api.RECIPE_REVIEWS);
+
+        JSONArray recipeComponents = recipe.optJSONArray(Api.RECIPE_RECIPE_COMPONENTS);
+        ArrayList<RecipeComponent> components = new ArrayList<>();
+        if (recipeComponents != null) {
+            for (int i = 0; i < recipeComponents.length(); i++) {
+                components.add(RecipeComponent.fromJson(recipeComponents.optJSONObject(i)));
+            }
+        }
+        mRecipeComponents = Collections.unmodifiableList(components);
+
+        JSONArray steps = recipe.optJSONArray(Api.RECIPE_STEPS);
+        ArrayList<Step> stepList = new ArrayList<>();
+        if (steps != null) {
+            for (int i = 0; i < steps.length(); i++) {
+                stepList.add(Step.fromJson(steps.optJSONObject(i)));
+            }
+        }
+        mSteps = Collections.unmodifiableList(stepList);
+    }
+
+    /**
+     * Builds a Recipe from its JSON representation
+     *
+     * @param recipe the JSON representation
+     * @return the Recipe
+     */
+    public static Recipe fromJson(JSONObject recipe) {
+        return new Recipe(recipe);
+    }
+
+    public int getPk() {
+        return mPk;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public String getDescription() {
+        return mDescription;
+    }
+
+    public String getIcon() {
+        return mIcon;
+    }
+
+    public String getBanner() {
+        return mBanner;
+    }
+
+    /**
+     * Returns the time it takes to complete the recipe
+     *
+     * @return the duration in minutes
+     */
+    public int getDuration() {
+        return mDuration;
+    }
+
+    public int getDefaultServingSize() {
+        return mDefaultServingSize;
+    }
+
+    /**
+     * Returns the average rating of the recipe
+     *
+     * @return the rating on a scale of 1 - 5, or NO_RATING if it hasn't been rated yet
+     */
+    public double getRating() {
+        return mRating;
+    }
+
+    public boolean hasRating() {
+        return Double.compare(mRating, NO_RATING) != 0;
+    }
+
+    public int getReviews() {
+        return mReviews;
+    }
+
+    public List<RecipeComponent> getRecipeComponents() {
+        return mRecipeComponents;
+    }
+
+    public List<Step> getSteps() {
+        return mSteps;
+    }
+}
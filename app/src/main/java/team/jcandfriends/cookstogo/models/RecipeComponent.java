@@ -0,0 +1,126 @@
+package team.jcandfriends.cookstogo.models;
+
+import org.json.JSONObject;
+
+import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.inflector.English;
+
+/**
+ * Immutable representation of the RecipeComponent model of the rest api. The human readable name
+ * is computed once when the component is built so binding it to a view is only a field read. The
+ * text that follows the quantity is computed once in its singular and plural forms, so the name can
+ * be rebuilt for any serving size without inflecting anything again.
+ */
+public final class RecipeComponent {
+
+    private final Quantity mQuantity;
+    private final String mAdjective;
+    private final UnitOfMeasure mUnitOfMeasure;
+    private final JSONObject mIngredient;
+    private final int mIngredientPk;
+    private final String mIngredientName;
+    private final String mIngredientIcon;
+    private final String mReadableName;
+
+    /**
+     * What follows the quantity in the human readable name, e.g. " cup of chopped onion"
+     */
+    private final String mSingularText;
+    private final String mPluralText;
+
+    private RecipeComponent(JSONObject recipeComponent) {
+        mQuantity = Quantity.parse(recipeComponent.optString(Api.RECIPE_COMPONENT_QUANTITY));
+        mAdjective = recipeComponent.optString(Api.RECIPE_COMPONENT_ADJECTIVE);
+        mUnitOfMeasure = UnitOfMeasure.fromJson(recipeComponent.optJSONObject(Api.RECIPE_COMPONENT_UNIT_OF_MEASURE));
+
+        JSONObject ingredient = recipeComponent.optJSONObject(Api.RECIPE_COMPONENT_INGREDIENT);
+        mIngredient = ingredient == null ? new JSONObject() : ingredient;
+        mIngredientPk = mIngredient.optInt(Api.INGREDIENT_PK);
+        mIngredientName = mIngredient.optString(Api.INGREDIENT_NAME);
+        mIngredientIcon = mIngredient.optString(Api.INGREDIENT_ICON);
+
+        mSingularText = buildText(1);
+        mPluralText = buildText(2);
+        mReadableName = mQuantity + (mQuantity.isSingular(1, 1) ? mSingularText : mPluralText);
+    }
+
+    private String buildText(int count) {
+        StringBuilder sb = new StringBuilder(" ");
+
+        if (!mUnitOfMeasure.isGeneric()) {
+            sb.append(English.plural(mUnitOfMeasure.getName(), count)).append(" of ");
+        }
+
+        if (!mAdjective.isEmpty()) {
+            sb.append(mAdjective).append(" ");
+        }
+
+        return sb.append(mIngredientName).toString().toLowerCase();
+    }
+
+    /**
+     * Builds a RecipeComponent from its JSON representation
+     *
+     * @param recipeComponent the JSON representation
+     * @return the RecipeComponent
+     */
+    public static RecipeComponent fromJson(JSONObject recipeComponent) {
+        return new RecipeComponent(recipeComponent);
+    }
+
+    public Quantity getQuantity() {
+        return mQuantity;
+    }
+
+    public String getAdjective() {
+        return mAdjective;
+    }
+
+    public UnitOfMeasure getUnitOfMeasure() {
+        return mUnitOfMeasure;
+    }
+
+    /**
+     * Returns the JSON representation of the ingredient, which is what the IngredientManager caches.
+     * The returned object must not be modified.
+     *
+     * @return the ingredient
+     */
+    public JSONObject getIngredient() {
+        return mIngredient;
+    }
+
+    public int getIngredientPk() {
+        return mIngredientPk;
+    }
+
+    public String getIngredientName() {
+        return mIngredientName;
+    }
+
+    public String getIngredientIcon() {
+        return mIngredientIcon;
+    }
+
+    /**
+     * Returns a human readable representation of this component, e.g. "2 cups of chopped onion"
+     *
+     * @return the human readable representation
+     */
+    public String getReadableName() {
+        return mReadableName;
+    }
+
+    /**
+     * Appends the human readable representation of this component with its quantity scaled to a
+     * serving size, e.g. "4 cups of chopped onion" for twice the serving size of the recipe
+     *
+     * @param sb                 the builder to append to
+     * @param servingSize        the serving size to scale to
+     * @param defaultServingSize the serving size of the recipe
+     */
+    public void appendReadableName(StringBuilder sb, int servingSize, int defaultServingSize) {
+        mQuantity.appendTo(sb, servingSize, defaultServingSize);
+        sb.append(mQuantity.isSingular(servingSize, defaultServingSize) ? mSingularText : mPluralText);
+    }
+}
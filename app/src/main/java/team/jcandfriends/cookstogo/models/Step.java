@@ -0,0 +1,37 @@
+package team.jcandfriends.cookstogo.models;
+
+import org.json.JSONObject;
+
+import team.jcandfriends.cookstogo.Api;
+
+/**
+ * Immutable representation of the Step model of the rest api
+ */
+public final class Step {
+
+    private final int mSequence;
+    private final String mInstruction;
+
+    private Step(int sequence, String instruction) {
+        mSequence = sequence;
+        mInstruction = instruction;
+    }
+
+    /**
+     * Builds a Step from its JSON representation
+     *
+     * @param step the JSON representation
+     * @return the Step
+     */
+    public static Step fromJson(JSONObject step) {
+        return new Step(step.optInt(Api.STEP_SEQUENCE), step.optString(Api.STEP_INSTRUCTION));
+    }
+
+    public int getSequence() {
+        return mSequence;
+    }
+
+    public String getInstruction() {
+        return mInstruction;
+    }
+}
@@ -0,0 +1,43 @@
+package team.jcandfriends.cookstogo.models;
+
+import org.json.JSONObject;
+
+import team.jcandfriends.cookstogo.Api;
+
+/**
+ * Immutable representation of the UnitOfMeasure model of the rest api
+ */
+public final class UnitOfMeasure {
+
+    /**
+     * The name of the unit of measure used by ingredients that are counted instead of measured
+     */
+    public static final String GENERIC = "generic";
+
+    private final String mName;
+
+    private UnitOfMeasure(String name) {
+        mName = name;
+    }
+
+    /**
+     * Builds a UnitOfMeasure from its JSON representation
+     *
+     * @param unitOfMeasure the JSON representation, may be null
+     * @return the UnitOfMeasure
+     */
+    public static UnitOfMeasure fromJson(JSONObject unitOfMeasure) {
+        if (unitOfMeasure == null) {
+            return new UnitOfMeasure(GENERIC);
+        }
+        return new UnitOfMeasure(unitOfMeasure.optString(Api.UNIT_OF_MEASURE_NAME, GENERIC));
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public boolean isGeneric() {
+        return GENERIC.equals(mName);
+    }
+}
@@ -0,0 +1,8 @@
+package android.util;
+
+/**
+ * Stands in for the android.util.JsonToken of a device, see JsonReader
+ */
+public enum JsonToken {
+    BEGIN_ARRAY, END_ARRAY, BEGIN_OBJECT, END_OBJECT, NAME, STRING, NUMBER, BOOLEAN, NULL, END_DOCUMENT
+}
@@ -0,0 +1,79 @@
+package team.jcandfriends.cookstogo;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that sequential requests through HttpClient share one keep-alive socket, including when
+ * the response handler leaves the body unread
+ */
+public class HttpClientTest {
+
+    private static final int REQUESTS = 10;
+
+    /**
+     * Larger than the buffers of HttpURLConnection, so an unread body is still on the socket when
+     * the handler returns
+     */
+    private static final int LARGE_BODY = 256 * 1024;
+
+    private StubServer mServer;
+
+    @Before
+    public void setUp() throws IOException {
+        final byte[] large = new byte[LARGE_BODY];
+        Arrays.fill(large, (byte) 'x');
+
+        mServer = new StubServer(new StubServer.Handler() {
+            @Override
+            public StubServer.Response handle(StubServer.Request request) {
+                if (request.getPath().startsWith("/large")) {
+                    return new StubServer.Response(HttpURLConnection.HTTP_OK, large);
+                }
+                return new StubServer.Response(HttpURLConnection.HTTP_OK, "{\"path\": \"" + request.getPath() + "\"}");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void sequentialRequestsReuseOneSocket() throws IOException, JSONException {
+        for (int i = 0; i < REQUESTS; i++) {
+            assertEquals("{\"path\": \"/recipes/" + i + "\"}", HttpClient.get(mServer.url("/recipes/" + i), HttpClient.STRING));
+        }
+
+        assertEquals(REQUESTS, mServer.getRequests().size());
+        assertEquals(1, mServer.getAcceptedSockets());
+    }
+
+    @Test
+    public void unreadBodiesAreDrainedSoTheSocketIsReused() throws IOException, JSONException {
+        for (int i = 0; i < REQUESTS; i++) {
+            int statusCode = HttpClient.get(mServer.url("/large/" + i), new HttpClient.ResponseHandler<Integer>() {
+                @Override
+                public Integer handle(int statusCode, InputStream body) throws IOException {
+                    // reads a few bytes and leaves the rest to HttpClient
+                    body.read(new byte[16]);
+                    return statusCode;
+                }
+            });
+            assertEquals(HttpURLConnection.HTTP_OK, statusCode);
+        }
+
+        assertEquals(REQUESTS, mServer.getRequests().size());
+        assertEquals(1, mServer.getAcceptedSockets());
+    }
+}
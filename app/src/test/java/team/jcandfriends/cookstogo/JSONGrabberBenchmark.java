@@ -0,0 +1,200 @@
+package team.jcandfriends.cookstogo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.util.Iterator;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the streaming decode of JSONGrabber to the old one, which read the whole response into a
+ * String before parsing it, on recorded responses of the rest api. The fixtures are synthetic but
+ * shaped like the real responses: a page of recipe types with their recipes nested whole, and a
+ * page of recipes.
+ */
+public class JSONGrabberBenchmark {
+
+    private static final String RECIPE_TYPES = "/fixtures/recipe_types.json";
+    private static final String RECIPES = "/fixtures/recipes.json";
+
+    private static final String[] SUMMARY_KEYS = {Api.RECIPE_PK, Api.RECIPE_NAME, Api.RECIPE_DESCRIPTION, Api.RECIPE_ICON, Api.RECIPE_BANNER};
+
+    private static final int WARM_UP = 20;
+    private static final int RUNS = 20;
+
+    @Test
+    public void streamingDecodeMatchesTheOldOne() throws IOException, JSONException {
+        for (String fixture : new String[]{RECIPE_TYPES, RECIPES}) {
+            byte[] body = read(fixture);
+            JSONObject expected = legacyGrab(new ByteArrayInputStream(body));
+
+            assertTrue(fixture, same(expected, JSONGrabber.parse(new ByteArrayInputStream(body), JSONGrabber.OBJECT)));
+            assertTrue(fixture, same(expected.getJSONArray(Api.RESULTS), JSONGrabber.parse(new ByteArrayInputStream(body), JSONGrabber.RESULTS)));
+        }
+    }
+
+    @Test
+    public void recipeTypesKeepOnlyTheSummaryOfTheirRecipes() throws IOException, JSONException {
+        byte[] body = read(RECIPE_TYPES);
+        JSONArray expected = legacyGrab(new ByteArrayInputStream(body)).getJSONArray(Api.RESULTS);
+        JSONArray actual = JSONGrabber.parse(new ByteArrayInputStream(body), JSONGrabber.RECIPE_TYPES);
+
+        assertEquals(expected.length(), actual.length());
+        for (int i = 0; i < expected.length(); i++) {
+            JSONObject expectedType = expected.getJSONObject(i);
+            JSONObject actualType = actual.getJSONObject(i);
+            assertEquals(expectedType.getString(Api.RECIPE_TYPE_NAME), actualType.getString(Api.RECIPE_TYPE_NAME));
+
+            JSONArray expectedRecipes = expectedType.getJSONArray(Api.RECIPE_TYPE_RECIPES);
+            JSONArray actualRecipes = actualType.getJSONArray(Api.RECIPE_TYPE_RECIPES);
+            assertEquals(expectedRecipes.length(), actualRecipes.length());
+            for (int j = 0; j < expectedRecipes.length(); j++) {
+                JSONObject recipe = actualRecipes.getJSONObject(j);
+                assertTrue(same(new JSONObject(expectedRecipes.getJSONObject(j), SUMMARY_KEYS), recipe));
+                assertFalse(recipe.has(Api.RECIPE_RECIPE_COMPONENTS));
+                assertFalse(recipe.has(Api.RECIPE_STEPS));
+            }
+        }
+    }
+
+    @Test
+    public void compareWithTheOldDecode() throws IOException, JSONException {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+
+        for (String fixture : new String[]{RECIPE_TYPES, RECIPES}) {
+            byte[] body = read(fixture);
+            JSONGrabber.Parser<?> parser = RECIPE_TYPES.equals(fixture) ? JSONGrabber.RECIPE_TYPES : JSONGrabber.RESULTS;
+
+            for (int i = 0; i < WARM_UP; i++) {
+                legacyGrab(new ByteArrayInputStream(body)).getJSONArray(Api.RESULTS);
+                JSONGrabber.parse(new ByteArrayInputStream(body), parser);
+            }
+
+            long allocated = threads.getThreadAllocatedBytes(thread);
+            long start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                legacyGrab(new ByteArrayInputStream(body)).getJSONArray(Api.RESULTS);
+            }
+            long legacyTime = (System.nanoTime() - start) / RUNS;
+            long legacyAllocated = (threads.getThreadAllocatedBytes(thread) - allocated) / RUNS;
+
+            allocated = threads.getThreadAllocatedBytes(thread);
+            start = System.nanoTime();
+            for (int i = 0; i < RUNS; i++) {
+                JSONGrabber.parse(new ByteArrayInputStream(body), parser);
+            }
+            long streamingTime = (System.nanoTime() - start) / RUNS;
+            long streamingAllocated = (threads.getThreadAllocatedBytes(thread) - allocated) / RUNS;
+
+            // the old decode held the body twice, as the StringBuilder and as the String, while
+            // the whole tree was built
+            long legacyPeak = 4L * body.length + retainedSize(legacyGrab(new ByteArrayInputStream(body)));
+            long streamingPeak = retainedSize(JSONGrabber.parse(new ByteArrayInputStream(body), parser));
+
+            System.out.println(String.format("%-28s %7d bytes | parse: old %6.2f ms, streaming %6.2f ms | allocated: old %8d, streaming %8d | peak estimate: old %8d, streaming %8d",
+                    fixture, body.length, legacyTime / 1e6, streamingTime / 1e6, legacyAllocated, streamingAllocated, legacyPeak, streamingPeak));
+
+            assertTrue(fixture + " should allocate less when streamed", streamingAllocated < legacyAllocated);
+            assertTrue(fixture + " should hold less when streamed", streamingPeak < legacyPeak);
+        }
+    }
+
+    /**
+     * What JSONGrabber.grab() did before the response was streamed
+     */
+    private static JSONObject legacyGrab(InputStream is) throws IOException, JSONException {
+        StringBuilder response = new StringBuilder();
+        String line;
+        BufferedReader br = new BufferedReader(new InputStreamReader(is));
+
+        while ((line = br.readLine()) != null)
+            response.append(line);
+
+        is.close();
+        return new JSONObject(response.toString());
+    }
+
+    /**
+     * Roughly how many bytes a decoded tree keeps alive: its strings, plus an object header and a
+     * map or list slot for each value
+     */
+    private static long retainedSize(Object value) throws JSONException {
+        long size = 16;
+        if (value instanceof JSONObject) {
+            JSONObject object = (JSONObject) value;
+            Iterator<String> keys = object.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                size += 48 + 2L * key.length() + retainedSize(object.get(key));
+            }
+        } else if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            for (int i = 0; i < array.length(); i++) {
+                size += 8 + retainedSize(array.get(i));
+            }
+        } else if (value instanceof String) {
+            size += 24 + 2L * ((String) value).length();
+        }
+        return size;
+    }
+
+    private static boolean same(Object a, Object b) throws JSONException {
+        if (a instanceof JSONObject && b instanceof JSONObject) {
+            JSONObject x = (JSONObject) a;
+            JSONObject y = (JSONObject) b;
+            if (x.length() != y.length()) {
+                return false;
+            }
+            Iterator<String> keys = x.keys();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (!y.has(key) || !same(x.get(key), y.get(key))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (a instanceof JSONArray && b instanceof JSONArray) {
+            JSONArray x = (JSONArray) a;
+            JSONArray y = (JSONArray) b;
+            if (x.length() != y.length()) {
+                return false;
+            }
+            for (int i = 0; i < x.length(); i++) {
+                if (!same(x.get(i), y.get(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return a.equals(b);
+    }
+
+    private static byte[] read(String fixture) throws IOException {
+        InputStream is = JSONGrabberBenchmark.class.getResourceAsStream(fixture);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            int count;
+            while ((count = is.read(buffer)) != -1) {
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            is.close();
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package team.jcandfriends.cookstogo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Scrolls a Pager through the pages of a local stub of the search api. Consecutive pages overlap,
+ * so some of their items are already shown. A single thread stands in for the main thread: the
+ * pager is driven and its results are delivered on it.
+ */
+public class PagerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final int PAGES = 6;
+    private static final int PAGE_SIZE = 10;
+
+    /**
+     * How far apart the first pks of consecutive pages are, smaller than PAGE_SIZE so pages overlap
+     */
+    private static final int PAGE_STRIDE = 8;
+
+    private static final String DETAILS = "steps";
+    private static final String[] SUMMARY_KEYS = {Api.RECIPE_PK, Api.RECIPE_NAME, Api.RECIPE_ICON};
+
+    private final JSONArray mItems = new JSONArray();
+    private final List<int[]> mInsertions = new ArrayList<>();
+    private final BlockingQueue<String> mEvents = new ArrayBlockingQueue<>(64);
+    private final AtomicBoolean mFailNextPage = new AtomicBoolean();
+
+    private ExecutorService mMainThread;
+    private StubServer mServer;
+    private Pager mPager;
+
+    @Before
+    public void setUp() throws IOException {
+        mMainThread = Executors.newSingleThreadExecutor();
+        RequestScheduler.setDelivery(mMainThread);
+
+        mServer = new StubServer(new StubServer.Handler() {
+            @Override
+            public StubServer.Response handle(StubServer.Request request) {
+                if (mFailNextPage.getAndSet(false)) {
+                    return new StubServer.Response(HttpURLConnection.HTTP_INTERNAL_ERROR, "{}");
+                }
+                int page = Integer.parseInt(request.getPath().replaceAll("\\D", ""));
+                return new StubServer.Response(HttpURLConnection.HTTP_OK, page(page).toString());
+            }
+        });
+
+        mPager = new Pager(new Pager.InsertionListener() {
+            @Override
+            public void onItemRangeInserted(int positionStart, int itemCount) {
+                mInsertions.add(new int[]{positionStart, itemCount});
+            }
+        }, mItems, Api.RECIPE_PK, SUMMARY_KEYS, new Pager.Callbacks() {
+            @Override
+            public void onPage(int page, int appended) {
+                mEvents.add("page " + page + " appended " + appended);
+            }
+
+            @Override
+            public void onFailure(int page) {
+                mEvents.add("page " + page + " failed");
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        onMainThread(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mPager.cancel();
+                return null;
+            }
+        });
+        RequestScheduler.setDelivery(null);
+        mMainThread.shutdownNow();
+        mServer.shutdown();
+    }
+
+    @Test
+    public void pagesAreDedupedInsertedInRangesAndTrimmed() throws Exception {
+        // results found in the cache are shown first, one of them is on page 3 too
+        final JSONArray cached = new JSONArray()
+                .put(summary(1000))
+                .put(summary(2 * PAGE_STRIDE + 3));
+        assertEquals(Integer.valueOf(2), onMainThread(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return mPager.append(cached);
+            }
+        }));
+
+        LinkedHashSet<Integer> expectedPks = new LinkedHashSet<>(Arrays.asList(1000, 2 * PAGE_STRIDE + 3));
+        List<int[]> expectedInsertions = new ArrayList<>();
+        expectedInsertions.add(new int[]{0, 2});
+        List<int[]> pages = new ArrayList<>();
+
+        start();
+        for (int page = 1; page <= PAGES; page++) {
+            if (page > 1) {
+                scrollTo(PAGE_SIZE * page);
+            }
+
+            int start = expectedPks.size();
+            for (int pk = firstPk(page); pk < firstPk(page) + PAGE_SIZE; pk++) {
+                expectedPks.add(pk);
+            }
+            int appended = expectedPks.size() - start;
+            expectedInsertions.add(new int[]{start, appended});
+            pages.add(new int[]{start, start + appended});
+
+            assertEquals("page " + page + " appended " + appended, nextEvent());
+            assertState(expectedPks, expectedInsertions, pages, cached);
+        }
+
+        assertFalse(hasNext());
+        scrollTo(expectedPks.size() - 1);
+        assertEquals(PAGES, mServer.getRequests().size());
+        for (int page = 1; page <= PAGES; page++) {
+            assertEquals(path(page), mServer.getRequests().get(page - 1).getPath());
+        }
+    }
+
+    @Test
+    public void nextPageIsRequestedNearTheEnd() throws Exception {
+        start();
+        assertEquals("page 1 appended " + PAGE_SIZE, nextEvent());
+
+        int threshold = PAGE_SIZE - 1 - Constants.SEARCH_PAGE_PREFETCH_THRESHOLD;
+        scrollTo(-1);
+        scrollTo(threshold - 1);
+        assertTrue(hasNext());
+        assertEquals(1, mServer.getRequests().size());
+
+        // scrolling on while the page is requested doesn't request it again
+        scrollTo(threshold);
+        assertFalse(hasNext());
+        scrollTo(threshold + 1);
+        assertEquals("page 2 appended " + PAGE_STRIDE, nextEvent());
+        assertEquals(2, mServer.getRequests().size());
+        assertTrue(hasNext());
+    }
+
+    @Test
+    public void pageWithoutNewItemsRequestsTheNextOne() throws Exception {
+        // the cache already found every item of the first two pages, so they insert no rows and
+        // nothing is laid out that would call onScrolled
+        final JSONArray cached = new JSONArray();
+        for (int pk = firstPk(1); pk < firstPk(2) + PAGE_SIZE; pk++) {
+            cached.put(summary(pk));
+        }
+        onMainThread(new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return mPager.append(cached);
+            }
+        });
+
+        start();
+        assertEquals("page 1 appended 0", nextEvent());
+        assertEquals("page 2 appended 0", nextEvent());
+        assertEquals("page 3 appended " + PAGE_STRIDE, nextEvent());
+
+        // a page that inserted rows waits for the user to scroll again
+        assertTrue(hasNext());
+        assertEquals(3, mServer.getRequests().size());
+        assertEquals(cached.length() + PAGE_STRIDE, mItems.length());
+    }
+
+    @Test
+    public void failedPageIsRequestedAgain() throws Exception {
+        start();
+        assertEquals("page 1 appended " + PAGE_SIZE, nextEvent());
+
+        mFailNextPage.set(true);
+        scrollTo(PAGE_SIZE - 1);
+        assertEquals("page 2 failed", nextEvent());
+        assertEquals(PAGE_SIZE, mItems.length());
+        assertTrue(hasNext());
+
+        scrollTo(PAGE_SIZE - 1);
+        assertEquals("page 2 appended " + PAGE_STRIDE, nextEvent());
+        assertEquals(path(2), mServer.getRequests().get(1).getPath());
+        assertEquals(path(2), mServer.getRequests().get(2).getPath());
+        assertEquals(PAGE_SIZE + PAGE_STRIDE, mItems.length());
+    }
+
+    /**
+     * Checks the items against the pks expected so far, the insertions reported so far, and that
+     * only the most recent pages are whole
+     */
+    private void assertState(final LinkedHashSet<Integer> expectedPks, final List<int[]> expectedInsertions, final List<int[]> pages, final JSONArray cached) throws Exception {
+        onMainThread(new Callable<Void>() {
+            @Override
+            public Void call() throws JSONException {
+                ArrayList<Integer> pks = new ArrayList<>();
+                for (int i = 0; i < mItems.length(); i++) {
+                    pks.add(mItems.getJSONObject(i).getInt(Api.RECIPE_PK));
+                }
+                assertEquals(new ArrayList<>(expectedPks), pks);
+
+                assertEquals(expectedInsertions.size(), mInsertions.size());
+                for (int i = 0; i < expectedInsertions.size(); i++) {
+                    assertEquals(Arrays.toString(expectedInsertions.get(i)), Arrays.toString(mInsertions.get(i)));
+                }
+
+                // cached items are summaries already and are never replaced
+                assertSame(cached.get(0), mItems.get(0));
+                assertSame(cached.get(1), mItems.get(1));
+
+                int trimmedPages = Math.max(0, pages.size() - Constants.SEARCH_MAX_PAGES_IN_MEMORY);
+                for (int page = 0; page < pages.size(); page++) {
+                    for (int position = pages.get(page)[0]; position < pages.get(page)[1]; position++) {
+                        JSONObject item = mItems.getJSONObject(position);
+                        String where = "item " + position + " of page " + (page + 1);
+                        assertEquals(where, page >= trimmedPages, item.has(DETAILS));
+                        assertEquals(where, SUMMARY_KEYS.length + (page >= trimmedPages ? 1 : 0), item.length());
+                        assertEquals(where, "recipe " + item.getInt(Api.RECIPE_PK), item.getString(Api.RECIPE_NAME));
+                    }
+                }
+                return null;
+            }
+        });
+    }
+
+    private void start() throws Exception {
+        onMainThread(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mPager.start(mServer.url(path(1)));
+                return null;
+            }
+        });
+    }
+
+    private void scrollTo(final int lastVisible) throws Exception {
+        onMainThread(new Callable<Void>() {
+            @Override
+            public Void call() {
+                mPager.onScrolledTo(lastVisible);
+                return null;
+            }
+        });
+    }
+
+    private boolean hasNext() throws Exception {
+        return onMainThread(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return mPager.hasNext();
+            }
+        });
+    }
+
+    private <T> T onMainThread(Callable<T> callable) throws Exception {
+        return mMainThread.submit(callable).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    private String nextEvent() throws InterruptedException {
+        String event = mEvents.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("no page was delivered", event);
+        return event;
+    }
+
+    private JSONObject page(int page) {
+        try {
+            JSONArray results = new JSONArray();
+            for (int pk = firstPk(page); pk < firstPk(page) + PAGE_SIZE; pk++) {
+                results.put(summary(pk).put(DETAILS, new JSONArray().put("step 1 of " + pk).put("step 2 of " + pk)));
+            }
+            return new JSONObject()
+                    .put(Api.COUNT, PAGE_STRIDE * (PAGES - 1) + PAGE_SIZE)
+                    .put(Api.NEXT, page < PAGES ? mServer.url(path(page + 1)) : JSONObject.NULL)
+                    .put(Api.RESULTS, results);
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static JSONObject summary(int pk) {
+        try {
+            return new JSONObject()
+                    .put(Api.RECIPE_PK, pk)
+                    .put(Api.RECIPE_NAME, "recipe " + pk)
+                    .put(Api.RECIPE_ICON, "http://cookstogo.herokuapp.com/media/icons/" + pk + ".png");
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static int firstPk(int page) {
+        return (page - 1) * PAGE_STRIDE;
+    }
+
+    private static String path(int page) {
+        return "/api/recipes/search/page" + page + "/";
+    }
+}
@@ -0,0 +1,200 @@
+package team.jcandfriends.cookstogo;
+
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks that every request that isn't cancelled is delivered, whichever way its job fails. A
+ * single thread stands in for the main thread: requests are submitted and delivered on it.
+ */
+public class RequestSchedulerTest {
+
+    private static final long TIMEOUT_SECONDS = 5;
+
+    private static final Object NULL = new Object();
+
+    private final Object mOwner = new Object();
+    private final BlockingQueue<Object> mResults = new ArrayBlockingQueue<>(16);
+
+    private ExecutorService mMainThread;
+
+    @Before
+    public void setUp() {
+        mMainThread = Executors.newSingleThreadExecutor();
+        RequestScheduler.setDelivery(mMainThread);
+    }
+
+    @After
+    public void tearDown() {
+        RequestScheduler.setDelivery(null);
+        mMainThread.shutdownNow();
+    }
+
+    @Test
+    public void resultIsDelivered() throws InterruptedException {
+        submit(new RequestScheduler.Job<Object>() {
+            @Override
+            public Object run() {
+                return "recipe";
+            }
+        });
+
+        assertEquals("recipe", nextResult());
+    }
+
+    @Test
+    public void failedRequestDeliversNull() throws InterruptedException {
+        submit(new RequestScheduler.Job<Object>() {
+            @Override
+            public Object run() throws IOException {
+                throw new IOException("Connection reset");
+            }
+        });
+        submit(new RequestScheduler.Job<Object>() {
+            @Override
+            public Object run() throws JSONException {
+                throw new JSONException("Malformed JSON");
+            }
+        });
+
+        assertNull(nextResult());
+        assertNull(nextResult());
+    }
+
+    @Test
+    public void crashedRequestDeliversNull() throws InterruptedException {
+        for (RequestScheduler.Lane lane : RequestScheduler.Lane.values()) {
+            submit(lane, new RequestScheduler.Job<Object>() {
+                @Override
+                public Object run() {
+                    // what the managers throw when their cache is unusable
+                    throw new RuntimeException("Cannot proceed anymore");
+                }
+            });
+            assertNull(nextResult());
+
+            // the lane still runs requests afterwards
+            submit(lane, new RequestScheduler.Job<Object>() {
+                @Override
+                public Object run() {
+                    return "recipe";
+                }
+            });
+            assertEquals("recipe", nextResult());
+        }
+    }
+
+    @Test
+    public void jobRunsOnTheExecutorItWasSubmittedTo() throws Exception {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>());
+        final CountDownLatch busy = new CountDownLatch(1);
+        final AtomicInteger cancelledRuns = new AtomicInteger();
+        try {
+            // the executor is busy, like an indexer that is building its index, which holds no lane
+            executor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        busy.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            });
+
+            final RequestScheduler.Job<Object> job = new RequestScheduler.Job<Object>() {
+                @Override
+                public Object run() {
+                    return Thread.currentThread().getName().startsWith("RequestScheduler") ? "lane" : "executor";
+                }
+            };
+            final RequestScheduler.Job<Object> cancelledJob = new RequestScheduler.Job<Object>() {
+                @Override
+                public Object run() {
+                    cancelledRuns.incrementAndGet();
+                    return "cancelled";
+                }
+            };
+            mMainThread.submit(new Callable<Void>() {
+                @Override
+                public Void call() {
+                    RequestScheduler.submit(mOwner, executor, job, new RequestScheduler.Listener<Object>() {
+                        @Override
+                        public void onResult(Object result) {
+                            mResults.add(result);
+                        }
+                    });
+                    RequestScheduler.submit(mOwner, executor, cancelledJob, new RequestScheduler.Listener<Object>() {
+                        @Override
+                        public void onResult(Object result) {
+                            mResults.add(result);
+                        }
+                    }).cancel();
+                    return null;
+                }
+            }).get(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+            // the cancelled request left the queue of the executor
+            assertEquals(1, executor.getQueue().size());
+
+            // the lanes still run requests while the executor is busy
+            submit(new RequestScheduler.Job<Object>() {
+                @Override
+                public Object run() {
+                    return "recipe";
+                }
+            });
+            assertEquals("recipe", nextResult());
+
+            busy.countDown();
+            assertEquals("executor", nextResult());
+            assertNull(mResults.poll(200, TimeUnit.MILLISECONDS));
+            assertEquals(0, cancelledRuns.get());
+        } finally {
+            busy.countDown();
+            executor.shutdown();
+        }
+    }
+
+    private void submit(RequestScheduler.Job<Object> job) throws InterruptedException {
+        submit(RequestScheduler.Lane.INTERACTIVE, job);
+    }
+
+    private void submit(final RequestScheduler.Lane lane, final RequestScheduler.Job<Object> job) throws InterruptedException {
+        mMainThread.execute(new Runnable() {
+            @Override
+            public void run() {
+                RequestScheduler.submit(mOwner, lane, job, new RequestScheduler.Listener<Object>() {
+                    @Override
+                    public void onResult(Object result) {
+                        mResults.add(result == null ? NULL : result);
+                    }
+                });
+            }
+        });
+    }
+
+    private Object nextResult() throws InterruptedException {
+        Object result = mResults.poll(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull("No result was delivered", result);
+        return result == NULL ? null : result;
+    }
+}
@@ -0,0 +1,242 @@
+package team.jcandfriends.cookstogo;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A local HTTP/1.1 server for the tests that go through HttpClient. It keeps every connection alive
+ * until the client closes it, and counts the sockets it accepted so a test can tell whether the
+ * client reused its connections.
+ */
+public final class StubServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final ServerSocket mServerSocket;
+    private final StubServer.Handler mHandler;
+    private final AtomicInteger mAcceptedSockets = new AtomicInteger();
+    private final List<StubServer.Request> mRequests = Collections.synchronizedList(new ArrayList<StubServer.Request>());
+    private final List<Socket> mSockets = Collections.synchronizedList(new ArrayList<Socket>());
+
+    public StubServer(StubServer.Handler handler) throws IOException {
+        mHandler = handler;
+        mServerSocket = new ServerSocket(0, 50, InetAddress.getByName("127.0.0.1"));
+
+        Thread acceptor = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                accept();
+            }
+        }, "StubServer acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * @param path the path of a resource, starting with a slash
+     * @return the url of the resource on this server
+     */
+    public String url(String path) {
+        return "http://127.0.0.1:" + mServerSocket.getLocalPort() + path;
+    }
+
+    public int getAcceptedSockets() {
+        return mAcceptedSockets.get();
+    }
+
+    /**
+     * @return a copy of the requests received so far, in the order they were received
+     */
+    public List<StubServer.Request> getRequests() {
+        synchronized (mRequests) {
+            return new ArrayList<>(mRequests);
+        }
+    }
+
+    public void shutdown() throws IOException {
+        mServerSocket.close();
+        synchronized (mSockets) {
+            for (Socket socket : mSockets) {
+                socket.close();
+            }
+        }
+    }
+
+    private void accept() {
+        while (!mServerSocket.isClosed()) {
+            final Socket socket;
+            try {
+                socket = mServerSocket.accept();
+            } catch (IOException e) {
+                return;
+            }
+            mAcceptedSockets.incrementAndGet();
+            mSockets.add(socket);
+
+            Thread connection = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    serve(socket);
+                }
+            }, "StubServer connection");
+            connection.setDaemon(true);
+            connection.start();
+        }
+    }
+
+    private void serve(Socket socket) {
+        try {
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            OutputStream out = socket.getOutputStream();
+
+            StubServer.Request request;
+            while ((request = readRequest(in)) != null) {
+                mRequests.add(request);
+                writeResponse(out, request.getMethod(), mHandler.handle(request));
+            }
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            try {
+                socket.close();
+            } catch (IOException e) {
+                // already closed
+            }
+        }
+    }
+
+    private static StubServer.Request readRequest(InputStream in) throws IOException {
+        String requestLine = readLine(in);
+        if (requestLine == null || requestLine.isEmpty()) {
+            return null;
+        }
+
+        String[] parts = requestLine.split(" ");
+        HashMap<String, String> headers = new HashMap<>();
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int colon = line.indexOf(':');
+            headers.put(line.substring(0, colon).trim().toLowerCase(), line.substring(colon + 1).trim());
+        }
+
+        String contentLength = headers.get("content-length");
+        byte[] body = new byte[contentLength == null ? 0 : Integer.parseInt(contentLength)];
+        int read = 0;
+        while (read < body.length) {
+            int count = in.read(body, read, body.length - read);
+            if (count == -1) {
+                throw new IOException("Truncated request body");
+            }
+            read += count;
+        }
+
+        return new StubServer.Request(parts[0], parts[1], headers, body);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int c;
+        while ((c = in.read()) != -1) {
+            if (c == '\n') {
+                byte[] bytes = line.toByteArray();
+                int length = bytes.length > 0 && bytes[bytes.length - 1] == '\r' ? bytes.length - 1 : bytes.length;
+                return new String(bytes, 0, length, UTF_8);
+            }
+            line.write(c);
+        }
+        return line.size() == 0 ? null : line.toString("UTF-8");
+    }
+
+    private static void writeResponse(OutputStream out, String method, StubServer.Response response) throws IOException {
+        boolean hasBody = !"HEAD".equals(method) && response.mStatus != 204 && response.mStatus != 304;
+
+        StringBuilder head = new StringBuilder();
+        head.append("HTTP/1.1 ").append(response.mStatus).append(" Stub\r\n");
+        for (Map.Entry<String, String> header : response.mHeaders.entrySet()) {
+            head.append(header.getKey()).append(": ").append(header.getValue()).append("\r\n");
+        }
+        head.append("Content-Length: ").append(hasBody ? response.mBody.length : 0).append("\r\n\r\n");
+
+        out.write(head.toString().getBytes(UTF_8));
+        if (hasBody) {
+            out.write(response.mBody);
+        }
+        out.flush();
+    }
+
+    /**
+     * Answers the requests of a StubServer, on the thread of their connection
+     */
+    public interface Handler {
+        StubServer.Response handle(StubServer.Request request) throws IOException;
+    }
+
+    public static final class Request {
+
+        private final String mMethod;
+        private final String mPath;
+        private final Map<String, String> mHeaders;
+        private final byte[] mBody;
+
+        private Request(String method, String path, Map<String, String> headers, byte[] body) {
+            mMethod = method;
+            mPath = path;
+            mHeaders = headers;
+            mBody = body;
+        }
+
+        public String getMethod() {
+            return mMethod;
+        }
+
+        public String getPath() {
+            return mPath;
+        }
+
+        /**
+         * @param name the name of the header, in any case
+         * @return the value of the header or null if it wasn't sent
+         */
+        public String getHeader(String name) {
+            return mHeaders.get(name.toLowerCase());
+        }
+
+        public byte[] getBody() {
+            return mBody;
+        }
+    }
+
+    public static final class Response {
+
+        private final int mStatus;
+        private final byte[] mBody;
+        private final Map<String, String> mHeaders = new HashMap<>();
+
+        public Response(int status, String body) {
+            this(status, body.getBytes(UTF_8));
+        }
+
+        public Response(int status, byte[] body) {
+            mStatus = status;
+            mBody = body;
+        }
+
+        public StubServer.Response header(String name, String value) {
+            mHeaders.put(name, value);
+            return this;
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package team.jcandfriends.cookstogo;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.Random;
+
+/**
+ * Builds recipes shaped like the ones the rest api sends, for tests and benchmarks that need many
+ * of them. The same seed always builds the same recipes.
+ */
+public final class SyntheticRecipes {
+
+    private static final String[] WORDS = {
+            "chicken", "adobo", "sinigang", "pork", "beef", "garlic", "rice", "fried", "soup", "stew",
+            "kare-kare", "lechon", "pancit", "tofu", "egg", "noodles", "vinegar", "coconut", "ginger",
+            "onion", "tomato", "mango", "banana", "shrimp", "squid", "fish", "spicy", "sweet", "sour",
+            "grilled", "crispy", "creamy", "classic", "easy", "home-style", "leche", "flan", "bread"
+    };
+
+    private static final String[] UNITS = {"cup", "tablespoon", "teaspoon", "kilo", "gram", "piece", "clove"};
+
+    private static final String[] QUANTITIES = {"1", "2", "0.5", "0.25", "0.75", "0.3333", "0.6667", "1.5", "3", "0.1667"};
+
+    private final Random mRandom;
+    private final int mIngredientCount;
+
+    /**
+     * @param seed            the seed of the recipes
+     * @param ingredientCount how many ingredients the recipes pick their components from
+     */
+    public SyntheticRecipes(long seed, int ingredientCount) {
+        mRandom = new Random(seed);
+        mIngredientCount = ingredientCount;
+    }
+
+    /**
+     * Builds a whole recipe, as /api/recipes/{pk}/ sends it
+     *
+     * @param pk the pk of the recipe
+     * @return the recipe
+     */
+    public JSONObject recipe(int pk) {
+        try {
+            JSONObject recipe = summary(pk)
+                    .put(Api.RECIPE_BANNER, "http://cookstogo.herokuapp.com/media/banners/" + pk + ".jpg")
+                    .put(Api.RECIPE_DURATION, 10 + mRandom.nextInt(170))
+                    .put(Api.RECIPE_DEFAULT_SERVING_SIZE, 1 + mRandom.nextInt(8))
+                    .put(Api.RECIPE_RATING, 1 + mRandom.nextInt(400) / 100.0)
+                    .put(Api.RECIPE_REVIEWS, mRandom.nextInt(500));
+
+            JSONArray components = new JSONArray();
+            int componentCount = 3 + mRandom.nextInt(10);
+            for (int i = 0; i < componentCount; i++) {
+                components.put(component(1 + mRandom.nextInt(mIngredientCount)));
+            }
+            recipe.put(Api.RECIPE_RECIPE_COMPONENTS, components);
+
+            JSONArray steps = new JSONArray();
+            int stepCount = 3 + mRandom.nextInt(8);
+            for (int i = 0; i < stepCount; i++) {
+                steps.put(new JSONObject()
+                        .put(Api.STEP_SEQUENCE, i + 1)
+                        .put(Api.STEP_INSTRUCTION, sentence(8 + mRandom.nextInt(20))));
+            }
+            recipe.put(Api.RECIPE_STEPS, steps);
+            return recipe;
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Builds the summary of a recipe, as the recipe types list it
+     *
+     * @param pk the pk of the recipe
+     * @return the summary
+     */
+    public JSONObject summary(int pk) {
+        try {
+            return new JSONObject()
+                    .put(Api.RECIPE_PK, pk)
+                    .put(Api.RECIPE_NAME, sentence(2 + mRandom.nextInt(3)))
+                    .put(Api.RECIPE_DESCRIPTION, sentence(10 + mRandom.nextInt(20)))
+                    .put(Api.RECIPE_ICON, "http://cookstogo.herokuapp.com/media/icons/" + pk + ".png");
+        } catch (JSONException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * @param ingredientPk the pk of the ingredient of the component
+     * @return a component of a recipe
+     */
+    public JSONObject component(int ingredientPk) throws JSONException {
+        return new JSONObject()
+                .put(Api.RECIPE_COMPONENT_QUANTITY, QUANTITIES[mRandom.nextInt(QUANTITIES.length)])
+                .put(Api.RECIPE_COMPONENT_ADJECTIVE, mRandom.nextBoolean() ? WORDS[mRandom.nextInt(WORDS.length)] : "")
+                .put(Api.RECIPE_COMPONENT_UNIT_OF_MEASURE, new JSONObject().put(Api.UNIT_OF_MEASURE_NAME, UNITS[mRandom.nextInt(UNITS.length)]))
+                .put(Api.RECIPE_COMPONENT_INGREDIENT, new JSONObject()
+                        .put(Api.INGREDIENT_PK, ingredientPk)
+                        .put(Api.INGREDIENT_NAME, ingredientName(ingredientPk))
+                        .put(Api.INGREDIENT_ICON, "http://cookstogo.herokuapp.com/media/icons/i" + ingredientPk + ".png"));
+    }
+
+    /**
+     * @return the name of an ingredient, always the same for the same pk
+     */
+    public static String ingredientName(int ingredientPk) {
+        return WORDS[ingredientPk % WORDS.length] + " " + ingredientPk;
+    }
+
+    private String sentence(int words) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (i > 0) {
+                sb.append(' ');
+            }
+            sb.append(WORDS[mRandom.nextInt(WORDS.length)]);
+        }
+        return sb.toString();
+    }
+}
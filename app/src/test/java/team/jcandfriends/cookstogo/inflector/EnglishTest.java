@@ -0,0 +1,67 @@
+package team.jcandfriends.cookstogo.inflector;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Locale;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the suffix trie resolves every word of the corpus exactly like trying the rules in
+ * order did
+ */
+public class EnglishTest {
+
+    private static final List<String> CORPUS = PluralCorpus.generate(16, 50000);
+
+    @Test
+    public void commonPlurals() {
+        English english = new English();
+        assertEquals("cups", english.getPlural("cup"));
+        assertEquals("tomatoes", english.getPlural("tomato"));
+        assertEquals("radios", english.getPlural("radio"));
+        assertEquals("cherries", english.getPlural("cherry"));
+        assertEquals("leaves", english.getPlural("leaf"));
+        assertEquals("knives", english.getPlural("knife"));
+        assertEquals("dishes", english.getPlural("dish"));
+        assertEquals("boxes", english.getPlural("box"));
+        assertEquals("Children", english.getPlural("Child"));
+        assertEquals("women", english.getPlural("woman"));
+        assertEquals("humans", english.getPlural("human"));
+        assertEquals("fish", english.getPlural("fish"));
+        assertEquals("curricula", english.getPlural("curriculum"));
+        assertEquals("quizzes", english.getPlural("quiz"));
+    }
+
+    @Test
+    public void anglicizedMatchesRules() {
+        assertMatchesRules(new English(English.MODE.ENGLISH_ANGLICIZED));
+    }
+
+    @Test
+    public void classicalMatchesRules() {
+        assertMatchesRules(new English(English.MODE.ENGLISH_CLASSICAL));
+    }
+
+    @Test
+    public void matchesRulesUnderTurkishLocale() {
+        Locale locale = Locale.getDefault();
+        Locale.setDefault(new Locale("tr", "TR"));
+        try {
+            assertMatchesRules(new English(English.MODE.ENGLISH_ANGLICIZED));
+            assertMatchesRules(new English(English.MODE.ENGLISH_CLASSICAL));
+        } finally {
+            Locale.setDefault(locale);
+        }
+    }
+
+    private static void assertMatchesRules(English english) {
+        assertTrue("the rules didn't compile into a trie", english.isCompiled());
+
+        for (String word : CORPUS) {
+            assertEquals(word, english.getPluralByRules(word), english.getPlural(word));
+        }
+    }
+}
@@ -0,0 +1,135 @@
+package team.jcandfriends.cookstogo.inflector;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates the words the suffix trie is checked against: every word English lists in its
+ * categories, the words its rules and irregulars are written for, variants of all of them and
+ * random strings. The same seed always generates the same corpus.
+ */
+final class PluralCorpus {
+
+    /**
+     * The words the rules, irregulars and uncountables of English are written for, plus words the
+     * app pluralizes
+     */
+    private static final String[] VOCABULARY = {
+            // irregulars
+            "child", "ephemeris", "mongoose", "mythos", "soliloquy", "trilby", "genus", "quiz", "beef",
+            "brother", "cow", "cos", "genie", "money", "octopus", "opus", "ox",
+            // uncountables
+            "fish", "catfish", "tortois", "sheep", "deer", "smallpox", "arthritis", "bison", "salmon",
+            "series", "species", "news", "sugar", "sea-bass", "high-jinks", "homework", "tuna",
+            // suffix rules
+            "man", "woman", "human", "german", "mouse", "louse", "house", "tooth", "goose", "foot",
+            "protozoon", "basis", "axis", "crisis", "matrix", "trix", "bureau", "milieu", "lynx",
+            "sphinx", "larynx", "onyx", "church", "dish", "buzz", "box", "bus", "virus", "gas", "glass",
+            "calf", "elf", "wolf", "leaf", "deaf", "dwarf", "scarf", "knife", "life", "wife", "safe",
+            "day", "boy", "city", "baby", "radio", "zoo", "hero", "potato", "tomato", "curriculum",
+            "curriculums", "cat", "dog",
+            // the app
+            "cup", "tablespoon", "teaspoon", "kilo", "gram", "piece", "clove", "egg", "onion",
+            "garlic", "mango", "banana", "shrimp", "squid", "noodle", "leche flan", "pinch", "dash",
+            "slice", "can", "pack", "bunch", "stalk", "liter", "ounce", "pound"
+    };
+
+    private static final String[] PREFIXES = {"", "x", "a", "d", "sea-", "Super", " ", "big "};
+
+    private static final String[] SUFFIXES = {"", "s", "e", "y", "o", "x", "h", "f", "um", "is", "us"};
+
+    /**
+     * Characters random strings are drawn from. Mostly letters, with the characters the trie has
+     * to hand back to the rules: line terminators, non-ASCII letters and 'I'.
+     */
+    private static final String ALPHABET = "aeiouyscxzhfnlmrdtwkqgbpvjAEIOUYSCXZHFNLM -'.1\n\r\u0085 éİıßK";
+
+    private PluralCorpus() {
+    }
+
+    /**
+     * @param seed          the seed of the corpus
+     * @param randomStrings how many random strings to add
+     * @return the words, without duplicates
+     */
+    static List<String> generate(long seed, int randomStrings) {
+        Random random = new Random(seed);
+        LinkedHashSet<String> words = new LinkedHashSet<>();
+
+        List<String> roots = new ArrayList<>();
+        for (String word : VOCABULARY) {
+            roots.add(word);
+        }
+        roots.addAll(categoryWords());
+
+        for (String root : roots) {
+            for (String prefix : PREFIXES) {
+                for (String suffix : SUFFIXES) {
+                    String word = prefix + root + suffix;
+                    words.add(word);
+                    words.add(word.toUpperCase(Locale.US));
+                    words.add(capitalize(word));
+                    words.add(randomCase(word, random));
+                }
+            }
+
+            // every suffix of the root, so partial matches of the longer patterns are covered
+            for (int i = 1; i < root.length(); i++) {
+                words.add(root.substring(i));
+                words.add(randomCase(root.substring(i), random));
+            }
+        }
+
+        words.add("");
+        for (int i = 0; i < randomStrings; i++) {
+            int length = 1 + random.nextInt(12);
+            StringBuilder sb = new StringBuilder(length);
+            for (int j = 0; j < length; j++) {
+                sb.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+            }
+            words.add(sb.toString());
+        }
+        return new ArrayList<>(words);
+    }
+
+    /**
+     * Reads every category list of English, so the corpus follows the lists as they change
+     */
+    private static List<String> categoryWords() {
+        List<String> words = new ArrayList<>();
+        for (Field field : English.class.getDeclaredFields()) {
+            if (Modifier.isStatic(field.getModifiers()) && field.getType() == String[].class) {
+                field.setAccessible(true);
+                try {
+                    for (String word : (String[]) field.get(null)) {
+                        words.add(word);
+                    }
+                } catch (IllegalAccessException e) {
+                    throw new IllegalStateException(e);
+                }
+            }
+        }
+        return words;
+    }
+
+    private static String capitalize(String word) {
+        if (word.isEmpty()) {
+            return word;
+        }
+        return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+    }
+
+    private static String randomCase(String word, Random random) {
+        StringBuilder sb = new StringBuilder(word.length());
+        for (int i = 0; i < word.length(); i++) {
+            char c = word.charAt(i);
+            sb.append(random.nextBoolean() ? Character.toUpperCase(c) : Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,131 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import team.jcandfriends.cookstogo.SyntheticRecipes;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Types queries into a history of 10k entries one character at a time, which narrows the matches
+ * down, then deletes them again, which widens them, and checks every step against scanning all the
+ * entries
+ */
+public class HistoryIndexTest {
+
+    private static final int ENTRIES = 10000;
+    private static final int QUERIES = 300;
+
+    private final Random mRandom = new Random(25);
+
+    @Test
+    public void narrowingAndWideningMatchAScan() {
+        List<String> history = history(ENTRIES);
+        HistoryIndex index = new HistoryIndex(history);
+
+        for (int i = 0; i < QUERIES; i++) {
+            String query = query(history);
+
+            for (int length = 0; length <= query.length(); length++) {
+                String typed = query.substring(0, length);
+                assertEquals("typing \"" + typed + "\"", scan(history, typed), index.search(typed));
+            }
+
+            for (int length = query.length() - 1; length >= 0; length--) {
+                String typed = query.substring(0, length);
+                assertEquals("deleting back to \"" + typed + "\"", scan(history, typed), index.search(typed));
+            }
+
+            // searching adds the query to the history, or moves it to the top if it is there already
+            String searched = mRandom.nextBoolean() ? query : history.get(mRandom.nextInt(history.size()));
+            add(history, searched);
+            index.add(searched);
+        }
+    }
+
+    @Test
+    public void researchedEntriesCompactAway() {
+        List<String> history = history(200);
+        HistoryIndex index = new HistoryIndex(history);
+
+        // moving the same entries to the top over and over leaves stale ids until a compaction
+        for (int i = 0; i < 2000; i++) {
+            String entry = history.get(mRandom.nextInt(history.size()));
+            add(history, entry);
+            index.add(entry);
+
+            String typed = query(history);
+            assertEquals(typed, scan(history, typed), index.search(typed));
+            assertEquals(typed.toUpperCase(Locale.US), scan(history, typed), index.search(typed.toUpperCase(Locale.US)));
+        }
+        assertEquals(history, index.search(""));
+
+        index.clear();
+        assertEquals(new ArrayList<String>(), index.search(""));
+        assertEquals(new ArrayList<String>(), index.search("a"));
+
+        index.add("Chicken Adobo");
+        assertEquals(1, index.search("ADO").size());
+    }
+
+    /**
+     * @return distinct entries, most recent first, shaped like what users search for
+     */
+    private List<String> history(int size) {
+        SyntheticRecipes recipes = new SyntheticRecipes(25, 1000);
+        LinkedHashSet<String> entries = new LinkedHashSet<>();
+        for (int pk = 1; entries.size() < size; pk++) {
+            String name = recipes.summary(pk).optString("name");
+            // some typed in capitals, some only a word or two
+            if (pk % 3 == 0) {
+                name = name.substring(0, 1).toUpperCase(Locale.US) + name.substring(1);
+            } else if (pk % 5 == 0) {
+                name = name.substring(0, Math.max(1, name.indexOf(' ', 3)));
+            }
+            entries.add(name);
+        }
+        return new ArrayList<>(entries);
+    }
+
+    /**
+     * @return most often a piece of an entry in any case, otherwise random text that rarely matches
+     */
+    private String query(List<String> history) {
+        if (mRandom.nextInt(4) == 0) {
+            StringBuilder sb = new StringBuilder();
+            int length = 1 + mRandom.nextInt(6);
+            for (int i = 0; i < length; i++) {
+                sb.append("aeioucknrst -.*".charAt(mRandom.nextInt(15)));
+            }
+            return sb.toString();
+        }
+
+        String entry = history.get(mRandom.nextInt(history.size()));
+        int start = mRandom.nextInt(entry.length());
+        int end = start + 1 + mRandom.nextInt(entry.length() - start);
+        String piece = entry.substring(start, end);
+        return mRandom.nextBoolean() ? piece : piece.toUpperCase(Locale.US);
+    }
+
+    private static void add(List<String> history, String entry) {
+        history.remove(entry);
+        history.add(0, entry);
+    }
+
+    private static List<String> scan(List<String> history, String query) {
+        String lower = query.toLowerCase(Locale.US);
+        List<String> matches = new ArrayList<>();
+        for (String entry : history) {
+            if (entry.toLowerCase(Locale.US).contains(lower)) {
+                matches.add(entry);
+            }
+        }
+        return matches;
+    }
+}
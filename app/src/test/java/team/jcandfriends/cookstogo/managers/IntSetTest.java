@@ -0,0 +1,58 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class IntSetTest {
+
+    @Test
+    public void emptySlotMarkerIsNeverAMember() {
+        IntSet set = new IntSet();
+        assertFalse(set.contains(Integer.MIN_VALUE));
+        assertFalse(set.remove(Integer.MIN_VALUE));
+        assertEquals(0, set.size());
+
+        set.add(1);
+        set.add(-1);
+        assertFalse(set.contains(Integer.MIN_VALUE));
+        assertFalse(set.remove(Integer.MIN_VALUE));
+        assertEquals(2, set.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptySlotMarkerCantBeAdded() {
+        new IntSet().add(Integer.MIN_VALUE);
+    }
+
+    @Test
+    public void behavesLikeAHashSet() {
+        Random random = new Random(15);
+        IntSet set = new IntSet();
+        HashSet<Integer> expected = new HashSet<>();
+
+        for (int i = 0; i < 100000; i++) {
+            // a small range, so keys collide and removals shift probe sequences
+            int key = random.nextInt(2000) - 1000;
+            switch (random.nextInt(3)) {
+                case 0:
+                    assertEquals(expected.add(key), set.add(key));
+                    break;
+                case 1:
+                    assertEquals(expected.remove(key), set.remove(key));
+                    break;
+                default:
+                    assertEquals(expected.contains(key), set.contains(key));
+            }
+            assertEquals(expected.size(), set.size());
+        }
+
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.Constants;
+import team.jcandfriends.cookstogo.SyntheticRecipes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the journal of the virtual baskets to the old persist(), which wrote every basket and
+ * every item to the SharedPreferences on each change, at 50 baskets of 100 items. The changes are
+ * shaped like the operations of VirtualBasketManager.
+ */
+public class JournalBenchmark {
+
+    private static final int BASKETS = 50;
+    private static final int ITEMS = 100;
+    private static final int CHANGES = 200;
+
+    private static final String PERSISTENT_VIRTUAL_BASKETS = "persistent_virtual_baskets";
+
+    private static final String VIRTUAL_BASKET_NAME = "name";
+    private static final String VIRTUAL_BASKET_ITEMS = "items";
+
+    private static final String OPERATION = "operation";
+    private static final String ADD_ITEM = "add_item";
+    private static final String BASKET_POSITION = "basket";
+    private static final String ITEM = "item";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void compareWithPersist() throws IOException, JSONException {
+        ArrayList<JSONObject> baskets = new ArrayList<>();
+        for (int i = 0; i < BASKETS; i++) {
+            JSONArray items = new JSONArray();
+            for (int j = 0; j < ITEMS; j++) {
+                items.put(ingredient(1 + (i * ITEMS + j) % 700));
+            }
+            baskets.add(new JSONObject().put(VIRTUAL_BASKET_NAME, "Basket " + i).put(VIRTUAL_BASKET_ITEMS, items));
+        }
+
+        PreferencesFile preferences = new PreferencesFile(mFolder.newFile(PERSISTENT_VIRTUAL_BASKETS + ".xml"));
+        File preferencesFile = new File(mFolder.getRoot(), PERSISTENT_VIRTUAL_BASKETS + ".xml");
+        long persistBytes = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < CHANGES; i++) {
+            JSONObject operation = addItem(i);
+            apply(baskets, operation);
+            preferences.putString(PERSISTENT_VIRTUAL_BASKETS, new JSONArray(baskets).toString());
+            persistBytes += preferencesFile.length();
+        }
+        long persist = System.nanoTime() - start;
+
+        Journal journal = new Journal(mFolder.newFolder(), "virtual_baskets", Constants.VIRTUAL_BASKETS_COMPACTION_THRESHOLD);
+        journal.open(new Journal.Replayer() {
+            @Override
+            public void restore(JSONArray state) {
+            }
+
+            @Override
+            public void replay(JSONObject operation) {
+            }
+        });
+        long journalBytes = 0;
+        int compactions = 0;
+        start = System.nanoTime();
+        for (int i = 0; i < CHANGES; i++) {
+            JSONObject operation = addItem(CHANGES + i);
+            apply(baskets, operation);
+            boolean isCompactionDue = journal.append(operation);
+            journalBytes += operation.toString().length() + 1;
+            if (isCompactionDue) {
+                JSONArray state = new JSONArray(baskets);
+                journal.compact(state);
+                journalBytes += state.toString().length();
+                compactions++;
+            }
+        }
+        journal.flush();
+        long journaled = System.nanoTime() - start;
+
+        System.out.println(String.format("%d baskets x %d items, %d changes | persist: %.2f ms and %d KB per change | journal: %.3f ms and %.1f KB per change, %d compactions",
+                BASKETS, ITEMS, CHANGES, persist / 1e6 / CHANGES, persistBytes / 1024 / CHANGES, journaled / 1e6 / CHANGES, journalBytes / 1024.0 / CHANGES, compactions));
+
+        assertEquals(BASKETS * ITEMS + 2 * CHANGES, countItems(baskets));
+        assertTrue("The journal should be faster than persist()", journaled < persist);
+        assertTrue("The journal should write less than persist()", journalBytes < persistBytes);
+    }
+
+    private static JSONObject addItem(int change) throws JSONException {
+        return new JSONObject()
+                .put(OPERATION, ADD_ITEM)
+                .put(BASKET_POSITION, change % BASKETS)
+                .put(ITEM, ingredient(1 + change % 700));
+    }
+
+    private static void apply(ArrayList<JSONObject> baskets, JSONObject operation) throws JSONException {
+        baskets.get(operation.getInt(BASKET_POSITION)).getJSONArray(VIRTUAL_BASKET_ITEMS).put(operation.getJSONObject(ITEM));
+    }
+
+    private static JSONObject ingredient(int pk) throws JSONException {
+        return new JSONObject()
+                .put(Api.INGREDIENT_PK, pk)
+                .put(Api.INGREDIENT_NAME, SyntheticRecipes.ingredientName(pk))
+                .put(Api.INGREDIENT_ICON, "http://cookstogo.herokuapp.com/media/icons/i" + pk + ".png")
+                .put(Api.INGREDIENT_DESCRIPTION, "A common ingredient of Filipino home cooking, sold in most markets");
+    }
+
+    private static int countItems(ArrayList<JSONObject> baskets) {
+        int count = 0;
+        for (JSONObject basket : baskets) {
+            count += basket.optJSONArray(VIRTUAL_BASKET_ITEMS).length();
+        }
+        return count;
+    }
+}
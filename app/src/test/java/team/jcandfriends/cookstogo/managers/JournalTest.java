@@ -0,0 +1,247 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Replays journals the way they are left on the disk by normal runs and by crashes. The state is a
+ * list of items, and adding an item isn't idempotent, so an operation replayed twice shows up as a
+ * duplicate.
+ */
+public class JournalTest {
+
+    private static final String NAME = "items";
+    private static final int COMPACTION_THRESHOLD = 100;
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = mFolder.newFolder();
+    }
+
+    @Test
+    public void replaysTheJournalOnTopOfTheSnapshot() throws JSONException {
+        Items items = new Items();
+        Journal journal = items.open();
+        items.add(journal, "rice", "garlic", "egg");
+        journal.compact(items.toState());
+        items.add(journal, "onion");
+        items.remove(journal, "garlic");
+        journal.flush();
+
+        Items replayed = new Items();
+        replayed.open();
+        assertEquals(Arrays.asList("rice", "egg", "onion"), replayed.mItems);
+        assertEquals(Arrays.asList("rice", "garlic", "egg"), replayed.mRestored);
+        assertEquals(2, replayed.mReplayed);
+    }
+
+    @Test
+    public void skipsTheOperationsThatTheSnapshotIncludes() throws IOException, JSONException {
+        Items items = new Items();
+        Journal journal = items.open();
+        items.add(journal, "rice", "garlic", "egg");
+        journal.flush();
+        byte[] journalBeforeCompaction = read(journalFile());
+
+        // a crash after the snapshot was renamed into place and before the journal was deleted
+        journal.compact(items.toState());
+        journal.flush();
+        assertFalse(journalFile().exists());
+        write(journalFile(), journalBeforeCompaction, false);
+
+        Items replayed = new Items();
+        Journal reopened = replayed.open();
+        assertEquals(Arrays.asList("rice", "garlic", "egg"), replayed.mItems);
+        assertEquals(0, replayed.mReplayed);
+
+        // the sequence goes on after the snapshot, so the next operation isn't skipped either
+        replayed.add(reopened, "onion");
+        reopened.flush();
+
+        Items again = new Items();
+        again.open();
+        assertEquals(Arrays.asList("rice", "garlic", "egg", "onion"), again.mItems);
+        assertEquals(1, again.mReplayed);
+    }
+
+    @Test
+    public void stopsAtATornLastLine() throws IOException, JSONException {
+        Items items = new Items();
+        Journal journal = items.open();
+        items.add(journal, "rice", "garlic");
+        journal.flush();
+
+        // a crash in the middle of appending the third operation
+        write(journalFile(), "{\"operation\":\"add\",\"item\":\"eg".getBytes(UTF_8), true);
+
+        Items replayed = new Items();
+        Journal reopened = replayed.open();
+        assertTrue("A torn journal is due for compaction", replayed.mIsCompactionDue);
+        assertEquals(Arrays.asList("rice", "garlic"), replayed.mItems);
+
+        // compacting before appending means nothing ends up behind the torn line
+        reopened.compact(replayed.toState());
+        replayed.add(reopened, "egg");
+        reopened.flush();
+
+        Items again = new Items();
+        again.open();
+        assertFalse(again.mIsCompactionDue);
+        assertEquals(Arrays.asList("rice", "garlic", "egg"), again.mItems);
+    }
+
+    @Test
+    public void appendsAreDueForCompactionAtTheThreshold() throws JSONException {
+        Items items = new Items();
+        Journal journal = items.open();
+        for (int i = 1; i < COMPACTION_THRESHOLD; i++) {
+            assertFalse(items.add(journal, "item " + i));
+        }
+        assertTrue(items.add(journal, "item " + COMPACTION_THRESHOLD));
+        journal.flush();
+
+        Items replayed = new Items();
+        replayed.open();
+        assertTrue(replayed.mIsCompactionDue);
+        assertEquals(COMPACTION_THRESHOLD, replayed.mItems.size());
+    }
+
+    @Test
+    public void rejectedOperationIsSkipped() throws IOException, JSONException {
+        Items items = new Items();
+        Journal journal = items.open();
+        items.add(journal, "rice");
+        journal.flush();
+        write(journalFile(), "{\"operation\":\"unknown\",\"sequence\":2}\n".getBytes(UTF_8), true);
+
+        Items replayed = new Items();
+        Journal reopened = replayed.open();
+        replayed.add(reopened, "egg");
+        reopened.flush();
+
+        Items again = new Items();
+        again.open();
+        assertEquals(Arrays.asList("rice", "egg"), again.mItems);
+    }
+
+    private File journalFile() {
+        return new File(mDirectory, NAME + ".journal");
+    }
+
+    private static byte[] read(File file) throws IOException {
+        InputStream is = new FileInputStream(file);
+        try {
+            byte[] bytes = new byte[(int) file.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                read += is.read(bytes, read, bytes.length - read);
+            }
+            return bytes;
+        } finally {
+            is.close();
+        }
+    }
+
+    private static void write(File file, byte[] bytes, boolean append) throws IOException {
+        OutputStream os = new FileOutputStream(file, append);
+        try {
+            os.write(bytes);
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * A list of items that is persisted with a journal, like the virtual baskets
+     */
+    private final class Items implements Journal.Replayer {
+
+        private static final String OPERATION = "operation";
+        private static final String ADD = "add";
+        private static final String REMOVE = "remove";
+        private static final String ITEM = "item";
+
+        final List<String> mItems = new ArrayList<>();
+        final List<String> mRestored = new ArrayList<>();
+        int mReplayed = 0;
+        boolean mIsCompactionDue;
+
+        Journal open() {
+            Journal journal = new Journal(mDirectory, NAME, COMPACTION_THRESHOLD);
+            mIsCompactionDue = journal.open(this);
+            return journal;
+        }
+
+        boolean add(Journal journal, String... items) throws JSONException {
+            boolean isCompactionDue = false;
+            for (String item : items) {
+                JSONObject operation = new JSONObject().put(OPERATION, ADD).put(ITEM, item);
+                apply(operation);
+                isCompactionDue = journal.append(operation);
+            }
+            return isCompactionDue;
+        }
+
+        void remove(Journal journal, String item) throws JSONException {
+            JSONObject operation = new JSONObject().put(OPERATION, REMOVE).put(ITEM, item);
+            apply(operation);
+            journal.append(operation);
+        }
+
+        JSONArray toState() {
+            return new JSONArray(mItems);
+        }
+
+        @Override
+        public void restore(JSONArray state) throws JSONException {
+            for (int i = 0; i < state.length(); i++) {
+                mItems.add(state.getString(i));
+                mRestored.add(state.getString(i));
+            }
+        }
+
+        @Override
+        public void replay(JSONObject operation) throws JSONException {
+            apply(operation);
+            mReplayed++;
+        }
+
+        private void apply(JSONObject operation) throws JSONException {
+            String name = operation.getString(OPERATION);
+            if (ADD.equals(name)) {
+                mItems.add(operation.getString(ITEM));
+            } else if (REMOVE.equals(name)) {
+                mItems.remove(operation.getString(ITEM));
+            } else {
+                throw new JSONException("Unknown operation " + name);
+            }
+        }
+    }
+}
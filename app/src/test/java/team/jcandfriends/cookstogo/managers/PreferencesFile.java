@@ -0,0 +1,78 @@
+package team.jcandfriends.cookstogo.managers;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Does what SharedPreferencesImpl does for the state that used to live in SharedPreferences: the
+ * map lives in memory, each apply() writes the whole map as XML, and getAll() returns a copy of
+ * the map
+ */
+final class PreferencesFile {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File mFile;
+    private final HashMap<String, String> mMap = new HashMap<>();
+
+    PreferencesFile(File file) {
+        mFile = file;
+    }
+
+    void putString(String key, String value) throws IOException {
+        mMap.put(key, value);
+        write();
+    }
+
+    String getString(String key) {
+        return mMap.get(key);
+    }
+
+    Map<String, ?> getAll() {
+        return new HashMap<>(mMap);
+    }
+
+    private void write() throws IOException {
+        StringBuilder xml = new StringBuilder("<?xml version='1.0' encoding='utf-8' standalone='yes' ?>\n<map>\n");
+        for (Map.Entry<String, String> entry : mMap.entrySet()) {
+            xml.append("    <string name=\"").append(entry.getKey()).append("\">");
+            escape(xml, entry.getValue());
+            xml.append("</string>\n");
+        }
+        xml.append("</map>\n");
+
+        OutputStream os = new FileOutputStream(mFile);
+        try {
+            os.write(xml.toString().getBytes(UTF_8));
+        } finally {
+            os.close();
+        }
+    }
+
+    private static void escape(StringBuilder xml, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '&':
+                    xml.append("&amp;");
+                    break;
+                case '<':
+                    xml.append("&lt;");
+                    break;
+                case '>':
+                    xml.append("&gt;");
+                    break;
+                case '"':
+                    xml.append("&quot;");
+                    break;
+                default:
+                    xml.append(c);
+            }
+        }
+    }
+}
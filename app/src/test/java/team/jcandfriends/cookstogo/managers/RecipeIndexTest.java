@@ -0,0 +1,285 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import team.jcandfriends.cookstogo.Api;
+import team.jcandfriends.cookstogo.SyntheticRecipes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the index stays the same as one built from scratch while recipe types and recipes
+ * come and go, and that it answers queries on a catalog of 10k recipes in under 5 ms
+ */
+public class RecipeIndexTest {
+
+    private static final int CATALOG_SIZE = 10000;
+    private static final int RECIPE_TYPE_COUNT = 20;
+    private static final int CACHED_RECIPES = 2000;
+    private static final int INGREDIENT_COUNT = 1000;
+
+    private static final long MAX_QUERY_NANOS = 5000000;
+
+    private static final int SYNC_RUNS = 5;
+
+    private static final String[] QUERIES = {
+            "chicken", "garlic rice", "spicy pork soup", "leche flan", "crispy fried shrimp with vinegar",
+            "coconut", "noodles", "sweet and sour fish", "mango bread", "beef stew"
+    };
+
+    @Test
+    public void answersQueriesOnTenThousandRecipesInUnderFiveMillis() throws JSONException {
+        SyntheticRecipes synthetic = new SyntheticRecipes(12, INGREDIENT_COUNT);
+        RecipeIndex index = new RecipeIndex();
+
+        index.addRecipeTypes(recipeTypes(synthetic, CATALOG_SIZE));
+        for (int pk = 1; pk <= CACHED_RECIPES; pk++) {
+            index.addRecipe(synthetic.recipe(pk));
+        }
+        assertEquals(CATALOG_SIZE, index.size());
+
+        String[] queries = new String[QUERIES.length + 10];
+        System.arraycopy(QUERIES, 0, queries, 0, QUERIES.length);
+        for (int i = QUERIES.length; i < queries.length; i++) {
+            // only found through the ingredients of the cached recipes
+            queries[i] = String.valueOf(1 + i * 37 % INGREDIENT_COUNT);
+        }
+
+        for (int run = 0; run < 20; run++) {
+            for (String query : queries) {
+                index.search(query, 50);
+            }
+        }
+
+        long[] times = new long[queries.length];
+        for (int i = 0; i < queries.length; i++) {
+            long start = System.nanoTime();
+            JSONArray results = index.search(queries[i], 50);
+            times[i] = System.nanoTime() - start;
+            assertTrue("No result for " + queries[i], results.length() > 0);
+        }
+        Arrays.sort(times);
+
+        assertTrue("The median query took " + times[times.length / 2] + " ns", times[times.length / 2] < MAX_QUERY_NANOS);
+    }
+
+    @Test
+    public void syncingUnchangedRecipeTypesIsCheap() throws JSONException {
+        SyntheticRecipes synthetic = new SyntheticRecipes(13, INGREDIENT_COUNT);
+        String recipeTypesAsString = recipeTypes(synthetic, CATALOG_SIZE).toString();
+
+        long first = Long.MAX_VALUE;
+        long unchanged = Long.MAX_VALUE;
+        long renamed = Long.MAX_VALUE;
+        for (int run = 0; run < SYNC_RUNS; run++) {
+            RecipeIndex index = new RecipeIndex();
+
+            // the recipe types are parsed again on each sync, as they come back from the server
+            JSONArray recipeTypes = new JSONArray(recipeTypesAsString);
+            long start = System.nanoTime();
+            index.addRecipeTypes(recipeTypes);
+            first = Math.min(first, System.nanoTime() - start);
+            JSONArray expected = index.search("chicken adobo", CATALOG_SIZE);
+
+            recipeTypes = new JSONArray(recipeTypesAsString);
+            start = System.nanoTime();
+            index.addRecipeTypes(recipeTypes);
+            unchanged = Math.min(unchanged, System.nanoTime() - start);
+            assertEquals(pks(expected), pks(index.search("chicken adobo", CATALOG_SIZE)));
+
+            // every recipe renamed, so every one is indexed again
+            for (int i = 0; i < recipeTypes.length(); i++) {
+                JSONArray recipes = recipeTypes.getJSONObject(i).getJSONArray(Api.RECIPE_TYPE_RECIPES);
+                for (int j = 0; j < recipes.length(); j++) {
+                    JSONObject recipe = new JSONObject(recipes.getJSONObject(j).toString());
+                    recipes.put(j, recipe.put(Api.RECIPE_NAME, recipe.getString(Api.RECIPE_NAME) + " special"));
+                }
+            }
+            start = System.nanoTime();
+            index.addRecipeTypes(recipeTypes);
+            renamed = Math.min(renamed, System.nanoTime() - start);
+            assertEquals(CATALOG_SIZE, index.search("special", CATALOG_SIZE).length());
+            assertEquals(CATALOG_SIZE, index.size());
+        }
+
+        assertTrue("Syncing unchanged recipe types should cost less than indexing them", unchanged < first);
+        // re-indexing removes every posting of every recipe, which must not grow with the square
+        assertTrue("Re-indexing " + CATALOG_SIZE + " recipes took " + renamed / 1000000 + " ms", renamed < 5 * first);
+    }
+
+    @Test
+    public void incrementalUpdatesMatchAFreshIndex() throws JSONException {
+        SyntheticRecipes synthetic = new SyntheticRecipes(14, 100);
+        Random random = new Random(14);
+        int catalogSize = 600;
+
+        JSONObject[] recipes = new JSONObject[catalogSize + 101];
+        for (int pk = 1; pk < recipes.length; pk++) {
+            recipes[pk] = synthetic.recipe(pk);
+        }
+        JSONArray recipeTypes = recipeTypes(recipes, catalogSize);
+
+        RecipeIndex index = new RecipeIndex();
+        HashSet<Integer> cached = new HashSet<>();
+        index.addRecipeTypes(recipeTypes);
+
+        for (int step = 0; step < 2000; step++) {
+            // recipes past the catalog are cached without being in any recipe type
+            int pk = 1 + random.nextInt(recipes.length - 1);
+            int operation = random.nextInt(10);
+            if (operation < 5) {
+                index.addRecipe(recipes[pk]);
+                cached.add(pk);
+            } else if (operation < 9) {
+                index.removeRecipe(pk);
+                cached.remove(pk);
+            } else {
+                // the server renamed a recipe and dropped another one from its recipe type
+                JSONArray listed = recipeTypes.getJSONObject(random.nextInt(RECIPE_TYPE_COUNT)).getJSONArray(Api.RECIPE_TYPE_RECIPES);
+                if (listed.length() > 1) {
+                    // a copy, like the recipe types that are parsed again on each sync
+                    int position = random.nextInt(listed.length());
+                    JSONObject renamed = new JSONObject(listed.getJSONObject(position).toString());
+                    renamed.put(Api.RECIPE_NAME, renamed.getString(Api.RECIPE_NAME) + " " + step);
+                    listed.put(position, renamed);
+                    recipes[renamed.getInt(Api.RECIPE_PK)].put(Api.RECIPE_NAME, renamed.getString(Api.RECIPE_NAME));
+                    // another one, the renamed summary would otherwise only live on in recipes[]
+                    int dropped = random.nextInt(listed.length() - 1);
+                    listed.remove(dropped < position ? dropped : dropped + 1);
+                }
+                index.addRecipeTypes(recipeTypes);
+            }
+        }
+        assertSameResults(fresh(recipeTypes, recipes, cached), index);
+
+        index.removeRecipeTypes();
+        assertSameResults(fresh(new JSONArray(), recipes, cached), index);
+        assertEquals(cached.size(), index.size());
+
+        index.addRecipeTypes(recipeTypes);
+        index.removeRecipes();
+        assertSameResults(fresh(recipeTypes, recipes, new HashSet<Integer>()), index);
+    }
+
+    @Test
+    public void removedRecipeIsOnlyFoundByItsSummary() throws JSONException {
+        SyntheticRecipes synthetic = new SyntheticRecipes(15, 100);
+        JSONObject listed = synthetic.recipe(1).put(Api.RECIPE_NAME, "adobo").put(Api.RECIPE_DESCRIPTION, "classic");
+        JSONObject unlisted = synthetic.recipe(2).put(Api.RECIPE_NAME, "sinigang").put(Api.RECIPE_DESCRIPTION, "sour");
+        listed.put(Api.RECIPE_RECIPE_COMPONENTS, new JSONArray().put(synthetic.component(42)));
+        unlisted.put(Api.RECIPE_RECIPE_COMPONENTS, new JSONArray().put(synthetic.component(42)));
+
+        RecipeIndex index = new RecipeIndex();
+        index.addRecipeTypes(new JSONArray().put(new JSONObject()
+                .put(Api.RECIPE_TYPE_NAME, "Lunch")
+                .put(Api.RECIPE_TYPE_RECIPES, new JSONArray().put(synthetic.summary(1).put(Api.RECIPE_NAME, "adobo").put(Api.RECIPE_DESCRIPTION, "classic")))));
+        index.addRecipe(listed);
+        index.addRecipe(unlisted);
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), pks(index.search("42", 10)));
+
+        index.removeRecipe(1);
+        index.removeRecipe(2);
+        assertEquals(new HashSet<Integer>(), pks(index.search("42", 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1)), pks(index.search("adobo", 10)));
+        assertEquals(new HashSet<Integer>(), pks(index.search("sinigang", 10)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void lastWordMatchesAsAPrefix() throws JSONException {
+        RecipeIndex index = new RecipeIndex();
+        JSONArray recipes = new JSONArray();
+        String[] names = {"Chicken Adobo", "Chickpea Stew", "Chili Con Carne", "Pork Sinigang", "Adobong Pusit"};
+        for (int i = 0; i < names.length; i++) {
+            recipes.put(new JSONObject().put(Api.RECIPE_PK, i + 1).put(Api.RECIPE_NAME, names[i]).put(Api.RECIPE_DESCRIPTION, ""));
+        }
+        index.addRecipeTypes(new JSONArray().put(new JSONObject().put(Api.RECIPE_TYPE_NAME, "Lunch").put(Api.RECIPE_TYPE_RECIPES, recipes)));
+
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), pks(index.search("chi", 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), pks(index.search("Chick", 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1)), pks(index.search("chicken", 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1, 5)), pks(index.search("adob", 10)));
+
+        // only the last word is incomplete, earlier words and a word followed by a space are whole
+        assertEquals(new HashSet<>(Arrays.asList(1, 5)), pks(index.search("chi adobo", 10)));
+        assertEquals(new HashSet<>(Arrays.asList(1, 2)), pks(index.search("adobo chick", 10)));
+        assertEquals(new HashSet<Integer>(), pks(index.search("chi ", 10)));
+        assertEquals(new HashSet<Integer>(), pks(index.search("c", 10)));
+
+        // the best match of both words comes first
+        assertEquals(1, index.search("adobo chick", 10).getJSONObject(0).getInt(Api.RECIPE_PK));
+
+        // words that are no longer indexed are no longer prefixes
+        index.remove(2);
+        assertEquals(new HashSet<>(Arrays.asList(1)), pks(index.search("chick", 10)));
+        index.remove(1);
+        assertEquals(new HashSet<Integer>(), pks(index.search("chick", 10)));
+    }
+
+    private static RecipeIndex fresh(JSONArray recipeTypes, JSONObject[] recipes, HashSet<Integer> cached) {
+        RecipeIndex index = new RecipeIndex();
+        index.addRecipeTypes(recipeTypes);
+        for (int pk : cached) {
+            index.addRecipe(recipes[pk]);
+        }
+        return index;
+    }
+
+    private static void assertSameResults(RecipeIndex expected, RecipeIndex actual) throws JSONException {
+        assertEquals(expected.size(), actual.size());
+        for (String query : QUERIES) {
+            assertEquals(query, pks(expected.search(query, Integer.MAX_VALUE)), pks(actual.search(query, Integer.MAX_VALUE)));
+        }
+        for (int ingredient = 1; ingredient <= 100; ingredient++) {
+            String query = String.valueOf(ingredient);
+            assertEquals(query, pks(expected.search(query, Integer.MAX_VALUE)), pks(actual.search(query, Integer.MAX_VALUE)));
+        }
+    }
+
+    /**
+     * Recipe types that list the summaries of the recipes 1 to size
+     */
+    private static JSONArray recipeTypes(SyntheticRecipes synthetic, int size) throws JSONException {
+        JSONArray recipeTypes = new JSONArray();
+        for (int i = 0; i < RECIPE_TYPE_COUNT; i++) {
+            JSONArray recipes = new JSONArray();
+            for (int pk = 1 + i; pk <= size; pk += RECIPE_TYPE_COUNT) {
+                recipes.put(synthetic.summary(pk).put(Api.RECIPE_BANNER, "http://cookstogo.herokuapp.com/media/banners/" + pk + ".jpg"));
+            }
+            recipeTypes.put(new JSONObject().put(Api.RECIPE_TYPE_NAME, "Type " + i).put(Api.RECIPE_TYPE_RECIPES, recipes));
+        }
+        return recipeTypes;
+    }
+
+    /**
+     * Recipe types that list the summaries of the given recipes, up to the given pk
+     */
+    private static JSONArray recipeTypes(JSONObject[] recipes, int size) throws JSONException {
+        String[] summaryKeys = {Api.RECIPE_PK, Api.RECIPE_NAME, Api.RECIPE_DESCRIPTION, Api.RECIPE_ICON, Api.RECIPE_BANNER};
+        JSONArray recipeTypes = new JSONArray();
+        for (int i = 0; i < RECIPE_TYPE_COUNT; i++) {
+            JSONArray summaries = new JSONArray();
+            for (int pk = 1 + i; pk <= size; pk += RECIPE_TYPE_COUNT) {
+                summaries.put(new JSONObject(recipes[pk], summaryKeys));
+            }
+            recipeTypes.put(new JSONObject().put(Api.RECIPE_TYPE_NAME, "Type " + i).put(Api.RECIPE_TYPE_RECIPES, summaries));
+        }
+        return recipeTypes;
+    }
+
+    private static HashSet<Integer> pks(JSONArray summaries) throws JSONException {
+        HashSet<Integer> pks = new HashSet<>();
+        for (int i = 0; i < summaries.length(); i++) {
+            pks.add(summaries.getJSONObject(i).getInt(Api.RECIPE_PK));
+        }
+        return pks;
+    }
+}
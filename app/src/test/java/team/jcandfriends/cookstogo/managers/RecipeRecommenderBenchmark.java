@@ -0,0 +1,138 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+
+import team.jcandfriends.cookstogo.Constants;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Recommends recipes from synthetic catalogs of 1k to 100k recipes, and compares each answer and
+ * its time to a scan of every recipe. Ingredients are picked with a skewed popularity, like salt
+ * and garlic are in most real recipes, so the postings of the common ones are long.
+ */
+public class RecipeRecommenderBenchmark {
+
+    private static final int[] SIZES = {1000, 10000, 100000};
+
+    private static final int INGREDIENT_COUNT = 2000;
+    private static final int BASKETS = 200;
+
+    @Test
+    public void recommendFromSyntheticCatalogs() {
+        for (int size : SIZES) {
+            Random random = new Random(size);
+            int[][] recipes = new int[size][];
+            for (int pk = 0; pk < size; pk++) {
+                recipes[pk] = ingredients(random, 3 + random.nextInt(10));
+            }
+
+            RecipeRecommender recommender = new RecipeRecommender();
+            long start = System.nanoTime();
+            for (int pk = 0; pk < size; pk++) {
+                recommender.addRecipe(pk, recipes[pk].clone(), recipes[pk].length);
+            }
+            long build = System.nanoTime() - start;
+            assertEquals(size, recommender.size());
+
+            int[][] baskets = new int[BASKETS][];
+            for (int i = 0; i < BASKETS; i++) {
+                baskets[i] = ingredients(random, 5 + random.nextInt(15));
+            }
+
+            // every match, so the answer can be compared to the scan whatever the limit cuts off
+            for (int[] basket : baskets) {
+                RecipeRecommender.Matches matches = recommender.recommend(basket, Constants.NEARLY_THERE_MAX_MISSING, size);
+                ArrayList<HashSet<Integer>> expected = scan(recipes, basket, Constants.NEARLY_THERE_MAX_MISSING);
+                for (int missing = 0; missing <= Constants.NEARLY_THERE_MAX_MISSING; missing++) {
+                    assertEquals(expected.get(missing), toSet(matches.get(missing)));
+                }
+            }
+
+            for (int run = 0; run < 3; run++) {
+                for (int[] basket : baskets) {
+                    recommender.recommend(basket, Constants.NEARLY_THERE_MAX_MISSING, Constants.CACHED_RECOMMENDATION_LIMIT);
+                    scan(recipes, basket, Constants.NEARLY_THERE_MAX_MISSING);
+                }
+            }
+
+            long[] recommendTimes = new long[BASKETS];
+            long[] scanTimes = new long[BASKETS];
+            for (int i = 0; i < BASKETS; i++) {
+                start = System.nanoTime();
+                recommender.recommend(baskets[i], Constants.NEARLY_THERE_MAX_MISSING, Constants.CACHED_RECOMMENDATION_LIMIT);
+                recommendTimes[i] = System.nanoTime() - start;
+
+                start = System.nanoTime();
+                scan(recipes, baskets[i], Constants.NEARLY_THERE_MAX_MISSING);
+                scanTimes[i] = System.nanoTime() - start;
+            }
+            Arrays.sort(recommendTimes);
+            Arrays.sort(scanTimes);
+
+            System.out.println(String.format("%6d recipes: built in %7.1f ms | recommend median %8.1f us, p90 %8.1f us | scan median %8.1f us",
+                    size, build / 1e6, recommendTimes[BASKETS / 2] / 1e3, recommendTimes[BASKETS * 9 / 10] / 1e3, scanTimes[BASKETS / 2] / 1e3));
+
+            if (size == SIZES[SIZES.length - 1]) {
+                assertTrue("Recommending from " + size + " recipes should be faster than scanning them", recommendTimes[BASKETS / 2] < scanTimes[BASKETS / 2]);
+            }
+        }
+    }
+
+    /**
+     * Picks distinct ingredients, the ones with a low pk far more often than the others
+     */
+    private static int[] ingredients(Random random, int count) {
+        HashSet<Integer> picked = new HashSet<>();
+        while (picked.size() < count) {
+            double skewed = Math.pow(random.nextDouble(), 3);
+            picked.add(1 + (int) (skewed * INGREDIENT_COUNT));
+        }
+
+        int[] ingredients = new int[count];
+        int i = 0;
+        for (int ingredient : picked) {
+            ingredients[i++] = ingredient;
+        }
+        return ingredients;
+    }
+
+    /**
+     * Counts the missing ingredients of every recipe that shares at least one with the basket
+     */
+    private static ArrayList<HashSet<Integer>> scan(int[][] recipes, int[] basket, int maxMissing) {
+        HashSet<Integer> owned = toSet(basket);
+        ArrayList<HashSet<Integer>> matches = new ArrayList<>();
+        for (int missing = 0; missing <= maxMissing; missing++) {
+            matches.add(new HashSet<Integer>());
+        }
+
+        for (int pk = 0; pk < recipes.length; pk++) {
+            int have = 0;
+            for (int ingredient : recipes[pk]) {
+                if (owned.contains(ingredient)) {
+                    have++;
+                }
+            }
+            int missing = recipes[pk].length - have;
+            if (have > 0 && missing <= maxMissing) {
+                matches.get(missing).add(pk);
+            }
+        }
+        return matches;
+    }
+
+    private static HashSet<Integer> toSet(int[] values) {
+        HashSet<Integer> set = new HashSet<>();
+        for (int value : values) {
+            set.add(value);
+        }
+        return set;
+    }
+}
@@ -0,0 +1,91 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+
+import team.jcandfriends.cookstogo.SyntheticRecipes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Compares the recipe store to the SharedPreferences file that used to cache the recipes, at 10,
+ * 100 and 1,000 recipes. Caching a recipe used to rewrite the whole file and checking for one used
+ * to copy the whole map, so the old path grows with the square of the recipes while the store
+ * grows linearly.
+ */
+public class RecordStoreBenchmark {
+
+    private static final int[] SIZES = {10, 100, 1000};
+
+    private static final String RECIPE_CACHE_PREFIX = "recipe";
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void compareWithSharedPreferences() throws IOException {
+        for (int size : SIZES) {
+            String[] recipes = new String[size + 1];
+            SyntheticRecipes synthetic = new SyntheticRecipes(size, 500);
+            for (int pk = 1; pk <= size; pk++) {
+                recipes[pk] = synthetic.recipe(pk).toString();
+            }
+
+            PreferencesFile preferences = new PreferencesFile(mFolder.newFile("recipe_cache_" + size + ".xml"));
+            long start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                preferences.putString(RECIPE_CACHE_PREFIX + pk, recipes[pk]);
+            }
+            long preferencesCache = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                assertTrue(preferences.getAll().containsKey(RECIPE_CACHE_PREFIX + pk));
+            }
+            long preferencesContains = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                assertEquals(recipes[pk], preferences.getString(RECIPE_CACHE_PREFIX + pk));
+            }
+            long preferencesGet = System.nanoTime() - start;
+
+            File directory = mFolder.newFolder("recipe_store_" + size);
+            RecordStore store = new RecordStore(directory);
+            start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                store.put(pk, recipes[pk]);
+            }
+            store.flush();
+            long storeCache = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                assertTrue(store.contains(pk));
+            }
+            long storeContains = System.nanoTime() - start;
+
+            // a store opened again reads every record from its file rather than from memory
+            RecordStore reopened = new RecordStore(directory);
+            start = System.nanoTime();
+            for (int pk = 1; pk <= size; pk++) {
+                assertEquals(recipes[pk], reopened.get(pk));
+            }
+            long storeGet = System.nanoTime() - start;
+            assertEquals(size, reopened.keys().size());
+
+            System.out.println(String.format("%5d recipes | cache all: preferences %8.1f ms, store %6.1f ms | contains: preferences %7.2f ms, store %5.2f ms | get all: preferences %6.2f ms, store %6.2f ms",
+                    size, preferencesCache / 1e6, storeCache / 1e6, preferencesContains / 1e6, storeContains / 1e6, preferencesGet / 1e6, storeGet / 1e6));
+
+            if (size == SIZES[SIZES.length - 1]) {
+                assertTrue("Caching " + size + " recipes should be faster in the store", storeCache < preferencesCache);
+                assertTrue("Checking " + size + " recipes should be faster in the store", storeContains < preferencesContains);
+            }
+        }
+    }
+}
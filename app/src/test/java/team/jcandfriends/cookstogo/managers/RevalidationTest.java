@@ -0,0 +1,209 @@
+package team.jcandfriends.cookstogo.managers;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.util.List;
+
+import team.jcandfriends.cookstogo.JSONGrabber;
+import team.jcandfriends.cookstogo.StubServer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Revalidates a cached entry against a local server that answers HTTP_NOT_MODIFIED when the
+ * validators it receives match its current version
+ */
+public class RevalidationTest {
+
+    private static final String ETAG = "\"v1\"";
+    private static final String LAST_MODIFIED = "Sat, 17 Oct 2015 08:00:00 GMT";
+
+    private static final String BODY = "{\"count\": 2, \"next\": null, \"previous\": null, \"results\": [{\"pk\": 1}, {\"pk\": 2}]}";
+    private static final String REFORMATTED_BODY = "{\n  \"count\":2,\n  \"next\":null,\n  \"previous\":null,\n  \"results\":[ {\"pk\":1}, {\"pk\":2} ]\n}";
+    private static final String RECIPE_TYPES_BODY = "{\"count\": 1, \"next\": null, \"previous\": null, \"results\": [{\"pk\": 1, \"name\": \"Main\", "
+            + "\"recipes\": [{\"pk\": 7, \"name\": \"Adobo\", \"description\": \"Braised\", \"icon\": \"i.png\", \"banner\": \"b.jpg\", "
+            + "\"rating\": 4.5, \"steps\": [{\"sequence\": 1, \"instruction\": \"Braise\"}]}]}]}";
+    private static final String CHANGED_BODY = "{\"count\": 3, \"next\": null, \"previous\": null, \"results\": [{\"pk\": 1}, {\"pk\": 2}, {\"pk\": 3}]}";
+
+    private StubServer mServer;
+
+    private volatile String mBody = BODY;
+
+    /**
+     * Whether the server answers conditional requests, some only ever send the whole body
+     */
+    private volatile boolean mIsConditional = true;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = new StubServer(new StubServer.Handler() {
+            @Override
+            public StubServer.Response handle(StubServer.Request request) {
+                if (mIsConditional && ETAG.equals(request.getHeader("If-None-Match"))) {
+                    return new StubServer.Response(HttpURLConnection.HTTP_NOT_MODIFIED, "");
+                }
+                return new StubServer.Response(HttpURLConnection.HTTP_OK, mBody)
+                        .header("ETag", ETAG)
+                        .header("Last-Modified", LAST_MODIFIED);
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        mServer.shutdown();
+    }
+
+    @Test
+    public void firstFetchCachesTheEntryWithItsValidators() throws IOException, JSONException {
+        MemoryCache cache = new MemoryCache();
+
+        JSONArray entry = Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+
+        assertNotNull(entry);
+        assertEquals(2, entry.length());
+        assertEquals(1, cache.mPuts);
+        assertEquals(0, cache.mMetadataPuts);
+        assertNotNull(cache.mMetadata.getValidators());
+
+        StubServer.Request request = lastRequest();
+        assertNull(request.getHeader("If-None-Match"));
+        assertNull(request.getHeader("If-Modified-Since"));
+    }
+
+    @Test
+    public void notModifiedKeepsTheCachedEntry() throws IOException, JSONException {
+        MemoryCache cache = new MemoryCache();
+        Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+        JSONArray cached = cache.mEntry;
+        CacheMetadata metadata = cache.mMetadata;
+
+        assertNull(Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache));
+
+        StubServer.Request request = lastRequest();
+        assertEquals(ETAG, request.getHeader("If-None-Match"));
+        assertEquals(LAST_MODIFIED, request.getHeader("If-Modified-Since"));
+
+        assertEquals(1, cache.mPuts);
+        assertEquals(0, cache.mMetadataPuts);
+        assertEquals(cached, cache.mEntry);
+        assertEquals(metadata, cache.mMetadata);
+    }
+
+    @Test
+    public void unchangedBodyOnlyUpdatesTheMetadata() throws IOException, JSONException {
+        mIsConditional = false;
+        MemoryCache cache = new MemoryCache();
+        Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+        JSONArray cached = cache.mEntry;
+
+        assertNull(Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache));
+
+        assertEquals(ETAG, lastRequest().getHeader("If-None-Match"));
+        assertEquals(1, cache.mPuts);
+        assertEquals(1, cache.mMetadataPuts);
+        assertEquals(cached, cache.mEntry);
+    }
+
+    @Test
+    public void changedBodyReplacesTheCachedEntry() throws IOException, JSONException {
+        mIsConditional = false;
+        MemoryCache cache = new MemoryCache();
+        Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+        long digest = cache.mMetadata.getDigest();
+
+        mBody = CHANGED_BODY;
+        JSONArray entry = Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+
+        assertNotNull(entry);
+        assertEquals(3, entry.length());
+        assertEquals(2, cache.mPuts);
+        assertEquals(entry, cache.mEntry);
+        assertNotEquals(digest, cache.mMetadata.getDigest());
+    }
+
+    @Test
+    public void entryCachedWithoutAResponseIsUnchanged() throws IOException, JSONException {
+        mIsConditional = false;
+        assertUnchangedOnceCachedLikeTheManagers(JSONGrabber.RESULTS, BODY);
+    }
+
+    @Test
+    public void recipeTypesCachedWithoutAResponseAreUnchanged() throws IOException, JSONException {
+        // the parser drops the fields of the recipes that the recipe types don't need, so the raw
+        // body would never hash the same as what is cached
+        mIsConditional = false;
+        mBody = RECIPE_TYPES_BODY;
+        assertUnchangedOnceCachedLikeTheManagers(JSONGrabber.RECIPE_TYPES, RECIPE_TYPES_BODY);
+    }
+
+    @Test
+    public void reformattedBodyIsUnchanged() throws IOException, JSONException {
+        mIsConditional = false;
+        MemoryCache cache = new MemoryCache();
+        Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache);
+
+        mBody = REFORMATTED_BODY;
+        assertNull(Revalidation.revalidate(mServer.url("/api/recipe-types/"), JSONGrabber.RESULTS, cache));
+        assertEquals(1, cache.mPuts);
+        assertEquals(1, cache.mMetadataPuts);
+    }
+
+    /**
+     * Caches the entry like cacheRecipe() and the other managers do when it didn't come from a
+     * revalidation, then revalidates it against the same body
+     */
+    private void assertUnchangedOnceCachedLikeTheManagers(JSONGrabber.Parser<JSONArray> parser, String body) throws IOException, JSONException {
+        MemoryCache cache = new MemoryCache();
+        JSONArray entry = JSONGrabber.parse(new ByteArrayInputStream(body.getBytes("UTF-8")), parser);
+        cache.mEntry = entry;
+        cache.mMetadata = CacheMetadata.of(entry.toString());
+
+        assertNull(Revalidation.revalidate(mServer.url("/api/recipe-types/"), parser, cache));
+        assertEquals(0, cache.mPuts);
+        assertEquals(1, cache.mMetadataPuts);
+        assertEquals(CacheMetadata.of(entry.toString()).getDigest(), cache.mMetadata.getDigest());
+    }
+
+    private StubServer.Request lastRequest() {
+        List<StubServer.Request> requests = mServer.getRequests();
+        return requests.get(requests.size() - 1);
+    }
+
+    private static final class MemoryCache implements Revalidation.Cache<JSONArray> {
+
+        private JSONArray mEntry;
+        private CacheMetadata mMetadata;
+        private int mPuts;
+        private int mMetadataPuts;
+
+        @Override
+        public CacheMetadata getMetadata() {
+            return mMetadata;
+        }
+
+        @Override
+        public void put(JSONArray entry, String entryAsString, CacheMetadata metadata) {
+            assertEquals(entry.toString(), entryAsString);
+            mEntry = entry;
+            mMetadata = metadata;
+            mPuts++;
+        }
+
+        @Override
+        public void putMetadata(CacheMetadata metadata) {
+            mMetadata = metadata;
+            mMetadataPuts++;
+        }
+    }
+}
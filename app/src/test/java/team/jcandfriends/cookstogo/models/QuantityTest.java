@@ -0,0 +1,207 @@
+package team.jcandfriends.cookstogo.models;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.math.BigInteger;
+import java.util.Arrays;
+
+import team.jcandfriends.cookstogo.SyntheticRecipes;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses quantities the way the rest api sends them, scales them to every serving size the
+ * stepper allows and checks what is rendered against exact arithmetic
+ */
+public class QuantityTest {
+
+    private static final int MAX_SERVING_SIZE = 99;
+
+    /**
+     * The time budget of one frame
+     */
+    private static final long FRAME_NANOS = 16000000;
+
+    private static final String VULGAR_FRACTIONS = "½⅓⅔¼¾⅕⅖⅗⅘⅙⅚⅛⅜⅝⅞";
+    private static final int[][] VULGAR_VALUES = {
+            {1, 2}, {1, 3}, {2, 3}, {1, 4}, {3, 4}, {1, 5}, {2, 5}, {3, 5}, {4, 5}, {1, 6}, {5, 6},
+            {1, 8}, {3, 8}, {5, 8}, {7, 8}
+    };
+
+    private static final String[] QUANTITIES = {
+            "1", "2", "12", "0.5", "0.25", "0.75", "0.125", "0.2", "0.3333", "0.6667", "0.333",
+            "0.667", "0.1667", "0.8333", "0.33333", "1.5", "1.3333", "2.6667", "3.1667", "2.0",
+            "0.1", "0.05", "0.01", "0.3", "1.75", "10.5"
+    };
+
+    @Test
+    public void parsesRepeatingThirdsAndSixths() {
+        assertFraction(1, 3, "0.3333");
+        assertFraction(1, 3, "0.333");
+        assertFraction(1, 3, "0.33333");
+        assertFraction(2, 3, "0.6667");
+        assertFraction(2, 3, "0.667");
+        assertFraction(1, 6, "0.1667");
+        assertFraction(5, 6, "0.8333");
+        assertFraction(4, 3, "1.3333");
+        assertFraction(19, 6, "3.1667");
+
+        // too few digits to tell, and plain decimals that are merely close
+        assertFraction(33, 100, "0.33");
+        assertFraction(3, 10, "0.3");
+        assertFraction(333, 1000000, "0.000333");
+    }
+
+    @Test
+    public void rendersWholeAndMixedNumbers() {
+        assertEquals("2", Quantity.parse("2").toString());
+        assertEquals("2", Quantity.parse("2.0").toString());
+        assertEquals("2", Quantity.parse("2.000").toString());
+        assertEquals("½", Quantity.parse("0.5").toString());
+        assertEquals("1½", Quantity.parse("1.5").toString());
+        assertEquals("2¼", Quantity.parse("2.25").toString());
+        assertEquals("1⅓", Quantity.parse("1.3333").toString());
+        assertEquals("⅚", Quantity.parse("0.8333").toString());
+        assertEquals("0.3", Quantity.parse("0.3").toString());
+        assertEquals("0", Quantity.parse("0").toString());
+    }
+
+    @Test
+    public void scalesThirdsAndSixthsBackToWholeNumbers() {
+        assertScaled("1", "0.3333", 3, 1);
+        assertScaled("2", "0.6667", 3, 1);
+        assertScaled("1", "0.1667", 6, 1);
+        assertScaled("5", "0.8333", 6, 1);
+        assertScaled("⅔", "0.3333", 2, 1);
+        assertScaled("⅓", "0.1667", 2, 1);
+        assertScaled("4", "1.3333", 6, 2);
+        assertScaled("⅙", "0.3333", 1, 2);
+        assertScaled("0.08", "0.1667", 1, 2);
+    }
+
+    @Test
+    public void leavesWhatItCantParseAlone() {
+        for (String text : new String[]{"", " ", "a pinch", "1/2", "1,5", "-1", ".", "1.2.3", "1234567890", "0.1234567"}) {
+            Quantity quantity = Quantity.parse(text);
+            assertFalse(text, quantity.isExact());
+            assertFalse(text, quantity.isSingular(1, 1));
+            assertEquals(text, quantity.toString());
+            assertEquals(text, scaled(quantity, 7, 3));
+        }
+    }
+
+    @Test
+    public void roundTripsEveryServingSize() {
+        for (String text : QUANTITIES) {
+            Quantity quantity = Quantity.parse(text);
+            assertTrue(text, quantity.isExact());
+
+            for (int defaultServingSize = 1; defaultServingSize <= MAX_SERVING_SIZE; defaultServingSize++) {
+                // back at the default serving size the text is exactly what was first rendered
+                assertEquals(text, quantity.toString(), scaled(quantity, defaultServingSize, defaultServingSize));
+
+                for (int servingSize = 1; servingSize <= MAX_SERVING_SIZE; servingSize++) {
+                    BigInteger numerator = BigInteger.valueOf(quantity.getNumerator() * servingSize);
+                    BigInteger denominator = BigInteger.valueOf(quantity.getDenominator() * defaultServingSize);
+                    BigInteger gcd = numerator.gcd(denominator);
+                    numerator = numerator.divide(gcd);
+                    denominator = denominator.divide(gcd);
+
+                    String where = text + " at " + servingSize + "/" + defaultServingSize;
+                    String rendered = scaled(quantity, servingSize, defaultServingSize);
+                    assertRenders(where, numerator, denominator, rendered);
+                    assertEquals(where, numerator.equals(BigInteger.ONE), quantity.isSingular(servingSize, defaultServingSize));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rescalesHundredsOfComponentsWithinAFrame() throws JSONException {
+        SyntheticRecipes recipes = new SyntheticRecipes(17, 500);
+        RecipeComponent[] components = new RecipeComponent[500];
+        for (int i = 0; i < components.length; i++) {
+            components[i] = RecipeComponent.fromJson(recipes.component(1 + i));
+        }
+
+        StringBuilder sb = new StringBuilder();
+        long[] nanos = new long[MAX_SERVING_SIZE];
+        for (int round = 0; round < 3; round++) {
+            for (int servingSize = 1; servingSize <= MAX_SERVING_SIZE; servingSize++) {
+                long start = System.nanoTime();
+                for (RecipeComponent component : components) {
+                    sb.setLength(0);
+                    component.appendReadableName(sb, servingSize, 4);
+                }
+                nanos[servingSize - 1] = System.nanoTime() - start;
+            }
+        }
+
+        Arrays.sort(nanos);
+        long median = nanos[nanos.length / 2];
+        assertTrue("median " + median + " ns", median < FRAME_NANOS);
+    }
+
+    private static void assertFraction(long numerator, long denominator, String text) {
+        Quantity quantity = Quantity.parse(text);
+        assertTrue(text, quantity.isExact());
+        assertEquals(text, numerator, quantity.getNumerator());
+        assertEquals(text, denominator, quantity.getDenominator());
+    }
+
+    private static void assertScaled(String expected, String text, int servingSize, int defaultServingSize) {
+        assertEquals(text, expected, scaled(Quantity.parse(text), servingSize, defaultServingSize));
+    }
+
+    private static String scaled(Quantity quantity, int servingSize, int defaultServingSize) {
+        StringBuilder sb = new StringBuilder();
+        quantity.appendTo(sb, servingSize, defaultServingSize);
+        return sb.toString();
+    }
+
+    /**
+     * Checks that a rendered quantity is the exact reduced fraction, a whole number followed by a
+     * vulgar fraction, or else the fraction rounded to two decimals but never to zero
+     */
+    private static void assertRenders(String where, BigInteger numerator, BigInteger denominator, String rendered) {
+        int i = 0;
+        while (i < rendered.length() && Character.isDigit(rendered.charAt(i))) {
+            i++;
+        }
+        BigInteger whole = i == 0 ? BigInteger.ZERO : new BigInteger(rendered.substring(0, i));
+        String rest = rendered.substring(i);
+
+        if (rest.isEmpty() && denominator.equals(BigInteger.ONE)) {
+            assertEquals(where, numerator, whole);
+        } else if (rest.length() == 1 && VULGAR_FRACTIONS.indexOf(rest.charAt(0)) >= 0) {
+            int[] fraction = VULGAR_VALUES[VULGAR_FRACTIONS.indexOf(rest.charAt(0))];
+            assertEquals(where, BigInteger.valueOf(fraction[1]), denominator);
+            assertEquals(where, whole.multiply(denominator).add(BigInteger.valueOf(fraction[0])), numerator);
+            if (whole.signum() == 0) {
+                assertEquals(where + " rendered " + rendered, 0, i);
+            }
+        } else {
+            // e.g. 207/208 rounds to a plain "1"
+            assertTrue(where + " rendered " + rendered, i > 0 && rest.matches("(\\.\\d{1,2})?") && !rest.endsWith("0"));
+            BigInteger hundredths = whole.multiply(BigInteger.valueOf(100))
+                    .add(rest.isEmpty() ? BigInteger.ZERO : new BigInteger((rest + "0").substring(1, 3)));
+            BigInteger expected = numerator.multiply(BigInteger.valueOf(100)).add(denominator.shiftRight(1))
+                    .divide(denominator).max(BigInteger.ONE);
+            assertEquals(where + " rendered " + rendered, expected, hundredths);
+            assertFalse(where + " has a vulgar fraction", denominator.compareTo(BigInteger.valueOf(8)) <= 0
+                    && hasVulgarFraction(numerator.mod(denominator).intValue(), denominator.intValue()));
+        }
+    }
+
+    private static boolean hasVulgarFraction(int numerator, int denominator) {
+        for (int[] fraction : VULGAR_VALUES) {
+            if (fraction[0] == numerator && fraction[1] == denominator) {
+                return true;
+            }
+        }
+        return false;
+    }
+}